@@ -0,0 +1,99 @@
+package me.asu.net.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+import me.asu.net.message.IMessage;
+import me.asu.net.socket.uitl.FrameDecoder;
+import me.asu.net.socket.uitl.WriteQueue;
+import me.asu.net.util.DirectBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ChannelBenchmark. 内存管道上的收发：{@link WriteQueue} 聚集写入 {@link Pipe}，
+ * 另一端由 {@link FrameDecoder} 读取并解包. 与 NioStream/NioConnection 的读写路径相同，
+ * 但没有 TCP 和 selector 的开销，用来单独衡量压包、写队列和拆包。
+ * 每次调用收发 {@link #BATCH} 个包，结果按包计。
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelBenchmark {
+
+    public final static int  BATCH      = 32;
+    private final static int READ_CHUNK = 16 * 1024;
+
+    @Param({"BOX", "LENGTH_BOX", "PROTOCOL_MSG"})
+    private Codec codec;
+
+    @Param({"64", "1024", "16384"})
+    private int bodySize;
+
+    private final ByteBuffer[] writeBatch = new ByteBuffer[WriteQueue.WRITE_BATCH_SIZE];
+    private IMessage           message;
+    private Pipe               pipe;
+    private WriteQueue         writeQueue;
+    private FrameDecoder       decoder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        message = codec.create(Codec.randomBody(bodySize));
+        pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        pipe.source().configureBlocking(false);
+        writeQueue = new WriteQueue(DirectBufferPool.getDefault());
+        decoder = new FrameDecoder(READ_CHUNK << 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writeQueue.clear();
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void writeAndDecode(Blackhole bh) throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            writeQueue.add(message);
+        }
+        int received = 0;
+        boolean flushed = false;
+        while (received < BATCH) {
+            // 管道缓冲区有限，写满后先读出一部分再继续写
+            if (!flushed) {
+                flushed = writeQueue.flush(pipe.sink(), writeBatch, null);
+            }
+            if (decoder.readFrom(pipe.source(), READ_CHUNK) < 0) {
+                throw new IOException("pipe closed");
+            }
+            IMessage m = codec.empty();
+            while (decoder.decode(m) > 0) {
+                bh.consume(m);
+                received++;
+                m = codec.empty();
+            }
+        }
+    }
+}
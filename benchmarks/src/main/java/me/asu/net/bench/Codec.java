@@ -0,0 +1,96 @@
+package me.asu.net.bench;
+
+import java.util.Random;
+import me.asu.net.message.Box;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.LengthBox;
+import me.asu.net.message.ProtocolMsg;
+
+/**
+ * Codec. 参与测试的报文格式，作为 JMH 的 @Param 使用.
+ *
+ * @version 1.0.0
+ */
+public enum Codec {
+
+    BOX {
+        @Override
+        public IMessage create(byte[] body) {
+            Box box = new Box();
+            box.body = body;
+            return box;
+        }
+
+        @Override
+        public IMessage empty() {
+            return new Box();
+        }
+    },
+
+    LENGTH_BOX {
+        @Override
+        public IMessage create(byte[] body) {
+            LengthBox box = new LengthBox();
+            box.body = body;
+            return box;
+        }
+
+        @Override
+        public IMessage empty() {
+            return new LengthBox();
+        }
+    },
+
+    PROTOCOL_MSG {
+        @Override
+        public IMessage create(byte[] body) {
+            ProtocolMsg msg = new ProtocolMsg();
+            msg.header.cmdId = 1;
+            msg.setBody(body);
+            return msg;
+        }
+
+        @Override
+        public IMessage empty() {
+            return new ProtocolMsg();
+        }
+    };
+
+    /**
+     * @param body 包体
+     * @return 带 body 的报文
+     */
+    public abstract IMessage create(byte[] body);
+
+    /**
+     * @return 用于解包的空报文
+     */
+    public abstract IMessage empty();
+
+    /**
+     * 固定种子的随机包体，各次运行的数据相同.
+     *
+     * @param size 长度
+     * @return 包体
+     */
+    public static byte[] randomBody(int size) {
+        byte[] body = new byte[size];
+        new Random(size).nextBytes(body);
+        return body;
+    }
+
+    /**
+     * 可压缩的包体，模拟文本协议.
+     *
+     * @param size 长度
+     * @return 包体
+     */
+    public static byte[] textBody(int size) {
+        final String text = "{\"id\":12345,\"name\":\"asu-toolkit\",\"tags\":[\"net\",\"codec\"],\"ok\":true}";
+        byte[] body = new byte[size];
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) text.charAt(i % text.length());
+        }
+        return body;
+    }
+}
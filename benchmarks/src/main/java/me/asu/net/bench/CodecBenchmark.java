@@ -0,0 +1,103 @@
+package me.asu.net.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import me.asu.net.message.IMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CodecBenchmark. 各报文格式的压包和解包，不经过网络.
+ * <ul>
+ * <li>pack / unpack：经过中间 byte[] 的旧接口；</li>
+ * <li>encodeTo / decodeFrom：直接读写 ByteBuffer，WriteQueue 和 FrameDecoder 使用的路径。</li>
+ * </ul>
+ * 配合 -prof gc 查看每次操作分配的字节数。
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"BOX", "LENGTH_BOX", "PROTOCOL_MSG"})
+    private Codec codec;
+
+    @Param({"64", "1024", "16384"})
+    private int bodySize;
+
+    private IMessage   message;
+    private byte[]     frame;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private ByteBuffer heapFrame;
+    private ByteBuffer directFrame;
+
+    @Setup
+    public void setup() throws IOException {
+        message = codec.create(Codec.randomBody(bodySize));
+        frame = message.pack();
+        heapBuffer = ByteBuffer.allocate(frame.length);
+        directBuffer = ByteBuffer.allocateDirect(frame.length);
+        heapFrame = ByteBuffer.wrap(frame);
+        directFrame = ByteBuffer.allocateDirect(frame.length);
+        directFrame.put(frame);
+        directFrame.flip();
+    }
+
+    @Benchmark
+    public byte[] pack() throws IOException {
+        return message.pack();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeToHeap() throws IOException {
+        heapBuffer.clear();
+        message.encodeTo(heapBuffer);
+        return heapBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer encodeToDirect() throws IOException {
+        directBuffer.clear();
+        message.encodeTo(directBuffer);
+        return directBuffer;
+    }
+
+    @Benchmark
+    public IMessage unpack() {
+        IMessage m = codec.empty();
+        m.unpack(frame, 0, frame.length);
+        return m;
+    }
+
+    @Benchmark
+    public IMessage decodeFromHeap() {
+        IMessage m = codec.empty();
+        heapFrame.position(0);
+        m.decodeFrom(heapFrame);
+        return m;
+    }
+
+    @Benchmark
+    public IMessage decodeFromDirect() {
+        IMessage m = codec.empty();
+        directFrame.position(0);
+        m.decodeFrom(directFrame);
+        return m;
+    }
+}
@@ -0,0 +1,65 @@
+package me.asu.net.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import me.asu.net.codec.Compression;
+import me.asu.net.codec.MessageCodec;
+import me.asu.net.message.ProtocolMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CompressionBenchmark. {@link MessageCodec} 对 ProtocolMsg 的压缩和解压.
+ * text 为可压缩的文本，random 为不可压缩的数据（压缩后不变小，原样发送）。
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"GZIP", "DEFLATE"})
+    private Compression compression;
+
+    @Param({"1024", "16384"})
+    private int bodySize;
+
+    @Param({"text", "random"})
+    private String payload;
+
+    private MessageCodec codec;
+    private ProtocolMsg  message;
+    private ProtocolMsg  encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = new MessageCodec(compression, 0);
+        message = new ProtocolMsg();
+        message.setBody("text".equals(payload) ? Codec.textBody(bodySize) : Codec.randomBody(bodySize));
+        encoded = codec.encode(message);
+    }
+
+    @Benchmark
+    public ProtocolMsg encode() throws IOException {
+        return codec.encode(message);
+    }
+
+    @Benchmark
+    public List<ProtocolMsg> decode() throws IOException {
+        return codec.decode(encoded);
+    }
+}
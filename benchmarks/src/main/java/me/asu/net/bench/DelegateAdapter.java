@@ -0,0 +1,42 @@
+package me.asu.net.bench;
+
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.socket.client.Delegate;
+
+/**
+ * DelegateAdapter. 空实现，子类只覆盖需要的回调.
+ *
+ * @version 1.0.0
+ */
+public class DelegateAdapter implements Delegate {
+
+    @Override
+    public void onOpen(String host, int port) {
+    }
+
+    @Override
+    public void onSend(IMessage ibox) {
+    }
+
+    @Override
+    public void onRecv(IMessage ibox) {
+    }
+
+    @Override
+    public void onClose(String host, int port) {
+    }
+
+    @Override
+    public void onError(int code, IMessage ibox) {
+    }
+
+    @Override
+    public void onTimeout(String host, int port) {
+    }
+
+    @Override
+    public ProtocolMsg createMessage() {
+        return new ProtocolMsg();
+    }
+}
@@ -0,0 +1,314 @@
+package me.asu.net.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.message.ProtocolMsgHeader;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.client.NioClient;
+import me.asu.net.socket.client.PipelineClient;
+import me.asu.net.socket.client.SimpleClient;
+import me.asu.net.socket.client.SimpleClientNioAsync;
+import me.asu.net.socket.server.BlockingConnection;
+import me.asu.net.socket.server.BlockingServer;
+import me.asu.net.socket.server.NioConnection;
+import me.asu.net.socket.server.NioServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LoopbackBenchmark. 客户端和回显服务端通过 127.0.0.1 收发 ProtocolMsg.
+ * <ul>
+ * <li>roundTrip：发一个等一个，每秒往返次数；</li>
+ * <li>roundTripLatency：同 roundTrip，SampleTime 模式给出 p50/p99 延迟（微秒）；</li>
+ * <li>burst：连发 {@link #BURST} 个再全部收回，衡量流水线下的吞吐，结果按包计。</li>
+ * </ul>
+ * 客户端：SIMPLE（阻塞的 Stream）、NIO_STREAM（SimpleClientNioAsync/NioStream）、NIO_CLIENT、PIPELINE（PipelineClient）；
+ * 服务端：NIO（NioServer）、BLOCKING（BlockingServer）。
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark {
+
+    public final static int     BURST = 64;
+    private final static String HOST  = "127.0.0.1";
+
+    public enum ServerType {
+        NIO, BLOCKING
+    }
+
+    public enum ClientType {
+        SIMPLE, NIO_STREAM, NIO_CLIENT, PIPELINE
+    }
+
+    @Param({"NIO", "BLOCKING"})
+    private ServerType serverType;
+
+    @Param({"SIMPLE", "NIO_STREAM", "NIO_CLIENT", "PIPELINE"})
+    private ClientType clientType;
+
+    @Param({"64", "1024"})
+    private int bodySize;
+
+    private Closeable   server;
+    private Endpoint    endpoint;
+    private ProtocolMsg request;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        int port;
+        if (serverType == ServerType.NIO) {
+            NioServer s = new NioServer(HOST, 0);
+            s.setDelegateFactory(new Function<NioConnection, Delegate>() {
+                @Override
+                public Delegate apply(final NioConnection conn) {
+                    return new DelegateAdapter() {
+                        @Override
+                        public void onRecv(IMessage ibox) {
+                            conn.send(toResponse(ibox));
+                        }
+                    };
+                }
+            });
+            s.start();
+            port = s.getLocalPort();
+            server = s;
+        } else {
+            BlockingServer s = new BlockingServer(HOST, 0);
+            s.setDelegateFactory(new Function<BlockingConnection, Delegate>() {
+                @Override
+                public Delegate apply(final BlockingConnection conn) {
+                    return new DelegateAdapter() {
+                        @Override
+                        public void onRecv(IMessage ibox) {
+                            conn.send(toResponse(ibox));
+                        }
+                    };
+                }
+            });
+            s.start();
+            port = s.getLocalPort();
+            server = s;
+        }
+
+        switch (clientType) {
+            case SIMPLE:
+                endpoint = new SimpleEndpoint(port);
+                break;
+            case NIO_STREAM:
+                endpoint = new NioStreamEndpoint(port);
+                break;
+            case NIO_CLIENT:
+                endpoint = new NioClientEndpoint(port);
+                break;
+            default:
+                endpoint = new PipelineEndpoint(port);
+                break;
+        }
+
+        request = new ProtocolMsg();
+        request.header.cmdId = 1;
+        request.header.bodyType = ProtocolMsgHeader.BODY_TYPE_RAW;
+        request.setBody(Codec.randomBody(bodySize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        endpoint.close();
+        server.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public IMessage roundTrip() throws Exception {
+        endpoint.send(request);
+        return endpoint.receive();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public IMessage roundTripLatency() throws Exception {
+        endpoint.send(request);
+        return endpoint.receive();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public IMessage burst() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            endpoint.send(request);
+        }
+        IMessage last = null;
+        for (int i = 0; i < BURST; i++) {
+            last = endpoint.receive();
+        }
+        return last;
+    }
+
+    private static IMessage toResponse(IMessage ibox) {
+        ((ProtocolMsg) ibox).header.cmdType = ProtocolMsgHeader.CMD_TYPE_RESPONSE;
+        return ibox;
+    }
+
+    /**
+     * 统一各客户端的发送和接收.
+     */
+    abstract static class Endpoint implements Closeable {
+
+        /** 收不到响应时的等待上限，避免服务端出错时基准测试一直挂住. */
+        final static long RECEIVE_TIMEOUT = 10;
+
+        abstract void send(ProtocolMsg msg) throws Exception;
+
+        abstract IMessage receive() throws Exception;
+    }
+
+    /**
+     * 异步客户端在回调中放入队列，测试线程从队列取.
+     */
+    abstract static class QueuedEndpoint extends Endpoint {
+
+        final BlockingQueue<IMessage> inbox    = new ArrayBlockingQueue<IMessage>(BURST << 1);
+        final Delegate                delegate = new DelegateAdapter() {
+            @Override
+            public void onRecv(IMessage ibox) {
+                inbox.offer(ibox);
+            }
+        };
+
+        @Override
+        IMessage receive() throws Exception {
+            IMessage msg = inbox.poll(RECEIVE_TIMEOUT, TimeUnit.SECONDS);
+            if (msg == null) {
+                throw new IOException("no response in " + RECEIVE_TIMEOUT + "s");
+            }
+            return msg;
+        }
+    }
+
+    static final class SimpleEndpoint extends Endpoint {
+
+        private final SimpleClient client;
+
+        SimpleEndpoint(int port) {
+            client = new SimpleClient(HOST, port);
+            if (!client.tryConnect()) {
+                throw new IllegalStateException("cannot connect to " + HOST + ":" + port);
+            }
+        }
+
+        @Override
+        void send(ProtocolMsg msg) {
+            client.send(msg);
+        }
+
+        @Override
+        IMessage receive() throws IOException {
+            IMessage msg = client.receive();
+            if (msg == null) {
+                throw new IOException("connection closed");
+            }
+            return msg;
+        }
+
+        @Override
+        public void close() {
+            client.closeConn();
+        }
+    }
+
+    static final class NioStreamEndpoint extends QueuedEndpoint {
+
+        private final SimpleClientNioAsync client;
+
+        NioStreamEndpoint(int port) throws IOException {
+            client = new SimpleClientNioAsync(delegate, HOST, port);
+            client.start();
+        }
+
+        @Override
+        void send(ProtocolMsg msg) {
+            client.send(msg);
+        }
+
+        @Override
+        public void close() {
+            client.stop();
+        }
+    }
+
+    static final class NioClientEndpoint extends QueuedEndpoint {
+
+        private final NioClient client;
+
+        NioClientEndpoint(int port) throws IOException {
+            client = new NioClient(HOST, port);
+            client.setDelegate(delegate);
+            client.start();
+        }
+
+        @Override
+        void send(ProtocolMsg msg) {
+            client.send(msg);
+        }
+
+        @Override
+        public void close() {
+            client.close();
+        }
+    }
+
+    static final class PipelineEndpoint extends Endpoint {
+
+        private final PipelineClient client;
+        /** 按发送顺序排队的响应，receive 依次等待. */
+        private final BlockingQueue<CompletableFuture<ProtocolMsg>> futures
+                = new ArrayBlockingQueue<CompletableFuture<ProtocolMsg>>(BURST << 1);
+
+        PipelineEndpoint(int port) throws IOException {
+            client = new PipelineClient(HOST, port);
+            client.start();
+        }
+
+        @Override
+        void send(ProtocolMsg msg) {
+            futures.add(client.request(msg));
+        }
+
+        @Override
+        IMessage receive() throws Exception {
+            return futures.remove().get(RECEIVE_TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() {
+            client.close();
+        }
+    }
+}
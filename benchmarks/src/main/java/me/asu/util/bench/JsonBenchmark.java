@@ -0,0 +1,104 @@
+package me.asu.util.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import me.asu.util.JsonUtils;
+import me.asu.util.OKJSON;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JsonBenchmark. 同一份数据分别用 OKJSON 和 JsonUtils（Jackson）生成和解析.
+ * <ul>
+ * <li>okjsonStringify / jacksonSerialize：对象生成 String；</li>
+ * <li>okjsonStringifyToStream / jacksonSerializeToBytes：直接输出 UTF-8 字节；</li>
+ * <li>okjsonParse / jacksonDeserialize：按 {@link Payload#type()} 解析，Map 用 toMap，List 用 toList，POJO 用 toJson。</li>
+ * </ul>
+ * 两边解析的是同一个 JSON 字符串。配合 -prof gc 查看每次操作分配的字节数。
+ *
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"SMALL_MAP", "DEEP_POJO", "LARGE_ARRAY", "ESCAPED_STRINGS", "NUMBERS"})
+    private Payload payload;
+
+    private Object                value;
+    private Class<?>              type;
+    private String                json;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        value = payload.create();
+        type = payload.type();
+        json = OKJSON.stringify(value, 0);
+        if (json == null) {
+            throw new IllegalStateException("okjson stringify failed: " + OKJSON.getErrorDesc());
+        }
+        out = new ByteArrayOutputStream(json.length() * 2);
+
+        // 先确认两边都能解析，避免测到的是出错路径
+        if (okjsonParse() == null || OKJSON.getErrorCode() != 0) {
+            throw new IllegalStateException("okjson parse failed: " + OKJSON.getErrorDesc());
+        }
+        if (jacksonDeserialize() == null) {
+            throw new IllegalStateException("jackson deserialize returned null");
+        }
+    }
+
+    @Benchmark
+    public String okjsonStringify() {
+        return OKJSON.stringify(value, 0);
+    }
+
+    @Benchmark
+    public String jacksonSerialize() {
+        return JsonUtils.serialize(value);
+    }
+
+    @Benchmark
+    public int okjsonStringifyToStream() {
+        out.reset();
+        OKJSON.stringify(value, out, 0);
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] jacksonSerializeToBytes() {
+        return JsonUtils.serializeToBytes(value);
+    }
+
+    @Benchmark
+    public Object okjsonParse() {
+        if (type == Map.class) {
+            return OKJSON.toMap(json, 0);
+        }
+        if (type == List.class) {
+            return OKJSON.toList(json, 0);
+        }
+        return OKJSON.toJson(json, type, 0);
+    }
+
+    @Benchmark
+    public Object jacksonDeserialize() {
+        return JsonUtils.deserialize(json, type);
+    }
+}
@@ -0,0 +1,154 @@
+package me.asu.util.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Payload. 参与测试的 JSON 数据形态，作为 JMH 的 @Param 使用.
+ * 每种形态给出生成用的对象和解析时绑定的类型：Map、List 或 POJO。
+ *
+ * @version 1.0.0
+ */
+public enum Payload {
+
+    /** 几个标量字段的 Map，接口请求和消息体的典型大小. */
+    SMALL_MAP(Map.class) {
+        @Override
+        public Object create() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>();
+            m.put("id", 10086);
+            m.put("name", "asu-toolkit");
+            m.put("active", Boolean.TRUE);
+            m.put("score", 98.5);
+            m.put("version", "1.0.0");
+            m.put("timestamp", 1700000000000L);
+            return m;
+        }
+    },
+
+    /** 4 层嵌套的 {@link Order}，带 8 个 Item. */
+    DEEP_POJO(Order.class) {
+        @Override
+        public Object create() {
+            return order(1, 8);
+        }
+    },
+
+    /** {@link #LARGE_ARRAY_SIZE} 个 Item 组成的数组，解析为 List&lt;Map&gt;. */
+    LARGE_ARRAY(List.class) {
+        @Override
+        public Object create() {
+            List<Order.Item> items = new ArrayList<Order.Item>(LARGE_ARRAY_SIZE);
+            for (int i = 0; i < LARGE_ARRAY_SIZE; i++) {
+                items.add(item(i));
+            }
+            return items;
+        }
+    },
+
+    /** 值为较长字符串的 Map，含引号、反斜杠、换行、制表符和中文. */
+    ESCAPED_STRINGS(Map.class) {
+        @Override
+        public Object create() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>();
+            for (int i = 0; i < 8; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = 0; j < 4; j++) {
+                    sb.append("say \"hello\" to C:\\path\\").append(i).append("\n\tline ").append(j)
+                      .append(" 中文内容 ");
+                }
+                m.put("text" + i, sb.toString());
+            }
+            return m;
+        }
+    },
+
+    /** {@link #NUMBERS_SIZE} 个整数、长整数和小数混合的数组. */
+    NUMBERS(List.class) {
+        @Override
+        public Object create() {
+            Random random = new Random(42);
+            List<Object> numbers = new ArrayList<Object>(NUMBERS_SIZE);
+            for (int i = 0; i < NUMBERS_SIZE; i++) {
+                switch (i % 3) {
+                    case 0:
+                        numbers.add(random.nextInt(100000));
+                        break;
+                    case 1:
+                        numbers.add(random.nextLong() >>> 8);
+                        break;
+                    default:
+                        numbers.add(random.nextInt(1000000) / 100.0 + 0.5);
+                        break;
+                }
+            }
+            return numbers;
+        }
+    };
+
+    public final static int LARGE_ARRAY_SIZE = 1000;
+    public final static int NUMBERS_SIZE     = 1000;
+
+    private final Class<?> type;
+
+    Payload(Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * @return 用于生成 JSON 的对象，每次新建
+     */
+    public abstract Object create();
+
+    /**
+     * @return 解析时绑定的类型
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    static Order order(long id, int itemCount) {
+        Order.Geo geo = new Order.Geo();
+        geo.setLat(31.2304);
+        geo.setLng(121.4737);
+
+        Order.Address address = new Order.Address();
+        address.setStreet("No.1 Century Avenue");
+        address.setCity("Shanghai");
+        address.setZip("200120");
+        address.setGeo(geo);
+
+        Order.Customer customer = new Order.Customer();
+        customer.setId(42);
+        customer.setName("Zhang San");
+        customer.setEmail("zhangsan@example.com");
+        customer.setAddress(address);
+
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus("SHIPPED");
+        order.setPaid(true);
+        order.setCustomer(customer);
+        ArrayList<Order.Item> items = new ArrayList<Order.Item>(itemCount);
+        double total = 0;
+        for (int i = 0; i < itemCount; i++) {
+            Order.Item item = item(i);
+            total += item.getPrice() * item.getQuantity();
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setTotal(total);
+        return order;
+    }
+
+    static Order.Item item(int i) {
+        Order.Item item = new Order.Item();
+        item.setSku("SKU-" + (100000 + i));
+        item.setQuantity(1 + i % 5);
+        item.setPrice(9.5 + i % 100);
+        return item;
+    }
+}
@@ -1,6 +1,8 @@
 package me.asu.cache;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 缓存接口
@@ -131,4 +133,62 @@ public interface Cache<K, V> extends Iterable<V> {
 	 * @return 是否包含key
 	 */
 	boolean containsKey(K key);
+
+	/**
+	 * 获得对象的写入时间，不更新访问时间也不计入统计
+	 * 
+	 * @param key KEY
+	 * @return 写入时间，不存在、已过期或不记录写入时间的实现返回<code>-1</code>
+	 */
+	default long writeTime(K key) {
+		return -1;
+	}
+
+	/**
+	 * 批量获得对象，默认逐个调用 {@link #get(Object)}，实现类可覆盖为一次加锁
+	 * 
+	 * @param keys 键
+	 * @return 键值对，按键的顺序排列，不存在或已过期的键不包含在结果中
+	 */
+	default Map<K, V> getAll(Iterable<? extends K> keys) {
+		final Map<K, V> result = new LinkedHashMap<>();
+		for (K key : keys) {
+			final V value = get(key);
+			if (null != value) {
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 批量放入缓存，使用默认失效时长，默认逐个调用 {@link #put(Object, Object)}，实现类可覆盖为一次加锁并统一淘汰
+	 * 
+	 * @param map 键值对
+	 */
+	default void putAll(Map<? extends K, ? extends V> map) {
+		for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * 批量移除对象，默认逐个调用 {@link #remove(Object)}，实现类可覆盖为一次加锁
+	 * 
+	 * @param keys 键
+	 */
+	default void removeAll(Iterable<? extends K> keys) {
+		for (K key : keys) {
+			remove(key);
+		}
+	}
+
+	/**
+	 * 统计信息快照，不统计的实现返回 {@link CacheStats#EMPTY}
+	 * 
+	 * @return 统计信息
+	 */
+	default CacheStats stats() {
+		return CacheStats.EMPTY;
+	}
 }
@@ -0,0 +1,42 @@
+package me.asu.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存加载器，缓存未命中时用于计算值
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @see LoadingCache
+ */
+public interface CacheLoader<K, V> {
+
+	/**
+	 * 加载键对应的值
+	 *
+	 * @param key 键
+	 * @return 值，返回<code>null</code>表示不存在，不会放入缓存
+	 * @throws Exception 加载异常
+	 */
+	V load(K key) throws Exception;
+
+	/**
+	 * 批量加载，默认逐个调用 {@link #load(Object)}，可覆盖为一次批量查询
+	 *
+	 * @param keys 键
+	 * @return 键值对，不存在的键可以不包含在结果中
+	 * @throws Exception 加载异常
+	 */
+	default Map<K, V> loadAll(Collection<? extends K> keys) throws Exception {
+		final Map<K, V> result = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+		for (K key : keys) {
+			final V value = load(key);
+			if (null != value) {
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+}
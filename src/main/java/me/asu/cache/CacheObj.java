@@ -14,18 +14,23 @@ public class CacheObj<K, V> {
 	final K key;
 	final V obj;
 	
+	/** 写入时间 */
+	long writeTime;
 	/** 上次访问时间 */
 	long lastAccess; 
 	/** 访问次数 */
 	long accessCount;
 	/** 对象存活时长，0表示永久存活*/
 	long ttl;
+	/** 权重，仅在缓存设置了 {@link Weigher} 时计算 */
+	int weight;
 	
 	public CacheObj(K key, V obj, long ttl) {
 		this.key = key;
 		this.obj = obj;
 		this.ttl = ttl;
-		this.lastAccess = System.currentTimeMillis();
+		this.writeTime = System.currentTimeMillis();
+		this.lastAccess = this.writeTime;
 	}
 	
 	/**
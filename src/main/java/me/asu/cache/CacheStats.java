@@ -0,0 +1,237 @@
+package me.asu.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import me.asu.util.timetrace.TracerDriver;
+
+/**
+ * 缓存统计信息，不可变的快照
+ * <p>
+ * 各项均为累计值，两次快照相减（{@link #minus(CacheStats)}）可以得到一段时间内的增量，
+ * 增量可以通过 {@link #publishTo(TracerDriver, String)} 发布到 {@link TracerDriver}。
+ *
+ * @see StatsCounter
+ */
+public final class CacheStats {
+
+	/** 没有任何统计 */
+	public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, new long[RemovalCause.values().length]);
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long totalLoadTime;
+	private final long[] removalCounts;
+
+	/**
+	 * 构造
+	 *
+	 * @param hitCount 命中数
+	 * @param missCount 未命中数
+	 * @param loadSuccessCount 加载成功数
+	 * @param loadFailureCount 加载失败数
+	 * @param totalLoadTime 加载总耗时，单位纳秒
+	 * @param removalCounts 按 {@link RemovalCause#ordinal()} 排列的移除数
+	 */
+	public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+			long totalLoadTime, long[] removalCounts) {
+		if (removalCounts.length != RemovalCause.values().length) {
+			throw new IllegalArgumentException("removalCounts length must be " + RemovalCause.values().length);
+		}
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTime = totalLoadTime;
+		this.removalCounts = removalCounts.clone();
+	}
+
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return 未命中数
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return 请求数，命中数与未命中数之和
+	 */
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * @return 命中率，没有请求时为<code>1.0</code>
+	 */
+	public double getHitRate() {
+		final long requestCount = getRequestCount();
+		return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * @return 未命中率，没有请求时为<code>0.0</code>
+	 */
+	public double getMissRate() {
+		final long requestCount = getRequestCount();
+		return (requestCount == 0) ? 0.0 : (double) missCount / requestCount;
+	}
+
+	/**
+	 * @return 加载成功数
+	 */
+	public long getLoadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	/**
+	 * @return 加载失败数，加载器抛出异常或返回<code>null</code>
+	 */
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * @return 加载总耗时，单位纳秒
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * @return 平均加载耗时，单位纳秒，没有加载时为<code>0.0</code>
+	 */
+	public double getAverageLoadPenalty() {
+		final long loadCount = loadSuccessCount + loadFailureCount;
+		return (loadCount == 0) ? 0.0 : (double) totalLoadTime / loadCount;
+	}
+
+	/**
+	 * @param cause 移除原因
+	 * @return 按原因统计的移除数
+	 */
+	public long getRemovalCount(RemovalCause cause) {
+		return removalCounts[cause.ordinal()];
+	}
+
+	/**
+	 * @return 因超过容量被淘汰的数量
+	 */
+	public long getEvictionCount() {
+		return getRemovalCount(RemovalCause.SIZE);
+	}
+
+	/**
+	 * @return 因过期被移除的数量
+	 */
+	public long getExpirationCount() {
+		return getRemovalCount(RemovalCause.EXPIRED);
+	}
+
+	/**
+	 * 相加，用于汇总多个缓存或分段的统计
+	 *
+	 * @param other 另一个统计
+	 * @return 新的统计
+	 */
+	public CacheStats plus(CacheStats other) {
+		final long[] removals = removalCounts.clone();
+		for (int i = 0; i < removals.length; i++) {
+			removals[i] += other.removalCounts[i];
+		}
+		return new CacheStats(hitCount + other.hitCount, missCount + other.missCount,
+				loadSuccessCount + other.loadSuccessCount, loadFailureCount + other.loadFailureCount,
+				totalLoadTime + other.totalLoadTime, removals);
+	}
+
+	/**
+	 * 相减，用于计算两次快照之间的增量，结果不会小于0
+	 *
+	 * @param other 较早的统计
+	 * @return 新的统计
+	 */
+	public CacheStats minus(CacheStats other) {
+		final long[] removals = removalCounts.clone();
+		for (int i = 0; i < removals.length; i++) {
+			removals[i] = Math.max(0, removals[i] - other.removalCounts[i]);
+		}
+		return new CacheStats(Math.max(0, hitCount - other.hitCount), Math.max(0, missCount - other.missCount),
+				Math.max(0, loadSuccessCount - other.loadSuccessCount),
+				Math.max(0, loadFailureCount - other.loadFailureCount),
+				Math.max(0, totalLoadTime - other.totalLoadTime), removals);
+	}
+
+	/**
+	 * 发布到 {@link TracerDriver}<br>
+	 * 计数器按增量累加，因此应发布两次快照的差（{@link #minus(CacheStats)}）而不是累计值。
+	 * 计数器名称为 <code>name.hit</code>、<code>name.miss</code>、<code>name.load.success</code>、
+	 * <code>name.load.failure</code> 以及 <code>name.removal.原因</code>，加载耗时记录为 <code>name.load</code>。
+	 *
+	 * @param driver {@link TracerDriver}
+	 * @param name 缓存名称，作为计数器名称的前缀
+	 */
+	public void publishTo(TracerDriver driver, String name) {
+		addCount(driver, name + ".hit", hitCount);
+		addCount(driver, name + ".miss", missCount);
+		addCount(driver, name + ".load.success", loadSuccessCount);
+		addCount(driver, name + ".load.failure", loadFailureCount);
+		for (RemovalCause cause : RemovalCause.values()) {
+			addCount(driver, name + ".removal." + cause.name().toLowerCase(), getRemovalCount(cause));
+		}
+		if (totalLoadTime > 0) {
+			driver.addTrace(name + ".load", totalLoadTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static void addCount(TracerDriver driver, String name, long count) {
+		if (count > 0) {
+			driver.addCount(name, (int) Math.min(count, Integer.MAX_VALUE));
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof CacheStats)) {
+			return false;
+		}
+		final CacheStats other = (CacheStats) o;
+		return hitCount == other.hitCount && missCount == other.missCount
+				&& loadSuccessCount == other.loadSuccessCount && loadFailureCount == other.loadFailureCount
+				&& totalLoadTime == other.totalLoadTime && Arrays.equals(removalCounts, other.removalCounts);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Long.hashCode(hitCount);
+		result = 31 * result + Long.hashCode(missCount);
+		result = 31 * result + Long.hashCode(loadSuccessCount);
+		result = 31 * result + Long.hashCode(loadFailureCount);
+		result = 31 * result + Long.hashCode(totalLoadTime);
+		result = 31 * result + Arrays.hashCode(removalCounts);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("CacheStats{");
+		sb.append("hitCount=").append(hitCount);
+		sb.append(", missCount=").append(missCount);
+		sb.append(", loadSuccessCount=").append(loadSuccessCount);
+		sb.append(", loadFailureCount=").append(loadFailureCount);
+		sb.append(", totalLoadTime=").append(totalLoadTime);
+		for (RemovalCause cause : RemovalCause.values()) {
+			sb.append(", ").append(cause.name().toLowerCase()).append('=').append(getRemovalCount(cause));
+		}
+		return sb.append('}').toString();
+	}
+}
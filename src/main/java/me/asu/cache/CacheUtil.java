@@ -1,10 +1,14 @@
 package me.asu.cache;
 
+import me.asu.cache.impl.DefaultLoadingCache;
 import me.asu.cache.impl.FIFOCache;
 import me.asu.cache.impl.LFUCache;
 import me.asu.cache.impl.LRUCache;
 import me.asu.cache.impl.NoCache;
+import me.asu.cache.impl.OffHeapCache;
+import me.asu.cache.impl.SegmentedCache;
 import me.asu.cache.impl.TimedCache;
+import me.asu.cache.impl.TinyLFUCache;
 import me.asu.cache.impl.WeakCache;
 
 /**
@@ -37,6 +41,20 @@ public class CacheUtil {
 		return new FIFOCache<K, V>(capacity);
 	}
 	
+	/**
+	 * 创建FIFO(first in first out) 先进先出缓存，按权重之和限制容量.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器，例如返回值的字节数
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link FIFOCache}
+	 */
+	public static <K, V> FIFOCache<K, V> newFIFOCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout){
+		return new FIFOCache<K, V>(maxWeight, weigher, timeout);
+	}
+	
 	/**
 	 * 创建LFU(least frequently used) 最少使用率缓存.
 	 * 
@@ -63,6 +81,20 @@ public class CacheUtil {
 	}
 	
 	
+	/**
+	 * 创建LFU(least frequently used) 最少使用率缓存，按权重之和限制容量.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器，例如返回值的字节数
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link LFUCache}
+	 */
+	public static <K, V> LFUCache<K, V> newLFUCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout){
+		return new LFUCache<K, V>(maxWeight, weigher, timeout);
+	}
+	
 	/**
 	 * 创建LRU (least recently used)最近最久未使用缓存.
 	 * 
@@ -88,6 +120,184 @@ public class CacheUtil {
 		return new LRUCache<K, V>(capacity);
 	}
 	
+	/**
+	 * 创建LRU (least recently used)最近最久未使用缓存，按权重之和限制容量.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器，例如返回值的字节数
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link LRUCache}
+	 */
+	public static <K, V> LRUCache<K, V> newLRUCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout){
+		return new LRUCache<K, V>(maxWeight, weigher, timeout);
+	}
+	
+	/**
+	 * 创建W-TinyLFU缓存，按访问频率准入，O(1)淘汰.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link TinyLFUCache}
+	 */
+	public static <K, V> TinyLFUCache<K, V> newTinyLFUCache(int capacity, long timeout){
+		return new TinyLFUCache<K, V>(capacity, timeout);
+	}
+	
+	/**
+	 * 创建W-TinyLFU缓存，按访问频率准入，O(1)淘汰.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param capacity 容量
+	 * @return {@link TinyLFUCache}
+	 */
+	public static <K, V> TinyLFUCache<K, V> newTinyLFUCache(int capacity){
+		return new TinyLFUCache<K, V>(capacity);
+	}
+	
+	/**
+	 * 创建分段（锁分离）缓存，各段相互独立加锁，适合多线程高并发访问.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param policy 段内淘汰策略
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedCache(SegmentedCache.Policy policy, int capacity, long timeout, int concurrencyLevel){
+		return new SegmentedCache<K, V>(policy, capacity, timeout, concurrencyLevel);
+	}
+	
+	/**
+	 * 创建分段（锁分离）缓存，按权重之和限制容量，最大权重平均分配到各段.
+	 * 权重超过 maxWeight / 段数 的对象不会放入，见 {@link SegmentedCache#getMaxItemWeight()}。
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param policy 段内淘汰策略，不支持{@link SegmentedCache.Policy#TINY_LFU}
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器，例如返回值的字节数
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedCache(SegmentedCache.Policy policy, long maxWeight, Weigher<? super K, ? super V> weigher, long timeout, int concurrencyLevel){
+		return new SegmentedCache<K, V>(policy, maxWeight, weigher, timeout, concurrencyLevel);
+	}
+
+	/**
+	 * 创建分段（锁分离）缓存，按权重之和限制容量，段数减少到权重不超过 maxItemWeight 的对象都能放入.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param policy 段内淘汰策略，不支持{@link SegmentedCache.Policy#TINY_LFU}
+	 * @param maxWeight 最大权重
+	 * @param maxItemWeight 单个对象的最大权重，不能超过 maxWeight
+	 * @param weigher 权重计算器，例如返回值的字节数
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedCache(SegmentedCache.Policy policy, long maxWeight, long maxItemWeight, Weigher<? super K, ? super V> weigher, long timeout, int concurrencyLevel){
+		return new SegmentedCache<K, V>(policy, maxWeight, maxItemWeight, weigher, timeout, concurrencyLevel);
+	}
+	
+	/**
+	 * 创建分段（锁分离）的FIFO(first in first out) 先进先出缓存.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedFIFOCache(int capacity, long timeout){
+		return new SegmentedCache<K, V>(SegmentedCache.Policy.FIFO, capacity, timeout);
+	}
+	
+	/**
+	 * 创建分段（锁分离）的LFU(least frequently used) 最少使用率缓存.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedLFUCache(int capacity, long timeout){
+		return new SegmentedCache<K, V>(SegmentedCache.Policy.LFU, capacity, timeout);
+	}
+	
+	/**
+	 * 创建分段（锁分离）的LRU (least recently used)最近最久未使用缓存.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link SegmentedCache}
+	 */
+	public static <K, V> SegmentedCache<K, V> newSegmentedLRUCache(int capacity, long timeout){
+		return new SegmentedCache<K, V>(SegmentedCache.Policy.LRU, capacity, timeout);
+	}
+	
+	/**
+	 * 包装为可加载的缓存，同一个键的并发未命中只加载一次.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param cache 被包装的缓存，决定容量、淘汰策略和失效时长
+	 * @return {@link DefaultLoadingCache}
+	 */
+	public static <K, V> LoadingCache<K, V> newLoadingCache(Cache<K, V> cache){
+		return new DefaultLoadingCache<K, V>(cache);
+	}
+	
+	/**
+	 * 包装为可加载的缓存，同一个键的并发未命中只加载一次，写入超过指定时长的对象在命中时后台刷新.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param cache 被包装的缓存，决定容量、淘汰策略和失效时长
+	 * @param refreshAfterWrite 写入后自动刷新的时长，单位：毫秒
+	 * @return {@link DefaultLoadingCache}
+	 */
+	public static <K, V> LoadingCache<K, V> newLoadingCache(Cache<K, V> cache, long refreshAfterWrite){
+		return new DefaultLoadingCache<K, V>(cache, refreshAfterWrite);
+	}
+	
+	/**
+	 * 创建堆外缓存，值原样存放在直接内存中.
+	 * 
+	 * @param <K> Key类型
+	 * @param maxMemory 最大内存，单位：字节
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link OffHeapCache}
+	 */
+	public static <K> OffHeapCache<K, byte[]> newOffHeapCache(long maxMemory, long timeout){
+		return new OffHeapCache<K, byte[]>(OffHeapCache.BYTES, maxMemory, timeout);
+	}
+	
+	/**
+	 * 创建堆外缓存，值序列化后存放在直接内存中.
+	 * 
+	 * @param <K> Key类型
+	 * @param <V> Value类型
+	 * @param codec 值的序列化方式
+	 * @param maxMemory 最大内存，单位：字节
+	 * @param timeout 过期时长，单位：毫秒
+	 * @return {@link OffHeapCache}
+	 */
+	public static <K, V> OffHeapCache<K, V> newOffHeapCache(OffHeapCache.Codec<V> codec, long maxMemory, long timeout){
+		return new OffHeapCache<K, V>(codec, maxMemory, timeout);
+	}
+	
 	/**
 	 * 创建定时缓存.
 	 * 
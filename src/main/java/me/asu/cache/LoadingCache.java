@@ -0,0 +1,50 @@
+package me.asu.cache;
+
+import java.util.Map;
+
+/**
+ * 可加载的缓存接口<br>
+ * 未命中时通过 {@link CacheLoader} 计算值并放入缓存，同一个键的并发加载只执行一次，其它线程等待并共享结果。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public interface LoadingCache<K, V> extends Cache<K, V> {
+
+	/**
+	 * 从缓存中获得对象，不存在或已过期时通过加载器加载并放入缓存
+	 * <p>
+	 * 对象写入时间超过 {@link #refreshAfterWrite()} 时，返回当前值并在后台异步刷新。
+	 *
+	 * @param key 键
+	 * @param loader 加载器
+	 * @return 键对应的对象，加载器返回<code>null</code>时为<code>null</code>
+	 * @throws RuntimeException 加载异常，非运行时异常会被包裹
+	 */
+	V get(K key, CacheLoader<? super K, V> loader);
+
+	/**
+	 * 批量获得对象，未命中的键通过 {@link CacheLoader#loadAll(java.util.Collection)} 一次加载
+	 *
+	 * @param keys 键
+	 * @param loader 加载器
+	 * @return 键值对，按键的顺序排列，不存在的键不包含在结果中
+	 * @throws RuntimeException 加载异常，非运行时异常会被包裹
+	 */
+	Map<K, V> getAll(Iterable<? extends K> keys, CacheLoader<? super K, V> loader);
+
+	/**
+	 * 在后台异步重新加载对象，加载完成前仍返回旧值；同一个键正在刷新时忽略
+	 *
+	 * @param key 键
+	 * @param loader 加载器
+	 */
+	void refresh(K key, CacheLoader<? super K, V> loader);
+
+	/**
+	 * 写入后自动刷新的时长，<code>0</code>表示不自动刷新，单位毫秒
+	 *
+	 * @return 写入后自动刷新的时长
+	 */
+	long refreshAfterWrite();
+}
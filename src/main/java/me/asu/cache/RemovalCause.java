@@ -0,0 +1,23 @@
+package me.asu.cache;
+
+/**
+ * 缓存对象被移除的原因
+ */
+public enum RemovalCause {
+
+	/** 调用 remove 或 clear 主动移除 */
+	EXPLICIT,
+	/** 放入相同的键，旧对象被替换 */
+	REPLACED,
+	/** 超过失效时长 */
+	EXPIRED,
+	/** 超过容量被淘汰 */
+	SIZE;
+
+	/**
+	 * @return 是否为缓存自动淘汰，而不是使用者主动移除或替换
+	 */
+	public boolean wasEvicted() {
+		return this == EXPIRED || this == SIZE;
+	}
+}
@@ -0,0 +1,100 @@
+package me.asu.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计计数器<br>
+ * 基于 {@link LongAdder}，高并发下各线程累加到不同的单元，不丢失计数也不争用同一个变量，
+ * 可以在读锁内或无锁的情况下调用。通过 {@link #snapshot()} 获得某一时刻的 {@link CacheStats}。
+ */
+public final class StatsCounter {
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder loadSuccessCount = new LongAdder();
+	private final LongAdder loadFailureCount = new LongAdder();
+	private final LongAdder totalLoadTime = new LongAdder();
+	private final LongAdder[] removalCounts;
+
+	public StatsCounter() {
+		final RemovalCause[] causes = RemovalCause.values();
+		removalCounts = new LongAdder[causes.length];
+		for (int i = 0; i < causes.length; i++) {
+			removalCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * 记录命中
+	 *
+	 * @param count 命中数
+	 */
+	public void recordHits(int count) {
+		hitCount.add(count);
+	}
+
+	/**
+	 * 记录未命中
+	 *
+	 * @param count 未命中数
+	 */
+	public void recordMisses(int count) {
+		missCount.add(count);
+	}
+
+	/**
+	 * 记录一次成功的加载
+	 *
+	 * @param loadTime 加载耗时，单位纳秒
+	 */
+	public void recordLoadSuccess(long loadTime) {
+		loadSuccessCount.increment();
+		totalLoadTime.add(loadTime);
+	}
+
+	/**
+	 * 记录一次失败的加载，加载器抛出异常或返回<code>null</code>
+	 *
+	 * @param loadTime 加载耗时，单位纳秒
+	 */
+	public void recordLoadFailure(long loadTime) {
+		loadFailureCount.increment();
+		totalLoadTime.add(loadTime);
+	}
+
+	/**
+	 * 记录一个对象被移除
+	 *
+	 * @param cause 移除原因
+	 */
+	public void recordRemoval(RemovalCause cause) {
+		removalCounts[cause.ordinal()].increment();
+	}
+
+	/**
+	 * 记录多个对象被移除
+	 *
+	 * @param cause 移除原因
+	 * @param count 移除数
+	 */
+	public void recordRemovals(RemovalCause cause, int count) {
+		removalCounts[cause.ordinal()].add(count);
+	}
+
+	/**
+	 * @return 当前计数的快照，并发修改时各项之间不保证严格一致
+	 */
+	public CacheStats snapshot() {
+		final long[] removals = new long[removalCounts.length];
+		for (int i = 0; i < removals.length; i++) {
+			removals[i] = removalCounts[i].sum();
+		}
+		return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+				loadFailureCount.sum(), totalLoadTime.sum(), removals);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
@@ -1,12 +1,24 @@
 package me.asu.cache;
 
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.*;
 import lombok.Getter;
+import me.asu.cache.impl.GlobalExpireTimer;
 import me.asu.util.NamedThreadFactory;
-
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+/**
+ * 按最后访问时间过期的缓存，过期时通知 {@link TimeoutHandler}。
+ * <p>
+ * 每个对象放入时在 {@link GlobalExpireTimer} 时间轮中调度一次过期检查，到期时只检查该对象，
+ * 期间被访问过则按剩余时长重新调度，不需要遍历整个缓存。
+ *
+ * @param <K> 键类型
+ * @param <T> 值类型
+ */
 public class TimeToLiveCache<K, T> implements Serializable {
 
     private static final long serialVersionUID = -3021761536220090818L;
@@ -16,19 +28,24 @@ public class TimeToLiveCache<K, T> implements Serializable {
             new NamedThreadFactory("response-timeout-event-thread", true));
     @Getter
     private long                              timeToLive;
-    private ConcurrentHashMap<K, CacheObj> cacheMap;
-    private CheckThread                       checkThread;
+    private ConcurrentHashMap<K, Entry<K, T>> cacheMap;
+    /** 是否启用过期检查 */
+    private boolean                           expireActive;
     private List<TimeoutHandler> handlers = new ArrayList<TimeoutHandler>();
     @Getter
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
+    /**
+     * 构造
+     *
+     * @param timeToLive    存活时长，单位毫秒
+     * @param timerInterval 大于0时启用过期检查；检查精度由时间轮刻度决定，不再按此间隔遍历
+     */
     public TimeToLiveCache(final long timeToLive, final long timerInterval) {
         this.timeToLive = timeToLive;
 
-        cacheMap = new ConcurrentHashMap<K, CacheObj>();
+        cacheMap = new ConcurrentHashMap<K, Entry<K, T>>();
 
-        if (this.timeToLive > 0 && timerInterval > 0) {
-            checkThread = new CheckThread(timerInterval);
-        }
+        expireActive = this.timeToLive > 0 && timerInterval > 0;
 
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override
@@ -43,31 +60,39 @@ public class TimeToLiveCache<K, T> implements Serializable {
         try {
             executorService.awaitTermination(5, TimeUnit.SECONDS);
         } catch (InterruptedException e) { /*ignore*/ }
-        if (checkThread != null) {
-            checkThread.cancel();
-        }
         shutdown = true;
+        for (Entry<K, T> entry : cacheMap.values()) {
+            cancelExpire(entry);
+        }
     }
 
     public void put(K key, T value) {
-        cacheMap.put(key, new CacheObj(key, value, timeToLive));
+        Entry<K, T> entry = new Entry<K, T>(key, value, timeToLive);
+        Entry<K, T> old = cacheMap.put(key, entry);
+        if (old != null) {
+            cancelExpire(old);
+        }
+        if (expireActive && !shutdown) {
+            scheduleExpire(entry, timeToLive);
+        }
     }
 
     public T get(K key) {
-        CacheObj c = cacheMap.get(key);
+        Entry<K, T> c = cacheMap.get(key);
 
         if (c == null) {
             return null;
         } else {
             c.lastAccess = System.currentTimeMillis();
-            return (T) c.obj;
+            return c.obj;
         }
     }
 
     public T remove(K key) {
-        CacheObj remove = cacheMap.remove(key);
+        Entry<K, T> remove = cacheMap.remove(key);
         if (remove != null) {
-            return (T) remove.obj;
+            cancelExpire(remove);
+            return remove.obj;
         } else {
             return null;
         }
@@ -91,27 +116,41 @@ public class TimeToLiveCache<K, T> implements Serializable {
         handlers.remove(handler);
     }
 
-    private void cleanup() {
-        long now = System.currentTimeMillis();
-        ArrayList<K> deleteKey = null;
-
-        synchronized (cacheMap) {
-            Iterator<Entry<K, CacheObj>> itr = cacheMap.entrySet().iterator();
-            deleteKey = new ArrayList<K>((cacheMap.size() / 2) + 1);
-            while (itr.hasNext()) {
-                Entry<K, CacheObj> next = itr.next();
-                K key = next.getKey();
-                CacheObj c = next.getValue();
-                if (c != null && (now > (timeToLive + c.lastAccess))) {
-                    deleteKey.add(key);
+    private void scheduleExpire(Entry<K, T> entry, long delay) {
+        // 任务只持有弱引用，已移除的对象不会因为等待到期而无法回收
+        final WeakReference<Entry<K, T>> ref = new WeakReference<Entry<K, T>>(entry);
+        entry.timeout = GlobalExpireTimer.INSTANCE.schedule(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                Entry<K, T> entry = ref.get();
+                if (entry != null) {
+                    expire(entry);
                 }
             }
+        }, delay);
+    }
+
+    private void expire(Entry<K, T> entry) {
+        if (shutdown) {
+            return;
         }
+        long remaining = entry.lastAccess + timeToLive - System.currentTimeMillis();
+        if (remaining >= 0) {
+            // 期间被访问过，按剩余时长重新调度
+            if (cacheMap.get(entry.key) == entry) {
+                scheduleExpire(entry, Math.max(remaining, 1));
+            }
+            return;
+        }
+        if (cacheMap.remove(entry.key, entry)) {
+            notifyTimeoutObject(entry.key, entry.obj);
+        }
+    }
 
-        for (K key : deleteKey) {
-            CacheObj remove = cacheMap.remove(key);
-            notifyTimeoutObject(key, (T)remove.getObj());
-            Thread.yield();
+    private void cancelExpire(Entry<K, T> entry) {
+        Timeout timeout = entry.timeout;
+        if (timeout != null) {
+            timeout.cancel();
         }
     }
 
@@ -133,34 +172,26 @@ public class TimeToLiveCache<K, T> implements Serializable {
         void fireTimeout(K k, T v);
     }
 
-    class CheckThread extends Thread {
+    /**
+     * 附带时间轮任务的缓存对象，按引用判断相等，以便 {@link ConcurrentHashMap#remove(Object, Object)}
+     * 只移除到期的这一个对象。
+     */
+    static final class Entry<K, T> extends CacheObj<K, T> {
 
-        boolean running = false;
-        private long timerInterval;
+        volatile Timeout timeout;
 
-        CheckThread(long timerInterval) {
-            super("TimeToLiveCache-Check-Thread");
-            setDaemon(true);
-            this.timerInterval = timerInterval;
+        Entry(K key, T obj, long ttl) {
+            super(key, obj, ttl);
         }
 
         @Override
-        public void run() {
-            if (running) {
-                return;
-            }
-            running = true;
-            while (running) {
-                try {
-                    Thread.sleep(timerInterval);
-                } catch (InterruptedException ex) {
-                }
-                cleanup();
-            }
+        public boolean equals(Object o) {
+            return this == o;
         }
 
-        public void cancel() {
-            running = false;
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
         }
     }
 
@@ -0,0 +1,21 @@
+package me.asu.cache;
+
+/**
+ * 缓存对象的权重计算器<br>
+ * 设置后缓存按对象权重之和而不是对象个数限制容量，例如以字节数作为权重可以按内存预算设置缓存大小。
+ * 权重在放入时计算一次，对象放入后不应再改变其权重。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public interface Weigher<K, V> {
+
+	/**
+	 * 计算权重
+	 *
+	 * @param key 键
+	 * @param value 值
+	 * @return 权重，不能小于0
+	 */
+	int weigh(K key, V value);
+}
@@ -1,12 +1,22 @@
 package me.asu.cache.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 import me.asu.cache.Cache;
 import me.asu.cache.CacheObj;
+import me.asu.cache.CacheStats;
+import me.asu.cache.RemovalCause;
+import me.asu.cache.StatsCounter;
+import me.asu.cache.Weigher;
 
 /**
  * 超时和限制大小的缓存的默认实现<br>
@@ -31,14 +41,18 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 	protected int capacity;
 	/** 缓存失效时长， <code>0</code> 表示没有设置，单位毫秒 */
 	protected long timeout;
+	/** 最大权重，<code>0</code>表示不按权重限制，需同时设置{@link #weigher} */
+	protected long maxWeight;
+	/** 权重计算器，<code>null</code>表示不按权重限制 */
+	protected Weigher<? super K, ? super V> weigher;
+	/** 当前所有对象的权重之和 */
+	protected long totalWeight;
 	
 	/** 每个对象是否有单独的失效时长，用于决定清理过期对象是否有必要。 */
 	protected boolean existCustomTimeout;
 	
-	/** 命中数 */
-	protected int hitCount;
-	/** 丢失数 */
-	protected int missCount;
+	/** 统计计数，读锁下并发累加不会丢失 */
+	protected final StatsCounter statsCounter = new StatsCounter();
 	
 	// ---------------------------------------------------------------- put start
 	@Override
@@ -51,24 +65,98 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 		writeLock.lock();
 
 		try {
-			CacheObj<K, V> co = new CacheObj<K, V>(key, object, timeout);
-			if (timeout != 0) {
-				existCustomTimeout = true;
+			doPut(key, object, timeout, true);
+			// 一次淘汰可能不足以腾出新对象的权重
+			while (isOverweight() && pruneForSpace() > 0) {
+				// 继续淘汰
 			}
-			if (isFull()) {
-				pruneCache();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 批量放入，只加一次写锁<br>
+	 * {@link #isDeferredPruneSupported()}为<code>true</code>时全部放入后再统一淘汰，否则与逐个放入的淘汰方式相同
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		if (map.isEmpty()) {
+			return;
+		}
+		final boolean deferPrune = isDeferredPruneSupported();
+		writeLock.lock();
+
+		try {
+			for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+				doPut(entry.getKey(), entry.getValue(), timeout, false == deferPrune);
+			}
+			while (isOverflow() && pruneForSpace() > 0) {
+				// 继续淘汰
 			}
-			cacheMap.put(key, co);
 		} finally {
 			writeLock.unlock();
 		}
 	}
+
+	/**
+	 * 在写锁内放入对象
+	 * @param key 键
+	 * @param object 被缓存的对象
+	 * @param timeout 失效时长，单位毫秒
+	 * @param makeRoom 缓存满时是否先清理再放入
+	 */
+	private void doPut(K key, V object, long timeout, boolean makeRoom) {
+		CacheObj<K, V> co = newCacheObj(key, object, timeout);
+		if (null != weigher) {
+			final int weight = weigher.weigh(key, object);
+			if (weight < 0) {
+				throw new IllegalArgumentException("weight must be >= 0: " + weight);
+			}
+			if (maxWeight > 0 && weight > maxWeight) {
+				// 超过最大权重的对象不放入，只移除键原有的对象，避免把其它对象全部淘汰
+				final CacheObj<K, V> replaced = cacheMap.remove(key);
+				if (null != replaced) {
+					afterRemove(replaced);
+					notifyRemoved(replaced, RemovalCause.REPLACED);
+				}
+				statsCounter.recordRemoval(RemovalCause.SIZE);
+				return;
+			}
+			co.setWeight(weight);
+			totalWeight += weight;
+		}
+		if (timeout != 0) {
+			existCustomTimeout = true;
+		}
+		// 替换已有的键不需要腾出空间
+		if (makeRoom && isFull() && false == cacheMap.containsKey(key)) {
+			pruneForSpace();
+		}
+		final CacheObj<K, V> replaced = cacheMap.put(key, co);
+		if (null != replaced) {
+			totalWeight -= replaced.getWeight();
+			statsCounter.recordRemoval(RemovalCause.REPLACED);
+		}
+		afterPut(co, replaced);
+	}
+
+	/**
+	 * 批量放入时能否先全部放入再统一淘汰。<br>
+	 * 淘汰结果依赖于每次放入时的状态（例如准入策略）的缓存应返回<code>false</code>
+	 * 
+	 * @return 默认<code>true</code>
+	 */
+	protected boolean isDeferredPruneSupported() {
+		return true;
+	}
 	// ---------------------------------------------------------------- put end
 
 	// ---------------------------------------------------------------- get start
 	@Override
 	public boolean containsKey(K key) {
-		readLock.lock();
+		final Lock lock = isAccessOrdered() ? writeLock : readLock;
+		lock.lock();
 
 		try {
 			//不存在或已移除
@@ -76,34 +164,48 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 			if (co == null) {
 				return false;
 			}
-			
-			//过期
-			if (co.isExpired() == true) {
-				// remove(key); // 此方法无法获得锁
-				removeWithoutLock(key);
-				missCount++;
-				return false;
-			}
 
 			//命中
-			return true;
+			if (co.isExpired() == false) {
+				return true;
+			}
 		} finally {
-			readLock.unlock();
+			lock.unlock();
 		}
+
+		//过期，读锁下不能修改Map，换写锁移除
+		removeIfExpired(key);
+		statsCounter.recordMisses(1);
+		return false;
+	}
+
+	@Override
+	public long writeTime(K key) {
+		final Lock lock = isAccessOrdered() ? writeLock : readLock;
+		lock.lock();
+		try {
+			final CacheObj<K, V> co = cacheMap.get(key);
+			if (null != co && false == co.isExpired()) {
+				return co.getWriteTime();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return -1;
 	}
 	
 	/**
 	 * @return 命中数
 	 */
 	public int getHitCount() {
-		return hitCount;
+		return (int) statsCounter.snapshot().getHitCount();
 	}
 
 	/**
 	 * @return 丢失数
 	 */
 	public int getMissCount() {
-		return missCount;
+		return (int) statsCounter.snapshot().getMissCount();
 	}
 	
 	@Override
@@ -113,30 +215,85 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
 	@Override
 	public V get(K key, boolean isUpdateLastAccess) {
-		readLock.lock();
+		final Lock lock = isAccessOrdered() ? writeLock : readLock;
+		lock.lock();
 
 		try {
 			//不存在或已移除
 			final CacheObj<K, V> co = cacheMap.get(key);
 			if (co == null) {
-				missCount++;
-				return null;
-			}
-			
-			//过期
-			if (co.isExpired() == true) {
-				// remove(key); // 此方法无法获得锁
-				removeWithoutLock(key);
-				missCount++;
+				statsCounter.recordMisses(1);
 				return null;
 			}
 
 			//命中
-			hitCount++;
-			return co.get(isUpdateLastAccess);
+			if (co.isExpired() == false) {
+				statsCounter.recordHits(1);
+				afterAccess(co);
+				return co.get(isUpdateLastAccess);
+			}
 		} finally {
-			readLock.unlock();
+			lock.unlock();
 		}
+
+		//过期，读锁下不能修改Map，换写锁移除
+		removeIfExpired(key);
+		statsCounter.recordMisses(1);
+		return null;
+	}
+	
+	/**
+	 * 批量获得对象，只加一次锁，已过期的对象在之后一次写锁内移除
+	 */
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		final Map<K, V> result = new LinkedHashMap<>();
+		List<K> expired = null;
+		int hits = 0;
+		int misses = 0;
+		final Lock lock = isAccessOrdered() ? writeLock : readLock;
+		lock.lock();
+
+		try {
+			for (K key : keys) {
+				if (result.containsKey(key)) {
+					continue;
+				}
+				final CacheObj<K, V> co = cacheMap.get(key);
+				if (co == null) {
+					misses++;
+				} else if (co.isExpired()) {
+					misses++;
+					if (null == expired) {
+						expired = new ArrayList<>();
+					}
+					expired.add(key);
+				} else {
+					hits++;
+					afterAccess(co);
+					result.put(key, co.get(true));
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		statsCounter.recordHits(hits);
+		statsCounter.recordMisses(misses);
+		if (null != expired) {
+			removeExpired(expired);
+		}
+		return result;
+	}
+
+	/**
+	 * 访问（get）是否会改变{@link #cacheMap}的内部结构，例如按访问顺序排序的LinkedHashMap。<br>
+	 * 返回<code>true</code>时get和containsKey使用写锁，否则使用读锁。
+	 * 
+	 * @return 访问是否会改变内部结构，默认<code>false</code>
+	 */
+	protected boolean isAccessOrdered() {
+		return false;
 	}
 	
 	// ---------------------------------------------------------------- get end
@@ -167,6 +324,16 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 	 */
 	protected abstract int pruneCache();
 
+	/**
+	 * 缓存满或超重时为新对象腾出空间，在写锁内调用。默认调用 {@link #pruneCache()}，
+	 * {@link #prune()} 只清理过期对象的实现应覆盖此方法按容量淘汰
+	 * 
+	 * @return 移除数
+	 */
+	protected int pruneForSpace() {
+		return pruneCache();
+	}
+
 	@Override 
 	public final int prune() {
 		writeLock.lock();
@@ -203,20 +370,83 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 	
 	@Override
 	public boolean isFull() {
-		return (capacity > 0) && (cacheMap.size() >= capacity);
+		return ((capacity > 0) && (cacheMap.size() >= capacity)) || ((maxWeight > 0) && (totalWeight >= maxWeight));
+	}
+
+	/**
+	 * @return 权重之和是否超过最大权重，{@link #pruneCache()}应淘汰对象直到返回<code>false</code>
+	 */
+	protected boolean isOverweight() {
+		return (maxWeight > 0) && (totalWeight > maxWeight);
+	}
+
+	/**
+	 * @return 对象个数或权重之和是否超过限制，批量放入后{@link #pruneCache()}应淘汰对象直到返回<code>false</code>
+	 */
+	protected boolean isOverflow() {
+		return ((capacity > 0) && (cacheMap.size() > capacity)) || isOverweight();
+	}
+
+	/**
+	 * 检查按权重限制容量的构造参数
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器
+	 * @return 最大权重
+	 */
+	protected static long checkMaxWeight(long maxWeight, Weigher<?, ?> weigher) {
+		if (null == weigher) {
+			throw new NullPointerException("weigher");
+		}
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("maxWeight must be > 0: " + maxWeight);
+		}
+		return maxWeight;
+	}
+
+	/**
+	 * @return 最大权重，<code>0</code>表示不按权重限制
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * @return 当前所有对象的权重之和，未设置权重计算器时为<code>0</code>
+	 */
+	public long getTotalWeight() {
+		return totalWeight;
 	}
 
 	@Override
 	public void remove(K key) {
 		writeLock.lock();
-		CacheObj<K, V> co;
 		try {
-			co = cacheMap.remove(key);
+			final CacheObj<K, V> co = cacheMap.remove(key);
+			if (null != co) {
+				afterRemove(co);
+				notifyRemoved(co, RemovalCause.EXPLICIT);
+			}
 		} finally {
 			writeLock.unlock();
 		}
-		if(null != co){
-			onRemove(co.getKey(), co.getObj());
+	}
+
+	/**
+	 * 批量移除，只加一次写锁
+	 */
+	@Override
+	public void removeAll(Iterable<? extends K> keys) {
+		writeLock.lock();
+		try {
+			for (K key : keys) {
+				final CacheObj<K, V> co = cacheMap.remove(key);
+				if (null != co) {
+					afterRemove(co);
+					notifyRemoved(co, RemovalCause.EXPLICIT);
+				}
+			}
+		} finally {
+			writeLock.unlock();
 		}
 	}
 
@@ -224,7 +454,10 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 	public void clear() {
 		writeLock.lock();
 		try {
+			statsCounter.recordRemovals(RemovalCause.EXPLICIT, cacheMap.size());
 			cacheMap.clear();
+			totalWeight = 0;
+			afterClear();
 		} finally {
 			writeLock.unlock();
 		}
@@ -240,6 +473,11 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 		return cacheMap.isEmpty();
 	}
 	
+	@Override
+	public CacheStats stats() {
+		return statsCounter.snapshot();
+	}
+
 	@Override
 	public String toString() {
 		return this.cacheMap.toString();
@@ -247,21 +485,110 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 	// ---------------------------------------------------------------- common end
 	
 	/**
-	 * 对象移除回调。默认无动作
+	 * 创建缓存对象，子类可返回{@link CacheObj}的子类以附加自己的数据
+	 * @param key 键
+	 * @param object 被缓存的对象
+	 * @param timeout 失效时长，单位毫秒
+	 * @return 缓存对象
+	 */
+	protected CacheObj<K, V> newCacheObj(K key, V object, long timeout) {
+		return new CacheObj<K, V>(key, object, timeout);
+	}
+
+	/**
+	 * 对象放入{@link #cacheMap}后的回调，在写锁内调用。默认无动作
+	 * @param co 新放入的缓存对象
+	 * @param replaced 被替换的缓存对象，没有则为<code>null</code>
+	 */
+	protected void afterPut(CacheObj<K, V> co, CacheObj<K, V> replaced) {
+	}
+
+	/**
+	 * 对象被get命中后的回调，{@link #isAccessOrdered()}为<code>true</code>时在写锁内调用，否则在读锁内调用。默认无动作
+	 * @param co 命中的缓存对象
+	 */
+	protected void afterAccess(CacheObj<K, V> co) {
+	}
+
+	/**
+	 * 对象通过{@link #remove(Object)}或过期检查从{@link #cacheMap}移除后的回调，在写锁内调用。默认无动作<br>
+	 * {@link #pruneCache()}中的移除由子类自行处理，并调用{@link #notifyRemoved(CacheObj, RemovalCause)}。
+	 * @param co 被移除的缓存对象
+	 */
+	protected void afterRemove(CacheObj<K, V> co) {
+	}
+
+	/**
+	 * {@link #cacheMap}被清空后的回调，在写锁内调用。默认无动作
+	 */
+	protected void afterClear() {
+	}
+
+	/**
+	 * 对象移除回调，在写锁内调用。默认无动作
 	 * @param key 键
 	 * @param cachedObject 被缓存的对象
 	 */
 	protected void onRemove(K key, V cachedObject) {
 	}
+
+	/**
+	 * 对象已从{@link #cacheMap}移除，扣减权重、记录统计并回调{@link #onRemove(Object, Object)}，在写锁内调用<br>
+	 * 子类在{@link #pruneCache()}等自行移除对象的地方调用
+	 * @param co 被移除的缓存对象
+	 * @param cause 移除原因
+	 */
+	protected final void notifyRemoved(CacheObj<K, V> co, RemovalCause cause) {
+		totalWeight -= co.getWeight();
+		statsCounter.recordRemoval(cause);
+		onRemove(co.getKey(), co.getObj());
+	}
 	
 	/**
-	 * 移除元素，无锁
+	 * 在写锁下移除已过期的缓存对象，对象已被替换或移除时不做任何事
+	 * @param co 缓存对象
+	 * @return 是否移除
+	 */
+	protected boolean removeIfExpired(CacheObj<K, V> co) {
+		writeLock.lock();
+		try {
+			if (cacheMap.get(co.getKey()) != co || false == co.isExpired()) {
+				return false;
+			}
+			cacheMap.remove(co.getKey());
+			afterRemove(co);
+			notifyRemoved(co, RemovalCause.EXPIRED);
+		} finally {
+			writeLock.unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * 在写锁下移除已过期的元素，期间已被重新放入的未过期元素不受影响
 	 * @param key 键
 	 */
-	private void removeWithoutLock(K key) {
-		CacheObj<K, V> co = cacheMap.remove(key);
-		if(null != co){
-			onRemove(co.getKey(), co.getObj());
+	private void removeIfExpired(K key) {
+		removeExpired(Collections.singletonList(key));
+	}
+
+	/**
+	 * 在一次写锁下移除多个已过期的元素
+	 * @param keys 键
+	 */
+	private void removeExpired(Collection<K> keys) {
+		writeLock.lock();
+		try {
+			for (K key : keys) {
+				final CacheObj<K, V> current = cacheMap.get(key);
+				if (current != null && current.isExpired()) {
+					cacheMap.remove(key);
+					afterRemove(current);
+					notifyRemoved(current, RemovalCause.EXPIRED);
+				}
+			}
+		} finally {
+			writeLock.unlock();
 		}
 	}
 }
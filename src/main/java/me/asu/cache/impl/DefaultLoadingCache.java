@@ -0,0 +1,433 @@
+package me.asu.cache.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.cache.Cache;
+import me.asu.cache.CacheLoader;
+import me.asu.cache.CacheObj;
+import me.asu.cache.CacheStats;
+import me.asu.cache.LoadingCache;
+import me.asu.cache.StatsCounter;
+import me.asu.util.Exceptions;
+import me.asu.util.NamedThreadFactory;
+
+/**
+ * {@link LoadingCache} 的默认实现，包装一个已有的缓存<br>
+ * 容量、淘汰策略和失效时长均由被包装的缓存决定，此类只负责加载：
+ * <ul>
+ * 		<li>同一个键的并发未命中合并为一次加载，其它线程等待并共享结果或异常，避免击穿后端存储</li>
+ * 		<li>设置了写入后刷新时长时，超时的对象在命中时返回旧值，并在后台线程池中重新加载</li>
+ * </ul>
+ * 写入时间由被包装的缓存随对象一起保存，直接写入被包装的缓存同样会重新计算刷新时间。<br>
+ * 加载或刷新期间通过此类写入或移除了同一个键时，加载结果不再写入缓存，避免覆盖新值或恢复已移除的键。
+ * 键不能为<code>null</code>。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class DefaultLoadingCache<K, V> implements LoadingCache<K, V> {
+
+	/** 默认的后台刷新线程池 */
+	private static final ExecutorService DEFAULT_REFRESH_EXECUTOR = Executors
+			.newCachedThreadPool(new NamedThreadFactory("Cache-Refresh", true));
+
+	private final Cache<K, V> cache;
+	/** 写入后自动刷新的时长，单位毫秒 */
+	private final long refreshAfterWrite;
+	private final Executor refreshExecutor;
+
+	/** 正在加载的键 */
+	private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+	/** 正在后台刷新的键，值为本次刷新的标记，键被写入或移除时删除，刷新结果随之作废 */
+	private final ConcurrentHashMap<K, Object> refreshing = new ConcurrentHashMap<>();
+	/** 加载统计，命中和移除由被包装的缓存统计 */
+	private final StatsCounter loadStats = new StatsCounter();
+
+	/**
+	 * 构造，不自动刷新
+	 *
+	 * @param cache 被包装的缓存
+	 */
+	public DefaultLoadingCache(Cache<K, V> cache) {
+		this(cache, 0);
+	}
+
+	/**
+	 * 构造，使用默认的后台刷新线程池
+	 *
+	 * @param cache 被包装的缓存
+	 * @param refreshAfterWrite 写入后自动刷新的时长，<code>0</code>表示不自动刷新，单位毫秒
+	 */
+	public DefaultLoadingCache(Cache<K, V> cache, long refreshAfterWrite) {
+		this(cache, refreshAfterWrite, DEFAULT_REFRESH_EXECUTOR);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param cache 被包装的缓存
+	 * @param refreshAfterWrite 写入后自动刷新的时长，<code>0</code>表示不自动刷新，单位毫秒
+	 * @param refreshExecutor 后台刷新线程池
+	 */
+	public DefaultLoadingCache(Cache<K, V> cache, long refreshAfterWrite, Executor refreshExecutor) {
+		if (null == cache) {
+			throw new NullPointerException("cache");
+		}
+		if (null == refreshExecutor) {
+			throw new NullPointerException("refreshExecutor");
+		}
+		this.cache = cache;
+		this.refreshAfterWrite = refreshAfterWrite;
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	// ---------------------------------------------------------------- load start
+	@Override
+	public V get(K key, CacheLoader<? super K, V> loader) {
+		checkKey(key);
+		final V value = cache.get(key);
+		if (null != value) {
+			refreshIfNecessary(key, loader);
+			return value;
+		}
+		return load(key, loader);
+	}
+
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys, CacheLoader<? super K, V> loader) {
+		// 已缓存的对象一次批量获得
+		final Map<K, V> found = new HashMap<>(cache.getAll(keys));
+		final Set<K> missing = new LinkedHashSet<>();
+		for (K key : keys) {
+			checkKey(key);
+			if (found.containsKey(key)) {
+				refreshIfNecessary(key, loader);
+			} else {
+				missing.add(key);
+			}
+		}
+
+		if (false == missing.isEmpty()) {
+			// 由本线程加载的键和由其它线程加载中的键
+			final Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+			final Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+			for (K key : missing) {
+				final CompletableFuture<V> future = new CompletableFuture<>();
+				final CompletableFuture<V> inflight = loading.putIfAbsent(key, future);
+				if (null == inflight) {
+					owned.put(key, future);
+				} else {
+					waiting.put(key, inflight);
+				}
+			}
+			if (false == owned.isEmpty()) {
+				loadAll(owned, loader, found);
+			}
+			for (Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+				final V value = join(entry.getValue());
+				if (null != value) {
+					found.put(entry.getKey(), value);
+				}
+			}
+		}
+
+		final Map<K, V> result = new LinkedHashMap<>(found.size() * 4 / 3 + 1);
+		for (K key : keys) {
+			final V value = found.get(key);
+			if (null != value) {
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void refresh(final K key, final CacheLoader<? super K, V> loader) {
+		checkKey(key);
+		final Object token = new Object();
+		if (null != refreshing.putIfAbsent(key, token)) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					final long start = System.nanoTime();
+					try {
+						final V value = loader.load(key);
+						if (null != value) {
+							loadStats.recordLoadSuccess(System.nanoTime() - start);
+							install(refreshing, key, token, value);
+						} else {
+							loadStats.recordLoadFailure(System.nanoTime() - start);
+						}
+					} catch (Throwable e) {
+						loadStats.recordLoadFailure(System.nanoTime() - start);
+						// 刷新失败保留旧值
+						log.warn("Refresh cache key {} failed.", key, e);
+					} finally {
+						refreshing.remove(key, token);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(key, token);
+			log.warn("Refresh cache key {} rejected.", key, e);
+		}
+	}
+
+	@Override
+	public long refreshAfterWrite() {
+		return refreshAfterWrite;
+	}
+
+	/**
+	 * 单个键加载，同一个键同时只有一个线程执行加载器
+	 */
+	private V load(K key, CacheLoader<? super K, V> loader) {
+		final CompletableFuture<V> future = new CompletableFuture<>();
+		final CompletableFuture<V> inflight = loading.putIfAbsent(key, future);
+		if (null != inflight) {
+			return join(inflight);
+		}
+
+		final long start = System.nanoTime();
+		try {
+			// 未命中到登记加载之间，其它线程可能已经加载完成；先用containsKey判断，避免重复统计未命中
+			V value = cache.containsKey(key) ? cache.get(key, false) : null;
+			if (null == value) {
+				value = loader.load(key);
+				if (null != value) {
+					loadStats.recordLoadSuccess(System.nanoTime() - start);
+					install(loading, key, future, value);
+				} else {
+					loadStats.recordLoadFailure(System.nanoTime() - start);
+				}
+			}
+			future.complete(value);
+			return value;
+		} catch (Throwable e) {
+			loadStats.recordLoadFailure(System.nanoTime() - start);
+			future.completeExceptionally(e);
+			throw Exceptions.wrapThrow(e);
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	/**
+	 * 批量加载本线程登记的键，结果放入found
+	 */
+	private void loadAll(Map<K, CompletableFuture<V>> owned, CacheLoader<? super K, V> loader, Map<K, V> found) {
+		final long start = System.nanoTime();
+		try {
+			final Map<? super K, V> loaded = loader.loadAll(Collections.unmodifiableSet(owned.keySet()));
+			loadStats.recordLoadSuccess(System.nanoTime() - start);
+			for (Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+				final V value = (null == loaded) ? null : loaded.get(entry.getKey());
+				if (null != value) {
+					install(loading, entry.getKey(), entry.getValue(), value);
+					found.put(entry.getKey(), value);
+				}
+				entry.getValue().complete(value);
+			}
+		} catch (Throwable e) {
+			loadStats.recordLoadFailure(System.nanoTime() - start);
+			for (CompletableFuture<V> future : owned.values()) {
+				future.completeExceptionally(e);
+			}
+			throw Exceptions.wrapThrow(e);
+		} finally {
+			for (Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+				loading.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * 加载登记仍是本次的登记时才把结果写入缓存；登记已被 {@link #invalidate(Object)} 删除说明期间有写入或移除，结果作废<br>
+	 * 在登记所在的桶锁内写入，与 invalidate 互斥，不会在其后写入
+	 */
+	private <T> void install(ConcurrentHashMap<K, T> inflight, K key, final T token, final V value) {
+		inflight.computeIfPresent(key, (k, current) -> {
+			if (current == token) {
+				cache.put(k, value);
+			}
+			return current;
+		});
+	}
+
+	/**
+	 * 键将被写入或移除，正在进行的加载和刷新的结果作废
+	 */
+	private void invalidate(K key) {
+		loading.remove(key);
+		refreshing.remove(key);
+	}
+
+	private static void checkKey(Object key) {
+		if (null == key) {
+			throw new NullPointerException("key");
+		}
+	}
+
+	/**
+	 * 等待其它线程的加载结果
+	 */
+	private V join(CompletableFuture<V> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw Exceptions.wrapThrow(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw Exceptions.wrapThrow(e);
+		}
+	}
+
+	private void refreshIfNecessary(K key, CacheLoader<? super K, V> loader) {
+		if (refreshAfterWrite <= 0) {
+			return;
+		}
+		final long writeTime = cache.writeTime(key);
+		if (writeTime >= 0 && System.currentTimeMillis() - writeTime >= refreshAfterWrite) {
+			refresh(key, loader);
+		}
+	}
+	// ---------------------------------------------------------------- load end
+
+	// ---------------------------------------------------------------- delegate start
+	@Override
+	public int capacity() {
+		return cache.capacity();
+	}
+
+	@Override
+	public long timeout() {
+		return cache.timeout();
+	}
+
+	@Override
+	public void put(K key, V object) {
+		invalidate(key);
+		cache.put(key, object);
+	}
+
+	@Override
+	public void put(K key, V object, long timeout) {
+		invalidate(key);
+		cache.put(key, object, timeout);
+	}
+
+	@Override
+	public V get(K key) {
+		return cache.get(key);
+	}
+
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		return cache.getAll(keys);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		for (K key : map.keySet()) {
+			invalidate(key);
+		}
+		cache.putAll(map);
+	}
+
+	@Override
+	public V get(K key, boolean isUpdateLastAccess) {
+		return cache.get(key, isUpdateLastAccess);
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+		return cache.iterator();
+	}
+
+	@Override
+	public Iterator<CacheObj<K, V>> cacheObjIterator() {
+		return cache.cacheObjIterator();
+	}
+
+	@Override
+	public int prune() {
+		return cache.prune();
+	}
+
+	@Override
+	public boolean isFull() {
+		return cache.isFull();
+	}
+
+	@Override
+	public void remove(K key) {
+		invalidate(key);
+		cache.remove(key);
+	}
+
+	@Override
+	public void removeAll(Iterable<? extends K> keys) {
+		for (K key : keys) {
+			invalidate(key);
+		}
+		cache.removeAll(keys);
+	}
+
+	@Override
+	public void clear() {
+		loading.clear();
+		refreshing.clear();
+		cache.clear();
+	}
+
+	@Override
+	public int size() {
+		return cache.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		return cache.containsKey(key);
+	}
+
+	@Override
+	public long writeTime(K key) {
+		return cache.writeTime(key);
+	}
+
+	/**
+	 * 被包装的缓存的统计加上加载统计
+	 */
+	@Override
+	public CacheStats stats() {
+		return cache.stats().plus(loadStats.snapshot());
+	}
+
+	@Override
+	public String toString() {
+		return cache.toString();
+	}
+	// ---------------------------------------------------------------- delegate end
+}
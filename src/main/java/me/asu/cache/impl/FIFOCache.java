@@ -3,6 +3,8 @@ package me.asu.cache.impl;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import me.asu.cache.CacheObj;
+import me.asu.cache.RemovalCause;
+import me.asu.cache.Weigher;
 
 /**
  * FIFO(first in first out) 先进先出缓存.
@@ -35,41 +37,63 @@ public class FIFOCache<K, V> extends AbstractCache<K, V> {
 	 * @param timeout 过期时长
 	 */
 	public FIFOCache(int capacity, long timeout) {
+		this(capacity, 0, null, timeout);
+	}
+
+	/**
+	 * 构造，按权重限制容量，不限制对象个数
+	 * 
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器
+	 * @param timeout 过期时长
+	 */
+	public FIFOCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
+		this(0, checkMaxWeight(maxWeight, weigher), weigher, timeout);
+	}
+
+	private FIFOCache(int capacity, long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
 		if(Integer.MAX_VALUE == capacity) {
 			capacity -= 1;
 		}
 		
 		this.capacity = capacity;
 		this.timeout = timeout;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
 		cacheMap = new LinkedHashMap<K, CacheObj<K, V>>(capacity + 1, 1.0f, false);
 	}
 
 	/**
 	 * 先进先出的清理策略<br>
-	 * 先遍历缓存清理过期的缓存对象，如果清理后还是满的，则删除第一个缓存对象
+	 * 先遍历缓存清理过期的缓存对象，如果清理后还是满的，则按放入顺序删除缓存对象
 	 */
 	@Override
 	protected int pruneCache() {
 		int count = 0;
-		CacheObj<K, V> first = null;
-		
-		// 清理过期对象并找出链表头部元素（先入元素）
-		Iterator<CacheObj<K, V>> values = cacheMap.values().iterator();
-		while (values.hasNext()) {
-			CacheObj<K, V> co = values.next();
-			if (co.isExpired()) {
-				values.remove();
-				count++;
-			}
-			if (first == null) {
-				first = co;
+		Iterator<CacheObj<K, V>> values;
+		CacheObj<K, V> co;
+
+		// 清理过期对象
+		if (isPruneExpiredActive()) {
+			values = cacheMap.values().iterator();
+			while (values.hasNext()) {
+				co = values.next();
+				if (co.isExpired()) {
+					values.remove();
+					notifyRemoved(co, RemovalCause.EXPIRED);
+					count++;
+				}
 			}
 		}
 
-		// 清理结束后依旧是满的，则删除第一个被缓存的对象
-		if (isFull() && null != first) {
-			cacheMap.remove(first.getKey());
-			onRemove(first.getKey(), first.getObj());
+		// 清理结束后依旧是满的，则从链表头部（先入元素）开始删除，直到腾出位置且不超过限制
+		values = cacheMap.values().iterator();
+		boolean evicted = false;
+		while ((evicted ? isOverflow() : isFull()) && values.hasNext()) {
+			co = values.next();
+			values.remove();
+			notifyRemoved(co, RemovalCause.SIZE);
+			evicted = true;
 			count++;
 		}
 		return count;
@@ -0,0 +1,116 @@
+package me.asu.cache.impl;
+
+/**
+ * 访问频率估算器（4位计数的Count-Min Sketch）<br>
+ * 每个long存放16个4位计数器，每个对象按hash选取其中一组4个计数器，取最小值作为频率估算，最大为15。<br>
+ * 累计增加的次数达到采样数（容量的10倍）时，所有计数器减半，使频率随时间衰减，旧的热点对象逐渐让位。
+ * <p>
+ * 非线程安全，由使用者加锁保护。
+ *
+ * @param <E> 对象类型
+ */
+final class FrequencySketch<E> {
+
+	private static final long[] SEED = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+	/** 每个计数器右移一位后去掉借位 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+	/** 每个计数器的最低位 */
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int size;
+
+	/**
+	 * 构造
+	 *
+	 * @param maximumSize 缓存容量
+	 */
+	FrequencySketch(int maximumSize) {
+		int maximum = Math.min(Math.max(maximumSize, 1), 1 << 30);
+		this.table = new long[ceilingPowerOfTwo(maximum)];
+		this.tableMask = table.length - 1;
+		this.sampleSize = (maximum > Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : maximum * 10;
+	}
+
+	/**
+	 * 估算对象的访问频率
+	 *
+	 * @param e 对象，可以为<code>null</code>
+	 * @return 频率，0~15
+	 */
+	int frequency(E e) {
+		final int hash = spread((null == e) ? 0 : e.hashCode());
+		final int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			final int index = indexOf(hash, i);
+			final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * 对象访问频率加一，计数器已饱和时不变
+	 *
+	 * @param e 对象，可以为<code>null</code>
+	 */
+	void increment(E e) {
+		final int hash = spread((null == e) ? 0 : e.hashCode());
+		final int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && (++size >= sampleSize)) {
+			reset();
+		}
+	}
+
+	/**
+	 * 第i个long中的第j个计数器加一
+	 */
+	private boolean incrementAt(int i, int j) {
+		final int offset = j << 2;
+		final long mask = (0xfL << offset);
+		if ((table[i] & mask) != mask) {
+			table[i] += (1L << offset);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 所有计数器减半
+	 */
+	private void reset() {
+		int odd = 0;
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size >>> 1) - (odd >>> 2);
+	}
+
+	/**
+	 * 第i个hash函数选取的long的下标
+	 */
+	private int indexOf(int item, int i) {
+		long hash = (item + SEED[i]) * SEED[i];
+		hash += (hash >>> 32);
+		return ((int) hash) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+	private static int ceilingPowerOfTwo(int x) {
+		return (x <= 1) ? 1 : Integer.highestOneBit(x - 1) << 1;
+	}
+}
@@ -0,0 +1,46 @@
+package me.asu.cache.impl;
+
+import java.util.concurrent.TimeUnit;
+import me.asu.util.NamedThreadFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+/**
+ * 全局缓存过期时间轮，用于按对象调度过期检查<br>
+ * 与 {@link GlobalPruneTimer} 定时遍历整个缓存不同，每个对象按自己的失效时长放入时间轮，
+ * 每个刻度只处理到期的对象，清理开销与过期对象数成正比，而与缓存大小无关。
+ * <p>
+ * 刻度为100毫秒，过期检查的精度也是100毫秒；读取时仍会精确判断是否过期。
+ */
+public enum GlobalExpireTimer {
+	/** 单例对象 */
+	INSTANCE;
+
+	/** 刻度，单位毫秒 */
+	private static final long TICK_DURATION = 100;
+	/** 时间轮大小 */
+	private static final int TICKS_PER_WHEEL = 512;
+
+	/** 时间轮 */
+	private final HashedWheelTimer timer;
+
+	/**
+	 * 构造
+	 */
+	private GlobalExpireTimer() {
+		this.timer = new HashedWheelTimer(new NamedThreadFactory("Cache-Expire-Timer", true), TICK_DURATION,
+				TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+	}
+
+	/**
+	 * 调度一次性过期任务
+	 *
+	 * @param task 任务，在时间轮线程中执行，不应有耗时操作
+	 * @param delay 延迟，单位毫秒
+	 * @return {@link Timeout}对象，可手动取消此任务
+	 */
+	public Timeout schedule(TimerTask task, long delay) {
+		return timer.newTimeout(task, delay, TimeUnit.MILLISECONDS);
+	}
+}
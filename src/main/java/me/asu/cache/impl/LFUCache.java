@@ -3,6 +3,8 @@ package me.asu.cache.impl;
 import java.util.HashMap;
 import java.util.Iterator;
 import me.asu.cache.CacheObj;
+import me.asu.cache.RemovalCause;
+import me.asu.cache.Weigher;
 
 /**
  * LFU(least frequently used) 最少使用率缓存<br>
@@ -32,17 +34,42 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 	 * @param timeout 过期时长
 	 */
 	public LFUCache(int capacity, long timeout) {
+		this(capacity, 0, null, timeout);
+	}
+
+	/**
+	 * 构造，按权重限制容量，不限制对象个数
+	 * 
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器
+	 * @param timeout 过期时长
+	 */
+	public LFUCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
+		this(0, checkMaxWeight(maxWeight, weigher), weigher, timeout);
+	}
+
+	private LFUCache(int capacity, long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
 		if(Integer.MAX_VALUE == capacity) {
 			capacity -= 1;
 		}
 		
 		this.capacity = capacity;
 		this.timeout = timeout;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
 		cacheMap = new HashMap<K, CacheObj<K, V>>(capacity + 1, 1.0f);
 	}
 
 	// ---------------------------------------------------------------- prune
 
+	/**
+	 * 淘汰时移除所有访问次数最少的对象，批量放入的新对象访问次数都为0，推迟淘汰会把它们全部移除
+	 */
+	@Override
+	protected boolean isDeferredPruneSupported() {
+		return false;
+	}
+
 	/**
 	 * 清理过期对象。<br>
 	 * 清理后依旧满的情况下清除最少访问（访问计数最小）的对象并将其他对象的访问数减去这个最小访问数，以便新对象进入后可以公平计数。
@@ -61,7 +88,7 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 			co = values.next();
 			if (co.isExpired() == true) {
 				values.remove();
-				onRemove(co.getKey(), co.getObj());
+				notifyRemoved(co, RemovalCause.EXPIRED);
 				count++;
 				continue;
 			}
@@ -83,7 +110,7 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 				co1.setAccessCount(co1.getAccessCount() - minAccessCount);
 				if (co1.getAccessCount() <= 0) {
 					values.remove();
-					onRemove(co1.getKey(), co1.getObj());
+					notifyRemoved(co1, RemovalCause.SIZE);
 					count++;
 				}
 			}
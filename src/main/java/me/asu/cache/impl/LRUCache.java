@@ -4,6 +4,8 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import me.asu.cache.CacheObj;
+import me.asu.cache.RemovalCause;
+import me.asu.cache.Weigher;
 
 /**
  * LRU (least recently used)最近最久未使用缓存<br>
@@ -33,12 +35,28 @@ public class LRUCache<K, V> extends AbstractCache<K, V> {
 	 * @param timeout 默认超时时间，单位：毫秒
 	 */
 	public LRUCache(int capacity, long timeout) {
+		this(capacity, 0, null, timeout);
+	}
+
+	/**
+	 * 构造，按权重限制容量，不限制对象个数
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器
+	 * @param timeout 默认超时时间，单位：毫秒
+	 */
+	public LRUCache(long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
+		this(0, checkMaxWeight(maxWeight, weigher), weigher, timeout);
+	}
+
+	private LRUCache(int capacity, long maxWeight, Weigher<? super K, ? super V> weigher, long timeout) {
 		if(Integer.MAX_VALUE == capacity) {
 			capacity -= 1;
 		}
 		
 		this.capacity = capacity;
 		this.timeout = timeout;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
 		
 		//链表key按照访问顺序排序，调用get方法后，会将这次访问的元素移至头部
 		cacheMap = new LinkedHashMap<K, CacheObj<K, V>>(capacity + 1, 1.0f, true){
@@ -50,32 +68,54 @@ public class LRUCache<K, V> extends AbstractCache<K, V> {
 					return false;
 				}
 				//当链表元素大于容量时，移除最老（最久未被使用）的元素
-				return size() > LRUCache.this.capacity;
+				if (size() > LRUCache.this.capacity) {
+					notifyRemoved(eldest.getValue(), RemovalCause.SIZE);
+					return true;
+				}
+				return false;
 			}
 		};
 	}
 
+	/**
+	 * 按访问顺序排序的LinkedHashMap在get时会移动链表节点，必须在写锁下访问
+	 */
+	@Override
+	protected boolean isAccessOrdered() {
+		return true;
+	}
+
 	// ---------------------------------------------------------------- prune
 
 	/**
-	 * 只清理超时对象，LRU的实现会交给<code>LinkedHashMap</code>
+	 * 清理超时对象，按个数的LRU淘汰交给<code>LinkedHashMap</code><br>
+	 * 按权重限制时，从最久未使用的对象开始淘汰，直到权重之和不超过最大权重
 	 */
 	@Override
 	protected int pruneCache() {
-		if (isPruneExpiredActive() == false) {
-			return 0;
-		}
 		int count = 0;
-		Iterator<CacheObj<K, V>> values = cacheMap.values().iterator();
+		Iterator<CacheObj<K, V>> values;
 		CacheObj<K, V> co;
-		while (values.hasNext()) {
-			co = values.next();
-			if (co.isExpired()) {
-				values.remove();
-				onRemove(co.getKey(), co.getObj());
-				count++;
+		if (isPruneExpiredActive()) {
+			values = cacheMap.values().iterator();
+			while (values.hasNext()) {
+				co = values.next();
+				if (co.isExpired()) {
+					values.remove();
+					notifyRemoved(co, RemovalCause.EXPIRED);
+					count++;
+				}
 			}
 		}
+
+		// 按访问顺序排序，链表头部即最久未使用的对象
+		values = cacheMap.values().iterator();
+		while (isOverweight() && values.hasNext()) {
+			co = values.next();
+			values.remove();
+			notifyRemoved(co, RemovalCause.SIZE);
+			count++;
+		}
 		return count;
 	}
 }
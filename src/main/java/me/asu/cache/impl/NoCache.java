@@ -3,6 +3,8 @@ package me.asu.cache.impl;
 import java.util.Iterator;
 import me.asu.cache.Cache;
 import me.asu.cache.CacheObj;
+import me.asu.cache.CacheStats;
+import me.asu.cache.StatsCounter;
 
 /**
  * 无缓存实现，用于快速关闭缓存
@@ -12,6 +14,9 @@ import me.asu.cache.CacheObj;
  */
 public class NoCache<K, V> implements Cache<K, V> {
 
+	/** 所有get都记为未命中，关闭缓存后仍可观察访问量 */
+	private final StatsCounter statsCounter = new StatsCounter();
+
 	@Override
 	public int capacity() {
 		return 0;
@@ -39,11 +44,13 @@ public class NoCache<K, V> implements Cache<K, V> {
 
 	@Override
 	public V get(K key) {
+		statsCounter.recordMisses(1);
 		return null;
 	}
 
 	@Override
 	public V get(K key, boolean isUpdateLastAccess) {
+		statsCounter.recordMisses(1);
 		return null;
 	}
 
@@ -87,4 +94,9 @@ public class NoCache<K, V> implements Cache<K, V> {
 		return false;
 	}
 
+	@Override
+	public CacheStats stats() {
+		return statsCounter.snapshot();
+	}
+
 }
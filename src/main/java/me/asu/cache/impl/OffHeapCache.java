@@ -0,0 +1,622 @@
+package me.asu.cache.impl;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import me.asu.cache.Cache;
+import me.asu.cache.CacheObj;
+import me.asu.cache.CacheStats;
+import me.asu.cache.RemovalCause;
+import me.asu.cache.StatsCounter;
+
+/**
+ * 堆外缓存<br>
+ * 值通过 {@link Codec} 序列化后存放在 {@link SlabAllocator} 管理的直接内存中，堆上只保留键和一个很小的索引对象，
+ * 适合缓存大量较大的序列化数据，避免大数组进入老年代增加GC停顿。
+ * <p>
+ * 只有值在堆外：键对象、索引的 HashMap 和每个键约几十字节的索引对象（地址、长度、时间戳）以及CLOCK队列仍在堆上，
+ * 最大内存也只限制值占用的直接内存。因此键很大或数量很多（值很小）时收益有限，堆占用随键的数量增长，
+ * 这类数据应使用堆上缓存，或把多个小值合并为一个值存放。
+ * <p>
+ * 容量由最大内存决定，空间不足时使用CLOCK（二次机会）算法淘汰：命中只设置访问标记，
+ * 淘汰时跳过并清除有标记的对象，淘汰无标记或已过期的对象。命中时无需调整顺序，因此读操作只需要读锁。
+ * <p>
+ * 不再使用时应调用 {@link #close()} 立即释放直接内存，不必等待GC。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class OffHeapCache<K, V> implements Cache<K, V>, Closeable {
+
+	/** 默认slab大小：4MB */
+	public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+	/** 默认块大小：512字节 */
+	public static final int DEFAULT_BLOCK_SIZE = 512;
+
+	/** 字节数组原样存放 */
+	public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+		@Override
+		public byte[] encode(byte[] value) {
+			return value;
+		}
+
+		@Override
+		public byte[] decode(byte[] bytes) {
+			return bytes;
+		}
+	};
+
+	private final Map<K, Entry<K>> index = new HashMap<>();
+	/** CLOCK队列，被替换或移除的对象只做标记，轮到时跳过 */
+	private final ArrayDeque<Entry<K>> clock = new ArrayDeque<>();
+	private final SlabAllocator allocator;
+	private final Codec<V> codec;
+	private final long maxMemory;
+	/** 缓存失效时长， <code>0</code> 表示没有设置，单位毫秒 */
+	private final long timeout;
+
+	private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+	private final ReadLock readLock = cacheLock.readLock();
+	private final WriteLock writeLock = cacheLock.writeLock();
+	private final StatsCounter statsCounter = new StatsCounter();
+
+	private boolean closed;
+
+	/**
+	 * 构造
+	 *
+	 * @param codec 值的序列化方式
+	 * @param maxMemory 最大内存，单位字节
+	 * @param timeout 过期时长，<code>0</code>表示不过期，单位毫秒
+	 */
+	public OffHeapCache(Codec<V> codec, long maxMemory, long timeout) {
+		this(codec, maxMemory, timeout, DEFAULT_SLAB_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param codec 值的序列化方式
+	 * @param maxMemory 最大内存，单位字节
+	 * @param timeout 过期时长，<code>0</code>表示不过期，单位毫秒
+	 * @param slabSize 每次申请的直接内存大小，单位字节
+	 * @param blockSize 块大小，单位字节，每个值至少占用一个块，按值的典型大小选择可以减少浪费
+	 */
+	public OffHeapCache(Codec<V> codec, long maxMemory, long timeout, int slabSize, int blockSize) {
+		if (null == codec) {
+			throw new NullPointerException("codec");
+		}
+		if (maxMemory <= 0) {
+			throw new IllegalArgumentException("maxMemory must be > 0: " + maxMemory);
+		}
+		this.codec = codec;
+		this.maxMemory = maxMemory;
+		this.timeout = timeout;
+		this.allocator = new SlabAllocator(maxMemory, (int) Math.min(slabSize, maxMemory), blockSize);
+	}
+
+	/**
+	 * 无条目数限制，容量由 {@link #maxMemory()} 决定
+	 */
+	@Override
+	public int capacity() {
+		return 0;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return 最大内存，单位字节
+	 */
+	public long maxMemory() {
+		return maxMemory;
+	}
+
+	/**
+	 * @return 已申请的直接内存，单位字节
+	 */
+	public long allocatedMemory() {
+		readLock.lock();
+		try {
+			return allocator.allocatedMemory();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * @return 值占用的直接内存，按块计算，单位字节
+	 */
+	public long usedMemory() {
+		readLock.lock();
+		try {
+			return allocator.usedMemory();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	// ---------------------------------------------------------------- put start
+	@Override
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	/**
+	 * 放入缓存，序列化后超过最大内存的对象不会被缓存，同时移除键原有的对象
+	 */
+	@Override
+	public void put(K key, V object, long timeout) {
+		final byte[] bytes = codec.encode(object);
+		writeLock.lock();
+		try {
+			ensureOpen();
+			doPut(key, bytes, timeout);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 批量放入，序列化在锁外进行，只加一次写锁
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		final List<K> keys = new ArrayList<>(map.size());
+		final List<byte[]> values = new ArrayList<>(map.size());
+		for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			keys.add(entry.getKey());
+			values.add(codec.encode(entry.getValue()));
+		}
+		writeLock.lock();
+		try {
+			ensureOpen();
+			for (int i = 0; i < keys.size(); i++) {
+				doPut(keys.get(i), values.get(i), timeout);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 在写锁内放入序列化后的值
+	 */
+	private void doPut(K key, byte[] bytes, long timeout) {
+		removeEntry(index.get(key), RemovalCause.REPLACED);
+		if (bytes.length > allocator.maxLength()) {
+			return;
+		}
+		final int blocks = allocator.blocksFor(bytes.length);
+		while (false == allocator.ensure(blocks)) {
+			if (false == evictOne()) {
+				return;
+			}
+		}
+		final Entry<K> entry = new Entry<>(key, allocator.write(bytes), bytes.length, timeout);
+		index.put(key, entry);
+		clock.addLast(entry);
+		if (clock.size() > (index.size() << 1) + 16) {
+			compactClock();
+		}
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	@Override
+	public V get(K key) {
+		return get(key, true);
+	}
+
+	@Override
+	public V get(K key, boolean isUpdateLastAccess) {
+		byte[] bytes = null;
+		boolean expired = false;
+		readLock.lock();
+		try {
+			final Entry<K> entry = index.get(key);
+			if (null != entry) {
+				if (entry.isExpired()) {
+					expired = true;
+				} else {
+					entry.referenced = true;
+					if (isUpdateLastAccess) {
+						entry.lastAccess = System.currentTimeMillis();
+					}
+					bytes = allocator.read(entry.address, entry.length);
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		if (null == bytes) {
+			statsCounter.recordMisses(1);
+		} else {
+			statsCounter.recordHits(1);
+		}
+		if (expired) {
+			removeIfExpired(key);
+		}
+		// 解码在锁外进行
+		return (null == bytes) ? null : codec.decode(bytes);
+	}
+
+	/**
+	 * 批量获得对象，只加一次读锁，反序列化在锁外进行
+	 */
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		final Map<K, byte[]> found = new LinkedHashMap<>();
+		List<K> expired = null;
+		int misses = 0;
+		readLock.lock();
+		try {
+			final long now = System.currentTimeMillis();
+			for (K key : keys) {
+				if (found.containsKey(key)) {
+					continue;
+				}
+				final Entry<K> entry = index.get(key);
+				if (null == entry) {
+					misses++;
+				} else if (entry.isExpired()) {
+					misses++;
+					if (null == expired) {
+						expired = new ArrayList<>();
+					}
+					expired.add(key);
+				} else {
+					entry.referenced = true;
+					entry.lastAccess = now;
+					found.put(key, allocator.read(entry.address, entry.length));
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		statsCounter.recordHits(found.size());
+		statsCounter.recordMisses(misses);
+		if (null != expired) {
+			for (K key : expired) {
+				removeIfExpired(key);
+			}
+		}
+		final Map<K, V> result = new LinkedHashMap<>(found.size() * 4 / 3 + 1);
+		for (Map.Entry<K, byte[]> entry : found.entrySet()) {
+			result.put(entry.getKey(), codec.decode(entry.getValue()));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		readLock.lock();
+		try {
+			final Entry<K> entry = index.get(key);
+			if (null != entry && false == entry.isExpired()) {
+				return true;
+			}
+		} finally {
+			readLock.unlock();
+		}
+		removeIfExpired(key);
+		return false;
+	}
+
+	@Override
+	public long writeTime(K key) {
+		readLock.lock();
+		try {
+			final Entry<K> entry = index.get(key);
+			if (null != entry && false == entry.isExpired()) {
+				return entry.writeTime;
+			}
+		} finally {
+			readLock.unlock();
+		}
+		return -1;
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+		return new CacheValuesIterator<V>((CacheObjIterator<K, V>) cacheObjIterator());
+	}
+
+	/**
+	 * 返回解码后的快照，遍历期间的修改不会反映到迭代器中
+	 */
+	@Override
+	public Iterator<CacheObj<K, V>> cacheObjIterator() {
+		final List<Entry<K>> entries = new ArrayList<>();
+		final List<byte[]> values = new ArrayList<>();
+		readLock.lock();
+		try {
+			for (Entry<K> entry : index.values()) {
+				if (false == entry.isExpired()) {
+					entries.add(entry);
+					values.add(allocator.read(entry.address, entry.length));
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		final List<CacheObj<K, V>> copied = new ArrayList<>(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			final Entry<K> entry = entries.get(i);
+			final CacheObj<K, V> co = new CacheObj<>(entry.key, codec.decode(values.get(i)), entry.ttl);
+			co.setWriteTime(entry.writeTime);
+			co.setLastAccess(entry.lastAccess);
+			copied.add(co);
+		}
+		return new CacheObjIterator<>(copied.iterator());
+	}
+	// ---------------------------------------------------------------- get end
+
+	/**
+	 * 清理过期对象
+	 *
+	 * @return 清理数
+	 */
+	@Override
+	public int prune() {
+		writeLock.lock();
+		try {
+			int count = 0;
+			final Iterator<Entry<K>> values = index.values().iterator();
+			Entry<K> entry;
+			while (values.hasNext()) {
+				entry = values.next();
+				if (entry.isExpired()) {
+					values.remove();
+					release(entry);
+					statsCounter.recordRemoval(RemovalCause.EXPIRED);
+					count++;
+				}
+			}
+			return count;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return 直接内存已用尽，继续放入需要淘汰对象
+	 */
+	@Override
+	public boolean isFull() {
+		readLock.lock();
+		try {
+			return allocator.isExhausted();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(K key) {
+		writeLock.lock();
+		try {
+			removeEntry(index.get(key), RemovalCause.EXPLICIT);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 批量移除，只加一次写锁
+	 */
+	@Override
+	public void removeAll(Iterable<? extends K> keys) {
+		writeLock.lock();
+		try {
+			for (K key : keys) {
+				removeEntry(index.get(key), RemovalCause.EXPLICIT);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 清空缓存，已申请的直接内存保留复用
+	 */
+	@Override
+	public void clear() {
+		writeLock.lock();
+		try {
+			statsCounter.recordRemovals(RemovalCause.EXPLICIT, index.size());
+			index.clear();
+			clock.clear();
+			allocator.reset();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 清空缓存并立即释放所有直接内存，之后不能再放入对象
+	 */
+	@Override
+	public void close() {
+		writeLock.lock();
+		try {
+			closed = true;
+			index.clear();
+			clock.clear();
+			allocator.release();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		readLock.lock();
+		try {
+			return index.size();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public CacheStats stats() {
+		return statsCounter.snapshot();
+	}
+
+	@Override
+	public String toString() {
+		readLock.lock();
+		try {
+			return "OffHeapCache{size=" + index.size() + ", usedMemory=" + allocator.usedMemory()
+					+ ", maxMemory=" + maxMemory + "}";
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	// ---------------------------------------------------------------- private
+	/**
+	 * 淘汰一个对象，有访问标记的对象清除标记后放回队尾
+	 *
+	 * @return 是否淘汰了对象，没有可淘汰的对象时返回<code>false</code>
+	 */
+	private boolean evictOne() {
+		Entry<K> entry;
+		while (null != (entry = clock.pollFirst())) {
+			if (entry.removed) {
+				continue;
+			}
+			if (entry.referenced && false == entry.isExpired()) {
+				entry.referenced = false;
+				clock.addLast(entry);
+				continue;
+			}
+			index.remove(entry.key);
+			release(entry);
+			statsCounter.recordRemoval(entry.isExpired() ? RemovalCause.EXPIRED : RemovalCause.SIZE);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 从队列中清除已移除的对象，避免只替换不淘汰时队列无限增长
+	 */
+	private void compactClock() {
+		final Iterator<Entry<K>> entries = clock.iterator();
+		while (entries.hasNext()) {
+			if (entries.next().removed) {
+				entries.remove();
+			}
+		}
+	}
+
+	private void removeIfExpired(K key) {
+		writeLock.lock();
+		try {
+			final Entry<K> entry = index.get(key);
+			if (null != entry && entry.isExpired()) {
+				removeEntry(entry, RemovalCause.EXPIRED);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void removeEntry(Entry<K> entry, RemovalCause cause) {
+		if (null != entry) {
+			index.remove(entry.key);
+			release(entry);
+			statsCounter.recordRemoval(cause);
+		}
+	}
+
+	private void release(Entry<K> entry) {
+		entry.removed = true;
+		allocator.free(entry.address);
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("OffHeapCache is closed");
+		}
+	}
+
+	/**
+	 * 值的序列化方式
+	 *
+	 * @param <V> 值类型
+	 */
+	public interface Codec<V> {
+
+		/**
+		 * 序列化
+		 *
+		 * @param value 值
+		 * @return 字节数组
+		 */
+		byte[] encode(V value);
+
+		/**
+		 * 反序列化
+		 *
+		 * @param bytes 字节数组
+		 * @return 值
+		 */
+		V decode(byte[] bytes);
+	}
+
+	/**
+	 * 堆上的索引，值本身在直接内存中
+	 */
+	private static final class Entry<K> {
+
+		final K key;
+		/** 第一个块的地址 */
+		final int address;
+		/** 值的字节数 */
+		final int length;
+		/** 对象存活时长，0表示永久存活 */
+		final long ttl;
+		/** 写入时间 */
+		final long writeTime;
+		volatile long lastAccess;
+		/** CLOCK访问标记 */
+		volatile boolean referenced;
+		/** 已被替换或移除，块已释放 */
+		boolean removed;
+
+		Entry(K key, int address, int length, long ttl) {
+			this.key = key;
+			this.address = address;
+			this.length = length;
+			this.ttl = ttl;
+			this.writeTime = System.currentTimeMillis();
+			this.lastAccess = this.writeTime;
+		}
+
+		boolean isExpired() {
+			return (this.ttl > 0) && (this.lastAccess + this.ttl < System.currentTimeMillis());
+		}
+	}
+}
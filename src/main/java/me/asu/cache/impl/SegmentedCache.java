@@ -0,0 +1,547 @@
+package me.asu.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import me.asu.cache.Cache;
+import me.asu.cache.CacheObj;
+import me.asu.cache.CacheStats;
+import me.asu.cache.Weigher;
+
+/**
+ * 分段（锁分离）缓存<br>
+ * 按键的hash将对象分散到多个独立加锁的段中，每个段是一个 {@link FIFOCache}、{@link LFUCache}、{@link LRUCache} 或 {@link TinyLFUCache}。<br>
+ * 不同段的读写互不阻塞，并发访问的吞吐量随段数增长，适合多核下被大量线程共享的缓存。<br>
+ * 每个段的容量（或最大权重）为总量平均分配，淘汰策略在段内执行，因此整体上是近似的FIFO/LFU/LRU。<br>
+ * 按权重限制时，单个对象的权重不能超过所在段的最大权重（约为 maxWeight / 段数，见 {@link #getMaxItemWeight()}），
+ * 更重的对象不会放入。对象可能较重时应在构造时指定 maxItemWeight，段数会相应减少，保证不超过它的对象都能放入。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class SegmentedCache<K, V> implements Cache<K, V> {
+
+	/** 最大段数 */
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	/**
+	 * 段内的淘汰策略
+	 */
+	public enum Policy {
+		/** 先进先出，见 {@link FIFOCache} */
+		FIFO,
+		/** 最少使用率，见 {@link LFUCache} */
+		LFU,
+		/** 最近最久未使用，见 {@link LRUCache} */
+		LRU,
+		/** W-TinyLFU，见 {@link TinyLFUCache}，容量必须大于0，不支持无大小限制 */
+		TINY_LFU
+	}
+
+	private final AbstractCache<K, V>[] segments;
+	/** 用hash的高位选择段，避免与段内HashMap使用的低位重叠 */
+	private final int segmentShift;
+	private final int segmentMask;
+
+	/** 缓存容量，<code>0</code>表示无大小限制 */
+	private final int capacity;
+	/** 最大权重，<code>0</code>表示不按权重限制 */
+	private final long maxWeight;
+	/** 能放入的单个对象的最大权重，即各段最大权重的最小值，<code>0</code>表示不按权重限制 */
+	private final long maxItemWeight;
+	/** 缓存失效时长， <code>0</code> 表示没有设置，单位毫秒 */
+	private final long timeout;
+
+	/**
+	 * 构造，默认对象不过期，段数为CPU核数的两倍
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 容量
+	 */
+	public SegmentedCache(Policy policy, int capacity) {
+		this(policy, capacity, 0);
+	}
+
+	/**
+	 * 构造，段数为CPU核数的两倍
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 容量
+	 * @param timeout 过期时长，单位：毫秒
+	 */
+	public SegmentedCache(Policy policy, int capacity, long timeout) {
+		this(policy, capacity, timeout, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 容量，<code>0</code>表示无大小限制，{@link Policy#TINY_LFU} 必须大于0
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数，段数取不小于此值的2的幂，且不超过容量
+	 */
+	public SegmentedCache(Policy policy, int capacity, long timeout, int concurrencyLevel) {
+		this(policy, capacity, 0, 0, null, timeout, concurrencyLevel);
+	}
+
+	/**
+	 * 构造，按权重限制容量，不限制对象个数<br>
+	 * 最大权重平均分配到各段，权重超过 maxWeight / 段数 的对象不会放入，需要放入较重的对象时使用
+	 * {@link #SegmentedCache(Policy, long, long, Weigher, long, int)}
+	 *
+	 * @param policy 淘汰策略，不支持{@link Policy#TINY_LFU}
+	 * @param maxWeight 最大权重
+	 * @param weigher 权重计算器
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数，段数取不小于此值的2的幂
+	 */
+	public SegmentedCache(Policy policy, long maxWeight, Weigher<? super K, ? super V> weigher, long timeout,
+			int concurrencyLevel) {
+		this(policy, maxWeight, 1, weigher, timeout, concurrencyLevel);
+	}
+
+	/**
+	 * 构造，按权重限制容量，不限制对象个数，保证权重不超过 maxItemWeight 的对象都能放入
+	 *
+	 * @param policy 淘汰策略，不支持{@link Policy#TINY_LFU}
+	 * @param maxWeight 最大权重
+	 * @param maxItemWeight 单个对象的最大权重，不能超过 maxWeight，段数会减少到每段的最大权重都不小于此值
+	 * @param weigher 权重计算器
+	 * @param timeout 过期时长，单位：毫秒
+	 * @param concurrencyLevel 预计的并发线程数，段数取不小于此值的2的幂
+	 */
+	public SegmentedCache(Policy policy, long maxWeight, long maxItemWeight, Weigher<? super K, ? super V> weigher,
+			long timeout, int concurrencyLevel) {
+		this(policy, 0, AbstractCache.checkMaxWeight(maxWeight, weigher), checkMaxItemWeight(maxWeight, maxItemWeight),
+				weigher, timeout, concurrencyLevel);
+	}
+
+	@SuppressWarnings("unchecked")
+	private SegmentedCache(Policy policy, int capacity, long maxWeight, long maxItemWeight,
+			Weigher<? super K, ? super V> weigher, long timeout, int concurrencyLevel) {
+		if (null == policy) {
+			throw new NullPointerException("policy");
+		}
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must be >= 0: " + capacity);
+		}
+		if (null != weigher && Policy.TINY_LFU == policy) {
+			throw new IllegalArgumentException("TINY_LFU does not support weigher");
+		}
+		if (null == weigher && 0 == capacity && Policy.TINY_LFU == policy) {
+			throw new IllegalArgumentException("TINY_LFU requires capacity > 0, unbounded cache is not supported");
+		}
+		if (concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("concurrencyLevel must be > 0: " + concurrencyLevel);
+		}
+		if (concurrencyLevel > MAX_SEGMENTS) {
+			concurrencyLevel = MAX_SEGMENTS;
+		}
+
+		int shift = 0;
+		int size = 1;
+		while (size < concurrencyLevel) {
+			++shift;
+			size <<= 1;
+		}
+		// 每个段至少能放一个对象
+		while (capacity > 0 && size > capacity) {
+			--shift;
+			size >>= 1;
+		}
+		// 每个段都能放下最重的对象
+		while (maxWeight > 0 && size > 1 && maxWeight / size < maxItemWeight) {
+			--shift;
+			size >>= 1;
+		}
+
+		this.capacity = capacity;
+		this.maxWeight = maxWeight;
+		this.maxItemWeight = maxWeight / size;
+		this.timeout = timeout;
+		this.segmentShift = 32 - shift;
+		this.segmentMask = size - 1;
+		this.segments = (AbstractCache<K, V>[]) new AbstractCache<?, ?>[size];
+
+		// 前 capacity % size 个段多分一个，各段之和正好等于总容量
+		if (null == weigher) {
+			final int segmentCapacity = capacity / size;
+			final int remainder = capacity % size;
+			for (int i = 0; i < size; i++) {
+				this.segments[i] = newSegment(policy, segmentCapacity + (i < remainder ? 1 : 0), timeout);
+			}
+		} else {
+			final long segmentMaxWeight = maxWeight / size;
+			final long remainder = maxWeight % size;
+			for (int i = 0; i < size; i++) {
+				this.segments[i] = newSegment(policy, segmentMaxWeight + (i < remainder ? 1 : 0), weigher, timeout);
+			}
+		}
+	}
+
+	/**
+	 * 创建段
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 段容量
+	 * @param timeout 过期时长
+	 * @return 段
+	 */
+	protected AbstractCache<K, V> newSegment(Policy policy, int capacity, long timeout) {
+		switch (policy) {
+			case FIFO:
+				return new FIFOCache<K, V>(capacity, timeout);
+			case LFU:
+				return new LFUCache<K, V>(capacity, timeout);
+			case TINY_LFU:
+				return new TinyLFUCache<K, V>(capacity, timeout);
+			default:
+				return new LRUCache<K, V>(capacity, timeout);
+		}
+	}
+
+	/**
+	 * 创建按权重限制容量的段
+	 *
+	 * @param policy 淘汰策略
+	 * @param maxWeight 段的最大权重
+	 * @param weigher 权重计算器
+	 * @param timeout 过期时长
+	 * @return 段
+	 */
+	protected AbstractCache<K, V> newSegment(Policy policy, long maxWeight, Weigher<? super K, ? super V> weigher,
+			long timeout) {
+		switch (policy) {
+			case FIFO:
+				return new FIFOCache<K, V>(maxWeight, weigher, timeout);
+			case LFU:
+				return new LFUCache<K, V>(maxWeight, weigher, timeout);
+			default:
+				return new LRUCache<K, V>(maxWeight, weigher, timeout);
+		}
+	}
+
+	// ---------------------------------------------------------------- put start
+	@Override
+	public void put(K key, V object) {
+		segmentFor(key).put(key, object);
+	}
+
+	@Override
+	public void put(K key, V object, long timeout) {
+		segmentFor(key).put(key, object, timeout);
+	}
+
+	/**
+	 * 按段分组，每段只加一次锁
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void putAll(Map<? extends K, ? extends V> map) {
+		final Map<K, V>[] groups = (Map<K, V>[]) new Map<?, ?>[segments.length];
+		for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			final int index = segmentIndex(entry.getKey());
+			if (null == groups[index]) {
+				groups[index] = new LinkedHashMap<>();
+			}
+			groups[index].put(entry.getKey(), entry.getValue());
+		}
+		for (int i = 0; i < groups.length; i++) {
+			if (null != groups[i]) {
+				segments[i].putAll(groups[i]);
+			}
+		}
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	@Override
+	public V get(K key) {
+		return segmentFor(key).get(key);
+	}
+
+	@Override
+	public V get(K key, boolean isUpdateLastAccess) {
+		return segmentFor(key).get(key, isUpdateLastAccess);
+	}
+
+	/**
+	 * 按段分组，每段只加一次锁<br>
+	 * 分组时按键的顺序先放入占位，查到的值原位替换，最后去掉没查到的，只遍历一次键
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		final Map<K, V> result = new LinkedHashMap<>();
+		final List<K>[] groups = (List<K>[]) new List<?>[segments.length];
+		for (K key : keys) {
+			if (result.containsKey(key)) {
+				continue;
+			}
+			result.put(key, null);
+			final int index = segmentIndex(key);
+			if (null == groups[index]) {
+				groups[index] = new ArrayList<>();
+			}
+			groups[index].add(key);
+		}
+		for (int i = 0; i < groups.length; i++) {
+			if (null != groups[i]) {
+				result.putAll(segments[i].getAll(groups[i]));
+			}
+		}
+		result.values().removeIf(Objects::isNull);
+		return result;
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		return segmentFor(key).containsKey(key);
+	}
+
+	@Override
+	public long writeTime(K key) {
+		return segmentFor(key).writeTime(key);
+	}
+
+	/**
+	 * @return 命中数
+	 */
+	public int getHitCount() {
+		return (int) stats().getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public int getMissCount() {
+		return (int) stats().getMissCount();
+	}
+
+	/**
+	 * @return 最大权重，<code>0</code>表示不按权重限制
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * @return 能放入的单个对象的最大权重，权重更大的对象不会放入，<code>0</code>表示不按权重限制
+	 */
+	public long getMaxItemWeight() {
+		return maxItemWeight;
+	}
+
+	/**
+	 * @return 各段权重之和
+	 */
+	public long getTotalWeight() {
+		long weight = 0;
+		for (AbstractCache<K, V> segment : segments) {
+			weight += segment.getTotalWeight();
+		}
+		return weight;
+	}
+
+	/**
+	 * 汇总各段的统计
+	 */
+	@Override
+	public CacheStats stats() {
+		CacheStats stats = CacheStats.EMPTY;
+		for (AbstractCache<K, V> segment : segments) {
+			stats = stats.plus(segment.stats());
+		}
+		return stats;
+	}
+	// ---------------------------------------------------------------- get end
+
+	@Override
+	public Iterator<V> iterator() {
+		return new CacheValuesIterator<V>((CacheObjIterator<K, V>) cacheObjIterator());
+	}
+
+	/**
+	 * 返回各段的快照，遍历期间的修改不会反映到迭代器中
+	 */
+	@Override
+	public Iterator<CacheObj<K, V>> cacheObjIterator() {
+		final List<CacheObj<K, V>> copied = new ArrayList<>();
+		for (AbstractCache<K, V> segment : segments) {
+			Iterator<CacheObj<K, V>> iterator = segment.cacheObjIterator();
+			while (iterator.hasNext()) {
+				copied.add(iterator.next());
+			}
+		}
+		return new CacheObjIterator<>(copied.iterator());
+	}
+
+	@Override
+	public int prune() {
+		int count = 0;
+		for (AbstractCache<K, V> segment : segments) {
+			count += segment.prune();
+		}
+		return count;
+	}
+
+	// ---------------------------------------------------------------- common start
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	@Override
+	public boolean isFull() {
+		return ((capacity > 0) && (size() >= capacity)) || ((maxWeight > 0) && (getTotalWeight() >= maxWeight));
+	}
+
+	@Override
+	public void remove(K key) {
+		segmentFor(key).remove(key);
+	}
+
+	/**
+	 * 按段分组，每段只加一次锁
+	 */
+	@Override
+	public void removeAll(Iterable<? extends K> keys) {
+		final List<K>[] groups = groupBySegment(keys);
+		for (int i = 0; i < groups.length; i++) {
+			if (null != groups[i]) {
+				segments[i].removeAll(groups[i]);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (AbstractCache<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (AbstractCache<K, V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (AbstractCache<K, V> segment : segments) {
+			if (false == segment.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return 段数
+	 */
+	public int segmentCount() {
+		return segments.length;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < segments.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(segments[i]);
+		}
+		return sb.append(']').toString();
+	}
+	// ---------------------------------------------------------------- common end
+
+	/**
+	 * 根据键选择段
+	 *
+	 * @param key 键
+	 * @return 段
+	 */
+	AbstractCache<K, V> segmentFor(Object key) {
+		return segments[segmentIndex(key)];
+	}
+
+	/**
+	 * 根据键计算段序号
+	 *
+	 * @param key 键
+	 * @return 段序号
+	 */
+	private int segmentIndex(Object key) {
+		if (segmentMask == 0) {
+			return 0;
+		}
+		return (spread(key) >>> segmentShift) & segmentMask;
+	}
+
+	/**
+	 * 把键按所在的段分组
+	 *
+	 * @param keys 键
+	 * @return 按段序号排列的分组，没有键的段为<code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	private List<K>[] groupBySegment(Iterable<? extends K> keys) {
+		final List<K>[] groups = (List<K>[]) new List<?>[segments.length];
+		for (K key : keys) {
+			final int index = segmentIndex(key);
+			if (null == groups[index]) {
+				groups[index] = new ArrayList<>();
+			}
+			groups[index].add(key);
+		}
+		return groups;
+	}
+
+	/**
+	 * 检查单个对象的最大权重
+	 *
+	 * @param maxWeight 最大权重
+	 * @param maxItemWeight 单个对象的最大权重
+	 * @return 单个对象的最大权重
+	 */
+	private static long checkMaxItemWeight(long maxWeight, long maxItemWeight) {
+		if (maxItemWeight <= 0) {
+			throw new IllegalArgumentException("maxItemWeight must be > 0: " + maxItemWeight);
+		}
+		if (maxItemWeight > maxWeight) {
+			throw new IllegalArgumentException(
+					"maxItemWeight must be <= maxWeight: " + maxItemWeight + " > " + maxWeight);
+		}
+		return maxItemWeight;
+	}
+
+	/**
+	 * 打散hash值，使高位也受低位影响（Wang/Jenkins hash的变体）
+	 *
+	 * @param key 键
+	 * @return 打散后的hash值
+	 */
+	private static int spread(Object key) {
+		int h = (null == key) ? 0 : key.hashCode();
+		h += (h << 15) ^ 0xffffcd7d;
+		h ^= (h >>> 10);
+		h += (h << 3);
+		h ^= (h >>> 6);
+		h += (h << 2) + (h << 14);
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,231 @@
+package me.asu.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import me.asu.net.util.DirectByteBufferCleaner;
+
+/**
+ * 堆外内存块分配器<br>
+ * 按需申请固定大小的直接内存（slab），每个slab切分为等长的块（block）。
+ * 一段数据占用若干个块组成的链表，块头部4个字节存放下一个块的地址，空闲块同样以链表串联，
+ * 因此除slab数组外不占用堆内存。任何释放的块都可以被任意长度的数据复用，不存在按尺寸分级导致的空间僵化。
+ * <p>
+ * 块地址为 slab序号 * 每个slab的块数 + 块序号。非线程安全，由使用者加锁保护。
+ */
+final class SlabAllocator {
+
+	/** 链表结束标记 */
+	static final int NIL = -1;
+	/** 块头部：下一个块的地址 */
+	private static final int HEADER_SIZE = 4;
+
+	private final int blockSize;
+	private final int blocksPerSlab;
+	private final int maxSlabs;
+	private final List<ByteBuffer> slabs = new ArrayList<>();
+
+	/** 空闲块链表头 */
+	private int freeHead = NIL;
+	private int freeBlocks;
+
+	/**
+	 * 构造
+	 *
+	 * @param maxMemory 最大内存，单位字节
+	 * @param slabSize 每个slab的大小，单位字节
+	 * @param blockSize 块大小，单位字节，包括4字节的块头
+	 */
+	SlabAllocator(long maxMemory, int slabSize, int blockSize) {
+		if (blockSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("blockSize must be > " + HEADER_SIZE + ": " + blockSize);
+		}
+		if (slabSize < blockSize) {
+			throw new IllegalArgumentException("slabSize must be >= blockSize: " + slabSize);
+		}
+		this.blockSize = blockSize;
+		this.blocksPerSlab = slabSize / blockSize;
+		final long slabBytes = (long) blocksPerSlab * blockSize;
+		this.maxSlabs = (int) Math.min(Math.max(1, maxMemory / slabBytes), Integer.MAX_VALUE / blocksPerSlab);
+	}
+
+	/**
+	 * @param length 数据长度
+	 * @return 存放数据需要的块数
+	 */
+	int blocksFor(int length) {
+		final int payload = blockSize - HEADER_SIZE;
+		return Math.max(1, (length + payload - 1) / payload);
+	}
+
+	/**
+	 * 能否分配指定数量的块，空闲块不足时尝试申请新的slab
+	 *
+	 * @param blocks 块数
+	 * @return 是否能分配
+	 */
+	boolean ensure(int blocks) {
+		while (freeBlocks < blocks) {
+			if (slabs.size() >= maxSlabs) {
+				return false;
+			}
+			addSlab();
+		}
+		return true;
+	}
+
+	/**
+	 * 分配块并写入数据，调用前需通过 {@link #ensure(int)} 确认空间足够
+	 *
+	 * @param data 数据
+	 * @return 第一个块的地址
+	 */
+	int write(byte[] data) {
+		final int payload = blockSize - HEADER_SIZE;
+		final int count = blocksFor(data.length);
+		final int head = freeHead;
+		int address = head;
+		int offset = 0;
+		for (int i = 0; i < count; i++) {
+			final ByteBuffer slab = slabOf(address);
+			final int position = positionOf(address);
+			final int next = slab.getInt(position);
+			final int length = Math.min(payload, data.length - offset);
+			final ByteBuffer dup = slab.duplicate();
+			dup.position(position + HEADER_SIZE);
+			dup.put(data, offset, length);
+			offset += length;
+			if (i == count - 1) {
+				// 断开与空闲链表的连接
+				slab.putInt(position, NIL);
+				freeHead = next;
+			} else {
+				address = next;
+			}
+		}
+		freeBlocks -= count;
+		return head;
+	}
+
+	/**
+	 * 读取数据
+	 *
+	 * @param address 第一个块的地址
+	 * @param length 数据长度
+	 * @return 数据
+	 */
+	byte[] read(int address, int length) {
+		final int payload = blockSize - HEADER_SIZE;
+		final byte[] data = new byte[length];
+		int offset = 0;
+		do {
+			final ByteBuffer slab = slabOf(address);
+			final int position = positionOf(address);
+			final int len = Math.min(payload, length - offset);
+			final ByteBuffer dup = slab.duplicate();
+			dup.position(position + HEADER_SIZE);
+			dup.get(data, offset, len);
+			offset += len;
+			address = slab.getInt(position);
+		} while (offset < length && address != NIL);
+		return data;
+	}
+
+	/**
+	 * 释放块链表
+	 *
+	 * @param address 第一个块的地址
+	 */
+	void free(int address) {
+		int last = address;
+		int count = 1;
+		int next;
+		while ((next = slabOf(last).getInt(positionOf(last))) != NIL) {
+			last = next;
+			count++;
+		}
+		slabOf(last).putInt(positionOf(last), freeHead);
+		freeHead = address;
+		freeBlocks += count;
+	}
+
+	/**
+	 * 所有块归还空闲链表，保留已申请的slab
+	 */
+	void reset() {
+		freeHead = NIL;
+		freeBlocks = 0;
+		final List<ByteBuffer> copied = new ArrayList<>(slabs);
+		slabs.clear();
+		for (ByteBuffer slab : copied) {
+			slabs.add(slab);
+			link(slabs.size() - 1);
+		}
+	}
+
+	/**
+	 * 立即释放所有直接内存
+	 */
+	void release() {
+		for (ByteBuffer slab : slabs) {
+			DirectByteBufferCleaner.clean(slab);
+		}
+		slabs.clear();
+		freeHead = NIL;
+		freeBlocks = 0;
+	}
+
+	/**
+	 * @return 已申请的直接内存，单位字节
+	 */
+	long allocatedMemory() {
+		return (long) slabs.size() * blocksPerSlab * blockSize;
+	}
+
+	/**
+	 * @return 正在使用的内存，单位字节
+	 */
+	long usedMemory() {
+		return ((long) slabs.size() * blocksPerSlab - freeBlocks) * blockSize;
+	}
+
+	/**
+	 * @return 不能再分配任何块
+	 */
+	boolean isExhausted() {
+		return freeBlocks == 0 && slabs.size() >= maxSlabs;
+	}
+
+	/**
+	 * @return 单个数据的最大长度
+	 */
+	long maxLength() {
+		return (long) maxSlabs * blocksPerSlab * (blockSize - HEADER_SIZE);
+	}
+
+	private void addSlab() {
+		slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+		link(slabs.size() - 1);
+	}
+
+	/**
+	 * 把slab的所有块串起来放到空闲链表头部
+	 */
+	private void link(int slabIndex) {
+		final ByteBuffer slab = slabs.get(slabIndex);
+		final int base = slabIndex * blocksPerSlab;
+		for (int i = 0; i < blocksPerSlab; i++) {
+			slab.putInt(i * blockSize, (i == blocksPerSlab - 1) ? freeHead : base + i + 1);
+		}
+		freeHead = base;
+		freeBlocks += blocksPerSlab;
+	}
+
+	private ByteBuffer slabOf(int address) {
+		return slabs.get(address / blocksPerSlab);
+	}
+
+	private int positionOf(int address) {
+		return (address % blocksPerSlab) * blockSize;
+	}
+}
@@ -1,15 +1,23 @@
 package me.asu.cache.impl;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import me.asu.cache.CacheObj;
+import me.asu.cache.RemovalCause;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
 
 /**
  * 定时缓存<br>
  * 此缓存没有容量限制，对象只有在过期后才会被移除
- * 
+ * <p>
+ * 有失效时长的对象放入时会在 {@link GlobalExpireTimer} 时间轮中调度一次过期检查，到期时只检查该对象：
+ * 已过期则移除，期间被访问刷新过则按剩余时长重新调度。因此无需定时遍历整个缓存，
+ * {@link #schedulePrune(long)} 仅为兼容保留。
+ *
  * @param <K> 键类型
  * @param <V> 值类型
  */
@@ -20,7 +28,7 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 
 	/**
 	 * 构造
-	 * 
+	 *
 	 * @param timeout 超时（过期）时长，单位毫秒
 	 */
 	public TimedCache(long timeout) {
@@ -29,7 +37,7 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 
 	/**
 	 * 构造
-	 * 
+	 *
 	 * @param timeout 过期时长
 	 * @param map 存储缓存对象的map
 	 */
@@ -39,10 +47,74 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 		this.cacheMap = map;
 	}
 
+	// ---------------------------------------------------------------- expire
+	@Override
+	protected CacheObj<K, V> newCacheObj(K key, V object, long timeout) {
+		return new TimedCacheObj<K, V>(key, object, timeout);
+	}
+
+	@Override
+	protected void afterPut(CacheObj<K, V> co, CacheObj<K, V> replaced) {
+		if (null != replaced) {
+			cancelExpire(replaced);
+		}
+		if (co.getTtl() > 0) {
+			scheduleExpire((TimedCacheObj<K, V>) co, co.getTtl());
+		}
+	}
+
+	@Override
+	protected void afterRemove(CacheObj<K, V> co) {
+		cancelExpire(co);
+	}
+
+	/**
+	 * 在时间轮中调度过期检查<br>
+	 * 任务只持有对象的弱引用，已移除的对象不会因为等待到期而无法回收
+	 *
+	 * @param co 缓存对象
+	 * @param delay 延迟，单位毫秒
+	 */
+	private void scheduleExpire(TimedCacheObj<K, V> co, long delay) {
+		final WeakReference<TimedCacheObj<K, V>> ref = new WeakReference<>(co);
+		co.expireTimeout = GlobalExpireTimer.INSTANCE.schedule(new TimerTask() {
+			@Override
+			public void run(Timeout timeout) {
+				final TimedCacheObj<K, V> co = ref.get();
+				if (null != co) {
+					expire(co);
+				}
+			}
+		}, delay);
+	}
+
+	/**
+	 * 过期检查，已过期则移除，否则按剩余时长重新调度
+	 *
+	 * @param co 缓存对象
+	 */
+	private void expire(TimedCacheObj<K, V> co) {
+		if (removeIfExpired(co)) {
+			return;
+		}
+		// 被访问刷新过最后访问时间；已被替换或移除的对象剩余时长终将小于0，不再调度
+		final long remaining = co.getLastAccess() + co.getTtl() - System.currentTimeMillis();
+		if (remaining > 0) {
+			scheduleExpire(co, remaining);
+		}
+	}
+
+	private void cancelExpire(CacheObj<K, V> co) {
+		final Timeout expireTimeout = ((TimedCacheObj<K, V>) co).expireTimeout;
+		if (null != expireTimeout) {
+			expireTimeout.cancel();
+		}
+	}
+
 	// ---------------------------------------------------------------- prune
 	/**
 	 * 清理过期对象
-	 * 
+	 *
 	 * @return 清理数
 	 */
 	@Override
@@ -54,6 +126,8 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 			co = values.next();
 			if (co.isExpired()) {
 				values.remove();
+				cancelExpire(co);
+				notifyRemoved(co, RemovalCause.EXPIRED);
 				count++;
 			}
 		}
@@ -63,7 +137,7 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 	// ---------------------------------------------------------------- auto prune
 	/**
 	 * 定时清理
-	 * 
+	 *
 	 * @param delay 间隔时长，单位毫秒
 	 */
 	public void schedulePrune(long delay) {
@@ -84,4 +158,16 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
 		}
 	}
 
+	/**
+	 * 附带时间轮任务的缓存对象
+	 */
+	private static final class TimedCacheObj<K, V> extends CacheObj<K, V> {
+
+		volatile Timeout expireTimeout;
+
+		TimedCacheObj(K key, V obj, long ttl) {
+			super(key, obj, ttl);
+		}
+	}
+
 }
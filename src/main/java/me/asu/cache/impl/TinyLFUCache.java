@@ -0,0 +1,281 @@
+package me.asu.cache.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import me.asu.cache.CacheObj;
+import me.asu.cache.RemovalCause;
+
+/**
+ * W-TinyLFU 缓存<br>
+ * 缓存分为两个区域：
+ * <ul>
+ * 		<li>窗口区（约1%容量）：LRU，新对象总是先进入窗口区，用于吸收突发的新访问</li>
+ * 		<li>主区（约99%容量）：分段LRU，包括试用段（probation）和保护段（protected，约占主区80%）；
+ * 			试用段中的对象再次被访问时晋升到保护段，保护段溢出时最久未使用的对象降回试用段</li>
+ * </ul>
+ * 缓存满时，窗口区最久未使用的对象作为候选，与主区试用段最久未使用的对象比较由 {@link FrequencySketch} 估算的访问频率，
+ * 频率高者留在主区，低者被淘汰。<br>
+ * 每次淘汰只比较两个对象，时间复杂度O(1)；频率估算记录了已被淘汰对象的历史，对热点集中的访问分布命中率高于LFU和LRU。
+ * <p>
+ * 缓存满时放入新对象（put）只按准入策略淘汰一个对象，不会遍历清理过期对象；过期对象在访问时移除，
+ * 或调用 {@link #prune()} 集中清理，prune 不会淘汰未过期的对象。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class TinyLFUCache<K, V> extends AbstractCache<K, V> {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	/** 窗口区容量占比（百分比） */
+	private static final int WINDOW_PERCENT = 1;
+	/** 保护段占主区容量比例（百分比） */
+	private static final int PROTECTED_PERCENT = 80;
+
+	private final FrequencySketch<K> sketch;
+
+	private final Node<K, V> window = new Node<>();
+	private final Node<K, V> probation = new Node<>();
+	private final Node<K, V> protect = new Node<>();
+
+	private final int windowMax;
+	private final int protectedMax;
+	private int windowSize;
+	private int protectedSize;
+
+	/**
+	 * 构造，默认对象不过期
+	 *
+	 * @param capacity 容量
+	 */
+	public TinyLFUCache(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param capacity 容量，必须大于0
+	 * @param timeout 过期时长，单位：毫秒
+	 */
+	public TinyLFUCache(int capacity, long timeout) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+		}
+		if (Integer.MAX_VALUE == capacity) {
+			capacity -= 1;
+		}
+
+		this.capacity = capacity;
+		this.timeout = timeout;
+		this.windowMax = Math.max(1, (int) ((long) capacity * WINDOW_PERCENT / 100));
+		this.protectedMax = (int) ((long) (capacity - windowMax) * PROTECTED_PERCENT / 100);
+		this.sketch = new FrequencySketch<>(capacity);
+		cacheMap = new HashMap<K, CacheObj<K, V>>(capacity + 1, 1.0f);
+	}
+
+	/**
+	 * 命中时要调整链表顺序，get必须在写锁下执行
+	 */
+	@Override
+	protected boolean isAccessOrdered() {
+		return true;
+	}
+
+	/**
+	 * 每个新对象都要与试用段的牺牲对象比较频率，批量放入时不能推迟淘汰
+	 */
+	@Override
+	protected boolean isDeferredPruneSupported() {
+		return false;
+	}
+
+	@Override
+	protected CacheObj<K, V> newCacheObj(K key, V object, long timeout) {
+		return new Node<K, V>(key, object, timeout);
+	}
+
+	@Override
+	protected void afterPut(CacheObj<K, V> co, CacheObj<K, V> replaced) {
+		if (null != replaced) {
+			unlink((Node<K, V>) replaced);
+		}
+		final Node<K, V> node = (Node<K, V>) co;
+		sketch.increment(node.getKey());
+		linkLast(window, node, WINDOW);
+		windowSize++;
+
+		// 缓存未满时窗口区溢出的对象直接进入试用段
+		while (windowSize > windowMax) {
+			final Node<K, V> first = window.next;
+			unlink(first);
+			linkLast(probation, first, PROBATION);
+		}
+	}
+
+	@Override
+	protected void afterAccess(CacheObj<K, V> co) {
+		final Node<K, V> node = (Node<K, V>) co;
+		sketch.increment(node.getKey());
+		switch (node.region) {
+			case WINDOW:
+				moveToLast(window, node);
+				break;
+			case PROBATION:
+				unlink(node);
+				linkLast(protect, node, PROTECTED);
+				protectedSize++;
+				// 保护段溢出，最久未使用的降回试用段
+				while (protectedSize > protectedMax) {
+					final Node<K, V> first = protect.next;
+					unlink(first);
+					linkLast(probation, first, PROBATION);
+				}
+				break;
+			default:
+				moveToLast(protect, node);
+				break;
+		}
+	}
+
+	@Override
+	protected void afterRemove(CacheObj<K, V> co) {
+		unlink((Node<K, V>) co);
+	}
+
+	@Override
+	protected void afterClear() {
+		window.prev = window.next = window;
+		probation.prev = probation.next = probation;
+		protect.prev = protect.next = protect;
+		windowSize = 0;
+		protectedSize = 0;
+	}
+
+	// ---------------------------------------------------------------- prune
+
+	/**
+	 * 缓存满时（put触发），按准入策略淘汰一个对象
+	 *
+	 * @return 淘汰个数
+	 */
+	@Override
+	protected int pruneForSpace() {
+		return evict();
+	}
+
+	/**
+	 * 只清理过期对象
+	 *
+	 * @return 清理个数
+	 */
+	@Override
+	protected int pruneCache() {
+		if (isPruneExpiredActive() == false) {
+			return 0;
+		}
+		int count = 0;
+		Iterator<CacheObj<K, V>> values = cacheMap.values().iterator();
+		CacheObj<K, V> co;
+		while (values.hasNext()) {
+			co = values.next();
+			if (co.isExpired()) {
+				values.remove();
+				unlink((Node<K, V>) co);
+				notifyRemoved(co, RemovalCause.EXPIRED);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 窗口区的候选对象与试用段的牺牲对象比较访问频率，淘汰频率低者
+	 *
+	 * @return 淘汰个数
+	 */
+	private int evict() {
+		Node<K, V> candidate = (window.next != window) ? window.next : null;
+		Node<K, V> victim = (probation.next != probation) ? probation.next
+				: (protect.next != protect) ? protect.next : null;
+
+		final Node<K, V> evicted;
+		if (null == candidate) {
+			evicted = victim;
+		} else if (null == victim) {
+			evicted = candidate;
+		} else if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+			// 候选对象准入主区
+			evicted = victim;
+			unlink(candidate);
+			linkLast(probation, candidate, PROBATION);
+		} else {
+			evicted = candidate;
+		}
+		if (null == evicted) {
+			return 0;
+		}
+
+		unlink(evicted);
+		cacheMap.remove(evicted.getKey());
+		notifyRemoved(evicted, RemovalCause.SIZE);
+		return 1;
+	}
+
+	// ---------------------------------------------------------------- list
+
+	private void linkLast(Node<K, V> head, Node<K, V> node, int region) {
+		node.region = region;
+		node.prev = head.prev;
+		node.next = head;
+		head.prev.next = node;
+		head.prev = node;
+	}
+
+	private void moveToLast(Node<K, V> head, Node<K, V> node) {
+		if (head.prev == node) {
+			return;
+		}
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		linkLast(head, node, node.region);
+	}
+
+	private void unlink(Node<K, V> node) {
+		if (null == node.prev) {
+			return;
+		}
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+		if (node.region == WINDOW) {
+			windowSize--;
+		} else if (node.region == PROTECTED) {
+			protectedSize--;
+		}
+	}
+
+	/**
+	 * 带双向链表指针的缓存对象，链表头为哨兵节点
+	 */
+	private static final class Node<K, V> extends CacheObj<K, V> {
+
+		Node<K, V> prev;
+		Node<K, V> next;
+		int region;
+
+		/** 哨兵 */
+		Node() {
+			super(null, null, 0);
+			this.prev = this;
+			this.next = this;
+		}
+
+		Node(K key, V obj, long ttl) {
+			super(key, obj, ttl);
+		}
+	}
+}
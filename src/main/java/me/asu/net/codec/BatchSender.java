@@ -0,0 +1,119 @@
+package me.asu.net.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.Setter;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+
+/**
+ * BatchSender. 攒够 maxBatchCount 个消息或 maxBatchBytes 字节后合并成一个包发送，用于频繁的小消息.
+ * <p>
+ * 只有一个消息时不合并，只按需压缩。未攒满的消息要调用 {@link #flush()} 才会发出，
+ * 一般在一轮发送结束后调用。发送在锁内进行，保证同一个 BatchSender 发出的包顺序不变。
+ *
+ * <pre>
+ * BatchSender sender = new BatchSender(new MessageCodec(), client::send);
+ * for (ProtocolMsg msg : messages) {
+ *     sender.add(msg);
+ * }
+ * sender.flush();
+ * </pre>
+ *
+ * @version 1.0.0
+ */
+public class BatchSender {
+
+    public final static int DEFAULT_MAX_BATCH_COUNT = 64;
+    public final static int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+    @Getter
+    private final MessageCodec       codec;
+    private final Consumer<IMessage> sink;
+    /** 一个合并包最多包含的消息数. */
+    @Getter
+    @Setter
+    private int maxBatchCount = DEFAULT_MAX_BATCH_COUNT;
+    /** 合并前的总长度达到此值时发送. */
+    @Getter
+    @Setter
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+
+    private final ReentrantLock     lock    = new ReentrantLock();
+    private final List<ProtocolMsg> pending = new ArrayList<ProtocolMsg>();
+    private int                     pendingBytes;
+
+    /**
+     * @param codec 编码
+     * @param sink  发送编码后的包，如 NioClient::send
+     */
+    public BatchSender(MessageCodec codec, Consumer<IMessage> sink) {
+        this.codec = codec;
+        this.sink = sink;
+    }
+
+    /**
+     * 加入待发送的消息，攒满时发送.
+     *
+     * @param msg 消息，发送前不能再修改
+     * @throws IOException 压缩失败，这一批消息被丢弃
+     */
+    public void add(ProtocolMsg msg) throws IOException {
+        lock.lock();
+        try {
+            pending.add(msg);
+            pendingBytes += msg.getPackageLength();
+            if (pending.size() >= maxBatchCount || pendingBytes >= maxBatchBytes) {
+                send();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 立即发送攒下的消息.
+     *
+     * @throws IOException 压缩失败，这一批消息被丢弃
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            send();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 攒下还未发送的消息数
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            if (pending.size() == 1) {
+                sink.accept(codec.encode(pending.get(0)));
+            } else {
+                sink.accept(codec.batch(pending));
+            }
+        } finally {
+            pending.clear();
+            pendingBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package me.asu.net.codec;
+
+import static me.asu.net.socket.NetConstants.ERROR_RECV;
+
+import java.io.IOException;
+import java.util.List;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.Box;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.socket.client.Delegate;
+
+/**
+ * CodecDelegate. 收到的消息先经 {@link MessageCodec#decode} 解压、拆包，再逐个交给目标 delegate.
+ * 可以用在 NioClient、NioServer、BlockingServer 等任何接受 {@link Delegate} 的地方；解码失败时回调 onError(ERROR_RECV)。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class CodecDelegate implements Delegate {
+
+    @Getter
+    private final MessageCodec codec;
+    @Getter
+    private final Delegate     target;
+
+    public CodecDelegate(MessageCodec codec, Delegate target) {
+        this.codec = codec;
+        this.target = target;
+    }
+
+    @Override
+    public void onRecv(IMessage ibox) {
+        try {
+            if (ibox instanceof ProtocolMsg) {
+                List<ProtocolMsg> messages = codec.decode((ProtocolMsg) ibox);
+                for (ProtocolMsg msg : messages) {
+                    target.onRecv(msg);
+                }
+            } else if (ibox instanceof Box) {
+                List<Box> boxes = codec.decode((Box) ibox);
+                for (Box box : boxes) {
+                    target.onRecv(box);
+                }
+            } else {
+                target.onRecv(ibox);
+            }
+        } catch (IOException e) {
+            log.warn("decode message failed: {}", e.getMessage());
+            target.onError(ERROR_RECV, ibox);
+        }
+    }
+
+    @Override
+    public void onOpen(String host, int port) {
+        target.onOpen(host, port);
+    }
+
+    @Override
+    public void onSend(IMessage ibox) {
+        target.onSend(ibox);
+    }
+
+    @Override
+    public void onClose(String host, int port) {
+        target.onClose(host, port);
+    }
+
+    @Override
+    public void onError(int code, IMessage ibox) {
+        target.onError(code, ibox);
+    }
+
+    @Override
+    public void onTimeout(String host, int port) {
+        target.onTimeout(host, port);
+    }
+
+    @Override
+    public void onWritabilityChanged(boolean writable) {
+        target.onWritabilityChanged(writable);
+    }
+
+    @Override
+    public ProtocolMsg createMessage() {
+        return target.createMessage();
+    }
+}
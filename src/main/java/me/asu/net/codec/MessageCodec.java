@@ -0,0 +1,266 @@
+package me.asu.net.codec;
+
+import static me.asu.net.message.ProtocolMsgHeader.BODY_FLAG_BATCH;
+import static me.asu.net.message.ProtocolMsgHeader.BODY_FLAG_DEFLATE;
+import static me.asu.net.message.ProtocolMsgHeader.BODY_FLAG_GZIP;
+import static me.asu.net.message.ProtocolMsgHeader.BODY_TYPE_MASK;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import me.asu.net.message.Box;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.message.ProtocolMsgHeader;
+
+/**
+ * MessageCodec. 包体的压缩和多包合并，编码方式记录在包自身的标志位中，接收方据此还原.
+ * <ul>
+ * <li>{@link ProtocolMsg}：标志位在 bodyType 的高 3 位（{@link ProtocolMsgHeader#BODY_TYPE_MASK}），低 5 位仍是数据类型；</li>
+ * <li>{@link Box}：标志位在 flag 中（{@link Box#FLAG_BATCH} 等）；</li>
+ * <li>压缩：body 不小于 compressThreshold 时压缩，压缩后没有变小则原样发送；</li>
+ * <li>合并：多个小包打成一个包，body 依次是各个完整的包，再整体压缩，小包多时压缩效果更好，也减少了包头和回调次数。</li>
+ * </ul>
+ * 合并包只有一层：其中的包不能再带压缩或合并标志，解码时遇到则认为数据有误。
+ * 这样一个包最多解压一次，解压后的总长度不超过 maxDecompressedSize，也不会递归。
+ * 不带标志的包原样通过，所以接收方可以先升级；发送方只有确认对方已支持后才应开启压缩和合并。
+ * 线程安全，设置应在使用前完成。
+ *
+ * @version 1.0.0
+ */
+public class MessageCodec {
+
+    public final static int DEFAULT_COMPRESS_THRESHOLD     = 1024;
+    public final static int DEFAULT_MAX_DECOMPRESSED_SIZE  = 16 * 1024 * 1024;
+
+    private final static int ENCODED_BOX_FLAGS = Box.FLAG_BATCH | Box.FLAG_GZIP | Box.FLAG_DEFLATE;
+
+    /** 压缩算法，为 null 时不压缩. */
+    @Getter
+    @Setter
+    private Compression compression = Compression.DEFLATE;
+    /** body 不小于此长度时压缩. */
+    @Getter
+    @Setter
+    private int compressThreshold = DEFAULT_COMPRESS_THRESHOLD;
+    /** 解压后的最大长度，超过则认为数据有误. */
+    @Getter
+    @Setter
+    private int maxDecompressedSize = DEFAULT_MAX_DECOMPRESSED_SIZE;
+
+    public MessageCodec() {
+    }
+
+    public MessageCodec(Compression compression, int compressThreshold) {
+        this.compression = compression;
+        this.compressThreshold = compressThreshold;
+    }
+
+    // ---------------------------------------------------------------- ProtocolMsg
+
+    /**
+     * 按需压缩.
+     *
+     * @param msg 消息，不会被修改
+     * @return 不需要压缩时返回 msg 本身，否则返回包头相同、body 压缩后的新消息
+     * @throws IOException 压缩失败
+     */
+    public ProtocolMsg encode(ProtocolMsg msg) throws IOException {
+        byte flag = compressFlag(msg.body.length);
+        if (flag == 0) {
+            return msg;
+        }
+        byte[] compressed = compression.compress(msg.body);
+        if (compressed.length >= msg.body.length) {
+            return msg;
+        }
+        ProtocolMsg out = new ProtocolMsg();
+        out.header.readFrom(msg.header);
+        out.header.bodyType = (byte) (msg.header.bodyType | flag);
+        out.setBody(compressed);
+        return out;
+    }
+
+    /**
+     * 把多个消息合并成一个，并按需压缩. 合并包的 cmdType 为 NOTIFICATION，cmdId 和 seqId 为 0。
+     *
+     * @param messages 消息，不会被修改，不能带编码标志
+     * @return 合并后的消息
+     * @throws IOException 压缩失败
+     */
+    public ProtocolMsg batch(List<ProtocolMsg> messages) throws IOException {
+        int length = 0;
+        for (ProtocolMsg msg : messages) {
+            if ((msg.header.bodyType & ~BODY_TYPE_MASK) != 0) {
+                throw new IllegalArgumentException("encoded message can not be batched");
+            }
+            length += msg.getPackageLength();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (ProtocolMsg msg : messages) {
+            msg.encodeTo(buffer);
+        }
+        ProtocolMsg batch = new ProtocolMsg();
+        batch.header.cmdType = ProtocolMsgHeader.CMD_TYPE_NOTIFICATION;
+        batch.header.bodyType = (byte) (ProtocolMsgHeader.BODY_TYPE_RAW | BODY_FLAG_BATCH);
+        batch.setBody(toArray(buffer));
+        return encode(batch);
+    }
+
+    /**
+     * 还原收到的消息：解压，合并包拆成原来的多个消息.
+     *
+     * @param msg 收到的消息，不会被修改
+     * @return 还原后的消息，没有编码时只有 msg 本身
+     * @throws IOException 解压失败或合并包数据错误
+     */
+    public List<ProtocolMsg> decode(ProtocolMsg msg) throws IOException {
+        final byte bodyType = msg.header.bodyType;
+        if ((bodyType & ~BODY_TYPE_MASK) == 0) {
+            return Collections.singletonList(msg);
+        }
+        byte[] body = decompress(msg.body, (bodyType & BODY_FLAG_GZIP) != 0,
+                (bodyType & BODY_FLAG_DEFLATE) != 0);
+        if ((bodyType & BODY_FLAG_BATCH) == 0) {
+            ProtocolMsg out = new ProtocolMsg();
+            out.header.readFrom(msg.header);
+            out.header.bodyType = (byte) (bodyType & BODY_TYPE_MASK);
+            out.setBody(body);
+            return Collections.singletonList(out);
+        }
+        List<ProtocolMsg> messages = new ArrayList<ProtocolMsg>();
+        int offset = 0;
+        while (offset < body.length) {
+            ProtocolMsg inner = new ProtocolMsg();
+            int ret = inner.unpack(body, offset, body.length - offset);
+            if (ret <= 0) {
+                throw new IOException("broken batch at offset " + offset);
+            }
+            if ((inner.header.bodyType & ~BODY_TYPE_MASK) != 0) {
+                throw new IOException("nested encoded message in batch at offset " + offset);
+            }
+            offset += ret;
+            messages.add(inner);
+        }
+        return messages;
+    }
+
+    // ---------------------------------------------------------------- Box
+
+    /**
+     * 按需压缩.
+     *
+     * @param box 消息，不会被修改
+     * @return 不需要压缩时返回 box 本身，否则返回包头相同、body 压缩后的新消息
+     * @throws IOException 压缩失败
+     */
+    public Box encode(Box box) throws IOException {
+        int length = box.bodyLen();
+        if (compressFlag(length) == 0) {
+            return box;
+        }
+        byte[] compressed = compression.compress(box.body);
+        if (compressed.length >= length) {
+            return box;
+        }
+        Box out = new Box();
+        out.magic = box.magic;
+        out.version = box.version;
+        out.flag = (short) (box.flag | (compression == Compression.GZIP ? Box.FLAG_GZIP : Box.FLAG_DEFLATE));
+        out.body = compressed;
+        return out;
+    }
+
+    /**
+     * 把多个消息合并成一个，并按需压缩.
+     *
+     * @param boxes 消息，不会被修改，不能带编码标志
+     * @return 合并后的消息
+     * @throws IOException 压缩失败
+     */
+    public Box batchBoxes(List<Box> boxes) throws IOException {
+        int length = 0;
+        for (Box box : boxes) {
+            if ((box.flag & ENCODED_BOX_FLAGS) != 0) {
+                throw new IllegalArgumentException("encoded box can not be batched");
+            }
+            length += box.getPackageLength();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (Box box : boxes) {
+            box.encodeTo(buffer);
+        }
+        Box batch = new Box();
+        batch.flag = Box.FLAG_BATCH;
+        batch.body = toArray(buffer);
+        return encode(batch);
+    }
+
+    /**
+     * 还原收到的消息：解压，合并包拆成原来的多个消息.
+     *
+     * @param box 收到的消息，不会被修改
+     * @return 还原后的消息，没有编码时只有 box 本身
+     * @throws IOException 解压失败或合并包数据错误
+     */
+    public List<Box> decode(Box box) throws IOException {
+        final short flag = box.flag;
+        if ((flag & ENCODED_BOX_FLAGS) == 0) {
+            return Collections.singletonList(box);
+        }
+        byte[] body = box.body == null ? new byte[0] : box.body;
+        body = decompress(body, (flag & Box.FLAG_GZIP) != 0, (flag & Box.FLAG_DEFLATE) != 0);
+        if ((flag & Box.FLAG_BATCH) == 0) {
+            Box out = new Box();
+            out.magic = box.magic;
+            out.version = box.version;
+            out.flag = (short) (flag & ~(Box.FLAG_GZIP | Box.FLAG_DEFLATE));
+            out.body = body.length == 0 ? null : body;
+            return Collections.singletonList(out);
+        }
+        List<Box> boxes = new ArrayList<Box>();
+        int offset = 0;
+        while (offset < body.length) {
+            Box inner = new Box();
+            int ret = inner.unpack(body, offset, body.length - offset);
+            if (ret <= 0) {
+                throw new IOException("broken batch at offset " + offset);
+            }
+            if ((inner.flag & ENCODED_BOX_FLAGS) != 0) {
+                throw new IOException("nested encoded box in batch at offset " + offset);
+            }
+            offset += ret;
+            boxes.add(inner);
+        }
+        return boxes;
+    }
+
+    // ----------------------------------------------------------------
+
+    private byte compressFlag(int length) {
+        if (compression == null || length == 0 || length < compressThreshold) {
+            return 0;
+        }
+        return compression == Compression.GZIP ? BODY_FLAG_GZIP : BODY_FLAG_DEFLATE;
+    }
+
+    /**
+     * getPackageLength 可能大于实际写入的长度（如 body 为空而 bodyLen 未清零），只取写入的部分.
+     */
+    private static byte[] toArray(ByteBuffer buffer) {
+        return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+    }
+
+    private byte[] decompress(byte[] body, boolean gzip, boolean deflate) throws IOException {
+        if (gzip) {
+            return Compression.GZIP.decompress(body, maxDecompressedSize);
+        } else if (deflate) {
+            return Compression.DEFLATE.decompress(body, maxDecompressedSize);
+        }
+        return body;
+    }
+}
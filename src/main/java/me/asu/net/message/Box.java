@@ -1,10 +1,9 @@
 package me.asu.net.message;
 
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import me.asu.util.Bytes;
 
 // 与python的netkit不同
 // java版只认网络字节序，因为java的所有存储都是以网络字节序
@@ -15,6 +14,14 @@ public class Box extends AbstracBox {
     // 魔法数字
     public final static int MAGIC = 142857;
 
+    // flag 中的编码标志，由 me.asu.net.codec.MessageCodec 设置和解除
+    // body 是多个完整的包
+    public final static short FLAG_BATCH = 0x01;
+    // body 经过 gzip 压缩
+    public final static short FLAG_GZIP = 0x02;
+    // body 经过 deflate 压缩
+    public final static short FLAG_DEFLATE = 0x04;
+
     // 默认就用这个值
     public int magic = MAGIC;
     public short version;
@@ -25,95 +32,125 @@ public class Box extends AbstracBox {
     // 压包
     @Override
     public byte[] pack() {
+        ByteBuffer buffer = ByteBuffer.allocate(this.getPackageLength());
+        encodeTo(buffer);
+        return buffer.array();
+    }
 
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(this.getPackageLength());
-        DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream);
+    // 直接写入buffer，不经过中间数组
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < this.getPackageLength()) {
+            throw new BufferOverflowException();
+        }
+        buffer.putInt(magic);
+        buffer.putShort(version);
+        buffer.putShort(flag);
+        buffer.putInt(getPackageLength());
+        if (body != null) {
+            buffer.put(body);
+        }
+    }
 
-        try{
-            outputStream.writeInt(magic);
-            outputStream.writeShort(version);
-            outputStream.writeShort(flag);
-            outputStream.writeInt(getPackageLength());
-            if (body != null) {
-                outputStream.write(body);
-            }
+    // 直接从buffer的当前位置解析，成功时position移到包尾
+    @Override
+    public int decodeFrom(ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int length = buffer.remaining();
+
+        if (length < this.headerLen()) {
+            return 0;
+        }
 
-            outputStream.flush();
+        int _magic = buffer.getInt(position);
+        short _version = buffer.getShort(position + 4);
+        short _flag = buffer.getShort(position + 6);
+        int _packet_len = buffer.getInt(position + 8);
+        int _body_len;
+        byte[] _body = null;
+
+        if (_magic != MAGIC) {
+            // 包错误
+            return -2;
+        }
+
+        if (_packet_len < this.headerLen()) {
+            // 说明包长度不对
+            return -3;
+        }
+
+        if (length < _packet_len) {
+            // 继续收
+            return 0;
         }
-        catch (Exception e) {
-            return null;
+
+        _body_len = _packet_len - this.headerLen();
+        if (_body_len > 0) {
+            _body = new byte[_body_len];
+            buffer.position(position + this.headerLen());
+            buffer.get(_body);
         }
+        buffer.position(position + _packet_len);
 
-        return byteArrayOutputStream.toByteArray();
+        this.magic = _magic;
+        this.version = _version;
+        this.flag = _flag;
+        this._transfer_packet_len = _packet_len;
+        this.body = _body;
+
+        this._unpack_done = true;
+
+        return _packet_len;
     }
 
     //>0: 成功生成obj，返回了使用的长度，即剩余的部分buf要存起来
     //<0: 报错
     //0: 继续收
+    // 直接在buf的offset处解析包头，只复制一次body
     public int unpack(byte[] buf, int offset, int length, boolean save) {
 
         if (buf == null) {
             return -100;
         }
 
-        length = buf.length > length ? length : buf.length;
+        length = Math.min(length, buf.length - offset);
 
         if (length < this.headerLen()) {
             return 0;
         }
 
-        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(buf, offset, length));
-
-        int _magic;
-        short _version;
-        short _flag;
-        int _packet_len;
+        int _magic = Bytes.toInt(buf, offset);
+        short _version = Bytes.toShort(buf, offset + 4);
+        short _flag = Bytes.toShort(buf, offset + 6);
+        int _packet_len = Bytes.toInt(buf, offset + 8);
         int _body_len;
         byte[] _body = null;
 
-        try {
-            _magic = inputStream.readInt();
-            _version = inputStream.readShort();
-            _flag = inputStream.readShort();
-            _packet_len = inputStream.readInt();
-        }
-        catch (Exception e) {
-            return -1;
-        }
-
         if (_magic != MAGIC) {
             // 包错误
             return -2;
         }
 
+        if (_packet_len < this.headerLen()) {
+            // 说明包长度不对
+            return -3;
+        }
+
         if (length < _packet_len) {
             // 继续收
             return 0;
         }
 
-        _body_len = _packet_len - this.headerLen();
-
-        try{
-            if (_body_len > 0) {
-                _body = new byte[_body_len];
-                int len = inputStream.read(_body);
-
-                // 说明解出来的body长度不对
-                if (len != _body_len) {
-                    System.out.println(len);
-                    return -3;
-                }
-            }
-        }
-        catch (Exception e) {
-            // 解body异常
-            return -4;
-        }
-
         if (!save) {
             return _packet_len;
         }
 
+        _body_len = _packet_len - this.headerLen();
+        if (_body_len > 0) {
+            _body = new byte[_body_len];
+            System.arraycopy(buf, offset + this.headerLen(), _body, 0, _body_len);
+        }
+
         this.magic = _magic;
         this.version = _version;
         this.flag = _flag;
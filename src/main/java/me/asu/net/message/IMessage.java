@@ -1,6 +1,8 @@
 package me.asu.net.message;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 
@@ -36,5 +38,45 @@ public interface IMessage {
     int unpack(byte[] bytes, int offset, int length);
 
     int getPackageLength();
+
+    /**
+     * 把整个包写入 buffer 的当前位置，buffer 需为网络字节序（默认的 BIG_ENDIAN）.
+     * 默认实现复制 {@link #pack()} 的结果，子类可直接写入以避免分配。
+     *
+     * @param buffer 目标缓冲区，可以是直接内存
+     * @throws IOException             异常
+     * @throws BufferOverflowException 剩余空间不足一个包，此时 buffer 不变
+     */
+    default void encodeTo(ByteBuffer buffer) throws IOException {
+        byte[] bytes = pack();
+        if (buffer.remaining() < bytes.length) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(bytes);
+    }
+
+    /**
+     * 从 buffer 的当前位置解一个包，成功时 position 移到包尾，否则 position 不变.
+     * buffer 需为网络字节序（默认的 BIG_ENDIAN）。
+     * 默认实现对堆内存直接调用 {@link #unpack(byte[], int, int)}，对直接内存先复制剩余数据。
+     *
+     * @param buffer 源缓冲区
+     * @return &gt;0: 包长度；0: 数据不足，继续收；&lt;0: 数据错乱
+     */
+    default int decodeFrom(ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int ret;
+        if (buffer.hasArray()) {
+            ret = unpack(buffer.array(), buffer.arrayOffset() + position, buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            ret = unpack(bytes, 0, bytes.length);
+        }
+        if (ret > 0) {
+            buffer.position(position + ret);
+        }
+        return ret;
+    }
 }
 
@@ -1,10 +1,9 @@
 package me.asu.net.message;
 
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import me.asu.util.Bytes;
 
 // 与python的netkit不同
 // java版只认网络字节序，因为java的所有存储都是以网络字节序
@@ -18,28 +17,67 @@ public class LengthBox extends AbstracBox {
     // 压包
     @Override
     public byte[] pack() {
+        ByteBuffer buffer = ByteBuffer.allocate(this.getPackageLength());
+        encodeTo(buffer);
+        return buffer.array();
+    }
+
+    // 直接写入buffer，不经过中间数组
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < this.getPackageLength()) {
+            throw new BufferOverflowException();
+        }
+        buffer.putInt(getPackageLength());
+        if (body != null) {
+            buffer.put(body);
+        }
+    }
+
+    // 直接从buffer的当前位置解析，成功时position移到包尾
+    @Override
+    public int decodeFrom(ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int length = buffer.remaining();
 
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(
-                this.getPackageLength());
-        DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream);
+        if (length < this.headerLen()) {
+            return 0;
+        }
 
-        try {
-            outputStream.writeInt(getPackageLength());
-            if (body != null) {
-                outputStream.write(body);
-            }
+        int _packet_len = buffer.getInt(position);
+        int _body_len;
+        byte[] _body = null;
+
+        if (_packet_len < this.headerLen()) {
+            // 说明包长度不对
+            return -3;
+        }
+
+        if (length < _packet_len) {
+            // 继续收
+            return 0;
+        }
 
-            outputStream.flush();
-        } catch (Exception e) {
-            return null;
+        _body_len = _packet_len - this.headerLen();
+        if (_body_len > 0) {
+            _body = new byte[_body_len];
+            buffer.position(position + this.headerLen());
+            buffer.get(_body);
         }
+        buffer.position(position + _packet_len);
+
+        this._transfer_packet_len = _packet_len;
+        this.body = _body;
+
+        this._unpack_done = true;
 
-        return byteArrayOutputStream.toByteArray();
+        return _packet_len;
     }
 
     //>0: 成功生成obj，返回了使用的长度，即剩余的部分buf要存起来
     //<0: 报错
     //0: 继续收
+    // 直接在buf的offset处解析包头，只复制一次body
     @Override
     public int unpack(byte[] buf, int offset, int length, boolean save) {
 
@@ -47,23 +85,19 @@ public class LengthBox extends AbstracBox {
             return -100;
         }
 
-        length = buf.length > length ? length : buf.length;
+        length = Math.min(length, buf.length - offset);
 
         if (length < this.headerLen()) {
             return 0;
         }
 
-        DataInputStream inputStream = new DataInputStream(
-                new ByteArrayInputStream(buf, offset, length));
-
-        int _packet_len;
+        int _packet_len = Bytes.toInt(buf, offset);
         int _body_len;
         byte[] _body = null;
 
-        try {
-            _packet_len = inputStream.readInt();
-        } catch (Exception e) {
-            return -1;
+        if (_packet_len < this.headerLen()) {
+            // 说明包长度不对
+            return -3;
         }
 
         if (length < _packet_len) {
@@ -71,28 +105,16 @@ public class LengthBox extends AbstracBox {
             return 0;
         }
 
-        _body_len = _packet_len - this.headerLen();
-
-        try {
-            if (_body_len > 0) {
-                _body = new byte[_body_len];
-                int len = inputStream.read(_body);
-
-                // 说明解出来的body长度不对
-                if (len != _body_len) {
-                    System.out.println(len);
-                    return -3;
-                }
-            }
-        } catch (Exception e) {
-            // 解body异常
-            return -4;
-        }
-
         if (!save) {
             return _packet_len;
         }
 
+        _body_len = _packet_len - this.headerLen();
+        if (_body_len > 0) {
+            _body = new byte[_body_len];
+            System.arraycopy(buf, offset + this.headerLen(), _body, 0, _body_len);
+        }
+
         this._transfer_packet_len = _packet_len;
         this.body = _body;
 
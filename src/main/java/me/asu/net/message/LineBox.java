@@ -54,9 +54,10 @@ public class LineBox extends AbstracBox {
 
         int found_len = 0;
 
-        length = buf.length > length ? length : buf.length;
+        length = Math.min(length, buf.length - offset);
 
-        for (int i = offset; i < length; i++) {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
             if (buf[i] == LINE_END) {
                 found_len = i - offset + 1;
                 break;
@@ -1,8 +1,8 @@
 package me.asu.net.message;
 
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import me.asu.util.Hex;
 import me.asu.util.Bytes;
@@ -56,13 +56,60 @@ public class ProtocolMsg implements IMessage, Cloneable {
 
     @Override
     public byte[] pack() throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
         // adjust
         header.bodyLen = body.length;
+        ByteBuffer buffer = ByteBuffer.allocate(getPackageLength());
+        encodeTo(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * 直接写入 buffer，不经过中间数组.
+     *
+     * @param buffer 目标缓冲区，网络字节序
+     */
+    @Override
+    public void encodeTo(ByteBuffer buffer) {
+        // adjust
+        header.bodyLen = body.length;
+        if (buffer.remaining() < getPackageLength()) {
+            throw new BufferOverflowException();
+        }
+        header.encodeTo(buffer);
+        buffer.put(body);
+    }
 
-        stream.write(header.pack());
-        stream.write(body);
-        return stream.toByteArray();
+    /**
+     * 直接从 buffer 的当前位置解析，成功时 position 移到包尾.
+     *
+     * @param buffer 源缓冲区，网络字节序
+     * @return 包长度，0 表示数据不足，-1 表示bodyLen错误
+     */
+    @Override
+    public int decodeFrom(ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int headerLength = getHeaderLength();
+        final int length = buffer.remaining();
+        if (length < headerLength) {
+            return 0;
+        }
+        final int bodyLength = buffer.getInt(position + ProtocolMsgHeader.BODY_LEN_OFFSET);
+        if (bodyLength < 0) {
+            return -1;
+        }
+        if (length - headerLength < bodyLength) {
+            return 0;
+        }
+        header.decodeFrom(buffer, position);
+        if (bodyLength == 0) {
+            body = EMPTY_BODY;
+        } else {
+            body = new byte[bodyLength];
+            buffer.position(position + headerLength);
+            buffer.get(body);
+        }
+        buffer.position(position + headerLength + bodyLength);
+        return headerLength + bodyLength;
     }
 
     @Override
@@ -73,16 +120,39 @@ public class ProtocolMsg implements IMessage, Cloneable {
         return unpack(bytes, 0, bytes.length);
     }
 
+    /**
+     * unpack. 直接在 bytes 的 offset 处解析包头，只复制一次body.
+     *
+     * @param bytes  字节数组(byte[])
+     * @param offset 开始位置
+     * @param length 数据长度
+     * @return 包长度，0 表示数据不足，-1 表示bodyLen错误
+     */
     @Override
     public int unpack(byte[] bytes, int offset, int length) {
         if (bytes == null) {
             return 0;
         }
-        if (readPackage(ByteBuffer.wrap(bytes, offset, length))) {
-            return getPackageLength();
-        } else {
+        final int headerLength = getHeaderLength();
+        length = Math.min(length, bytes.length - offset);
+        if (length < headerLength) {
+            return 0;
+        }
+        final int bodyLength = Bytes.toInt(bytes, offset + ProtocolMsgHeader.BODY_LEN_OFFSET);
+        if (bodyLength < 0) {
+            return -1;
+        }
+        if (length - headerLength < bodyLength) {
             return 0;
         }
+        header.readHeader(bytes, offset);
+        if (bodyLength == 0) {
+            body = EMPTY_BODY;
+        } else {
+            body = new byte[bodyLength];
+            System.arraycopy(bytes, offset + headerLength, body, 0, bodyLength);
+        }
+        return headerLength + bodyLength;
     }
 
     @Override
@@ -126,40 +196,6 @@ public class ProtocolMsg implements IMessage, Cloneable {
         body = EMPTY_BODY;
     }
 
-    private boolean readPackage(ByteBuffer byteBuffer) {
-        if (!header.readHeader(byteBuffer)) {
-            return false;
-        }
-        if (!readBody(byteBuffer)) {
-            clear();
-            return false;
-        }
-        return true;
-    }
-
-    private boolean canReadBody(ByteBuffer byteBuffer) {
-        int bodyLength = header.bodyLen;
-        return byteBuffer.remaining() >= bodyLength;
-    }
-
-    private boolean readBody(ByteBuffer byteBuffer) {
-        if (!canReadBody(byteBuffer)) {
-            return false;
-        }
-        body = new byte[header.bodyLen];
-        byteBuffer.get(body);
-        return true;
-    }
-
-    private void clear() {
-        resetHeader();
-        resetBody();
-    }
-
-    private void resetHeader() {
-        getHeader().clear();
-    }
-
     private int getHeaderLength() {
         return getHeader().getLength();
     }
@@ -1,6 +1,5 @@
 package me.asu.net.message;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import me.asu.util.Bytes;
@@ -14,10 +13,26 @@ public class ProtocolMsgHeader {
     public static final byte BODY_TYPE_BASE64_STR = 4;
     public static final byte BODY_TYPE_HEX_STR = 5;
 
+    /**
+     * bodyType 低 5 位是数据类型，高 3 位是编码标志，由 {@link me.asu.net.codec.MessageCodec} 设置和解除
+     */
+    public static final byte BODY_TYPE_MASK = 0x1F;
+    /** body 是多个完整的包 */
+    public static final byte BODY_FLAG_BATCH = 0x20;
+    /** body 经过 gzip 压缩 */
+    public static final byte BODY_FLAG_GZIP = 0x40;
+    /** body 经过 deflate 压缩 */
+    public static final byte BODY_FLAG_DEFLATE = (byte) 0x80;
+
     public static final byte CMD_TYPE_REQUEST = 0;
     public static final byte CMD_TYPE_RESPONSE = 1;
     public static final byte CMD_TYPE_NOTIFICATION = 2;
 
+    /**
+     * bodyLen 在包头中的位置
+     */
+    public static final int BODY_LEN_OFFSET = 8;
+
     /**
      * java 不支持 uint32
      */
@@ -73,15 +88,40 @@ public class ProtocolMsgHeader {
     }
 
     public byte[] pack() throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        stream.write(Bytes.toBytes(cmdId));
-        stream.write(Bytes.toBytes(seqId));
-        stream.write(Bytes.toBytes(bodyLen));
-        stream.write(cmdType);
-        stream.write(bodyType);
-        stream.write(code);
-        stream.write(ttl);
-        return stream.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(getLength());
+        encodeTo(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * 把包头写入 buffer 的当前位置.
+     *
+     * @param buffer 目标缓冲区，网络字节序
+     */
+    public void encodeTo(ByteBuffer buffer) {
+        buffer.putInt(cmdId);
+        buffer.putInt(seqId);
+        buffer.putInt(bodyLen);
+        buffer.put(cmdType);
+        buffer.put(bodyType);
+        buffer.put(code);
+        buffer.put(ttl);
+    }
+
+    /**
+     * 从 buffer 的指定位置读取包头，不改变 position，调用前需确认有足够的字节.
+     *
+     * @param buffer 源缓冲区，网络字节序
+     * @param index  包头开始位置
+     */
+    public void decodeFrom(ByteBuffer buffer, int index) {
+        cmdId = buffer.getInt(index);
+        seqId = buffer.getInt(index + 4);
+        bodyLen = buffer.getInt(index + BODY_LEN_OFFSET);
+        cmdType = buffer.get(index + 12);
+        bodyType = buffer.get(index + 13);
+        code = buffer.get(index + 14);
+        ttl = buffer.get(index + 15);
     }
 
     public boolean canReadHeader(ByteBuffer byteBuffer) {
@@ -102,4 +142,20 @@ public class ProtocolMsgHeader {
         return true;
     }
 
+    /**
+     * 直接从字节数组的指定位置读取包头，调用前需确认有足够的字节.
+     *
+     * @param bytes  字节数组
+     * @param offset 包头开始位置
+     */
+    public void readHeader(byte[] bytes, int offset) {
+        cmdId = Bytes.toInt(bytes, offset);
+        seqId = Bytes.toInt(bytes, offset + 4);
+        bodyLen = Bytes.toInt(bytes, offset + BODY_LEN_OFFSET);
+        cmdType = bytes[offset + 12];
+        bodyType = bytes[offset + 13];
+        code = bytes[offset + 14];
+        ttl = bytes[offset + 15];
+    }
+
 }
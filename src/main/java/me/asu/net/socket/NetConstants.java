@@ -9,4 +9,8 @@ public class NetConstants {
     public static final int ERROR_RECV = 3;
     public static final int ERROR_TIMEOUT = 4;
     public static final int ERROR_CLOSED = 5;
+    /** 待发送数据超过上限，消息被拒绝 */
+    public static final int ERROR_OVERFLOW = 6;
+    /** 待发送数据超过上限，消息按 DROP 策略丢弃 */
+    public static final int ERROR_DROPPED = 7;
 }
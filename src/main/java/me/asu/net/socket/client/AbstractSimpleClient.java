@@ -3,6 +3,7 @@ package me.asu.net.socket.client;
 import static me.asu.net.socket.NetConstants.ERROR_OPEN;
 
 import java.net.*;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.message.IMessage;
@@ -33,6 +34,8 @@ public abstract class AbstractSimpleClient {
     protected Stream stream;
     protected int tryConnectInterval = TRY_CONNECT_INTERVAL;
     protected int connectTimeout = CONNECT_TIMEOUT;
+    /** 保证同时只有一个线程在关闭旧连接并建立新连接，stream 不会被并发替换. */
+    private final ReentrantLock connectLock = new ReentrantLock();
 
 
     public void closeConn() {
@@ -46,6 +49,17 @@ public abstract class AbstractSimpleClient {
     }
 
 
+    /**
+     * 只尝试连接一次，不重试.
+     *
+     * @return 是否已连接
+     */
+    public boolean tryConnect() {
+        shouldConnect = true;
+        connectToServer();
+        return isConnected();
+    }
+
     public void disconnect() {
         stream.shutdown(2);
     }
@@ -94,7 +108,16 @@ public abstract class AbstractSimpleClient {
         lastActiveTimeMills = System.currentTimeMillis();
     }
 
-    synchronized protected void connectToServer() {
+    protected void connectToServer() {
+        connectLock.lock();
+        try {
+            doConnectToServer();
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    private void doConnectToServer() {
         closeConn();
         Socket socket;
         try {
@@ -38,6 +38,14 @@ public interface Delegate {
      */
     void onTimeout(String host, int port);
 
+    /**
+     * 可写状态变化通知. 待发送数据超过高水位时变为不可写，生产者应暂停发送；降到低水位以下时恢复。
+     * 在触发变化的线程中回调，不能阻塞。
+     * @param writable 是否可写
+     */
+    default void onWritabilityChanged(boolean writable) {
+    }
+
     /**
      * 创建一个数据对象.
      * @return IMessage
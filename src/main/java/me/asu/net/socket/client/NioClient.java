@@ -1,21 +1,29 @@
 package me.asu.net.socket.client;
 
+import static me.asu.net.socket.NetConstants.ERROR_DROPPED;
+import static me.asu.net.socket.NetConstants.ERROR_OVERFLOW;
+import static me.asu.net.socket.NetConstants.ERROR_RECV;
 import static me.asu.net.socket.NetConstants.ERROR_SEND;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.message.*;
-import me.asu.net.util.DirectByteBufferCleaner;
+import me.asu.net.socket.uitl.FlowControl;
+import me.asu.net.socket.uitl.FrameDecoder;
+import me.asu.net.socket.uitl.WriteQueue;
+import me.asu.net.util.DirectBufferPool;
 
 /**
  * NioClient
@@ -40,9 +48,33 @@ public class NioClient {
     ReadThread          readThread;
     MessageParserThread messageParserThread;
     ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
-    private int                   readBufferMaxSize;
-    private ByteArrayOutputStream readBufferOutputStream;
-    private Selector              selector;
+    /** 解析线程没有数据可解，已经或即将 park，读线程放入数据后 unpark. */
+    volatile boolean parserParked = false;
+    private int          readChunkSize;
+    private int          readBufferMaxSize;
+    private FrameDecoder decoder;
+    private Selector     selector;
+    private SelectionKey key;
+
+    /** 读写使用的直接内存池. */
+    private final DirectBufferPool   bufferPool     = DirectBufferPool.getDefault();
+    /** 发送流控，水位、上限和策略可在发送前调整. */
+    @Getter
+    private final FlowControl        flowControl    = new FlowControl();
+    private final WriteQueue         writeQueue     = new WriteQueue(bufferPool, flowControl);
+    private final ByteBuffer[]       writeBatch     = new ByteBuffer[WriteQueue.WRITE_BATCH_SIZE];
+    /** 同一时刻只有一个线程写 channel. */
+    private final ReentrantLock      writeLock      = new ReentrantLock();
+    /** 有剩余数据没写完，由读线程注册 OP_WRITE. */
+    private final AtomicBoolean      writeRequested = new AtomicBoolean();
+    private final Consumer<IMessage> onSent         = new Consumer<IMessage>() {
+        @Override
+        public void accept(IMessage message) {
+            if (delegate != null) {
+                delegate.onSend(message);
+            }
+        }
+    };
 
     public NioClient(String host, int port) throws IOException {
         this(host, port, READ_CHUNK_SIZE, READ_BUFFER_MAX_SIZE);
@@ -66,7 +98,7 @@ public class NioClient {
         channel.configureBlocking(false);
         this.selector = Selector.open();
         this.channel = channel;
-        this.channel.register(this.selector, SelectionKey.OP_READ);
+        this.key = this.channel.register(this.selector, SelectionKey.OP_READ);
         while (!channel.finishConnect()) {
             try {
                 Thread.sleep(100);
@@ -77,13 +109,28 @@ public class NioClient {
         onConnOpen(channel);
 
         this.readBufferMaxSize = readBufferMaxSize;
-        readChunkSize = readChunkSize > 0 ? readChunkSize : READ_CHUNK_SIZE;
-        readBufferOutputStream = new ByteArrayOutputStream(readChunkSize << 1);
+        this.readChunkSize = readChunkSize > 0 ? readChunkSize : READ_CHUNK_SIZE;
+        decoder = new FrameDecoder(this.readChunkSize << 1, readBufferMaxSize);
+        flowControl.setWritabilityListener(new Consumer<Boolean>() {
+            @Override
+            public void accept(Boolean writable) {
+                if (delegate != null) {
+                    delegate.onWritabilityChanged(writable);
+                }
+            }
+        });
 
         running = true;
     }
 
 
+    /**
+     * 发送消息，能写就在调用线程中直接写，写不完的由读线程继续.
+     * 待发送数据超过 {@link FlowControl#getMaxPendingBytes()} 时按其策略处理：默认 BLOCK，等待空间；
+     * 被拒绝时回调 onError(ERROR_OVERFLOW)，被丢弃时回调 onError(ERROR_DROPPED)。
+     *
+     * @param message 消息
+     */
     public void send(IMessage message) {
         if (!channel.isConnected()) {
             try {
@@ -94,19 +141,65 @@ public class NioClient {
                 return;
             }
         }
+        final int ret;
         try {
-            ByteBuffer wrap = ByteBuffer.wrap(message.pack());
-            do {
-                channel.write(wrap);
-            } while (wrap.hasRemaining());
-            if (delegate != null) {
-                delegate.onSend(message);
-            }
+            // 读线程负责在可写时继续写出，不能阻塞
+            ret = writeQueue.offer(message, Thread.currentThread() != readThread);
         } catch (Exception e) {
-            if (!(e instanceof InterruptedException)) {
+            log.error("", e);
+            onError(ERROR_SEND, message);
+            return;
+        }
+        if (ret == FlowControl.DROPPED) {
+            onError(ERROR_DROPPED, message);
+            return;
+        } else if (ret == FlowControl.REJECTED) {
+            onError(ERROR_OVERFLOW, message);
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * @return 还未写出的字节数
+     */
+    public long getPendingBytes() {
+        return writeQueue.getPendingBytes();
+    }
+
+    /**
+     * @return 待发送数据是否低于高水位
+     */
+    public boolean isWritable() {
+        return flowControl.isWritable();
+    }
+
+    /**
+     * 在调用线程中直接写，socket 发送缓冲区满时剩余部分交给读线程在可写时继续写.
+     * 其他线程正在写时不等待，由正在写的线程一并写出。
+     */
+    private void flush() {
+        while (!writeQueue.isEmpty() && writeLock.tryLock()) {
+            boolean done;
+            try {
+                done = writeQueue.flush(channel, writeBatch, onSent);
+            } catch (IOException e) {
                 log.error("", e);
+                IMessage box;
+                while ((box = writeQueue.poll()) != null) {
+                    onError(ERROR_SEND, box);
+                }
+                return;
+            } finally {
+                writeLock.unlock();
             }
-            onError(ERROR_SEND, message);
+            if (!done) {
+                if (writeRequested.compareAndSet(false, true)) {
+                    selector.wakeup();
+                }
+                return;
+            }
+            // 释放锁之后可能有其他线程放入了数据，而它 tryLock 失败，再检查一次
         }
     }
 
@@ -127,11 +220,28 @@ public class NioClient {
         }
     }
 
+    public boolean isConnected() {
+        return channel.isOpen() && channel.isConnected();
+    }
+
+    /**
+     * 停止读写线程并关闭连接.
+     */
+    public void close() {
+        stop();
+        try {
+            channel.close();
+            selector.close();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+    }
+
     private void reconnect() throws IOException {
         SocketAddress address = new InetSocketAddress(host, port);
         channel.connect(address);
         channel.configureBlocking(false);
-        channel.register(this.selector, SelectionKey.OP_READ);
+        this.key = channel.register(this.selector, SelectionKey.OP_READ);
         while (!channel.finishConnect()) {
             try {
                 Thread.sleep(1);
@@ -171,7 +281,9 @@ public class NioClient {
     }
 
     protected void onSendMsgToServer(IMessage ibox) {
-        delegate.onSend(ibox);
+        if (delegate != null) {
+            delegate.onSend(ibox);
+        }
     }
 
     protected void onRecvMsgFromServer(IMessage ibox) {
@@ -188,23 +300,36 @@ public class NioClient {
             while (running) {
                 try {
                     selector.select();
+                    if (writeRequested.getAndSet(false) && key.isValid()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    }
                     Iterator<SelectionKey> ite = selector.selectedKeys().iterator();
                     while (ite.hasNext()) {
                         SelectionKey key = ite.next();
                         ite.remove();
                         if (key.isReadable()) {
                             do {
-                                ByteBuffer byteBuffer = ByteBuffer.allocateDirect(512);
+                                // 从池中取，解析线程复制到decoder后归还
+                                ByteBuffer byteBuffer = bufferPool.allocate(readChunkSize);
                                 SocketChannel channel = (SocketChannel) key.channel();
-                                int read = channel.read(byteBuffer);
+                                int read;
+                                try {
+                                    read = channel.read(byteBuffer);
+                                } catch (IOException e) {
+                                    bufferPool.release(byteBuffer);
+                                    throw e;
+                                }
                                 if (read == -1) {
+                                    bufferPool.release(byteBuffer);
+                                    // 先通知，等待响应的请求不会再有结果
+                                    onConnClose(channel);
                                     channel.close();
                                     reconnect();
                                     break;
                                 } else if (read == 0) {
-                                    DirectByteBufferCleaner.clean(byteBuffer);
+                                    bufferPool.release(byteBuffer);
                                     break;
-                                } else if (read == 512) {
+                                } else if (!byteBuffer.hasRemaining()) {
                                     byteBuffer.flip();
                                     buffers.add(byteBuffer);
                                 } else {
@@ -213,21 +338,59 @@ public class NioClient {
                                     break;
                                 }
                             } while (true);
+                            if (parserParked) {
+                                LockSupport.unpark(messageParserThread);
+                            }
                             key.interestOps(key.interestOps() | SelectionKey.OP_READ);
                         }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
 
                     }
                 } catch (CancelledKeyException e) {
                     log.error("", e);
                     break;
+                } catch (ClosedSelectorException e) {
+                    // close()
+                    break;
                 } catch (IOException e) {
                     log.error("", e);
+                    if (channel.isOpen()) {
+                        onConnClose(channel);
+                    }
                     break;
                 }
             }
         }
     }
 
+    private void write(SelectionKey key) {
+        if (!writeLock.tryLock()) {
+            // 正在写的线程写不完会再次请求 OP_WRITE
+            return;
+        }
+        try {
+            if (writeQueue.flush(channel, writeBatch, onSent)) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            log.error("", e);
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            IMessage box;
+            while ((box = writeQueue.poll()) != null) {
+                onError(ERROR_SEND, box);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // 写的同时其他线程放入了数据而 tryLock 失败，保留 OP_WRITE 由下次可写时写出，
+        // 否则数据会一直留在队列中，阻塞等待空间的发送线程也不会被唤醒
+        if (!writeQueue.isEmpty() && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
     class MessageParserThread extends Thread {
 
         @Override
@@ -244,36 +407,52 @@ public class NioClient {
                     if (succ) {
                         onRecvMsgFromServer(box);
                     } else {
-                        Thread.sleep(1);
+                        waitForData();
                     }
                 } catch (Exception e) {
                     log.error("", e);
                 }
             }
+            // 归还没来得及解析的缓冲区
+            ByteBuffer buffer;
+            while ((buffer = buffers.poll()) != null) {
+                bufferPool.release(buffer);
+            }
+        }
+
+        /**
+         * 没有数据时 park，直到读线程放入数据或 {@link #stop()} 中断.
+         * 先置标志再检查队列，读线程先放数据再检查标志，两边至少有一边能看到对方，不会丢失唤醒。
+         */
+        private void waitForData() {
+            parserParked = true;
+            try {
+                if (buffers.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                parserParked = false;
+            }
         }
 
         private boolean read(IMessage box) throws IOException {
             // 直接只支持
             while (true) {
-                byte[] tmpBuffer = readBufferOutputStream.toByteArray();
-                if (readBufferMaxSize >= 0 && tmpBuffer.length > readBufferMaxSize) {
-                    // 数据过大，可能错位了。
+                if (readBufferMaxSize >= 0 && decoder.readableBytes() > readBufferMaxSize) {
+                    // 数据过大，可能错位了。丢弃后从后续数据重新开始，不丢弃会一直停在这里空转
+                    decoder.clear();
+                    onError(ERROR_RECV, box);
                     return false;
                 }
 
-                if (tmpBuffer.length > 0) {
-                    // 说明还是可以尝试一下的
-                    int ret = box.unpack(tmpBuffer, 0, tmpBuffer.length);
-                    if (ret > 0) {
-                        // 说明成功
-                        readBufferOutputStream.reset();
-                        readBufferOutputStream.write(tmpBuffer, ret, tmpBuffer.length - ret);
-                        return true;
-                    } else if (ret < 0) {
-                        // 说明数据错乱了
-                        readBufferOutputStream.reset();
-                        return false;
-                    }
+                // 说明还是可以尝试一下的
+                int ret = decoder.decode(box);
+                if (ret > 0) {
+                    // 说明成功
+                    return true;
+                } else if (ret < 0) {
+                    // 说明数据错乱了，decoder已丢弃已收的数据
+                    return false;
                 }
                 // load more data
                 if (buffers.isEmpty()) {
@@ -286,20 +465,9 @@ public class NioClient {
                     } catch (Exception e) {
                         break;
                     }
-
-                    byte[] readChunkBuffer = null;
-                    if (buffer.hasArray()) {
-                        final byte[] array = buffer.array();
-                        final int arrayOffset = buffer.arrayOffset();
-                        readChunkBuffer = Arrays.copyOfRange(array, arrayOffset + buffer.position(),
-                                arrayOffset + buffer.limit());
-                    } else {
-                        readChunkBuffer = new byte[buffer.remaining()];
-                        buffer.get(readChunkBuffer);
-                    }
-                    readBufferOutputStream.write(readChunkBuffer);
-                    DirectByteBufferCleaner.clean(buffer);
-
+                    // 直接从ByteBuffer复制到decoder的缓冲区中
+                    decoder.write(buffer);
+                    bufferPool.release(buffer);
                 }
             }
         }
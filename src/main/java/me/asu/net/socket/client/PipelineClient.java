@@ -0,0 +1,277 @@
+package me.asu.net.socket.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.Setter;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.message.ProtocolMsgHeader;
+import me.asu.util.NamedThreadFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+/**
+ * PipelineClient. 一个连接上同时发出多个请求，按 seqId 匹配响应.
+ * <p>
+ * {@link #request(ProtocolMsg)} 为请求分配 seqId，设置 cmdType 为 REQUEST 后立即发送并返回 {@link CompletableFuture}，
+ * 不等待响应；cmdType 为 RESPONSE 且 seqId 相同的报文到达时完成。
+ * 超时由共享的时间轮调度，超时后以 {@link TimeoutException} 完成。
+ * 无法匹配的报文（通知、迟到的响应）交给 {@link #setDelegate(Delegate)} 设置的回调。
+ * <p>
+ * future 在接收线程中完成，后续处理不能阻塞，耗时操作请使用 thenApplyAsync 等方法。
+ *
+ * @version 1.0.0
+ */
+public class PipelineClient implements Closeable {
+
+    /** 默认请求超时（毫秒）. */
+    private final static long DEFAULT_TIMEOUT = 5000;
+
+    @Getter
+    private final NioClient client;
+    /** 默认请求超时（毫秒），0 表示不超时. */
+    @Getter
+    @Setter
+    private long defaultTimeout = DEFAULT_TIMEOUT;
+    /** 接收无法匹配的报文和连接事件. */
+    @Getter
+    @Setter
+    private volatile Delegate delegate;
+
+    private final AtomicInteger            seq     = new AtomicInteger();
+    private final Map<Integer, Pending>    pending = new ConcurrentHashMap<Integer, Pending>();
+    /** 已关闭或连接已断开，之后的请求直接失败. */
+    private volatile boolean               closed;
+
+    public PipelineClient(String host, int port) throws IOException {
+        this(new NioClient(host, port));
+    }
+
+    /**
+     * 包装已连接的客户端，会替换它的 delegate.
+     *
+     * @param client 客户端
+     */
+    public PipelineClient(NioClient client) {
+        this.client = client;
+        client.setDelegate(new PipelineDelegate());
+    }
+
+    public void start() {
+        client.start();
+    }
+
+    /**
+     * 按默认超时发送请求.
+     *
+     * @param request 请求，seqId 和 cmdType 会被覆盖
+     * @return 响应
+     */
+    public CompletableFuture<ProtocolMsg> request(ProtocolMsg request) {
+        return request(request, defaultTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 发送请求.
+     *
+     * @param request 请求，seqId 和 cmdType 会被覆盖
+     * @param timeout 超时，0 表示不超时
+     * @param unit    超时单位
+     * @return 响应，已关闭时以 {@link ClosedChannelException} 完成
+     */
+    public CompletableFuture<ProtocolMsg> request(ProtocolMsg request, long timeout, TimeUnit unit) {
+        final int seqId = seq.incrementAndGet();
+        request.header.seqId = seqId;
+        request.header.cmdType = ProtocolMsgHeader.CMD_TYPE_REQUEST;
+
+        final Pending p = new Pending(request);
+        // 先登记再发送，否则响应可能先于登记到达
+        pending.put(seqId, p);
+        // 登记前后可能刚好关闭，failAll 已经遍历过就看不到这个请求，这里自己失败
+        if (closed) {
+            if (pending.remove(seqId, p)) {
+                p.future.completeExceptionally(new ClosedChannelException());
+            }
+            return p.future;
+        }
+        if (timeout > 0) {
+            p.timeout = TimerHolder.TIMER.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout t) {
+                    if (pending.remove(seqId, p)) {
+                        p.future.completeExceptionally(new TimeoutException(
+                                "request " + seqId + " timed out after " + unit.toMillis(timeout) + "ms"));
+                    }
+                }
+            }, timeout, unit);
+        }
+        client.send(request);
+        return p.future;
+    }
+
+    /**
+     * 发送不需要响应的报文.
+     *
+     * @param message 报文
+     */
+    public void send(IMessage message) {
+        client.send(message);
+    }
+
+    /**
+     * @return 已发送还未收到响应的请求数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 停止客户端并关闭连接，所有未完成的请求以 {@link ClosedChannelException} 完成.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        client.close();
+        failAll(new ClosedChannelException());
+    }
+
+    private void failAll(Throwable cause) {
+        Iterator<Pending> ite = pending.values().iterator();
+        while (ite.hasNext()) {
+            Pending p = ite.next();
+            ite.remove();
+            p.cancelTimeout();
+            p.future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class Pending {
+
+        final ProtocolMsg                    request;
+        final CompletableFuture<ProtocolMsg> future = new CompletableFuture<ProtocolMsg>();
+        volatile Timeout                     timeout;
+
+        Pending(ProtocolMsg request) {
+            this.request = request;
+        }
+
+        void cancelTimeout() {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+
+    /**
+     * 请求超时的时间轮，所有 PipelineClient 共享一个线程.
+     */
+    private static final class TimerHolder {
+
+        /** 刻度，单位毫秒 */
+        private static final long TICK_DURATION   = 10;
+        /** 时间轮大小 */
+        private static final int  TICKS_PER_WHEEL = 512;
+
+        static final HashedWheelTimer TIMER = new HashedWheelTimer(
+                new NamedThreadFactory("Pipeline-Request-Timer", true), TICK_DURATION,
+                TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    }
+
+    private final class PipelineDelegate implements Delegate {
+
+        @Override
+        public void onOpen(String host, int port) {
+            Delegate d = delegate;
+            if (d != null) {
+                d.onOpen(host, port);
+            }
+        }
+
+        @Override
+        public void onSend(IMessage ibox) {
+            Delegate d = delegate;
+            if (d != null) {
+                d.onSend(ibox);
+            }
+        }
+
+        @Override
+        public void onRecv(IMessage ibox) {
+            if (ibox instanceof ProtocolMsg) {
+                ProtocolMsg msg = (ProtocolMsg) ibox;
+                if (msg.header.cmdType == ProtocolMsgHeader.CMD_TYPE_RESPONSE) {
+                    Pending p = pending.remove(msg.seqId());
+                    if (p != null) {
+                        p.cancelTimeout();
+                        p.future.complete(msg);
+                        return;
+                    }
+                }
+            }
+            Delegate d = delegate;
+            if (d != null) {
+                d.onRecv(ibox);
+            }
+        }
+
+        @Override
+        public void onClose(String host, int port) {
+            closed = true;
+            failAll(new ClosedChannelException());
+            Delegate d = delegate;
+            if (d != null) {
+                d.onClose(host, port);
+            }
+        }
+
+        @Override
+        public void onError(int code, IMessage ibox) {
+            if (ibox instanceof ProtocolMsg) {
+                // 发送失败的请求不会有响应
+                int seqId = ((ProtocolMsg) ibox).seqId();
+                Pending p = pending.get(seqId);
+                if (p != null && p.request == ibox && pending.remove(seqId, p)) {
+                    p.cancelTimeout();
+                    p.future.completeExceptionally(new IOException("send failed, error code: " + code));
+                }
+            }
+            Delegate d = delegate;
+            if (d != null) {
+                d.onError(code, ibox);
+            }
+        }
+
+        @Override
+        public void onTimeout(String host, int port) {
+            Delegate d = delegate;
+            if (d != null) {
+                d.onTimeout(host, port);
+            }
+        }
+
+        @Override
+        public void onWritabilityChanged(boolean writable) {
+            Delegate d = delegate;
+            if (d != null) {
+                d.onWritabilityChanged(writable);
+            }
+        }
+
+        @Override
+        public ProtocolMsg createMessage() {
+            Delegate d = delegate;
+            return d != null ? d.createMessage() : new ProtocolMsg();
+        }
+    }
+}
@@ -3,6 +3,8 @@ package me.asu.net.socket.client;
 import static me.asu.net.socket.NetConstants.ERROR_RECV;
 import static me.asu.net.socket.NetConstants.ERROR_SEND;
 
+import java.net.Socket;
+import java.net.SocketException;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.message.IMessage;
@@ -144,6 +146,41 @@ public class SimpleClient extends AbstractSimpleClient {
         return null;
     }
 
+    /**
+     * 获取报文，最多等待 timeout 毫秒。超时或出错时关闭连接并返回 null。
+     *
+     * @param timeout 等待时长（毫秒），必须大于 0
+     * @return {@link IMessage} 报文容器
+     */
+    public IMessage receive(int timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0: " + timeout);
+        }
+        Socket s = stream.getSocket();
+        if (s == null) {
+            return null;
+        }
+        int old;
+        try {
+            old = s.getSoTimeout();
+            s.setSoTimeout(timeout);
+        } catch (SocketException e) {
+            log.error("e: " + e);
+            closeConn();
+            onError(ERROR_RECV, null);
+            return null;
+        }
+        try {
+            return receive();
+        } finally {
+            try {
+                s.setSoTimeout(old);
+            } catch (SocketException ignore) {
+                // 连接已关闭
+            }
+        }
+    }
+
     private boolean doRead(IMessage box) {
         try {
             boolean succ = stream.read(box);
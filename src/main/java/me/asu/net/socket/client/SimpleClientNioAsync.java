@@ -1,20 +1,18 @@
 package me.asu.net.socket.client;
 
-import static me.asu.net.socket.NetConstants.ERROR_SEND;
-
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.socket.uitl.NioStream;
 import me.asu.net.message.*;
+import me.asu.util.NamedThreadFactory;
 
 /**
- * SimpleClientNioAsync.
+ * SimpleClientNioAsync. 每个客户端一个 listen 线程，空闲时阻塞在 select 上，
+ * 发送时由 {@link NioStream#send(IMessage)} 唤醒 selector。
  *
  * @version 1.0.0
  * @since 2017-10-11 17:51
@@ -27,7 +25,7 @@ public class SimpleClientNioAsync {
     protected String    host;
     protected int       port;
     protected NioStream stream;
-    ExecutorService es = Executors.newSingleThreadExecutor();
+    private   Thread    listenThread;
 
     public SimpleClientNioAsync(String host, int port) throws IOException {
         this.host = host;
@@ -41,10 +39,10 @@ public class SimpleClientNioAsync {
         this.delegate = delegate;
         this.host = host;
         this.port = port;
-        stream.setDelegate(delegate);
         SocketAddress address = new InetSocketAddress(host, port);
         SocketChannel channel = SocketChannel.open(address);
         stream = new NioStream(channel);
+        stream.setDelegate(delegate);
     }
 
     public void setDelegate(Delegate delegate) {
@@ -52,31 +50,44 @@ public class SimpleClientNioAsync {
         stream.setDelegate(delegate);
     }
 
-    public void send(IMessage message) {
-        boolean succ = stream.send(message);
-        if (!succ) {
-            if (delegate != null) {
-                delegate.onError(ERROR_SEND, message);
-            }
-        }
+    /**
+     * 异步发送，失败时由 stream 回调 onError.
+     *
+     * @param message 报文
+     * @return 是否已放入发送队列
+     */
+    public boolean send(IMessage message) {
+        return stream.send(message);
     }
 
-    public void start() {
-        es.submit(new Runnable() {
+    public synchronized void start() {
+        if (listenThread != null) {
+            return;
+        }
+        listenThread = new NamedThreadFactory("SimpleClientNioAsync").newThread(new Runnable() {
             @Override
             public void run() {
                 try {
                     stream.listen();
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    log.error("", e);
                 }
             }
         });
-
+        listenThread.start();
     }
 
-    public void stop() {
-        stream.setRunning(false);
-        es.shutdownNow();
+    public synchronized void stop() {
+        if (listenThread == null) {
+            return;
+        }
+        stream.stop();
+        try {
+            listenThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        listenThread = null;
+        stream.close();
     }
 }
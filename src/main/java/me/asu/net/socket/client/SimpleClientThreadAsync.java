@@ -1,16 +1,24 @@
 package me.asu.net.socket.client;
 
+import static me.asu.net.socket.NetConstants.ERROR_DROPPED;
+import static me.asu.net.socket.NetConstants.ERROR_OVERFLOW;
 import static me.asu.net.socket.NetConstants.ERROR_SEND;
 
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.message.IMessage;
+import me.asu.net.socket.uitl.FlowControl;
 import me.asu.net.socket.uitl.Stream;
+import me.asu.net.util.VirtualThreads;
 import me.asu.util.NamedThreadFactory;
 
 /**
  * SimpleClientThreadAsync.
+ * 待发送的报文按字节数由 {@link FlowControl} 限制，超过上限时按其策略处理（默认 BLOCK，阻塞 add 的调用线程）。
  * @version 1.0.0
  * @since 2017-10-11 17:51
  */
@@ -19,12 +27,31 @@ import me.asu.util.NamedThreadFactory;
 public class SimpleClientThreadAsync extends SimpleClient {
 
     private LinkedBlockingDeque<Object> msgQueueToServer = new LinkedBlockingDeque<Object>();
-    private boolean                     running          = false;
-    private ExecutorService             es               = Executors
-            .newFixedThreadPool(2, new NamedThreadFactory("SimpleClientThreadAsync"));
+    private volatile boolean            running          = false;
+    /**
+     * 读写线程的工厂，在 {@link #start()} 之前设置。
+     * Java 21 以上可以用 {@link VirtualThreads#newThreadFactory(String)} 在虚拟线程中阻塞读写。
+     */
+    private ThreadFactory               threadFactory    = new NamedThreadFactory("SimpleClientThreadAsync");
+    private ExecutorService             es;
+    /** 断开时读写线程在此等待，连接建立或停止时唤醒. */
+    private final ReentrantLock         connectedLock      = new ReentrantLock();
+    private final Condition             connected        = connectedLock.newCondition();
+    /** 发送流控，水位、上限和策略可在发送前调整. */
+    private final FlowControl           flowControl      = new FlowControl();
+    /** 写线程，从队列取报文发送，不能在其中阻塞等待队列空间. */
+    private volatile Thread             writerThread;
 
     public SimpleClientThreadAsync() {
         stream = new Stream();
+        flowControl.setWritabilityListener(new Consumer<Boolean>() {
+            @Override
+            public void accept(Boolean writable) {
+                if (delegate != null) {
+                    delegate.onWritabilityChanged(writable);
+                }
+            }
+        });
     }
 
     public SimpleClientThreadAsync(String host, int port) {
@@ -63,6 +90,7 @@ public class SimpleClientThreadAsync extends SimpleClient {
         }
         running = false;
 
+        signalConnected();
         stopThreads();
         closeConn();
     }
@@ -72,10 +100,7 @@ public class SimpleClientThreadAsync extends SimpleClient {
      * @param message {@link IMessage} 报文。
      */
     public void add(IMessage message) {
-        boolean succ = msgQueueToServer.offer(message);
-        if (!succ) {
-            onError(ERROR_SEND, message);
-        }
+        enqueue(message, message.getPackageLength(), message);
     }
 
     /**
@@ -83,22 +108,50 @@ public class SimpleClientThreadAsync extends SimpleClient {
      * @param message byte[] 报文。
      */
     public void add(byte[] message) {
-        boolean succ = msgQueueToServer.offer(message);
+        enqueue(message, message.length, null);
+    }
+
+    /**
+     * @return 待发送数据是否低于高水位
+     */
+    public boolean isWritable() {
+        return flowControl.isWritable();
+    }
+
+    private void enqueue(Object message, int length, IMessage box) {
+        final int ret;
+        try {
+            ret = flowControl.acquire(length, Thread.currentThread() != writerThread);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onError(ERROR_SEND, box);
+            return;
+        }
+        if (ret == FlowControl.DROPPED) {
+            onError(ERROR_DROPPED, box);
+            return;
+        } else if (ret == FlowControl.REJECTED) {
+            onError(ERROR_OVERFLOW, box);
+            return;
+        }
+        boolean succ = msgQueueToServer.offer(new Outbound(message, length));
         if (!succ) {
-            onError(ERROR_SEND, null);
+            flowControl.removed(length);
+            onError(ERROR_SEND, box);
         }
     }
 
     private void startThreads() {
+        es = Executors.newFixedThreadPool(2, threadFactory);
         es.submit(new Runnable() {
             @Override
             public void run() {
                 while (running) {
                     if (!isConnected()) {
                         try {
-                            Thread.sleep(10);
+                            awaitConnected();
                         } catch (InterruptedException e) {
-                            // ignore
+                            break;
                         }
                         continue;
                     }
@@ -110,25 +163,27 @@ public class SimpleClientThreadAsync extends SimpleClient {
         es.submit(new Runnable() {
             @Override
             public void run() {
+                writerThread = Thread.currentThread();
                 while (running) {
                     if (!isConnected()) {
                         try {
-                            Thread.sleep(10);
+                            awaitConnected();
                         } catch (InterruptedException e) {
-                            // ignore
+                            break;
                         }
                         continue;
                     }
-                    Object msg = null;
+                    Outbound outbound = null;
                     try {
-                        msg = msgQueueToServer.take();
-                        if (msg == null) {
+                        outbound = (Outbound) msgQueueToServer.take();
+                        if (outbound == null) {
                             continue;
                         }
                     } catch (InterruptedException e) {
                         break;
                     }
 
+                    Object msg = outbound.message;
                     try {
                         if (msg instanceof IMessage) {
                             IMessage box = (IMessage) msg;
@@ -137,7 +192,10 @@ public class SimpleClientThreadAsync extends SimpleClient {
                             byte[] data = (byte[]) msg;
                             send(data);
                         }
+                        flowControl.written(outbound.length);
+                        flowControl.sent(outbound.enqueueTime);
                     } catch (Exception e) {
+                        flowControl.removed(outbound.length);
                         if (msg instanceof IMessage) {
                             onError(ERROR_SEND, (IMessage) msg);
                         } else {
@@ -153,4 +211,47 @@ public class SimpleClientThreadAsync extends SimpleClient {
         es.shutdownNow();
     }
 
+    @Override
+    protected void onConnOpen() {
+        super.onConnOpen();
+        signalConnected();
+    }
+
+    /**
+     * 等待连接建立或停止.
+     */
+    private void awaitConnected() throws InterruptedException {
+        connectedLock.lock();
+        try {
+            while (running && !isConnected()) {
+                connected.await();
+            }
+        } finally {
+            connectedLock.unlock();
+        }
+    }
+
+    private void signalConnected() {
+        connectedLock.lock();
+        try {
+            connected.signalAll();
+        } finally {
+            connectedLock.unlock();
+        }
+    }
+
+    /**
+     * 队列中的报文，记录长度和入队时间.
+     */
+    private static final class Outbound {
+
+        final Object message;
+        final int    length;
+        final long   enqueueTime = System.nanoTime();
+
+        Outbound(Object message, int length) {
+            this.message = message;
+            this.length = length;
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package me.asu.net.socket.pool;
+
+import java.io.IOException;
+
+/**
+ * ConnectionFactory. 连接池创建、检查和销毁连接的方式.
+ *
+ * @param <T> 连接类型
+ * @version 1.0.0
+ */
+public interface ConnectionFactory<T> {
+
+    /**
+     * 创建并连接.
+     *
+     * @return 已连接的客户端
+     * @throws IOException 连接失败
+     */
+    T create() throws IOException;
+
+    /**
+     * 检查连接是否可用，可以发送心跳，在后台线程或借出时调用，调用期间连接不会被借出.
+     *
+     * @param connection 连接
+     * @return 是否可用
+     */
+    boolean validate(T connection);
+
+    /**
+     * 关闭连接.
+     *
+     * @param connection 连接
+     */
+    void destroy(T connection);
+}
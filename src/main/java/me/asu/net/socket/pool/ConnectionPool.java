@@ -0,0 +1,373 @@
+package me.asu.net.socket.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.util.NamedThreadFactory;
+
+/**
+ * ConnectionPool. 有上限的客户端连接池.
+ * <ul>
+ * <li>借出和归还不加锁：空闲连接放在无锁的双端队列中，后进先出，常用的连接保持热；借出数由 {@link Semaphore} 限制，
+ * 超过 maxTotal 时最多等待 borrowTimeout；</li>
+ * <li>归还时空闲数超过 maxIdle 的连接直接关闭；</li>
+ * <li>后台线程每隔 validationInterval 检查一遍空闲连接：空闲超过 idleTimeout 且空闲数多于 minIdle 的关闭，
+ * 其余调用 {@link ConnectionFactory#validate(Object)}（心跳）检查，失败的关闭，再补足 minIdle 个空闲连接。
+ * 连接在被检查期间不会借出。</li>
+ * </ul>
+ * 创建连接在借用线程中进行，连接不上时抛出异常，不会像 SimpleClient.connect() 那样一直重试。
+ *
+ * @param <T> 连接类型
+ * @version 1.0.0
+ */
+@Slf4j
+public class ConnectionPool<T> implements Closeable {
+
+    private final static int  MAX_IDLE            = 8;
+    private final static long BORROW_TIMEOUT      = 5000;
+    private final static long IDLE_TIMEOUT        = 60 * 1000;
+    private final static long VALIDATION_INTERVAL = 30 * 1000;
+
+    private final ConnectionFactory<T> factory;
+    @Getter
+    private final int                  maxTotal;
+    /** 空闲连接数上限. */
+    @Getter
+    @Setter
+    private int                        maxIdle            = MAX_IDLE;
+    /** 后台保持的最少空闲连接数. */
+    @Getter
+    @Setter
+    private int                        minIdle            = 0;
+    /** 借出等待时长（毫秒）. */
+    @Getter
+    @Setter
+    private long                       borrowTimeout      = BORROW_TIMEOUT;
+    /** 空闲超时（毫秒），0 表示不关闭空闲连接. */
+    @Getter
+    @Setter
+    private long                       idleTimeout        = IDLE_TIMEOUT;
+    /** 后台检查间隔（毫秒），0 表示不检查，需在 {@link #start()} 之前设置. */
+    @Getter
+    @Setter
+    private long                       validationInterval = VALIDATION_INTERVAL;
+    /** 借出时是否检查连接. */
+    @Getter
+    @Setter
+    private boolean                    testOnBorrow       = false;
+
+    private final ConcurrentLinkedDeque<PooledConnection<T>> idle = new ConcurrentLinkedDeque<PooledConnection<T>>();
+    private final AtomicInteger idleCount  = new AtomicInteger();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final Semaphore     permits;
+    /** 拿到许可但连接总数已满（空闲连接正在被后台检查）的借用线程在此等待连接放回或关闭. */
+    private final ReentrantLock returnLock = new ReentrantLock();
+    private final Condition     returned   = returnLock.newCondition();
+    private final AtomicInteger returnWaiters = new AtomicInteger();
+
+    private volatile boolean          closed = false;
+    private ScheduledExecutorService  maintainer;
+
+    public ConnectionPool(ConnectionFactory<T> factory, int maxTotal) {
+        if (maxTotal <= 0) {
+            throw new IllegalArgumentException("maxTotal must be > 0: " + maxTotal);
+        }
+        this.factory = factory;
+        this.maxTotal = maxTotal;
+        this.permits = new Semaphore(maxTotal);
+    }
+
+    /**
+     * 创建 minIdle 个空闲连接，并启动后台检查.
+     */
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("pool is closed.");
+        }
+        ensureMinIdle();
+        if (validationInterval > 0 && maintainer == null) {
+            maintainer = Executors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("Connection-Pool-Maintainer", true));
+            maintainer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    maintain();
+                }
+            }, validationInterval, validationInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 借出连接，没有空闲连接时创建，连接数达到 maxTotal 时等待归还.
+     *
+     * @return 连接，用完后调用 {@link PooledConnection#close()} 归还
+     * @throws IOException          创建连接失败
+     * @throws TimeoutException     等待超过 borrowTimeout
+     * @throws InterruptedException 等待时被中断
+     */
+    public PooledConnection<T> borrow() throws IOException, TimeoutException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("pool is closed.");
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeout);
+        if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("borrow timed out after " + borrowTimeout + "ms");
+        }
+        boolean success = false;
+        try {
+            while (true) {
+                PooledConnection<T> conn = pollIdle();
+                if (conn != null) {
+                    success = true;
+                    return conn;
+                }
+                // 空闲连接可能正在被后台检查，总数暂时达到上限，等它放回或关闭再取
+                int total = totalCount.get();
+                if (total < maxTotal) {
+                    if (totalCount.compareAndSet(total, total + 1)) {
+                        conn = create(PooledConnection.BORROWED);
+                        success = true;
+                        return conn;
+                    }
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new TimeoutException("borrow timed out after " + borrowTimeout + "ms");
+                    }
+                    awaitReturn(remaining);
+                }
+            }
+        } finally {
+            if (!success) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * @return 空闲连接数
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return 借出的连接数
+     */
+    public int getActiveCount() {
+        return maxTotal - permits.availablePermits();
+    }
+
+    /**
+     * @return 连接总数，包括空闲、借出和正在检查的
+     */
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 关闭连接池和所有空闲连接，借出的连接归还时关闭.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+        destroyIdle();
+    }
+
+    void giveBack(PooledConnection<T> conn) {
+        if (!conn.state.compareAndSet(PooledConnection.BORROWED, PooledConnection.IDLE)) {
+            // 重复归还
+            return;
+        }
+        conn.touch();
+        if (closed) {
+            conn.state.set(PooledConnection.DESTROYED);
+            destroy(conn);
+        } else if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            conn.state.set(PooledConnection.DESTROYED);
+            destroy(conn);
+        } else {
+            idle.offerFirst(conn);
+            signalReturn();
+            if (closed) {
+                // 与 close() 并发，连接可能刚放进已清空的队列
+                destroyIdle();
+            }
+        }
+        permits.release();
+    }
+
+    void invalidate(PooledConnection<T> conn) {
+        if (conn.state.compareAndSet(PooledConnection.BORROWED, PooledConnection.DESTROYED)) {
+            destroy(conn);
+            permits.release();
+        }
+    }
+
+    private void destroyIdle() {
+        PooledConnection<T> conn;
+        while ((conn = idle.pollFirst()) != null) {
+            if (conn.state.compareAndSet(PooledConnection.IDLE, PooledConnection.DESTROYED)) {
+                idleCount.decrementAndGet();
+                destroy(conn);
+            }
+        }
+    }
+
+    private PooledConnection<T> pollIdle() {
+        PooledConnection<T> conn;
+        while ((conn = idle.pollFirst()) != null) {
+            if (!conn.state.compareAndSet(PooledConnection.IDLE, PooledConnection.BORROWED)) {
+                // 正在被后台检查
+                continue;
+            }
+            idleCount.decrementAndGet();
+            if (testOnBorrow && !validate(conn)) {
+                conn.state.set(PooledConnection.DESTROYED);
+                destroy(conn);
+                continue;
+            }
+            conn.touch();
+            return conn;
+        }
+        return null;
+    }
+
+    /**
+     * 调用前 totalCount 已经加 1.
+     */
+    private PooledConnection<T> create(int state) throws IOException {
+        boolean success = false;
+        try {
+            T connection = factory.create();
+            success = true;
+            return new PooledConnection<T>(this, connection, state);
+        } finally {
+            if (!success) {
+                totalCount.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean validate(PooledConnection<T> conn) {
+        try {
+            return factory.validate(conn.get());
+        } catch (Exception e) {
+            log.warn("validate connection failed", e);
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection<T> conn) {
+        totalCount.decrementAndGet();
+        signalReturn();
+        try {
+            factory.destroy(conn.get());
+        } catch (Exception e) {
+            log.warn("destroy connection failed", e);
+        }
+    }
+
+    /**
+     * 等待连接放回空闲队列或被关闭，最多 nanos 纳秒.
+     */
+    private void awaitReturn(long nanos) throws InterruptedException {
+        // 先登记再检查，signalReturn() 看不到登记时，这里一定能看到它之前的放回或关闭
+        returnWaiters.incrementAndGet();
+        returnLock.lock();
+        try {
+            if (idle.isEmpty() && totalCount.get() >= maxTotal) {
+                returned.awaitNanos(nanos);
+            }
+        } finally {
+            returnLock.unlock();
+            returnWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * 有连接放回空闲队列或被关闭，唤醒等待的借用线程；没有等待者时不加锁.
+     */
+    private void signalReturn() {
+        if (returnWaiters.get() > 0) {
+            returnLock.lock();
+            try {
+                returned.signalAll();
+            } finally {
+                returnLock.unlock();
+            }
+        }
+    }
+
+    private void maintain() {
+        if (closed) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        // 检查后放回队尾，不能边遍历边放回
+        List<PooledConnection<T>> snapshot = new ArrayList<PooledConnection<T>>(idle);
+        for (PooledConnection<T> conn : snapshot) {
+            if (!conn.state.compareAndSet(PooledConnection.IDLE, PooledConnection.VALIDATING)) {
+                continue;
+            }
+            idle.remove(conn);
+            int remaining = idleCount.decrementAndGet();
+            boolean expired = idleTimeout > 0 && now - conn.getLastUsedTime() > idleTimeout
+                    && remaining >= minIdle;
+            if (expired || !validate(conn)) {
+                conn.state.set(PooledConnection.DESTROYED);
+                destroy(conn);
+                continue;
+            }
+            conn.state.set(PooledConnection.IDLE);
+            idleCount.incrementAndGet();
+            idle.offerLast(conn);
+            signalReturn();
+        }
+        ensureMinIdle();
+        if (closed) {
+            destroyIdle();
+        }
+    }
+
+    private void ensureMinIdle() {
+        while (!closed && idleCount.get() < minIdle) {
+            int total = totalCount.get();
+            if (total >= maxTotal) {
+                return;
+            }
+            if (!totalCount.compareAndSet(total, total + 1)) {
+                continue;
+            }
+            try {
+                PooledConnection<T> conn = create(PooledConnection.IDLE);
+                idleCount.incrementAndGet();
+                idle.offerLast(conn);
+                signalReturn();
+            } catch (Exception e) {
+                log.warn("create connection failed", e);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package me.asu.net.socket.pool;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import me.asu.net.message.IMessage;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.client.NioClient;
+
+/**
+ * NioClientFactory. 为连接池创建并启动 {@link NioClient}.
+ * 检查时先判断是否已连接，设置了 heartbeat 时再发送一个心跳报文；NioClient 异步发送，发送失败通过 delegate 通知。
+ *
+ * @version 1.0.0
+ */
+public class NioClientFactory implements ConnectionFactory<NioClient> {
+
+    @Getter
+    private final String host;
+    @Getter
+    private final int    port;
+    @Getter
+    @Setter
+    private Delegate     delegate;
+    /** 心跳报文，为空时只检查连接状态. */
+    @Getter
+    @Setter
+    private Supplier<? extends IMessage> heartbeat;
+
+    public NioClientFactory(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public NioClient create() throws IOException {
+        NioClient client = new NioClient(host, port);
+        client.setDelegate(delegate);
+        client.start();
+        return client;
+    }
+
+    @Override
+    public boolean validate(NioClient client) {
+        if (!client.isConnected()) {
+            return false;
+        }
+        if (heartbeat != null) {
+            client.send(heartbeat.get());
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy(NioClient client) {
+        client.close();
+    }
+}
@@ -0,0 +1,69 @@
+package me.asu.net.socket.pool;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PooledConnection. 从连接池借出的连接，{@link #close()} 归还，连接出错时调用 {@link #invalidate()} 销毁.
+ *
+ * <pre>
+ * try (PooledConnection&lt;SimpleClient&gt; conn = pool.borrow()) {
+ *     conn.get().send(message);
+ * }
+ * </pre>
+ *
+ * @param <T> 连接类型
+ * @version 1.0.0
+ */
+public final class PooledConnection<T> implements Closeable {
+
+    static final int IDLE       = 0;
+    static final int BORROWED   = 1;
+    static final int VALIDATING = 2;
+    static final int DESTROYED  = 3;
+
+    private final ConnectionPool<T> pool;
+    private final T                 connection;
+    private final long              createdTime;
+    private volatile long           lastUsedTime;
+    final AtomicInteger             state;
+
+    PooledConnection(ConnectionPool<T> pool, T connection, int state) {
+        this.pool = pool;
+        this.connection = connection;
+        this.createdTime = System.currentTimeMillis();
+        this.lastUsedTime = createdTime;
+        this.state = new AtomicInteger(state);
+    }
+
+    public T get() {
+        return connection;
+    }
+
+    /**
+     * 归还到连接池，重复调用无效.
+     */
+    @Override
+    public void close() {
+        pool.giveBack(this);
+    }
+
+    /**
+     * 销毁，不再归还到连接池.
+     */
+    public void invalidate() {
+        pool.invalidate(this);
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    public long getLastUsedTime() {
+        return lastUsedTime;
+    }
+
+    void touch() {
+        lastUsedTime = System.currentTimeMillis();
+    }
+}
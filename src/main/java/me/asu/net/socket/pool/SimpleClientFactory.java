@@ -0,0 +1,79 @@
+package me.asu.net.socket.pool;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.IMessage;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.client.SimpleClient;
+
+/**
+ * SimpleClientFactory. 为连接池创建 {@link SimpleClient}.
+ * 检查时先判断是否已连接，设置了 heartbeat 时再发送一个心跳报文并读取它的响应，
+ * 发送失败或 heartbeatTimeout 内没有响应认为连接不可用。响应被丢弃，不会留给下一个借用者。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class SimpleClientFactory implements ConnectionFactory<SimpleClient> {
+
+    private final static int HEARTBEAT_TIMEOUT = 3000;
+
+    @Getter
+    private final String host;
+    @Getter
+    private final int    port;
+    @Getter
+    @Setter
+    private Delegate     delegate;
+    /** 心跳报文，为空时只检查连接状态. */
+    @Getter
+    @Setter
+    private Supplier<? extends IMessage> heartbeat;
+    /** 等待心跳响应的时长（毫秒）. */
+    @Getter
+    @Setter
+    private int                          heartbeatTimeout = HEARTBEAT_TIMEOUT;
+
+    public SimpleClientFactory(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public SimpleClient create() throws IOException {
+        SimpleClient client = new SimpleClient(delegate, host, port);
+        if (!client.tryConnect()) {
+            throw new ConnectException("connect to " + host + ":" + port + " failed.");
+        }
+        return client;
+    }
+
+    @Override
+    public boolean validate(SimpleClient client) {
+        if (!client.isConnected()) {
+            return false;
+        }
+        if (heartbeat != null) {
+            try {
+                client.send(heartbeat.get());
+            } catch (RuntimeException e) {
+                log.debug("heartbeat to {}:{} failed: {}", host, port, e.getMessage());
+                return false;
+            }
+            if (client.receive(heartbeatTimeout) == null) {
+                log.debug("no heartbeat response from {}:{} in {}ms", host, port, heartbeatTimeout);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy(SimpleClient client) {
+        client.closeConn();
+    }
+}
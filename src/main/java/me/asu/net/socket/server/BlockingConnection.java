@@ -0,0 +1,142 @@
+package me.asu.net.socket.server;
+
+import static me.asu.net.socket.NetConstants.ERROR_CLOSED;
+import static me.asu.net.socket.NetConstants.ERROR_RECV;
+import static me.asu.net.socket.NetConstants.ERROR_SEND;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.uitl.Stream;
+
+/**
+ * BlockingConnection. {@link BlockingServer} 的一个连接.
+ * 读、解包和回调都在连接自己的线程中执行；{@link #send(IMessage)} 阻塞写，可以在任意线程调用。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class BlockingConnection implements Runnable, Closeable {
+
+    private final BlockingServer    server;
+    private final Stream            stream;
+    @Getter
+    private final InetSocketAddress remoteAddress;
+    @Getter
+    private final Delegate          delegate;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    BlockingConnection(BlockingServer server, Socket socket) {
+        this.server = server;
+        this.stream = new Stream(socket, server.getReadChunkSize(), server.getReadBufferMaxSize());
+        this.remoteAddress = (InetSocketAddress) socket.getRemoteSocketAddress();
+        this.delegate = server.getDelegateFactory() == null ? null
+                : server.getDelegateFactory().apply(this);
+    }
+
+    /**
+     * 阻塞发送消息，直到写入 socket 发送缓冲区.
+     *
+     * @param message 消息
+     * @return 是否发送成功
+     */
+    public boolean send(IMessage message) {
+        if (closed.get()) {
+            onError(ERROR_CLOSED, message);
+            return false;
+        }
+        try {
+            stream.write(message);
+        } catch (IOException | RuntimeException e) {
+            log.debug("send to {} failed: {}", remoteAddress, e.getMessage());
+            onError(ERROR_SEND, message);
+            close();
+            return false;
+        }
+        if (delegate != null) {
+            delegate.onSend(message);
+        }
+        return true;
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException ignore) {
+        }
+        server.connectionClosed(this);
+        if (delegate != null) {
+            delegate.onClose(remoteAddress.getHostString(), remoteAddress.getPort());
+        }
+    }
+
+    @Override
+    public void run() {
+        if (delegate != null) {
+            delegate.onOpen(remoteAddress.getHostString(), remoteAddress.getPort());
+        }
+        try {
+            while (!closed.get()) {
+                IMessage message = createMessage();
+                if (!stream.read(message)) {
+                    // 对方关闭，或者数据错乱无法再对齐包边界
+                    if (!stream.isClosed()) {
+                        onError(ERROR_RECV, null);
+                    }
+                    break;
+                }
+                if (delegate != null) {
+                    delegate.onRecv(message);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            if (delegate != null) {
+                delegate.onTimeout(remoteAddress.getHostString(), remoteAddress.getPort());
+            }
+        } catch (Exception e) {
+            if (!closed.get()) {
+                log.debug("connection {} closed: {}", remoteAddress, e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private IMessage createMessage() {
+        if (server.getMessageFactory() != null) {
+            return server.getMessageFactory().get();
+        } else if (delegate != null) {
+            return delegate.createMessage();
+        } else {
+            return new ProtocolMsg();
+        }
+    }
+
+    private void onError(int code, IMessage ibox) {
+        if (delegate != null) {
+            delegate.onError(code, ibox);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingConnection{" + remoteAddress + "}";
+    }
+}
@@ -0,0 +1,204 @@
+package me.asu.net.socket.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.IMessage;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.util.VirtualThreads;
+
+/**
+ * BlockingServer. 一个连接一个线程的阻塞服务端.
+ * <ul>
+ * <li>boss 线程阻塞 accept，每个连接由 {@link #setThreadFactory(ThreadFactory)} 创建的线程阻塞读、解包和回调；</li>
+ * <li>默认的线程工厂是 {@link VirtualThreads#newThreadFactory(String)}：Java 21 以上是虚拟线程，
+ * 大量连接也只占用少量载体线程，回调中可以直接做阻塞调用；Java 8 上是普通线程，只适合连接数不多的场景；</li>
+ * <li>解包方式和回调的创建与 {@link NioServer} 相同。</li>
+ * </ul>
+ *
+ * <pre>
+ * BlockingServer server = new BlockingServer(8080);
+ * server.setDelegateFactory(conn -&gt; new EchoDelegate(conn));
+ * server.start();
+ * </pre>
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class BlockingServer implements Closeable {
+
+    private final static int READ_CHUNK_SIZE      = 4 * 1024;
+    private final static int READ_BUFFER_MAX_SIZE = -1;
+    private final static int BACKLOG              = 1024;
+
+    @Getter
+    private final String host;
+    @Getter
+    private final int    port;
+
+    /** 连接线程的工厂. */
+    @Getter
+    @Setter
+    private ThreadFactory threadFactory = VirtualThreads.newThreadFactory("blocking-server-conn");
+    /** 一次从 socket 读取的字节数. */
+    @Getter
+    @Setter
+    private int readChunkSize = READ_CHUNK_SIZE;
+    /** 未解析数据的上限，超过则认为数据错位并关闭连接，-1 表示不限制. */
+    @Getter
+    @Setter
+    private int readBufferMaxSize = READ_BUFFER_MAX_SIZE;
+    /** 最大连接数，超过时直接关闭新连接，0 表示不限制. */
+    @Getter
+    @Setter
+    private int maxConnections = 0;
+    @Getter
+    @Setter
+    private int backlog = BACKLOG;
+    /** 空闲超时（毫秒），超过这么久没有收到数据的连接回调 onTimeout 后关闭，0 表示不检查. */
+    @Getter
+    @Setter
+    private int idleTimeout = 0;
+    /** 创建解包对象，为空时使用 {@link Delegate#createMessage()}. */
+    @Getter
+    @Setter
+    private Supplier<? extends IMessage> messageFactory;
+    /** 为每个连接创建回调. */
+    @Getter
+    @Setter
+    private Function<BlockingConnection, Delegate> delegateFactory;
+
+    @Getter
+    private volatile boolean running = false;
+
+    private final Set<BlockingConnection> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private Thread       boss;
+
+    public BlockingServer(int port) {
+        this(null, port);
+    }
+
+    public BlockingServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("server is running.");
+        }
+        InetSocketAddress address = host == null ? new InetSocketAddress(port)
+                : new InetSocketAddress(host, port);
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, backlog);
+
+        running = true;
+        boss = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "blocking-server-boss");
+        boss.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+        for (BlockingConnection conn : connections) {
+            conn.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * @return 实际监听的端口，port 为 0 时由系统分配
+     */
+    public int getLocalPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return 当前连接数
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    void connectionClosed(BlockingConnection conn) {
+        connections.remove(conn);
+    }
+
+    private void accept() {
+        while (running) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                if (!running) {
+                    // accept 返回后 stop() 才执行完，不再接受新连接
+                    closeQuietly(socket);
+                    break;
+                }
+                if (maxConnections > 0 && connections.size() >= maxConnections) {
+                    log.warn("too many connections, reject {}", socket.getRemoteSocketAddress());
+                    socket.close();
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(idleTimeout);
+                BlockingConnection conn = new BlockingConnection(this, socket);
+                connections.add(conn);
+                if (!running) {
+                    // stop() 遍历连接时可能还没加进去，自己关闭
+                    connections.remove(conn);
+                    closeQuietly(socket);
+                    break;
+                }
+                threadFactory.newThread(conn).start();
+            } catch (SocketException e) {
+                if (!running) {
+                    // stop() 关闭了 serverSocket
+                    break;
+                }
+                log.error("", e);
+                closeQuietly(socket);
+            } catch (IOException | RuntimeException e) {
+                log.error("", e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package me.asu.net.socket.server;
+
+import static me.asu.net.socket.NetConstants.ERROR_CLOSED;
+import static me.asu.net.socket.NetConstants.ERROR_DROPPED;
+import static me.asu.net.socket.NetConstants.ERROR_OVERFLOW;
+import static me.asu.net.socket.NetConstants.ERROR_RECV;
+import static me.asu.net.socket.NetConstants.ERROR_SEND;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.IMessage;
+import me.asu.net.message.ProtocolMsg;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.uitl.FlowControl;
+import me.asu.net.socket.uitl.FrameDecoder;
+import me.asu.net.socket.uitl.WriteQueue;
+
+/**
+ * NioConnection. 服务端的一个连接.
+ * 读、解包和回调都在所属 worker 线程中执行；{@link #send(IMessage)} 和 {@link #close()} 可以在任意线程调用。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class NioConnection implements Closeable {
+
+    /** 一次可读事件中最多读取的次数，避免一个连接占满 worker. */
+    private final static int MAX_READS_PER_EVENT = 16;
+
+    private final NioServer         server;
+    private final NioWorker         worker;
+    private final SocketChannel     channel;
+    private final FrameDecoder      decoder;
+    @Getter
+    private final InetSocketAddress remoteAddress;
+    @Getter
+    private final Delegate          delegate;
+
+    private final FlowControl        flowControl;
+    private final WriteQueue         writeQueue;
+    private final AtomicBoolean      flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean      closed         = new AtomicBoolean();
+    private final Consumer<IMessage> onSent         = new Consumer<IMessage>() {
+        @Override
+        public void accept(IMessage message) {
+            if (delegate != null) {
+                delegate.onSend(message);
+            }
+        }
+    };
+    private final Runnable           flushTask      = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            try {
+                flush();
+            } catch (IOException e) {
+                log.debug("connection {} closed: {}", remoteAddress, e.getMessage());
+                close();
+            }
+        }
+    };
+
+    @Getter
+    private volatile long lastActiveTime;
+    /** 以下只在 worker 线程中访问. */
+    private SelectionKey key;
+    private boolean      readPaused;
+
+    NioConnection(NioServer server, NioWorker worker, SocketChannel channel) throws IOException {
+        this.server = server;
+        this.worker = worker;
+        this.channel = channel;
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.decoder = new FrameDecoder(server.getReadChunkSize() << 1, server.getReadBufferMaxSize());
+        this.lastActiveTime = System.currentTimeMillis();
+        this.flowControl = new FlowControl();
+        flowControl.setHighWaterMark(server.getWriteHighWaterMark());
+        flowControl.setLowWaterMark(server.getWriteLowWaterMark());
+        flowControl.setMaxPendingBytes(server.getMaxPendingBytes());
+        flowControl.setOverflowPolicy(server.getOverflowPolicy());
+        flowControl.setBlockTimeout(server.getBlockTimeout());
+        this.writeQueue = new WriteQueue(null, flowControl);
+        this.delegate = server.getDelegateFactory() == null ? null
+                : server.getDelegateFactory().apply(this);
+        if (delegate != null) {
+            flowControl.setWritabilityListener(new Consumer<Boolean>() {
+                @Override
+                public void accept(Boolean writable) {
+                    delegate.onWritabilityChanged(writable);
+                }
+            });
+        }
+    }
+
+    /**
+     * 发送消息，消息在调用线程中压包，由 worker 线程写出.
+     * 待发送数据超过上限时按服务端的 overflowPolicy 处理，被拒绝时回调 onError(ERROR_OVERFLOW)，被丢弃时回调 onError(ERROR_DROPPED)。
+     *
+     * @param message 消息
+     * @return 是否已放入发送队列
+     */
+    public boolean send(IMessage message) {
+        if (closed.get()) {
+            onError(ERROR_CLOSED, message);
+            return false;
+        }
+        final int ret;
+        try {
+            // worker 线程负责写出，不能阻塞
+            ret = writeQueue.offer(message, Thread.currentThread() != worker);
+        } catch (IOException e) {
+            log.error("", e);
+            onError(ERROR_SEND, message);
+            return false;
+        }
+        if (ret == FlowControl.DROPPED) {
+            onError(ERROR_DROPPED, message);
+            return false;
+        } else if (ret == FlowControl.REJECTED) {
+            onError(ERROR_OVERFLOW, message);
+            return false;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            worker.execute(flushTask);
+        }
+        return true;
+    }
+
+    /**
+     * @return 待发送的字节数
+     */
+    public long getPendingBytes() {
+        return writeQueue.getPendingBytes();
+    }
+
+    /**
+     * @return 发送流控和统计
+     */
+    public FlowControl getFlowControl() {
+        return flowControl;
+    }
+
+    /**
+     * @return 待发送数据是否低于高水位
+     */
+    public boolean isWritable() {
+        return flowControl.isWritable();
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+        server.connectionClosed();
+        writeQueue.clear();
+        if (delegate != null) {
+            delegate.onClose(remoteAddress.getHostString(), remoteAddress.getPort());
+        }
+    }
+
+    void opened(SelectionKey key) {
+        this.key = key;
+        if (delegate != null) {
+            delegate.onOpen(remoteAddress.getHostString(), remoteAddress.getPort());
+        }
+    }
+
+    void timeout() {
+        if (delegate != null) {
+            delegate.onTimeout(remoteAddress.getHostString(), remoteAddress.getPort());
+        }
+        close();
+    }
+
+    void handleRead() throws IOException {
+        final int readChunkSize = server.getReadChunkSize();
+        int read;
+        int reads = 0;
+        do {
+            read = decoder.readFrom(channel, readChunkSize);
+            if (read < 0) {
+                close();
+                return;
+            }
+        } while (read == readChunkSize && ++reads < MAX_READS_PER_EVENT);
+        lastActiveTime = System.currentTimeMillis();
+
+        while (!closed.get()) {
+            IMessage message = createMessage();
+            int ret = decoder.decode(message);
+            if (ret > 0) {
+                if (delegate != null) {
+                    delegate.onRecv(message);
+                }
+            } else if (ret < 0) {
+                // 数据错乱，无法再对齐包边界
+                onError(ERROR_RECV, null);
+                close();
+                return;
+            } else {
+                break;
+            }
+        }
+        int readBufferMaxSize = server.getReadBufferMaxSize();
+        if (readBufferMaxSize >= 0 && decoder.readableBytes() > readBufferMaxSize) {
+            // 数据过大，可能错位了。
+            onError(ERROR_RECV, null);
+            close();
+            return;
+        }
+        // 回复太多来不及写出，暂停读
+        if (!readPaused && key.isValid()
+                && writeQueue.getPendingBytes() > server.getWriteHighWaterMark()) {
+            readPaused = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * 把发送队列中的数据聚集写出，写不完时注册 OP_WRITE，写完后取消.
+     */
+    void flush() throws IOException {
+        if (closed.get() || !key.isValid()) {
+            return;
+        }
+        if (writeQueue.flush(channel, worker.writeBatch, onSent)) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } else {
+            // socket 发送缓冲区满，等可写时继续
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+        lastActiveTime = System.currentTimeMillis();
+        if (readPaused && writeQueue.getPendingBytes() <= server.getWriteLowWaterMark()) {
+            readPaused = false;
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private IMessage createMessage() {
+        if (server.getMessageFactory() != null) {
+            return server.getMessageFactory().get();
+        } else if (delegate != null) {
+            return delegate.createMessage();
+        } else {
+            return new ProtocolMsg();
+        }
+    }
+
+    private void onError(int code, IMessage ibox) {
+        if (delegate != null) {
+            delegate.onError(code, ibox);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioConnection{" + remoteAddress + "}";
+    }
+}
@@ -0,0 +1,222 @@
+package me.asu.net.socket.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.message.IMessage;
+import me.asu.net.socket.client.Delegate;
+import me.asu.net.socket.uitl.FlowControl;
+import me.asu.net.socket.uitl.OverflowPolicy;
+
+/**
+ * NioServer. 多 Reactor 的非阻塞服务端.
+ * <ul>
+ * <li>boss 线程阻塞 accept，新连接轮流分配给 worker；</li>
+ * <li>每个 worker 线程独占一个 Selector，负责所属连接的读、解包、回调和写；</li>
+ * <li>解包方式由 {@link #setMessageFactory(Supplier)} 决定，可以是 Box、LengthBox、ProtocolMsg 等；</li>
+ * <li>每个连接通过 {@link #setDelegateFactory(Function)} 创建自己的 {@link Delegate}，
+ * 回调都在 worker 线程中执行，不能阻塞；</li>
+ * <li>背压：连接待发送的字节数超过 writeHighWaterMark 时暂停读并回调 {@link Delegate#onWritabilityChanged(boolean)}，
+ * 降到 writeLowWaterMark 以下再恢复；超过 maxPendingBytes 时按 overflowPolicy 处理新消息。</li>
+ * </ul>
+ *
+ * <pre>
+ * NioServer server = new NioServer(8080);
+ * server.setDelegateFactory(conn -&gt; new EchoDelegate(conn));
+ * server.start();
+ * </pre>
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public class NioServer implements Closeable {
+
+    private final static int READ_CHUNK_SIZE        = 4 * 1024;
+    private final static int READ_BUFFER_MAX_SIZE   = -1;
+    private final static int WRITE_HIGH_WATER_MARK  = 1024 * 1024;
+    private final static int WRITE_LOW_WATER_MARK   = 512 * 1024;
+    private final static int BACKLOG                = 1024;
+
+    @Getter
+    private final String host;
+    @Getter
+    private final int    port;
+
+    /** worker 线程数. */
+    @Getter
+    @Setter
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+    /** 一次从 socket 读取的字节数. */
+    @Getter
+    @Setter
+    private int readChunkSize = READ_CHUNK_SIZE;
+    /** 未解析数据的上限，超过则认为数据错位并关闭连接，-1 表示不限制. */
+    @Getter
+    @Setter
+    private int readBufferMaxSize = READ_BUFFER_MAX_SIZE;
+    /** 待发送字节数超过此值时暂停读. */
+    @Getter
+    @Setter
+    private int writeHighWaterMark = WRITE_HIGH_WATER_MARK;
+    /** 待发送字节数降到此值以下时恢复读. */
+    @Getter
+    @Setter
+    private int writeLowWaterMark = WRITE_LOW_WATER_MARK;
+    /** 每个连接待发送字节数的上限，0 表示不限制. */
+    @Getter
+    @Setter
+    private long maxPendingBytes = FlowControl.DEFAULT_MAX_PENDING_BYTES;
+    /** 超过 maxPendingBytes 时的处理策略，worker 线程中发送时 BLOCK 同 FAIL. */
+    @Getter
+    @Setter
+    private OverflowPolicy overflowPolicy = OverflowPolicy.FAIL;
+    /** BLOCK 策略的最长等待时间（毫秒），0 表示一直等待. */
+    @Getter
+    @Setter
+    private long blockTimeout = FlowControl.DEFAULT_BLOCK_TIMEOUT;
+    /** 最大连接数，超过时直接关闭新连接，0 表示不限制. */
+    @Getter
+    @Setter
+    private int maxConnections = 0;
+    @Getter
+    @Setter
+    private int backlog = BACKLOG;
+    /** 空闲超时（毫秒），超时的连接回调 onTimeout 后关闭，0 表示不检查. */
+    @Getter
+    @Setter
+    private long idleTimeout = 0;
+    /** 创建解包对象，为空时使用 {@link Delegate#createMessage()}. */
+    @Getter
+    @Setter
+    private Supplier<? extends IMessage> messageFactory;
+    /** 为每个连接创建回调. */
+    @Getter
+    @Setter
+    private Function<NioConnection, Delegate> delegateFactory;
+
+    @Getter
+    private volatile boolean running = false;
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private Thread              boss;
+    private NioWorker[]         workers;
+
+    public NioServer(int port) {
+        this(null, port);
+    }
+
+    public NioServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("server is running.");
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be > 0: " + workerCount);
+        }
+        if (writeLowWaterMark > writeHighWaterMark) {
+            throw new IllegalArgumentException("writeLowWaterMark must be <= writeHighWaterMark");
+        }
+        InetSocketAddress address = host == null ? new InetSocketAddress(port)
+                : new InetSocketAddress(host, port);
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, backlog);
+
+        running = true;
+        workers = new NioWorker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new NioWorker(this, "nio-server-worker-" + i);
+            workers[i].start();
+        }
+        boss = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "nio-server-boss");
+        boss.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+        for (NioWorker worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * @return 实际监听的端口，port 为 0 时由系统分配
+     */
+    public int getLocalPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return 当前连接数
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    void connectionClosed() {
+        connectionCount.decrementAndGet();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            SocketChannel channel = null;
+            try {
+                channel = serverChannel.accept();
+                if (maxConnections > 0 && connectionCount.get() >= maxConnections) {
+                    log.warn("too many connections, reject {}", channel.getRemoteAddress());
+                    channel.close();
+                    continue;
+                }
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connectionCount.incrementAndGet();
+                workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            } catch (ClosedChannelException e) {
+                // stop() 关闭了 serverChannel
+                break;
+            } catch (IOException e) {
+                log.error("", e);
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        }
+    }
+}
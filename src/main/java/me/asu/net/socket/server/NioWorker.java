@@ -0,0 +1,182 @@
+package me.asu.net.socket.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import me.asu.net.socket.uitl.WriteQueue;
+
+/**
+ * NioWorker. 一个 Selector 加一个线程，负责所属连接的全部 IO.
+ * 其他线程通过 {@link #execute(Runnable)} 提交任务，任务在下一轮 select 之后执行。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+class NioWorker extends Thread {
+
+    private final static long IDLE_CHECK_INTERVAL = 1000;
+
+    private final NioServer             server;
+    private final Selector              selector;
+    private final Queue<Runnable>       tasks         = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean         wakeupPending = new AtomicBoolean();
+    /** 聚集写的缓冲区数组，只在本线程使用. */
+    final         ByteBuffer[]          writeBatch    = new ByteBuffer[WriteQueue.WRITE_BATCH_SIZE];
+
+    NioWorker(NioServer server, String name) throws IOException {
+        super(name);
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    void register(SocketChannel channel) {
+        execute(new RegisterTask(channel));
+    }
+
+    void execute(Runnable task) {
+        tasks.offer(task);
+        if (Thread.currentThread() != this && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    void shutdown() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastIdleCheck = System.currentTimeMillis();
+        while (server.isRunning()) {
+            try {
+                selector.select(server.getIdleTimeout() > 0 ? IDLE_CHECK_INTERVAL : 0);
+                wakeupPending.set(false);
+                processSelectedKeys();
+                runTasks();
+                if (server.getIdleTimeout() > 0) {
+                    long now = System.currentTimeMillis();
+                    if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+                        lastIdleCheck = now;
+                        checkIdle(now);
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                log.error("", e);
+            }
+        }
+        closeAll();
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> ite = selector.selectedKeys().iterator();
+        while (ite.hasNext()) {
+            SelectionKey key = ite.next();
+            ite.remove();
+            NioConnection conn = (NioConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    conn.handleRead();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    conn.flush();
+                }
+            } catch (CancelledKeyException e) {
+                conn.close();
+            } catch (IOException e) {
+                log.debug("connection {} closed: {}", conn.getRemoteAddress(), e.getMessage());
+                conn.close();
+            } catch (RuntimeException e) {
+                // delegate 或解码抛出的异常只关闭这个连接，同一轮就绪的其他连接照常处理
+                log.error("connection {} failed, closing", conn.getRemoteAddress(), e);
+                conn.close();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("", e);
+            }
+        }
+    }
+
+    private void checkIdle(long now) {
+        long idleTimeout = server.getIdleTimeout();
+        for (SelectionKey key : selector.keys()) {
+            NioConnection conn = (NioConnection) key.attachment();
+            if (conn != null && now - conn.getLastActiveTime() > idleTimeout) {
+                conn.timeout();
+            }
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                NioConnection conn = (NioConnection) key.attachment();
+                if (conn != null) {
+                    conn.close();
+                }
+            }
+            selector.close();
+        } catch (Exception e) {
+            log.error("", e);
+        }
+        // 还没来得及注册的连接直接关闭
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            if (task instanceof RegisterTask) {
+                ((RegisterTask) task).cancel();
+            }
+        }
+    }
+
+    private final class RegisterTask implements Runnable {
+
+        private final SocketChannel channel;
+
+        RegisterTask(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            NioConnection conn = null;
+            try {
+                channel.configureBlocking(false);
+                conn = new NioConnection(server, NioWorker.this, channel);
+                conn.opened(channel.register(selector, SelectionKey.OP_READ, conn));
+            } catch (IOException e) {
+                log.error("", e);
+                if (conn != null) {
+                    conn.close();
+                } else {
+                    cancel();
+                }
+            }
+        }
+
+        void cancel() {
+            server.connectionClosed();
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
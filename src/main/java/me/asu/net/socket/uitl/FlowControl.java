@@ -0,0 +1,318 @@
+package me.asu.net.socket.uitl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * FlowControl. 一个连接的发送流控和统计.
+ * <ul>
+ * <li>可写状态：待发送字节数超过 highWaterMark 时变为不可写，降到 lowWaterMark 以下时恢复，
+ * 变化时回调 writabilityListener（在触发变化的线程中），生产者据此放慢；</li>
+ * <li>硬上限：待发送字节数超过 maxPendingBytes 时按 {@link OverflowPolicy} 处理新消息；
+ * 队列为空时总是接受，单个超大的消息不会永远发不出去；</li>
+ * <li>统计：待发送字节数和消息数，丢弃、拒绝、阻塞的次数，消息从入队到完整写出的时间。</li>
+ * </ul>
+ * 设置应在连接使用前完成。
+ *
+ * @version 1.0.0
+ */
+public class FlowControl {
+
+    /** 已接受. */
+    public final static int ACCEPTED = 0;
+    /** 按 DROP 策略丢弃. */
+    public final static int DROPPED  = 1;
+    /** 按 FAIL 策略或 BLOCK 超时拒绝. */
+    public final static int REJECTED = 2;
+
+    public final static int  DEFAULT_HIGH_WATER_MARK  = 1024 * 1024;
+    public final static int  DEFAULT_LOW_WATER_MARK   = 512 * 1024;
+    public final static long DEFAULT_MAX_PENDING_BYTES = 64L * 1024 * 1024;
+    public final static long DEFAULT_BLOCK_TIMEOUT     = 30 * 1000;
+
+    /** 待发送字节数超过此值时不可写. */
+    @Getter
+    @Setter
+    private long           highWaterMark   = DEFAULT_HIGH_WATER_MARK;
+    /** 待发送字节数降到此值以下时恢复可写. */
+    @Getter
+    @Setter
+    private long           lowWaterMark    = DEFAULT_LOW_WATER_MARK;
+    /** 待发送字节数上限，0 表示不限制. */
+    @Getter
+    @Setter
+    private long           maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+    @Getter
+    @Setter
+    private OverflowPolicy overflowPolicy  = OverflowPolicy.BLOCK;
+    /** BLOCK 策略的最长等待时间（毫秒），0 表示一直等待. */
+    @Getter
+    @Setter
+    private long           blockTimeout    = DEFAULT_BLOCK_TIMEOUT;
+    /** 可写状态变化的回调，参数为是否可写. */
+    @Getter
+    @Setter
+    private volatile Consumer<Boolean> writabilityListener;
+
+    private final AtomicLong    pendingBytes = new AtomicLong();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean writable     = new AtomicBoolean(true);
+
+    private final ReentrantLock lock    = new ReentrantLock();
+    private final Condition     notFull = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final AtomicLong droppedCount   = new AtomicLong();
+    private final AtomicLong rejectedCount  = new AtomicLong();
+    private final AtomicLong blockedCount   = new AtomicLong();
+    private final AtomicLong sentCount      = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+    private final AtomicLong maxQueueTime   = new AtomicLong();
+
+    public FlowControl() {
+    }
+
+    /**
+     * 构造一个不限制上限的流控，只跟踪可写状态.
+     *
+     * @param highWaterMark 不可写的阈值
+     * @param lowWaterMark  恢复可写的阈值
+     * @return 流控
+     */
+    public static FlowControl unbounded(long highWaterMark, long lowWaterMark) {
+        FlowControl fc = new FlowControl();
+        fc.setHighWaterMark(highWaterMark);
+        fc.setLowWaterMark(lowWaterMark);
+        fc.setMaxPendingBytes(0);
+        return fc;
+    }
+
+    /**
+     * 申请放入 bytes 字节.
+     *
+     * @param bytes    消息长度
+     * @param mayBlock 是否允许阻塞，负责写出的 IO 线程不能阻塞
+     * @return {@link #ACCEPTED}, {@link #DROPPED} 或 {@link #REJECTED}
+     * @throws InterruptedException BLOCK 等待时被中断
+     */
+    public int acquire(int bytes, boolean mayBlock) throws InterruptedException {
+        if (tryAcquire(bytes)) {
+            return ACCEPTED;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                droppedCount.incrementAndGet();
+                return DROPPED;
+            case BLOCK:
+                if (mayBlock) {
+                    return block(bytes) ? ACCEPTED : REJECTED;
+                }
+                rejectedCount.incrementAndGet();
+                return REJECTED;
+            default:
+                rejectedCount.incrementAndGet();
+                return REJECTED;
+        }
+    }
+
+    /**
+     * 不检查上限直接放入，用于必须发送的消息.
+     *
+     * @param bytes 消息长度
+     */
+    public void forceAcquire(int bytes) {
+        pendingCount.incrementAndGet();
+        long pending = pendingBytes.addAndGet(bytes);
+        if (pending > highWaterMark) {
+            updateWritability();
+        }
+    }
+
+    /**
+     * 写出了 bytes 字节，可以是一个消息的一部分.
+     *
+     * @param bytes 字节数
+     */
+    public void written(long bytes) {
+        long pending = pendingBytes.addAndGet(-bytes);
+        if (pending <= lowWaterMark) {
+            updateWritability();
+        }
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 一个消息完整写出.
+     *
+     * @param enqueueTime 入队时的 {@link System#nanoTime()}
+     */
+    public void sent(long enqueueTime) {
+        pendingCount.decrementAndGet();
+        sentCount.incrementAndGet();
+        long elapsed = System.nanoTime() - enqueueTime;
+        totalQueueTime.addAndGet(elapsed);
+        long max;
+        while (elapsed > (max = maxQueueTime.get()) && !maxQueueTime.compareAndSet(max, elapsed)) {
+            // retry
+        }
+    }
+
+    /**
+     * 一个消息未写出就被移除（连接关闭、写失败）.
+     *
+     * @param remaining 还未写出的字节数
+     */
+    public void removed(long remaining) {
+        pendingCount.decrementAndGet();
+        written(remaining);
+    }
+
+    public boolean isWritable() {
+        return writable.get();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return BLOCK 策略下发生等待的次数
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * @return 完整写出的消息数
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 消息从入队到完整写出的平均时间
+     */
+    public long getAverageQueueTime(TimeUnit unit) {
+        long count = sentCount.get();
+        return count == 0 ? 0 : unit.convert(totalQueueTime.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 消息从入队到完整写出的最长时间
+     */
+    public long getMaxQueueTime(TimeUnit unit) {
+        return unit.convert(maxQueueTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "FlowControl{pendingBytes=" + pendingBytes + ", pendingCount=" + pendingCount
+                + ", writable=" + writable + ", sent=" + sentCount + ", dropped=" + droppedCount
+                + ", rejected=" + rejectedCount + ", blocked=" + blockedCount
+                + ", avgQueueMicros=" + getAverageQueueTime(TimeUnit.MICROSECONDS) + "}";
+    }
+
+    private boolean tryAcquire(int bytes) {
+        // 先检查再 CAS，不预先加上再回滚，并发的发送方不会看到虚高的待发送字节数
+        long current;
+        long pending;
+        do {
+            current = pendingBytes.get();
+            pending = current + bytes;
+            // 队列为空时总是接受
+            if (maxPendingBytes > 0 && pending > maxPendingBytes && current != 0) {
+                return false;
+            }
+        } while (!pendingBytes.compareAndSet(current, pending));
+        pendingCount.incrementAndGet();
+        if (pending > highWaterMark) {
+            updateWritability();
+        }
+        return true;
+    }
+
+    private boolean block(int bytes) throws InterruptedException {
+        blockedCount.incrementAndGet();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+        lock.lock();
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                // 先登记 waiters 再检查，written 在 waiters 之后唤醒，不会错过
+                if (tryAcquire(bytes)) {
+                    return true;
+                }
+                if (blockTimeout <= 0) {
+                    notFull.await();
+                } else {
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) {
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    notFull.awaitNanos(nanos);
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按当前待发送字节数更新可写状态. 两个方向的变化可能并发，改变后再检查一次，避免停在错误的状态。
+     */
+    private void updateWritability() {
+        while (true) {
+            long pending = pendingBytes.get();
+            if (pending > highWaterMark) {
+                if (!writable.compareAndSet(true, false)) {
+                    return;
+                }
+                fireWritabilityChanged(false);
+            } else if (pending <= lowWaterMark) {
+                if (!writable.compareAndSet(false, true)) {
+                    return;
+                }
+                fireWritabilityChanged(true);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void fireWritabilityChanged(boolean value) {
+        Consumer<Boolean> listener = writabilityListener;
+        if (listener != null) {
+            listener.accept(value);
+        }
+    }
+}
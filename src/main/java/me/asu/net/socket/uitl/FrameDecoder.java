@@ -0,0 +1,198 @@
+package me.asu.net.socket.uitl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import me.asu.net.message.IMessage;
+
+/**
+ * FrameDecoder.
+ * 增量解包缓冲区：收到的数据追加到可增长的字节数组尾部，按读游标原地调用
+ * {@link IMessage#unpack(byte[], int, int)}，解出一个包后只移动游标，不复制剩余数据。
+ * <p>
+ * 只有在尾部空间不足时才把未解析的半个包移到数组头部，因此一次读取包含多个小包时，
+ * 每个字节在接收路径上只复制一次（socket到数组），而不是每解一个包都复制全部剩余数据。
+ * <p>
+ * 可以设置最大包长，未解完的包超过最大包长时按数据错乱处理，丢弃已收的数据，避免缓冲区无限增长。
+ * <p>
+ * 非线程安全，每个连接的读线程独占一个实例。
+ *
+ * @version 1.0.0
+ */
+public class FrameDecoder {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8 * 1024;
+    /** 数组的最大长度，部分虚拟机在数组头部保留了几个字 */
+    private static final int MAX_CAPACITY             = Integer.MAX_VALUE - 8;
+
+    private byte[] buffer;
+    /** 包装 buffer 的 ByteBuffer，用于从 channel 直接读入，扩容时重建 */
+    private ByteBuffer wrapper;
+    private int readerIndex;
+    private int writerIndex;
+    /** 最大包长，&lt;=0 表示不限制 */
+    private int maxFrameLength;
+
+    public FrameDecoder() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public FrameDecoder(int initialCapacity) {
+        this(initialCapacity, -1);
+    }
+
+    /**
+     * @param initialCapacity 初始容量
+     * @param maxFrameLength  最大包长，&lt;=0 表示不限制
+     */
+    public FrameDecoder(int initialCapacity, int maxFrameLength) {
+        buffer = new byte[initialCapacity > 0 ? initialCapacity : DEFAULT_INITIAL_CAPACITY];
+        wrapper = ByteBuffer.wrap(buffer);
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 从当前读游标解一个包.
+     *
+     * @param message 包对象
+     * @return &gt;0: 成功，包长度；0: 数据不足，继续收；&lt;0: 数据错乱或包超过最大包长，已丢弃所有未解析的数据
+     */
+    public int decode(IMessage message) {
+        final int readable = writerIndex - readerIndex;
+        if (readable == 0) {
+            return 0;
+        }
+        int ret = message.unpack(buffer, readerIndex, readable);
+        if (maxFrameLength > 0 && (ret > maxFrameLength || (ret == 0 && readable > maxFrameLength))) {
+            // 已收的部分已经超过最大包长，不再等剩下的数据
+            ret = -1;
+        }
+        if (ret > 0) {
+            readerIndex += ret;
+            if (readerIndex >= writerIndex) {
+                // 全部解完，游标归零，无需复制
+                readerIndex = 0;
+                writerIndex = 0;
+            }
+        } else if (ret < 0) {
+            clear();
+        }
+        return ret;
+    }
+
+    /**
+     * 从输入流读取数据，直接写入缓冲区尾部.
+     *
+     * @param in     输入流
+     * @param maxLen 最多读取的字节数
+     * @return 读取的字节数，-1 表示流已结束
+     * @throws IOException 读取异常
+     */
+    public int readFrom(InputStream in, int maxLen) throws IOException {
+        ensureWritable(maxLen);
+        final int len = in.read(buffer, writerIndex, maxLen);
+        if (len > 0) {
+            writerIndex += len;
+        }
+        return len;
+    }
+
+    /**
+     * 从通道读取数据，直接写入缓冲区尾部.
+     *
+     * @param channel 通道
+     * @param maxLen  最多读取的字节数
+     * @return 读取的字节数，-1 表示通道已关闭
+     * @throws IOException 读取异常
+     */
+    public int readFrom(ReadableByteChannel channel, int maxLen) throws IOException {
+        ensureWritable(maxLen);
+        wrapper.limit(writerIndex + maxLen);
+        wrapper.position(writerIndex);
+        final int len = channel.read(wrapper);
+        if (len > 0) {
+            writerIndex += len;
+        }
+        return len;
+    }
+
+    /**
+     * 追加数据，读取 src 中所有剩余的字节.
+     *
+     * @param src 数据
+     */
+    public void write(ByteBuffer src) {
+        final int len = src.remaining();
+        ensureWritable(len);
+        src.get(buffer, writerIndex, len);
+        writerIndex += len;
+    }
+
+    /**
+     * 追加数据.
+     *
+     * @param src    数据
+     * @param offset 开始位置
+     * @param length 数据长度
+     */
+    public void write(byte[] src, int offset, int length) {
+        ensureWritable(length);
+        System.arraycopy(src, offset, buffer, writerIndex, length);
+        writerIndex += length;
+    }
+
+    /**
+     * @return 未解析的字节数
+     */
+    public int readableBytes() {
+        return writerIndex - readerIndex;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    /**
+     * @param maxFrameLength 最大包长，&lt;=0 表示不限制
+     */
+    public void setMaxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 丢弃所有未解析的数据.
+     */
+    public void clear() {
+        readerIndex = 0;
+        writerIndex = 0;
+    }
+
+    private void ensureWritable(int minWritable) {
+        if (buffer.length - writerIndex >= minWritable) {
+            return;
+        }
+        final int readable = writerIndex - readerIndex;
+        if (readerIndex > 0 && buffer.length - readable >= minWritable) {
+            // 把未解析的半个包移到头部
+            System.arraycopy(buffer, readerIndex, buffer, 0, readable);
+        } else {
+            // 用 long 计算，超过 1G 时左移不会溢出成负数
+            final long required = (long) readable + minWritable;
+            if (required > MAX_CAPACITY) {
+                throw new IllegalStateException("frame buffer too large: " + required);
+            }
+            long capacity = (long) buffer.length << 1;
+            while (capacity < required) {
+                capacity <<= 1;
+            }
+            final int newCapacity = (int) Math.min(capacity, MAX_CAPACITY);
+            final byte[] newBuffer = new byte[newCapacity];
+            System.arraycopy(buffer, readerIndex, newBuffer, 0, readable);
+            buffer = newBuffer;
+            wrapper = ByteBuffer.wrap(buffer);
+        }
+        readerIndex = 0;
+        writerIndex = readable;
+    }
+}
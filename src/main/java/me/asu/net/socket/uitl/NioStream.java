@@ -1,23 +1,26 @@
 package me.asu.net.socket.uitl;
 
+import static me.asu.net.socket.NetConstants.ERROR_DROPPED;
+import static me.asu.net.socket.NetConstants.ERROR_OVERFLOW;
+import static me.asu.net.socket.NetConstants.ERROR_RECV;
 import static me.asu.net.socket.NetConstants.ERROR_SEND;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import me.asu.net.socket.client.Delegate;
 import me.asu.net.message.IMessage;
 import me.asu.net.message.ProtocolMsg;
+import me.asu.net.util.DirectBufferPool;
 
 /**
  * NioStream
@@ -30,19 +33,37 @@ public class NioStream {
 
     private final static int                   READ_CHUNK_SIZE      = 4 * 1024;
     private final static int                   READ_BUFFER_MAX_SIZE = -1;
-    private final        ByteBuffer            buffer;
-    private              byte[]                readChunkBuffer      = null;
+    private final        FrameDecoder          decoder;
+    private final        int                   readChunkSize;
     private              int                   readBufferMaxSize;
-    private              ByteArrayOutputStream readBufferOutputStream;
     private              Selector              selector;
+    private              SelectionKey          key;
     @Getter
     @Setter
     private              Delegate              delegate;
     @Getter
     @Setter
     private volatile     boolean               running              = false;
+    /** {@link #stop()} 之后不能再 listen. */
+    private volatile     boolean               stopped              = false;
 
-    private LinkedBlockingDeque<IMessage> msgQueueToServer = new LinkedBlockingDeque<IMessage>();
+    /** 读写使用的直接内存池. */
+    private final DirectBufferPool   bufferPool     = DirectBufferPool.getDefault();
+    /** 发送流控，水位、上限和策略可在发送前调整. */
+    @Getter
+    private final FlowControl        flowControl    = new FlowControl();
+    private final WriteQueue         writeQueue     = new WriteQueue(bufferPool, flowControl);
+    /** 执行 listen 的线程，负责写出，发送时不能阻塞它. */
+    private volatile Thread          listenThread;
+    private final ByteBuffer[]       writeBatch     = new ByteBuffer[WriteQueue.WRITE_BATCH_SIZE];
+    /** 有新数据要发送，由 listen 线程注册 OP_WRITE. */
+    private final AtomicBoolean      writeRequested = new AtomicBoolean();
+    private final Consumer<IMessage> onSent         = new Consumer<IMessage>() {
+        @Override
+        public void accept(IMessage message) {
+            onSendMsgToServer(message);
+        }
+    };
 
     public NioStream(SocketChannel channel) throws IOException {
         this(channel, READ_CHUNK_SIZE, READ_BUFFER_MAX_SIZE);
@@ -59,24 +80,97 @@ public class NioStream {
     throws IOException {
         channel.configureBlocking(false);
         this.readBufferMaxSize = readBufferMaxSize;
-        readChunkSize          = readChunkSize > 0 ? readChunkSize
+        this.readChunkSize     = readChunkSize > 0 ? readChunkSize
                 : READ_CHUNK_SIZE;
-        buffer                 = ByteBuffer.allocate(readChunkSize);
-        readBufferOutputStream = new ByteArrayOutputStream(readChunkSize << 1);
+        decoder                = new FrameDecoder(this.readChunkSize << 1, readBufferMaxSize);
         this.selector          = Selector.open();
-        channel.register(this.selector,
-                SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        // 只在有数据待发送时才注册 OP_WRITE，否则 select 会空转
+        this.key               = channel.register(this.selector, SelectionKey.OP_READ);
+        flowControl.setWritabilityListener(new Consumer<Boolean>() {
+            @Override
+            public void accept(Boolean writable) {
+                if (delegate != null) {
+                    delegate.onWritabilityChanged(writable);
+                }
+            }
+        });
     }
 
+    /**
+     * 发送消息，消息在调用线程中压包，由 listen 线程写出.
+     * 待发送数据超过 {@link FlowControl#getMaxPendingBytes()} 时按其策略处理；
+     * 压包失败回调 onError(ERROR_SEND)，被拒绝回调 onError(ERROR_OVERFLOW)，被丢弃回调 onError(ERROR_DROPPED)。
+     *
+     * @param message 消息
+     * @return 是否已放入发送队列
+     */
     public boolean send(IMessage message) {
-        return msgQueueToServer.offer(message);
+        final int ret;
+        try {
+            ret = writeQueue.offer(message, Thread.currentThread() != listenThread);
+        } catch (IOException e) {
+            log.error("", e);
+            onError(ERROR_SEND, message);
+            return false;
+        }
+        if (ret == FlowControl.DROPPED) {
+            onError(ERROR_DROPPED, message);
+            return false;
+        } else if (ret == FlowControl.REJECTED) {
+            onError(ERROR_OVERFLOW, message);
+            return false;
+        }
+        if (writeRequested.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return true;
+    }
 
+    /**
+     * @return 还未写出的字节数
+     */
+    public long getPendingBytes() {
+        return writeQueue.getPendingBytes();
+    }
+
+    /**
+     * @return 待发送数据是否低于高水位
+     */
+    public boolean isWritable() {
+        return flowControl.isWritable();
+    }
+
+    /**
+     * 停止 {@link #listen()}，唤醒阻塞在 select 上的线程.
+     * 在 listen 开始之前调用也有效，之后不能再 listen。
+     */
+    public void stop() {
+        stopped = true;
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * 关闭连接和 selector，在 {@link #listen()} 返回后调用.
+     */
+    public void close() {
+        try {
+            key.channel().close();
+            selector.close();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+        writeQueue.clear();
     }
 
     public void listen() throws IOException {
-        running = true;
-        while (running) {
+        listenThread = Thread.currentThread();
+        running = !stopped;
+        while (running && !stopped) {
             selector.select();
+            if (writeRequested.getAndSet(false) && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
             Iterator<SelectionKey> ite = this.selector.selectedKeys()
                                                       .iterator();
             while (ite.hasNext()) {
@@ -101,24 +195,26 @@ public class NioStream {
             channel.finishConnect();
         }
         channel.configureBlocking(false);
-        channel.register(this.selector,
-                SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        this.key = channel.register(this.selector, writeQueue.isEmpty()
+                ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
         onConnOpen(channel);
     }
 
     public void read(SelectionKey key) throws IOException {
         SocketChannel channel = (SocketChannel) key.channel();
-        ProtocolMsg box;
-        if (delegate != null) {
-            box = delegate.createMessage();
-        } else {
-            box = new ProtocolMsg();
-        }
         try {
-            boolean succ = read(channel, box);
-            if (succ) {
+            // 一次可读可能收到多个包，全部解完，否则剩下的包要等下次可读才能处理
+            while (true) {
+                ProtocolMsg box;
+                if (delegate != null) {
+                    box = delegate.createMessage();
+                } else {
+                    box = new ProtocolMsg();
+                }
+                if (!read(channel, box)) {
+                    break;
+                }
                 onRecvMsgFromServer(box);
-            } else {
             }
         } catch (Exception e) {
             channel.close();
@@ -129,74 +225,52 @@ public class NioStream {
 
     public void write(SelectionKey key) throws IOException {
         SocketChannel channel = (SocketChannel) key.channel();
-
-        IMessage box = null;
-        do {
-            try {
-                box = msgQueueToServer.poll();
-                if (box != null) {
-                    channel.write(ByteBuffer.wrap(box.pack()));
-                }
-            } catch (Exception e) {
-                if (!(e instanceof InterruptedException)) {
-                    log.error("", e);
-                }
-                if (box != null) {
-                    msgQueueToServer.addFirst(box);
-                }
+        try {
+            if (writeQueue.flush(channel, writeBatch, onSent)) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } else {
+                // socket 发送缓冲区满，保留剩余部分，等可写时继续
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            log.error("", e);
+            IMessage box;
+            while ((box = writeQueue.poll()) != null) {
                 onError(ERROR_SEND, box);
             }
-        } while (box != null);
-        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            channel.close();
+            onConnClose(channel);
+        }
     }
 
     public boolean read(SocketChannel channel, IMessage box)
     throws IOException {
         // 直接只支持
         while (true) {
-            byte[] tmpBuffer = readBufferOutputStream.toByteArray();
             if (readBufferMaxSize >= 0
-                    && tmpBuffer.length > readBufferMaxSize) {
-                // 数据过大，可能错位了。
+                    && decoder.readableBytes() > readBufferMaxSize) {
+                // 数据过大，可能错位了。丢弃后从后续数据重新开始
+                decoder.clear();
+                onError(ERROR_RECV, box);
                 return false;
             }
 
-            if (tmpBuffer.length > 0) {
-                // 说明还是可以尝试一下的
-                int ret = box.unpack(tmpBuffer, 0, tmpBuffer.length);
-                if (ret > 0) {
-                    // 说明成功
-                    readBufferOutputStream.reset();
-                    readBufferOutputStream.write(tmpBuffer, ret,
-                            tmpBuffer.length - ret);
-                    return true;
-                } else if (ret < 0) {
-                    // 说明数据错乱了
-                    readBufferOutputStream.reset();
-                }
-            }
-            buffer.clear();
-            int read = channel.read(buffer);
-            if (read == -1 || read == 0) {
-                return false;
+            // 说明还是可以尝试一下的，数据错乱时decoder会丢弃已收的数据
+            if (decoder.decode(box) > 0) {
+                // 说明成功
+                return true;
             }
-            buffer.flip();
-            if (buffer.hasArray()) {
-                final byte[] array       = buffer.array();
-                final int    arrayOffset = buffer.arrayOffset();
-                readChunkBuffer = Arrays.copyOfRange(array,
-                        arrayOffset + buffer.position(),
-                        arrayOffset + buffer.limit());
-            } else {
-                readChunkBuffer = new byte[buffer.remaining()];
-                buffer.get(readChunkBuffer);
-            }
-            int len = readChunkBuffer.length;
-            if (len > 0) {
-                // 进入下个循环自然会判断
-                readBufferOutputStream.write(readChunkBuffer, 0, len);
-            } else {
-                return false;
+            // 读到池中的直接内存，再复制到decoder，进入下个循环自然会判断
+            ByteBuffer buffer = bufferPool.allocate(readChunkSize);
+            try {
+                int read = channel.read(buffer);
+                if (read == -1 || read == 0) {
+                    return false;
+                }
+                buffer.flip();
+                decoder.write(buffer);
+            } finally {
+                bufferPool.release(buffer);
             }
         }
     }
@@ -231,7 +305,9 @@ public class NioStream {
     }
 
     protected void onSendMsgToServer(IMessage ibox) {
-        delegate.onSend(ibox);
+        if (delegate != null) {
+            delegate.onSend(ibox);
+        }
     }
 
     protected void onRecvMsgFromServer(IMessage ibox) {
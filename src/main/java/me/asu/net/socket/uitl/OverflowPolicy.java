@@ -0,0 +1,16 @@
+package me.asu.net.socket.uitl;
+
+/**
+ * OverflowPolicy. 待发送字节数超过上限时如何处理新消息.
+ *
+ * @version 1.0.0
+ * @see FlowControl
+ */
+public enum OverflowPolicy {
+    /** 丢弃新消息，计数并回调 onError(ERROR_DROPPED)，不阻塞也不影响已排队的消息. */
+    DROP,
+    /** 阻塞发送线程，直到有空间或超时；超时后同 FAIL。在负责写出的 IO 线程中调用时不阻塞，直接同 FAIL. */
+    BLOCK,
+    /** 拒绝新消息，回调 onError(ERROR_OVERFLOW). */
+    FAIL
+}
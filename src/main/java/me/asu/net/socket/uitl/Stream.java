@@ -2,11 +2,12 @@ package me.asu.net.socket.uitl;
 
 import java.io.*;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 import me.asu.net.message.*;
 import java.net.Socket;
 
 /**
- * Stream
+ * Stream. 阻塞读写，一个线程读，多个线程可以同时写.
  *
  * @version 1.0.0
  * @since 2017-10-11 17:40
@@ -16,11 +17,13 @@ public class Stream implements Closeable {
     private final static int READ_CHUNK_SIZE = 4 * 1024;
     private final static int READ_BUFFER_MAX_SIZE = -1;
 
-    private Socket socket = null;
+    private volatile Socket socket = null;
     private int readTimeout = 0;
-    private byte[] readChunkBuffer = null;
+    private int readChunkSize;
     private int readBufferMaxSize;
-    private ByteArrayOutputStream readBufferOutputStream;
+    private FrameDecoder decoder;
+    /** 一个包的字节一次写完再写下一个包，多个线程同时写时包不交错. */
+    private final ReentrantLock writeLock = new ReentrantLock();
 
     public Stream() {
         this(null, READ_CHUNK_SIZE, READ_BUFFER_MAX_SIZE);
@@ -39,8 +42,8 @@ public class Stream implements Closeable {
         this.readBufferMaxSize = readBufferMaxSize;
         readChunkSize = readChunkSize > 0 ? readChunkSize : READ_CHUNK_SIZE;
         // readChunkSize 一次性读取的大小
-        readChunkBuffer = new byte[readChunkSize];
-        readBufferOutputStream = new ByteArrayOutputStream(readChunkSize << 1);
+        this.readChunkSize = readChunkSize;
+        decoder = new FrameDecoder(readChunkSize << 1, readBufferMaxSize);
         this.socket = socket;
     }
 
@@ -65,29 +68,23 @@ public class Stream implements Closeable {
                     throw new TimeoutException();
                 }
             }
-            byte[] tmpBuffer = readBufferOutputStream.toByteArray();
-
-            if (readBufferMaxSize >= 0 && tmpBuffer.length > readBufferMaxSize) {
+            if (readBufferMaxSize >= 0 && decoder.readableBytes() > readBufferMaxSize) {
                 // 数据过大，可能错位了。
                 return false;
             }
 
-            if (tmpBuffer.length > 0) {
-                // 说明还是可以尝试一下的
-                int ret = box.unpack(tmpBuffer, 0, tmpBuffer.length);
-                if (ret > 0) {
-                    // 说明成功
-                    readBufferOutputStream.reset();
-                    readBufferOutputStream.write(tmpBuffer, ret, tmpBuffer.length - ret);
-                    return true;
-                } else if (ret < 0) {
-                    // 说明数据错乱了
-                    readBufferOutputStream.reset();
-                }
+            // 说明还是可以尝试一下的，数据错乱时decoder会丢弃已收的数据
+            if (decoder.decode(box) > 0) {
+                // 说明成功
+                return true;
             }
 
-            int len = this.socket.getInputStream()
-                    .read(readChunkBuffer, 0, readChunkBuffer.length);
+            // 直接读到decoder的缓冲区中，socket 可能被其他线程关闭
+            Socket s = this.socket;
+            if (s == null) {
+                return false;
+            }
+            int len = decoder.readFrom(s.getInputStream(), readChunkSize);
             // 如果读取超时会抛出异常：java.net.SocketTimeoutException，不会进入下面的逻辑
             // -1：当server关闭的时候会报这个错误
             if (len <= 0) {
@@ -99,7 +96,6 @@ public class Stream implements Closeable {
                 return false;
             }
             // 进入下个循环自然会判断
-            readBufferOutputStream.write(readChunkBuffer, 0, len);
         }
     }
 
@@ -107,23 +103,38 @@ public class Stream implements Closeable {
         if (this.isClosed()) {
             throw new IllegalStateException("socket is closed.");
         }
-        this.socket.getOutputStream().write(box.pack());
-        this.socket.getOutputStream().flush();
+        // 在锁外压包
+        write0(box.pack());
     }
 
     public void write(byte[] box) throws IOException {
         if (this.isClosed()) {
             throw new IOException("closed");
         }
-        this.socket.getOutputStream().write(box);
-        this.socket.getOutputStream().flush();
+        write0(box);
+    }
+
+    private void write0(byte[] data) throws IOException {
+        Socket s = this.socket;
+        if (s == null) {
+            throw new IOException("closed");
+        }
+        writeLock.lock();
+        try {
+            OutputStream out = s.getOutputStream();
+            out.write(data);
+            out.flush();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void close() throws IOException {
-        if (this.socket != null) {
-            this.socket.close();
+        Socket s = this.socket;
+        if (s != null) {
             this.socket = null;
+            s.close();
         }
     }
 
@@ -0,0 +1,217 @@
+package me.asu.net.socket.uitl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import me.asu.net.message.IMessage;
+import me.asu.net.util.DirectBufferPool;
+
+/**
+ * WriteQueue. 非阻塞连接的发送队列.
+ * <p>
+ * 任意线程都可以 {@link #add(IMessage)}，消息在调用线程中压包；
+ * {@link #flush(GatheringByteChannel, ByteBuffer[], Consumer)} 把排队的多个包聚集写出（channel.write(ByteBuffer[])），
+ * 只写出一部分的包保留剩余部分，下次从断点继续，不会截断。
+ * 同一时刻只能有一个线程调用 flush。
+ * <p>
+ * 指定 {@link DirectBufferPool} 时，不超过池最大级别的包直接编码到池中的直接内存（{@link IMessage#encodeTo(ByteBuffer)}），
+ * 写出后归还，写 socket 时 JDK 不必再复制到临时直接内存。
+ * <p>
+ * 待发送字节数由 {@link FlowControl} 统计，{@link #offer(IMessage, boolean)} 按其上限和策略决定是否接受新消息。
+ *
+ * @version 1.0.0
+ */
+public class WriteQueue {
+
+    /** 一次聚集写的最大包数. */
+    public final static int WRITE_BATCH_SIZE = 64;
+
+    private final ConcurrentLinkedQueue<Outbound> queue = new ConcurrentLinkedQueue<Outbound>();
+    private final DirectBufferPool                bufferPool;
+    private final FlowControl                     flowControl;
+
+    public WriteQueue() {
+        this(null);
+    }
+
+    /**
+     * @param bufferPool 编码使用的直接内存池，为 null 时压包到堆内存
+     */
+    public WriteQueue(DirectBufferPool bufferPool) {
+        this(bufferPool, FlowControl.unbounded(Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * @param bufferPool  编码使用的直接内存池，为 null 时压包到堆内存
+     * @param flowControl 流控
+     */
+    public WriteQueue(DirectBufferPool bufferPool, FlowControl flowControl) {
+        this.bufferPool = bufferPool;
+        this.flowControl = flowControl;
+    }
+
+    /**
+     * 压包并放入队列，不检查上限.
+     *
+     * @param message 消息
+     * @throws IOException 压包异常
+     */
+    public void add(IMessage message) throws IOException {
+        ByteBuffer buffer = encode(message);
+        flowControl.forceAcquire(buffer.remaining());
+        queue.offer(new Outbound(message, buffer));
+    }
+
+    /**
+     * 压包，按流控的上限和策略放入队列.
+     *
+     * @param message  消息
+     * @param mayBlock 是否允许阻塞，负责写出的 IO 线程不能阻塞
+     * @return {@link FlowControl#ACCEPTED}, {@link FlowControl#DROPPED} 或 {@link FlowControl#REJECTED}
+     * @throws IOException 压包异常，或 BLOCK 等待时被中断（{@link java.io.InterruptedIOException}）
+     */
+    public int offer(IMessage message, boolean mayBlock) throws IOException {
+        ByteBuffer buffer = encode(message);
+        int ret;
+        try {
+            ret = flowControl.acquire(buffer.remaining(), mayBlock);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(buffer);
+            throw new InterruptedIOException("interrupted while waiting for queue space");
+        }
+        if (ret != FlowControl.ACCEPTED) {
+            release(buffer);
+            return ret;
+        }
+        queue.offer(new Outbound(message, buffer));
+        return ret;
+    }
+
+    private ByteBuffer encode(IMessage message) throws IOException {
+        final int length = message.getPackageLength();
+        if (bufferPool != null && length > 0 && length <= bufferPool.getMaxSize()) {
+            ByteBuffer buffer = bufferPool.allocate(length);
+            try {
+                message.encodeTo(buffer);
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                // getPackageLength 不准确，退回堆内存
+                bufferPool.release(buffer);
+            } catch (IOException | RuntimeException e) {
+                bufferPool.release(buffer);
+                throw e;
+            }
+        }
+        return ByteBuffer.wrap(message.pack());
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (bufferPool != null && buffer.isDirect()) {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 尽量写出队列中的数据.
+     *
+     * @param channel 通道
+     * @param batch   聚集写使用的数组，由调用方复用，长度一般为 {@link #WRITE_BATCH_SIZE}
+     * @param onSent  包完整写出后的回调，可以为 null
+     * @return true: 队列已写空；false: socket 发送缓冲区满，需要等 OP_WRITE 后继续
+     * @throws IOException 写异常
+     */
+    public boolean flush(GatheringByteChannel channel, ByteBuffer[] batch, Consumer<IMessage> onSent)
+    throws IOException {
+        while (true) {
+            int n = 0;
+            Iterator<Outbound> ite = queue.iterator();
+            while (n < batch.length && ite.hasNext()) {
+                batch[n++] = ite.next().buffer;
+            }
+            if (n == 0) {
+                return true;
+            }
+            final long written;
+            final boolean partial;
+            try {
+                written = channel.write(batch, 0, n);
+                partial = batch[n - 1].hasRemaining();
+            } finally {
+                for (int i = 0; i < n; i++) {
+                    batch[i] = null;
+                }
+            }
+            flowControl.written(written);
+
+            Outbound o;
+            while ((o = queue.peek()) != null && !o.buffer.hasRemaining()) {
+                queue.poll();
+                release(o.buffer);
+                flowControl.sent(o.enqueueTime);
+                if (onSent != null) {
+                    onSent.accept(o.message);
+                }
+            }
+            if (partial) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 取出并丢弃队首的消息，用于写失败后逐个通知.
+     *
+     * @return 队首的消息，队列为空时返回 null
+     */
+    public IMessage poll() {
+        Outbound o = queue.poll();
+        if (o == null) {
+            return null;
+        }
+        flowControl.removed(o.buffer.remaining());
+        release(o.buffer);
+        return o.message;
+    }
+
+    public void clear() {
+        Outbound o;
+        while ((o = queue.poll()) != null) {
+            flowControl.removed(o.buffer.remaining());
+            release(o.buffer);
+        }
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return 还未写出的字节数
+     */
+    public long getPendingBytes() {
+        return flowControl.getPendingBytes();
+    }
+
+    public FlowControl getFlowControl() {
+        return flowControl;
+    }
+
+    private static final class Outbound {
+
+        final IMessage   message;
+        final ByteBuffer buffer;
+        final long       enqueueTime = System.nanoTime();
+
+        Outbound(IMessage message, ByteBuffer buffer) {
+            this.message = message;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package me.asu.net.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DirectBufferPool.
+ * 按 2 的幂分级的直接内存缓冲区池，避免在读循环中反复 allocateDirect 和 {@link DirectByteBufferCleaner#clean(ByteBuffer)}。
+ * <ul>
+ * <li>申请的大小向上取整到 minSize..maxSize 之间的 2 的幂，超过 maxSize 的不缓存，释放时直接清理；</li>
+ * <li>每个线程先从自己的缓存取，取不到再从共享缓存取，都没有才 allocateDirect；</li>
+ * <li>释放时先放回本线程缓存，满了放回共享缓存，再满了就清理掉，池中保留的内存有上限；</li>
+ * <li>泄漏检测（调试用）：记录每个未释放缓冲区的申请位置，缓冲区未释放就被 GC 时打印申请位置，重复释放时打印警告。
+ * 开销较大，构造时指定或通过系统属性 {@code me.asu.net.leakDetection=true} 开启，之后不能切换，
+ * 否则切换前申请的缓冲区释放时找不到记录。</li>
+ * </ul>
+ * 线程安全。缓冲区释放后不能再使用。
+ *
+ * @version 1.0.0
+ */
+@Slf4j
+public final class DirectBufferPool {
+
+    public final static int DEFAULT_MIN_SIZE          = 512;
+    public final static int DEFAULT_MAX_SIZE          = 64 * 1024;
+    public final static int DEFAULT_THREAD_CACHE_SIZE = 16;
+    public final static int DEFAULT_SHARED_CACHE_SIZE = 256;
+
+    private static final DirectBufferPool DEFAULT = new DirectBufferPool();
+
+    private final int minShift;
+    private final int maxSize;
+    private final int threadCacheSize;
+    private final int sharedCacheSize;
+
+    private final ConcurrentLinkedQueue<ByteBuffer>[] shared;
+    private final AtomicInteger[]                     sharedCounts;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadCache;
+
+    private final boolean leakDetection;
+    /** identityHashCode -&gt; 未释放的缓冲区，只在开启泄漏检测时使用. */
+    private final Map<Integer, List<LeakRecord>> tracked   = new HashMap<Integer, List<LeakRecord>>();
+    private final ReferenceQueue<ByteBuffer>     collected = new ReferenceQueue<ByteBuffer>();
+    private final AtomicInteger                  leaks     = new AtomicInteger();
+
+    public DirectBufferPool() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_THREAD_CACHE_SIZE, DEFAULT_SHARED_CACHE_SIZE);
+    }
+
+    /**
+     * 构造，泄漏检测由系统属性 {@code me.asu.net.leakDetection} 决定.
+     *
+     * @param minSize         最小级别，向上取整到 2 的幂
+     * @param maxSize         最大级别，向上取整到 2 的幂，超过的不缓存
+     * @param threadCacheSize 每个线程每个级别缓存的个数
+     * @param sharedCacheSize 共享缓存每个级别缓存的个数
+     */
+    public DirectBufferPool(int minSize, int maxSize, int threadCacheSize, int sharedCacheSize) {
+        this(minSize, maxSize, threadCacheSize, sharedCacheSize,
+                Boolean.getBoolean("me.asu.net.leakDetection"));
+    }
+
+    /**
+     * 构造.
+     *
+     * @param minSize         最小级别，向上取整到 2 的幂
+     * @param maxSize         最大级别，向上取整到 2 的幂，超过的不缓存
+     * @param threadCacheSize 每个线程每个级别缓存的个数
+     * @param sharedCacheSize 共享缓存每个级别缓存的个数
+     * @param leakDetection   是否开启泄漏检测
+     */
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int minSize, int maxSize, int threadCacheSize, int sharedCacheSize,
+            boolean leakDetection) {
+        if (minSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("illegal size: " + minSize + ".." + maxSize);
+        }
+        this.minShift = shift(minSize);
+        this.maxSize = 1 << shift(maxSize);
+        this.threadCacheSize = threadCacheSize;
+        this.sharedCacheSize = sharedCacheSize;
+        this.leakDetection = leakDetection;
+
+        final int classes = shift(maxSize) - minShift + 1;
+        this.shared = (ConcurrentLinkedQueue<ByteBuffer>[]) new ConcurrentLinkedQueue<?>[classes];
+        this.sharedCounts = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            shared[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            sharedCounts[i] = new AtomicInteger();
+        }
+        this.threadCache = new ThreadLocal<ArrayDeque<ByteBuffer>[]>() {
+            @Override
+            protected ArrayDeque<ByteBuffer>[] initialValue() {
+                ArrayDeque<ByteBuffer>[] cache = (ArrayDeque<ByteBuffer>[]) new ArrayDeque<?>[classes];
+                for (int i = 0; i < classes; i++) {
+                    cache[i] = new ArrayDeque<ByteBuffer>();
+                }
+                return cache;
+            }
+        };
+    }
+
+    /**
+     * @return 默认的共享池
+     */
+    public static DirectBufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 申请缓冲区，position 为 0，limit 为 size，capacity 可能大于 size.
+     *
+     * @param size 需要的大小
+     * @return 直接内存缓冲区
+     */
+    public ByteBuffer allocate(int size) {
+        ByteBuffer buffer = null;
+        final int index = indexOf(size);
+        if (index >= 0) {
+            buffer = threadCache.get()[index].pollLast();
+            if (buffer == null) {
+                buffer = shared[index].poll();
+                if (buffer != null) {
+                    sharedCounts[index].decrementAndGet();
+                }
+            }
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(index >= 0 ? 1 << (index + minShift) : size);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        if (leakDetection) {
+            track(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * 释放缓冲区，必须是 {@link #allocate(int)} 返回的原始缓冲区，不能是 slice 或 duplicate.
+     *
+     * @param buffer 缓冲区，为 null 时忽略
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (leakDetection && !untrack(buffer)) {
+            log.warn("buffer released twice or not allocated by this pool: {}", buffer,
+                    new IllegalStateException());
+            return;
+        }
+        final int capacity = buffer.capacity();
+        final int index = indexOf(capacity);
+        // 只缓存容量正好是某个级别的缓冲区
+        if (index >= 0 && capacity == 1 << (index + minShift) && buffer.isDirect()) {
+            ArrayDeque<ByteBuffer> local = threadCache.get()[index];
+            if (local.size() < threadCacheSize) {
+                local.addLast(buffer);
+                return;
+            }
+            if (sharedCounts[index].incrementAndGet() <= sharedCacheSize) {
+                shared[index].offer(buffer);
+                return;
+            }
+            sharedCounts[index].decrementAndGet();
+        }
+        DirectByteBufferCleaner.clean(buffer);
+    }
+
+    /**
+     * @return 缓存的最大级别，超过的缓冲区不缓存
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * @return 开启泄漏检测后发现的泄漏个数
+     */
+    public int getLeakCount() {
+        reportLeaks();
+        return leaks.get();
+    }
+
+    /**
+     * @return 开启泄漏检测后申请了还未释放的缓冲区个数
+     */
+    public int getOutstandingCount() {
+        synchronized (tracked) {
+            int count = 0;
+            for (List<LeakRecord> records : tracked.values()) {
+                count += records.size();
+            }
+            return count;
+        }
+    }
+
+    private int indexOf(int size) {
+        if (size > maxSize) {
+            return -1;
+        }
+        return Math.max(0, shift(size) - minShift);
+    }
+
+    /**
+     * @return 不小于 size 的最小的 2 的幂的指数
+     */
+    private static int shift(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    // ---------------------------------------------------------------- leak detection
+
+    private void track(ByteBuffer buffer) {
+        reportLeaks();
+        LeakRecord record = new LeakRecord(buffer, collected);
+        synchronized (tracked) {
+            List<LeakRecord> records = tracked.get(record.hash);
+            if (records == null) {
+                records = new ArrayList<LeakRecord>(1);
+                tracked.put(record.hash, records);
+            }
+            records.add(record);
+        }
+    }
+
+    private boolean untrack(ByteBuffer buffer) {
+        final int hash = System.identityHashCode(buffer);
+        synchronized (tracked) {
+            List<LeakRecord> records = tracked.get(hash);
+            if (records == null) {
+                return false;
+            }
+            for (Iterator<LeakRecord> ite = records.iterator(); ite.hasNext(); ) {
+                LeakRecord record = ite.next();
+                if (record.get() == buffer) {
+                    ite.remove();
+                    record.clear();
+                    if (records.isEmpty()) {
+                        tracked.remove(hash);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) collected.poll()) != null) {
+            boolean leaked;
+            synchronized (tracked) {
+                List<LeakRecord> records = tracked.get(record.hash);
+                leaked = records != null && records.remove(record);
+                if (leaked && records.isEmpty()) {
+                    tracked.remove(record.hash);
+                }
+            }
+            if (leaked) {
+                leaks.incrementAndGet();
+                log.error("LEAK: direct buffer was garbage-collected without release, allocated at:",
+                        record.allocation);
+            }
+        }
+    }
+
+    private static final class LeakRecord extends WeakReference<ByteBuffer> {
+
+        final int       hash;
+        final Throwable allocation;
+
+        LeakRecord(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            this.hash = System.identityHashCode(buffer);
+            this.allocation = new Throwable("buffer allocation");
+        }
+    }
+}
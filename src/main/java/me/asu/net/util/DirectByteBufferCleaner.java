@@ -1,21 +1,55 @@
 package me.asu.net.util;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import lombok.extern.slf4j.Slf4j;
 //import sun.nio.ch.DirectBuffer;
 
 /**
  * DirectByteBufferCleaner.
  * 手工释放 ByteBuffer.allocateDirect(int capacity)
  * 申请的内存，不等gc回收。
+ * <p>
+ * JDK 9 及以上通过 sun.misc.Unsafe#invokeCleaner 释放，JDK 8 通过 DirectBuffer#cleaner 释放。
+ * 只能释放 allocateDirect 返回的原始缓冲区，不能释放 slice 或 duplicate。
  *
  * @version 1.0.0
  * @since 2017-10-31 13:35
  */
+@Slf4j
 public class DirectByteBufferCleaner {
 
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            // JDK 8 没有 invokeCleaner
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
     public static void clean(final ByteBuffer byteBuffer) {
         if (byteBuffer.isDirect()) {
             byteBuffer.clear();
+            if (INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, byteBuffer);
+                } catch (Exception e) {
+                    log.error("invokeCleaner failed", e);
+                }
+                return;
+            }
             //((DirectBuffer)byteBuffer).cleaner().clean();
             // 获取 Cleaner 对象
             Object cleaner = getDirectByteBufferCleaner(byteBuffer);
@@ -24,10 +58,10 @@ public class DirectByteBufferCleaner {
             if (cleaner != null) {
                 try {
                     Method cleanMethod = cleaner.getClass().getMethod("clean");
+                    cleanMethod.setAccessible(true);
                     cleanMethod.invoke(cleaner);
-                    System.out.println("Direct ByteBuffer memory released successfully.");
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    log.error("cleaner.clean failed", e);
                 }
             }
         }
@@ -40,7 +74,7 @@ public class DirectByteBufferCleaner {
             cleanerMethod.setAccessible(true);
             return cleanerMethod.invoke(buffer);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("cannot get cleaner of {}", buffer, e);
             return null;
         }
     }
@@ -0,0 +1,44 @@
+package me.asu.net.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import me.asu.util.NamedThreadFactory;
+
+/**
+ * VirtualThreads. 创建阻塞 IO 使用的线程.
+ * <p>
+ * 这是 Java 8 的实现，返回普通的守护线程；jar 是 Multi-Release 的，在 Java 21 及以上运行时
+ * 使用 META-INF/versions/21 中的实现，返回虚拟线程，一个连接一个线程也不会占用太多资源。
+ * 两个实现的公开方法必须保持一致。
+ *
+ * @version 1.0.0
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 当前运行时是否使用虚拟线程
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param name 线程名前缀
+     * @return 线程工厂，Java 21 以上创建虚拟线程，否则创建守护线程
+     */
+    public static ThreadFactory newThreadFactory(String name) {
+        return new NamedThreadFactory(name, true);
+    }
+
+    /**
+     * @param name 线程名前缀
+     * @return 每个任务一个线程的线程池，Java 21 以上使用虚拟线程
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        return Executors.newCachedThreadPool(newThreadFactory(name));
+    }
+}
@@ -8,15 +8,27 @@
 
 package me.asu.util;
 
-import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import me.asu.log.Log;
+import me.asu.util.OkJsonBinding.OkJsonClassField;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.*;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -46,9 +58,10 @@ public class OKJSON {
     public static final int OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT = OkJsonParser.OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT;
     public static final int OKJSON_ERROR_NEW_OBJECT = OkJsonParser.OKJSON_ERROR_NEW_OBJECT;
 
-    private static ThreadLocal<OkJsonGenerator> okjsonGeneratorCache = new ThreadLocal<>();
-    private static ThreadLocal<OkJsonParser> okjsonParserCache = new ThreadLocal<>();
-    ;
+    /** 每个线程复用一个生成器和一个解析器，每次调用前重新设置选项，调用结束后不持有输入输出. */
+    private static final ThreadLocal<OkJsonGenerator> okjsonGeneratorCache =
+            ThreadLocal.withInitial(OkJsonGenerator::new);
+    private static final ThreadLocal<OkJsonParser> okjsonParserCache = ThreadLocal.withInitial(OkJsonParser::new);
 
     private static ThreadLocal<Integer> errorCode = new ThreadLocal<Integer>();
     private static ThreadLocal<String> errorDesc = new ThreadLocal<String>();
@@ -61,82 +74,124 @@ public class OKJSON {
         return errorDesc.get();
     }
 
+    /**
+     * 按 UTF-8 边生成边写入文件，不在内存中生成整个字符串.
+     */
     public static int stringify(Object object, String filePath, int options) {
+        try (OutputStream out = Files.newOutputStream(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return stringify(object, out, options);
+        } catch (IOException e) {
+            errorCode.set(OKJSON_ERROR_EXCEPTION);
+            errorDesc.set(e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 边生成边写入 writer，生成器只占用固定大小的缓冲区. writer 由调用方关闭.
+     *
+     * @return 成功返回 0，失败返回 -1，错误见 getErrorCode/getErrorDesc
+     */
+    public static int stringify(Object object, Writer writer, int options) {
+        return stringifyTo(object, writer, options);
+    }
+
+    /**
+     * 边生成边按 UTF-8 编码写入 out. out 由调用方关闭.
+     */
+    public static int stringify(Object object, OutputStream out, int options) {
+        return stringifyTo(object, out, options);
+    }
+
+    /**
+     * 边生成边按 UTF-8 编码写入阻塞模式的 channel. channel 由调用方关闭.
+     */
+    public static int stringify(Object object, WritableByteChannel channel, int options) {
+        return stringifyTo(object, channel, options);
+    }
+
+    private static int stringifyTo(Object object, Object output, int options) {
+        OkJsonGenerator okjsonGenerator = getOkJsonGenerator();
+        applyOptions(okjsonGenerator, Options.fromMask(options));
         try {
-            String jsonString = stringify(object, options);
-            Files.write(Paths.get(filePath), jsonString.getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (output instanceof Writer) {
+                okjsonGenerator.stringify(object, (Writer) output);
+            } else if (output instanceof OutputStream) {
+                okjsonGenerator.stringify(object, (OutputStream) output);
+            } else {
+                okjsonGenerator.stringify(object, (WritableByteChannel) output);
+            }
+            errorCode.set(0);
+            errorDesc.set(null);
             return 0;
         } catch (Exception e) {
+            errorCode.set(e instanceof IOException ? OKJSON_ERROR_EXCEPTION : OKJSON_ERROR_UNEXPECT);
+            errorDesc.set(e.getMessage());
             return -1;
         }
     }
 
     public static String stringify(Object object, int options) {
-        OkJsonGenerator okjsonGenerator;
-        if (okjsonGeneratorCache.get() == null) {
-            okjsonGenerator = new OkJsonGenerator();
-            okjsonGeneratorCache.set(okjsonGenerator);
-        } else {
-            okjsonGenerator = okjsonGeneratorCache.get();
-        }
-
-        Options opt = Options.fromMask(options);
-        applyOptions(okjsonGenerator, opt);
+        OkJsonGenerator okjsonGenerator = getOkJsonGenerator();
+        applyOptions(okjsonGenerator, Options.fromMask(options));
         try {
             return okjsonGenerator.stringify(object);
         } catch (Exception e) {
             errorCode.set(OKJSON_ERROR_UNEXPECT);
             errorDesc.set(e.getMessage());
             return null;
-        } finally {
-            okjsonGeneratorCache.set(null);
         }
     }
 
+    /**
+     * 按 UTF-8 边读边解析文件，不把整个文件读成字符串.
+     */
     public static <T> T fileToJson(String filePath, Class<T> clazz, int options) {
-        String jsonString = null;
-
-        try {
-            jsonString = new String(Files.readAllBytes(Paths.get(filePath)));
+        try (Reader reader = OkJsonParser.newFileReader(filePath)) {
+            return toJson(reader, clazz, options);
         } catch (IOException e) {
             return null;
         }
-
-        return toJson(jsonString, clazz, options);
-    }
-    private static OkJsonParser getOkJsonParserApplied(Options opt) {
-        OkJsonParser p = getOkJsonParser();
-        applyOptions(p, opt);
-        return p;
     }
 
-    @SuppressWarnings({"rawtypes","unchecked"})
-    private static <T> T fillToSubclassMap(Class<T> clazz, Map<String,Object> src) throws Exception {
-        Map m = (Map) newInstance(clazz);
-        m.putAll(src);
-        return (T) m;
+    /**
+     * 按 UTF-8 边读边解码 in 并解析，in 由调用方关闭.
+     */
+    public static <T> T toJson(InputStream in, Class<T> clazz, int options) {
+        return toJson(new InputStreamReader(in, StandardCharsets.UTF_8), clazz, options);
     }
-    @SuppressWarnings({"rawtypes","unchecked"})
-    private static <T> T fillToSubclassList(Class<T> clazz, List<Object> src) throws Exception {
-        List l = (List) newInstance(clazz);
-        l.addAll(src);
-        return (T) l;
+
+    /**
+     * 解析 UTF-8 编码的 buffer（可以是 FileChannel.map 得到的内存映射），不改变 buffer 的 position.
+     */
+    public static <T> T toJson(ByteBuffer buffer, Class<T> clazz, int options) {
+        return toJson(new OkJsonByteBufferReader(buffer), clazz, options);
     }
-    public static <T> T toJson(String jsonString, Class<T> clazz, int options) {
+
+    /**
+     * 从 reader 中边读边解析，解析器只持有固定大小的读缓冲区. reader 由调用方关闭.
+     */
+    public static <T> T toJson(Reader reader, Class<T> clazz, int options) {
         Options opt = Options.fromMask(options);
         try {
             if (clazz == Map.class || Map.class.isAssignableFrom(clazz)) {
-                Map<String, Object> m = getOkJsonParserApplied(opt).toMap(jsonString);
-                return Map.class.equals(clazz) ? (T) m : fillToSubclassMap(clazz, m);
+                OkJsonParser p = getOkJsonParserApplied(opt);
+                Map<String, Object> m = p.toMap(reader);
+                errorCode.set(p.getErrorCode());
+                errorDesc.set(p.getErrorDesc());
+                return (m == null || Map.class.equals(clazz)) ? (T) m : fillToSubclassMap(clazz, m);
             }
             if (clazz == List.class || List.class.isAssignableFrom(clazz)) {
-                List<Object> src = getOkJsonParserApplied(opt).toList(jsonString);
-                return List.class.equals(clazz) ? (T) src : fillToSubclassList(clazz, src);
+                OkJsonParser p = getOkJsonParserApplied(opt);
+                List<Object> src = p.toList(reader);
+                errorCode.set(p.getErrorCode());
+                errorDesc.set(p.getErrorDesc());
+                return (src == null || List.class.equals(clazz)) ? (T) src : fillToSubclassList(clazz, src);
             }
             OkJsonParser p = getOkJsonParserApplied(opt);
             T obj = newInstance(clazz);
-            obj = p.toJson(jsonString, obj);
+            obj = p.toJson(reader, obj);
             errorCode.set(p.getErrorCode());
             errorDesc.set(p.getErrorDesc());
             return obj;
@@ -145,1793 +200,195 @@ public class OKJSON {
             errorCode.set(OKJSON_ERROR_EXCEPTION);
             errorDesc.set(e.getMessage());
             return null;
-        }finally {
-            okjsonParserCache.set(null);
-        }
-    }
-
-    public static <T> T toList(String jsonString, int options) {
-        final OkJsonParser okjsonParser = getOkJsonParser();
-        if (okjsonParser == null) return null;
-
-        // 绑定选项
-        okjsonParser.setDirectAccessPropertyEnable((options & OPTIONS_DIRECT_ACCESS_PROPERTY_ENABLE) != 0);
-        okjsonParser.setStrictPolicyEnable((options & OPTIONS_STRICT_POLICY) != 0);
-
-        List<Object> list = okjsonParser.toList(jsonString);
-        errorCode.set(okjsonParser.getErrorCode());
-        errorDesc.set(okjsonParser.getErrorDesc());
-        return (T) list;
-    }
-
-    public static Map<String, Object> toMap(String jsonString, int options) {
-        try {
-            final OkJsonParser okjsonParser = getOkJsonParser();
-            if (okjsonParser == null) return null;
-
-            if ((options & OPTIONS_DIRECT_ACCESS_PROPERTY_ENABLE) != 0) {
-                okjsonParser.setDirectAccessPropertyEnable(true);
-            } else {
-                okjsonParser.setDirectAccessPropertyEnable(false);
-            }
-
-            if ((options & OPTIONS_STRICT_POLICY) != 0) {
-                okjsonParser.setStrictPolicyEnable(true);
-            } else {
-                okjsonParser.setStrictPolicyEnable(false);
-            }
-
-            Map<String, Object> object = okjsonParser.toMap(jsonString);
-
-            errorCode.set(okjsonParser.getErrorCode());
-            errorDesc.set(okjsonParser.getErrorDesc());
-
-            return object;
-        } finally {
-            okjsonParserCache.set(null);
         }
     }
 
     /**
-     * Get OKJsonParser
+     * 逐个读取 reader 中顶层数组的元素，内存占用与数组长度无关. 关闭返回的 OkJsonArrayReader 时同时关闭 reader.
      *
-     * @return {@link OkJsonParser}
+     * @param clazz 元素类型，对象绑定到该类型；Object.class 得到与 toList 相同的 Map/List/值
      */
-    static synchronized OkJsonParser getOkJsonParser() {
-        OkJsonParser okjsonParser = okjsonParserCache.get();
-        if (okjsonParser == null) {
-            okjsonParser = new OkJsonParser();
-            okjsonParserCache.set(okjsonParser);
-        }
-
-        return okjsonParser;
-    }
-    // ====== 封装统一应用 ======
-    static void applyOptions(OkJsonParser p, Options o) {
-        p.setDirectAccessPropertyEnable(o.direct);
-        p.setStrictPolicyEnable(o.strict);
-    }
-    static void applyOptions(OkJsonGenerator g, Options o) {
-        g.setDirectAccessPropertyEnable(o.direct);
-        g.setPrettyFormatEnable(o.pretty);
-        g.setNullEnable(o.nullable);
-    }
-    // 统一构造
-    static <T> T newInstance(Class<T> clazz) throws Exception {
-        Constructor<T> c = clazz.getDeclaredConstructor();
-        c.setAccessible(true);
-        return c.newInstance();
-    }
-}
-
-// ====== 集中管理选项 ======
-final class Options {
-    final boolean direct;
-    final boolean pretty;
-    final boolean strict;
-    final boolean nullable;
-
-    private Options(boolean direct, boolean pretty, boolean strict, boolean nullable) {
-        this.direct = direct; this.pretty = pretty; this.strict = strict; this.nullable = nullable;
-    }
-    static Options fromMask(int mask) {
-        return new Options(
-                (mask & OKJSON.OPTIONS_DIRECT_ACCESS_PROPERTY_ENABLE) != 0,
-                (mask & OKJSON.OPTIONS_PRETTY_FORMAT_ENABLE) != 0,
-                (mask & OKJSON.OPTIONS_STRICT_POLICY) != 0,
-                (mask & OKJSON.OPTIONS_NULLABLE) != 0
-        );
-    }
-}
-
-@Setter
-@Getter
-class OkJsonParser {
-    private boolean strictPolicyEnable;
-    private boolean directAccessPropertyEnable;
-    private boolean prettyFormatEnable;
-
-    private Integer errorCode;
-    private String errorDesc;
-
-    enum TokenType {
-        TOKEN_TYPE_LEFT_BRACE, // {
-        TOKEN_TYPE_RIGHT_BRACE, // }
-        TOKEN_TYPE_LEFT_BRACKET, // [
-        TOKEN_TYPE_RIGHT_BRACKET, // ]
-        TOKEN_TYPE_COLON, // :
-        TOKEN_TYPE_COMMA, // ,
-        TOKEN_TYPE_STRING, // "ABC"
-        TOKEN_TYPE_INTEGER, // 123
-        TOKEN_TYPE_DECIMAL, // 123.456
-        TOKEN_TYPE_BOOL, // true or false
-        TOKEN_TYPE_NULL // null
-    }
-
-    private static final ThreadLocal<LinkedHashMap<String, LinkedHashMap<String, Field>>> stringMapFieldsCache =
-            ThreadLocal.withInitial(LinkedHashMap::new);
-    private static final ThreadLocal<LinkedHashMap<String, LinkedHashMap<String, Method>>> stringMapMethodsCache =
-            ThreadLocal.withInitial(LinkedHashMap::new);
-    private static final ThreadLocal<StringBuilder> fieldStringBuilderCache =
-            ThreadLocal.withInitial(() -> new StringBuilder(1024));
-
-    private int jsonOffset;
-    private int jsonLength;
-
-    private TokenType tokenType;
-    private int beginOffset;
-    private int endOffset;
-    private boolean booleanValue;
-
-    public static final int OKJSON_ERROR_END_OF_BUFFER = 1;
-    public static final int OKJSON_ERROR_UNEXPECT = -4;
-    public static final int OKJSON_ERROR_EXCEPTION = -8;
-    public static final int OKJSON_ERROR_INVALID_BYTE = -11;
-    public static final int OKJSON_ERROR_FIND_FIRST_LEFT_BRACE = -21;
-    public static final int OKJSON_ERROR_NAME_INVALID = -22;
-    public static final int OKJSON_ERROR_EXPECT_COLON_AFTER_NAME = -23;
-    public static final int OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE = -24;
-    public static final int OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT = -26;
-    public static final int OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT = -28;
-    public static final int OKJSON_ERROR_NEW_OBJECT = -31;
-
-    // 统一构造
-    static <T> T newInstance(Class<T> clazz) throws Exception {
-        Constructor<T> c = clazz.getDeclaredConstructor();
-        c.setAccessible(true);
-        return c.newInstance();
-    }
-
-    private int fail(int code, String msg) {
-        this.errorCode = code;
-        this.errorDesc = msg;
-        return code;
-    }
-
-    private int tokenJsonString(char[] jsonCharArray) {
-        StringBuilder fieldStringBuilder;
-        char ch;
-
-        fieldStringBuilder = fieldStringBuilderCache.get();
-        fieldStringBuilder.setLength(0);
-
-        jsonOffset++;
-        beginOffset = jsonOffset;
-        while (jsonOffset < jsonLength) {
-            ch = jsonCharArray[jsonOffset];
-            if (ch == '"') {
-                tokenType = TokenType.TOKEN_TYPE_STRING;
-                if (jsonOffset > beginOffset) {
-                    fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset);
-                }
-                endOffset = jsonOffset - 1;
-                jsonOffset++;
-                return 0;
-            } else if (ch == '\\') {
-                jsonOffset++;
-                if (jsonOffset >= jsonLength) {
-                    return OKJSON_ERROR_END_OF_BUFFER;
-                }
-                ch = jsonCharArray[jsonOffset];
-                if (ch == '"') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('"');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == '\\') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append("\\");
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == '/') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('/');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 'b') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('\b');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 'f') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('\f');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 'n') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('\n');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 'r') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('\r');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 't') {
-                    if (jsonOffset > beginOffset + 1)
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append('\t');
-                    beginOffset = jsonOffset + 1;
-                } else if (ch == 'u') {
-                    if (jsonOffset + 4 >= jsonLength) return OKJSON_ERROR_END_OF_BUFFER;
-                    char h1 = jsonCharArray[++jsonOffset];
-                    char h2 = jsonCharArray[++jsonOffset];
-                    char h3 = jsonCharArray[++jsonOffset];
-                    char h4 = jsonCharArray[++jsonOffset];
-                    if (!(isHex(h1) && isHex(h2) && isHex(h3) && isHex(h4))) {
-                        errorDesc = "Invalid unicode escape";
-                        return OKJSON_ERROR_INVALID_BYTE;
-                    }
-                    int codePoint = Integer.parseInt(
-                            new String(new char[]{h1, h2, h3, h4}), 16);
-                    if (fieldStringBuilder.length() == 0) {
-                        fieldStringBuilder.append(jsonCharArray, beginOffset, (jsonOffset - 4) - beginOffset - 1);
-                    }
-                    fieldStringBuilder.append((char) codePoint);
-                    beginOffset = jsonOffset + 1;
-                } else {
-                    fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
-                    fieldStringBuilder.append(ch);
-                }
-            }
-
-            jsonOffset++;
-        }
-
-        return OKJSON_ERROR_END_OF_BUFFER;
-    }
-    private boolean isHex(char c) {
-        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
-    }
-
-    private int tokenJsonNumber(char[] jsonCharArray) {
-        char ch;
-        boolean decimalPointFlag;
-
-        beginOffset = jsonOffset;
-
-        ch = jsonCharArray[jsonOffset];
-        if (ch == '-') {
-            jsonOffset++;
-        }
-
-        decimalPointFlag = false;
-        while (jsonOffset < jsonLength) {
-            ch = jsonCharArray[jsonOffset];
-            if ('0' <= ch && ch <= '9') {
-                jsonOffset++;
-            } else if (ch == '.') {
-                decimalPointFlag = true;
-                jsonOffset++;
-            } else if (ch == 'e' || ch == 'E') {
-                jsonOffset++;
-                if (jsonOffset >= jsonLength) return fail(OKJSON_ERROR_END_OF_BUFFER,"");
-                ch = jsonCharArray[jsonOffset];
-                if (ch == '-' || ch == '+') {
-                    jsonOffset++;
-                } else if ('0' <= ch && ch <= '9') {
-                    jsonOffset++;
-                }
-            } else {
-                if (decimalPointFlag == true)
-                    tokenType = TokenType.TOKEN_TYPE_DECIMAL;
-                else
-                    tokenType = TokenType.TOKEN_TYPE_INTEGER;
-                endOffset = jsonOffset - 1;
-                return 0;
-            }
-        }
-
-        return fail(OKJSON_ERROR_END_OF_BUFFER, "");
-    }
-
-    private int tokenJsonWord(char[] jsonCharArray) {
-        char ch;
-
-        while (jsonOffset < jsonLength) {
-            ch = jsonCharArray[jsonOffset];
-            if (ch == ' ' || ch == '\b' || ch == '\t' || ch == '\f' || ch == '\r' || ch == '\n') {
-                jsonOffset++;
-            } else if (ch == '{') {
-                tokenType = TokenType.TOKEN_TYPE_LEFT_BRACE;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == '}') {
-                tokenType = TokenType.TOKEN_TYPE_RIGHT_BRACE;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == '[') {
-                tokenType = TokenType.TOKEN_TYPE_LEFT_BRACKET;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == ']') {
-                tokenType = TokenType.TOKEN_TYPE_RIGHT_BRACKET;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == '"') {
-                return tokenJsonString(jsonCharArray);
-            } else if (ch == ':') {
-                tokenType = TokenType.TOKEN_TYPE_COLON;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == ',') {
-                tokenType = TokenType.TOKEN_TYPE_COMMA;
-                beginOffset = jsonOffset;
-                endOffset = jsonOffset;
-                jsonOffset++;
-                return 0;
-            } else if (ch == '-' || ('0' <= ch && ch <= '9')) {
-                return tokenJsonNumber(jsonCharArray);
-            } else if (ch == 't') {
-                beginOffset = jsonOffset;
-                jsonOffset++;
-                if (jsonOffset >= jsonLength) {
-                    return OKJSON_ERROR_END_OF_BUFFER;
-                }
-                ch = jsonCharArray[jsonOffset];
-                if (ch == 'r') {
-                    jsonOffset++;
-                    if (jsonOffset >= jsonLength) {
-                        return OKJSON_ERROR_END_OF_BUFFER;
-                    }
-                    ch = jsonCharArray[jsonOffset];
-                    if (ch == 'u') {
-                        jsonOffset++;
-                        if (jsonOffset >= jsonLength) {
-                            return OKJSON_ERROR_END_OF_BUFFER;
-                        }
-                        ch = jsonCharArray[jsonOffset];
-                        if (ch == 'e') {
-                            tokenType = TokenType.TOKEN_TYPE_BOOL;
-                            booleanValue = true;
-                            endOffset = jsonOffset;
-                            jsonOffset++;
-                            return 0;
-                        }
-                    }
-                }
-            } else if (ch == 'f') {
-                beginOffset = jsonOffset;
-                jsonOffset++;
-                if (jsonOffset >= jsonLength) {
-                    return OKJSON_ERROR_END_OF_BUFFER;
-                }
-                ch = jsonCharArray[jsonOffset];
-                if (ch == 'a') {
-                    jsonOffset++;
-                    if (jsonOffset >= jsonLength) {
-                        return OKJSON_ERROR_END_OF_BUFFER;
-                    }
-                    ch = jsonCharArray[jsonOffset];
-                    if (ch == 'l') {
-                        jsonOffset++;
-                        if (jsonOffset >= jsonLength) {
-                            return OKJSON_ERROR_END_OF_BUFFER;
-                        }
-                        ch = jsonCharArray[jsonOffset];
-                        if (ch == 's') {
-                            jsonOffset++;
-                            if (jsonOffset >= jsonLength) {
-                                return OKJSON_ERROR_END_OF_BUFFER;
-                            }
-                            ch = jsonCharArray[jsonOffset];
-                            if (ch == 'e') {
-                                tokenType = TokenType.TOKEN_TYPE_BOOL;
-                                booleanValue = false;
-                                endOffset = jsonOffset;
-                                jsonOffset++;
-                                return 0;
-                            }
-                        }
-                    }
-                }
-            } else if (ch == 'n') {
-                beginOffset = jsonOffset;
-                jsonOffset++;
-                if (jsonOffset >= jsonLength) {
-                    return OKJSON_ERROR_END_OF_BUFFER;
-                }
-                ch = jsonCharArray[jsonOffset];
-                if (ch == 'u') {
-                    jsonOffset++;
-                    if (jsonOffset >= jsonLength) {
-                        return OKJSON_ERROR_END_OF_BUFFER;
-                    }
-                    ch = jsonCharArray[jsonOffset];
-                    if (ch == 'l') {
-                        jsonOffset++;
-                        if (jsonOffset >= jsonLength) {
-                            return OKJSON_ERROR_END_OF_BUFFER;
-                        }
-                        ch = jsonCharArray[jsonOffset];
-                        if (ch == 'l') {
-                            tokenType = TokenType.TOKEN_TYPE_NULL;
-                            booleanValue = true;
-                            endOffset = jsonOffset;
-                            jsonOffset++;
-                            return 0;
-                        }
-                    }
-                }
-            } else {
-                return fail(OKJSON_ERROR_INVALID_BYTE,"Invalid byte '" + ch + "'");
-            }
-        }
-
-        return fail(OKJSON_ERROR_END_OF_BUFFER, "");
-    }
-
-    Object convertTokenTo(
-            char[] json, TokenType t, int begin, int end, boolean boolValue,
-            @SuppressWarnings("rawtypes") Class target,  Field field) throws Exception {
-
-        if (t == TokenType.TOKEN_TYPE_NULL) return null;
-
-        String s = new String(json, begin, end - begin + 1);
-        if (target == String.class) {
-            StringBuilder sb = fieldStringBuilderCache.get();
-            return (sb.length() > 0) ? sb.toString() : s;
-        }
-        if (target == Boolean.class || target == boolean.class) {
-            return (t == TokenType.TOKEN_TYPE_BOOL) ? Boolean.valueOf(boolValue) : null;
-        }
-        if (Number.class.isAssignableFrom(target) || target.isPrimitive()) {
-            if (t == TokenType.TOKEN_TYPE_INTEGER || t == TokenType.TOKEN_TYPE_DECIMAL) {
-                if (target == Byte.class || target == byte.class)    return Byte.valueOf(s);
-                if (target == Short.class || target == short.class)  return Short.valueOf(s);
-                if (target == Integer.class || target == int.class)  return Integer.valueOf(s);
-                if (target == Long.class || target == long.class)    return Long.valueOf(s);
-                if (target == Float.class || target == float.class)  return Float.valueOf(s);
-                if (target == Double.class || target == double.class)return Double.valueOf(s);
-                // 兜底：尽量不丢失精度
-                if (t == TokenType.TOKEN_TYPE_INTEGER) return new BigInteger(s);
-                return new BigDecimal(s);
-            }
-            return null;
-        }
-        if (target == LocalDate.class) {
-            String pattern = resolvePattern(field, "yyyy-MM-dd");
-            return LocalDate.parse(s, DateTimeFormatter.ofPattern(pattern));
-        }
-        if (target == LocalTime.class) {
-            String pattern = resolvePattern(field, "HH:mm:ss");
-            return LocalTime.parse(s, DateTimeFormatter.ofPattern(pattern));
-        }
-        if (target == LocalDateTime.class) {
-            String pattern = resolvePattern(field, "yyyy-MM-dd HH:mm:ss");
-            return LocalDateTime.parse(s, DateTimeFormatter.ofPattern(pattern));
-        }
-        return null; // 其余类型这里不处理
+    public static <T> OkJsonArrayReader<T> arrayReader(Reader reader, Class<T> clazz, int options) {
+        // 迭代期间解析器一直被占用，不能使用线程缓存的那个
+        OkJsonParser p = new OkJsonParser();
+        applyOptions(p, Options.fromMask(options));
+        return new OkJsonArrayReader<T>(p, reader, clazz);
     }
 
-    String resolvePattern(Field field, String def) {
-        if (field != null && field.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
-            return field.getAnnotation(OkJsonDateTimeFormatter.class).format();
-        }
-        return def;
+    public static <T> OkJsonArrayReader<T> arrayReader(InputStream in, Class<T> clazz, int options) {
+        return arrayReader(new InputStreamReader(in, StandardCharsets.UTF_8), clazz, options);
     }
 
-    int addArrayObject(char[] json, TokenType vt, int vb, int ve,
-                       Object object, Field field) {
-
-        try {
-            Class<?> listType  = field.getType();
-            if (!List.class.isAssignableFrom(listType)) {
-                return strictPolicyEnable ? fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT,"") : 0;
-            }
-
-            // 取 List<T> 的 T
-            Type g = field.getGenericType();
-            if (!(g instanceof ParameterizedType)) return 0;
-            Class<?> elemType = (Class<?>) ((ParameterizedType) g).getActualTypeArguments()[0];
-
-            Object converted = convertTokenTo(json, vt, vb, ve, booleanValue, elemType, field);
-            if (converted == null && vt != TokenType.TOKEN_TYPE_NULL) {
-                return strictPolicyEnable ? fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT,"") : 0;
-            }
-            ((List<Object>) object).add(converted);
-            return 0;
-
-        } catch (Exception e) {
-            Log.error(e.getMessage(), e);
-            return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-        }
-
+    public static <T> OkJsonArrayReader<T> arrayReader(ByteBuffer buffer, Class<T> clazz, int options) {
+        return arrayReader(new OkJsonByteBufferReader(buffer), clazz, options);
     }
 
-    int stringToArrayObject(char[] jsonCharArray, Object object, Field field) {
-
-        TokenType valueTokenType;
-        int valueBeginOffset;
-        int valueEndOffset;
-
-        int nret;
-
-        while (true) {
-            // token "value" or '{'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
-                break;
-            }
-            if (nret != 0) {
-                return nret;
-            }
-
-            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
-                try {
-                    if (field != null) {
-                        Class<?> clazz = field.getType();
-                        if (clazz == ArrayList.class || clazz == LinkedList.class) {
-                            Type type = field.getGenericType();
-                            ParameterizedType pt = (ParameterizedType) type;
-                            Class<?> typeClazz = (Class<?>) pt.getActualTypeArguments()[0];
-                            Object childObject = newInstance(typeClazz);
-                            nret = stringToObjectProperties(jsonCharArray, childObject);
-                            if (nret != 0)
-                                return nret;
-
-                            ((List<Object>) object).add(childObject);
-                        }
-                    } else {
-                        nret = stringToObjectProperties(jsonCharArray, null);
-                        if (nret != 0)
-                            return nret;
-                    }
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            } else if (isTokenValueType(tokenType)) {
-                ;
-            } else {
-                int beginPos = endOffset - 16;
-                if (beginPos < 0)
-                    beginPos = 0;
-                return fail(OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE,
-                        "unexpect \"" + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
-            }
-
-            valueTokenType = tokenType;
-            valueBeginOffset = beginOffset;
-            valueEndOffset = endOffset;
-
-            // token ',' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
-                break;
-            }
-            if (nret != 0) {
-                return nret;
-            }
-
-            if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                if (object != null && field != null) {
-                    errorCode = addArrayObject(jsonCharArray, valueTokenType, valueBeginOffset, valueEndOffset,
-                            object, field);
-                    if (errorCode != 0)
-                        return errorCode;
-                }
-
-                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET)
-                    break;
-            } else {
-                return fail(OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE,
-                        "unexpect \"" + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
-            }
-        }
-
-        return 0;
+    public static <T> OkJsonArrayReader<T> fileArrayReader(String filePath, Class<T> clazz, int options)
+            throws IOException {
+        return arrayReader(OkJsonParser.newFileReader(filePath), clazz, options);
     }
-
-    private int setObjectProperty(char[] jsonCharArray, TokenType valueTokenType, int valueBeginOffset,
-                                  int valueEndOffset, Object object, Field field, Method method) {
-
-        StringBuilder fieldStringBuilder;
-
-        fieldStringBuilder = fieldStringBuilderCache.get();
-
-        if (field.getType() == String.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-                try {
-                    setString(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method,
-                            fieldStringBuilder);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Byte.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-                try {
-                    setByte(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Short.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-                try {
-                    setShort(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Integer.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-                try {
-                    setInteger(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Long.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-                try {
-                    setLong(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Float.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-                try {
-                    setFloat(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Double.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-                try {
-                    setDouble(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == Boolean.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
-                try {
-                    setBoolean(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType().getName().equals("byte") && valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-            try {
-                setByte2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("short") && valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-            try {
-                setShort2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("int") && valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-            try {
-                setInteger2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("long") && valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-            try {
-                setLong2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("float") && valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-            try {
-                setFloat2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("double") && valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-            try {
-                setDouble2(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType().getName().equals("boolean") && valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
-            try {
-                setBoolean2(object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (field.getType() == LocalDate.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-                try {
-                    setLocalDate(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method,
-                            fieldStringBuilder);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == LocalTime.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-                try {
-                    setLoadTime(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method,
-                            fieldStringBuilder);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (field.getType() == LocalDateTime.class) {
-            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-                try {
-                    setLocalDateTime(jsonCharArray, valueBeginOffset, valueEndOffset, object, field, method,
-                            fieldStringBuilder);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-                }
-            }
-        } else if (Enum.class.isAssignableFrom(field.getType()) && valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-            try {
-                setEnum(object, field, method, fieldStringBuilder);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
-            try {
-                setNull(object, field, method);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
-            }
-        } else {
-            if (strictPolicyEnable) return fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT,"");
-        }
-
-        return 0;
-    }
-
-    private void setNull(Object object, Field field, Method method) throws IllegalAccessException,
-            InvocationTargetException {
-        if (method != null) {
-            method.invoke(object, (Object) null);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, null);
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private void setEnum(Object object, Field field, Method method, StringBuilder fieldStringBuilder)
-            throws IllegalAccessException, InvocationTargetException {
-        Object o = Enum.valueOf(((Class<Enum>) field.getType()), fieldStringBuilder.toString());
-        if (method != null) {
-            method.invoke(object, o);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, o);
-        }
-    }
-
-    private void setLocalDateTime(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                                  Field field, Method method, StringBuilder fieldStringBuilder)
-            throws IllegalAccessException, InvocationTargetException {
-        OkJsonDateTimeFormatter okjsonDateTimeFormatter;
-        String defaultDateTimeFormatter;
-        LocalDateTime localDateTime;
-        if (field.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
-            okjsonDateTimeFormatter = field.getAnnotation(OkJsonDateTimeFormatter.class);
-            defaultDateTimeFormatter = okjsonDateTimeFormatter.format();
-        } else {
-            defaultDateTimeFormatter = "yyyy-MM-dd HH:mm:ss";
-        }
-        if (fieldStringBuilder.length() > 0) {
-            localDateTime = LocalDateTime.parse(fieldStringBuilder.toString(),
-                    DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        } else {
-            localDateTime = LocalDateTime.parse(new String(jsonCharArray, valueBeginOffset,
-                    valueEndOffset - valueBeginOffset +
-                            1), DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        }
-        if (method != null) {
-            method.invoke(object, localDateTime);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, localDateTime);
-        }
-    }
-
-    private void setLoadTime(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                             Field field, Method method, StringBuilder fieldStringBuilder) throws IllegalAccessException,
-            InvocationTargetException {
-        OkJsonDateTimeFormatter okjsonDateTimeFormatter;
-        String defaultDateTimeFormatter;
-        LocalTime localTime;
-        if (field.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
-            okjsonDateTimeFormatter = field.getAnnotation(OkJsonDateTimeFormatter.class);
-            defaultDateTimeFormatter = okjsonDateTimeFormatter.format();
-        } else {
-            defaultDateTimeFormatter = "HH:mm:ss";
-        }
-        if (fieldStringBuilder.length() > 0) {
-            localTime = LocalTime.parse(fieldStringBuilder.toString(),
-                    DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        } else {
-            localTime = LocalTime.parse(new String(jsonCharArray, valueBeginOffset,
-                    valueEndOffset - valueBeginOffset +
-                            1), DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        }
-        if (method != null) {
-            method.invoke(object, localTime);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, localTime);
-        }
-    }
-
-    private void setLocalDate(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                              Field field, Method method, StringBuilder fieldStringBuilder) throws IllegalAccessException,
-            InvocationTargetException {
-        OkJsonDateTimeFormatter okjsonDateTimeFormatter;
-        String defaultDateTimeFormatter;
-        LocalDate localDate;
-        if (field.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
-            okjsonDateTimeFormatter = field.getAnnotation(OkJsonDateTimeFormatter.class);
-            defaultDateTimeFormatter = okjsonDateTimeFormatter.format();
-        } else {
-            defaultDateTimeFormatter = "yyyy-MM-dd";
-        }
-        if (fieldStringBuilder.length() > 0) {
-            localDate = LocalDate.parse(fieldStringBuilder.toString(),
-                    DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        } else {
-            localDate = LocalDate.parse(new String(jsonCharArray, valueBeginOffset,
-                    valueEndOffset - valueBeginOffset +
-                            1), DateTimeFormatter.ofPattern(defaultDateTimeFormatter));
-        }
-        if (method != null) {
-            method.invoke(object, localDate);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, localDate);
-        }
-    }
-
-    private void setBoolean2(Object object, Field field, Method method) throws IllegalAccessException,
-            InvocationTargetException {
-        if (method != null) {
-            method.invoke(object, booleanValue);
-        } else if (directAccessPropertyEnable) {
-            field.setBoolean(object, booleanValue);
-        }
-    }
-
-    private void setDouble2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                            Field field, Method method) throws IllegalAccessException, InvocationTargetException {
-        double value = Double.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setDouble(object, value);
-        }
-    }
-
-    private void setFloat2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field
-            , Method method) throws IllegalAccessException, InvocationTargetException {
-        float value = Float.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setFloat(object, value);
-        }
-    }
-
-    private void setLong2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                          Method method) throws IllegalAccessException, InvocationTargetException {
-        long value =
-                Long.valueOf(new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setLong(object, value);
-        }
-    }
-
-    private void setInteger2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                             Field field, Method method) throws IllegalAccessException, InvocationTargetException {
-        int value = Integer.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setInt(object, value);
-        }
-    }
-
-    private void setShort2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field
-            , Method method) throws IllegalAccessException, InvocationTargetException {
-        short value = Integer.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1)).shortValue();
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setShort(object, value);
-        }
-    }
-
-    private void setByte2(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                          Method method) throws IllegalAccessException, InvocationTargetException {
-        byte value = Integer.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1)).byteValue();
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.setByte(object, value);
-        }
-    }
-
-    private void setBoolean(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                            Field field, Method method) throws IllegalAccessException, InvocationTargetException {
-        Boolean value = Boolean.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setDouble(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field
-            , Method method) throws IllegalAccessException, InvocationTargetException {
-        Double value = Double.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setFloat(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                          Method method) throws IllegalAccessException, InvocationTargetException {
-        Float value = Float.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setLong(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                         Method method) throws IllegalAccessException, InvocationTargetException {
-        Long value = Long.valueOf(new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setInteger(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object,
-                            Field field, Method method) throws IllegalAccessException, InvocationTargetException {
-        Integer value = Integer.valueOf(new String(jsonCharArray, valueBeginOffset,
-                valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setShort(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                          Method method) throws IllegalAccessException, InvocationTargetException {
-        Short value = Short.valueOf(new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setByte(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field,
-                         Method method) throws IllegalAccessException, InvocationTargetException {
-        Byte value = Byte.valueOf(new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1));
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private void setString(char[] jsonCharArray, int valueBeginOffset, int valueEndOffset, Object object, Field field
-            , Method method, StringBuilder fieldStringBuilder) throws IllegalAccessException,
-            InvocationTargetException {
-        String value;
-        if (fieldStringBuilder.length() > 0) {
-            value = fieldStringBuilder.toString();
-        } else {
-            value = new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1);
-        }
-        if (method != null) {
-            method.invoke(object, value);
-        } else if (directAccessPropertyEnable) {
-            field.set(object, value);
-        }
-    }
-
-    private int stringToObjectProperties(char[] jsonCharArray, Object object) {
-
-        Class clazz;
-        LinkedHashMap<String, Field> stringMapFields;
-        LinkedHashMap<String, Method> stringMapMethods;
-        Field[] fields;
-        Field field;
-        Method method = null;
-        TokenType fieldNameTokenType;
-        int fieldNameBeginOffset;
-        int fieldNameEndOffset;
-        String fieldName;
-        TokenType valueTokenType;
-        int valueBeginOffset;
-        int valueEndOffset;
-
-        int nret;
-
-        if (object != null) {
-            clazz = object.getClass();
-
-            stringMapFields = stringMapFieldsCache.get().get(clazz.getName());
-            if (stringMapFields == null) {
-                stringMapFields = new LinkedHashMap<String, Field>();
-                stringMapFieldsCache.get().put(clazz.getName(), stringMapFields);
-            }
-
-            stringMapMethods = stringMapMethodsCache.get().get(clazz.getName());
-            if (stringMapMethods == null) {
-                stringMapMethods = new LinkedHashMap<String, Method>();
-                stringMapMethodsCache.get().put(clazz.getName(), stringMapMethods);
-            }
-
-            if (stringMapFields.isEmpty()) {
-                fields = clazz.getDeclaredFields();
-                for (Field f : fields) {
-                    f.setAccessible(true);
-
-                    fieldName = f.getName();
-
-                    method = null;
-                    try {
-                        method = clazz.getMethod("set" + fieldName.substring(0, 1).toUpperCase(Locale.getDefault()) +
-                                fieldName.substring(1), f.getType());
-                        method.setAccessible(true);
-                    } catch (NoSuchMethodException e2) {
-                        ;
-                    } catch (SecurityException e2) {
-                        ;
-                    }
-
-
-                    if (method != null && Modifier.isPublic(method.getModifiers())) {
-                        stringMapMethods.put(fieldName, method);
-                        stringMapFields.put(fieldName, f);
-                    } else if (Modifier.isPublic(f.getModifiers())) {
-                        stringMapFields.put(fieldName, f);
-                    }
-                }
-            }
-        } else {
-            stringMapFields = null;
-            stringMapMethods = null;
-        }
-
-        while (true) {
-            // token "name"
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
-                break;
-            }
-            if (nret != 0) {
-                return nret;
-            }
-
-            fieldNameTokenType = tokenType;
-            fieldNameBeginOffset = beginOffset;
-            fieldNameEndOffset = endOffset;
-            fieldName = new String(jsonCharArray, fieldNameBeginOffset, fieldNameEndOffset - fieldNameBeginOffset + 1);
-
-            if (object != null) {
-                field = stringMapFields.get(fieldName);
-                if (field == null) {
-                    if (strictPolicyEnable == true)
-                        return OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT;
-                }
-
-                method = stringMapMethods.get(fieldName);
-            } else {
-                field = null;
-                method = null;
-            }
-
-            if (tokenType != TokenType.TOKEN_TYPE_STRING) {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect a name but \"" + found + "\"";
-                return OKJSON_ERROR_NAME_INVALID;
-            }
-
-            // token ':' or ',' or '}' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_COLON) {
-                ;
-            } else if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
-                clazz = field.getType();
-                if (clazz == ArrayList.class || clazz == LinkedList.class) {
-                    nret = addArrayObject(jsonCharArray, fieldNameTokenType, fieldNameBeginOffset, fieldNameEndOffset
-                            , object, field);
-
-                    if (nret != 0) return nret;
-
-                    if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) break;
-                }
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                break;
-            } else {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect ':' but \"" + found + "\"";
-                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
-            }
-
-            // token '{' or '[' or "value"
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            valueTokenType = tokenType;
-            valueBeginOffset = beginOffset;
-            valueEndOffset = endOffset;
-
-            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE || tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
-                try {
-                    Object childObject;
-
-                    if (field != null) {
-                        childObject = newInstance(field.getType());
-                        if (childObject == null)
-                            return OKJSON_ERROR_UNEXPECT;
-                    } else {
-                        childObject = null;
-                    }
-
-                    if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
-                        nret = stringToObjectProperties(jsonCharArray, childObject);
-                    } else {
-                        nret = stringToArrayObject(jsonCharArray, childObject, field);
-                    }
-                    if (nret != 0)
-                        return nret;
-
-                    if (field != null) {
-                        field.set(object, childObject);
-                    }
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return OKJSON_ERROR_EXCEPTION;
-                }
-            } else {
-                if (object != null && field != null) {
-                    nret = setObjectProperty(jsonCharArray, valueTokenType, valueBeginOffset, valueEndOffset, object,
-                            field, method);
-                    if (nret != 0)
-                        return nret;
-                }
-            }
-
-            // token ',' or '}' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_COMMA) {
-                ;
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
-                break;
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                break;
-            } else {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect ',' or '}' or ']' but \"" + found + "\"";
-                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
-            }
-        }
-
-        return 0;
-    }
-
-    private int addArrayMap(String value, TokenType valueTokenType, List<Object> list) {
-        try {
-            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-                StringBuilder sb = fieldStringBuilderCache.get();
-                list.add((sb != null && sb.length() > 0) ? sb.toString() : value);
-                sb.setLength(0); // 清空，避免后续误用旧内容
-            } else if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
-                list.add(null);
-            } else if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-                BigInteger v = new BigInteger(value);
-                list.add(v);
-            } else if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-                BigDecimal v = new BigDecimal(value);
-                list.add(v);
-            } else if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
-                list.add(booleanValue);
-            }
-        } catch (Exception e) {
-            Log.error(e.getMessage(), e);
-            return OKJSON_ERROR_EXCEPTION;
-        }
-
-        return 0;
-    }
-
-    private int stringToArrayMap(char[] jsonCharArray, List<Object> list) {
-
-        TokenType valueTokenType;
-        int valueBeginOffset;
-        int valueEndOffset;
-
-        int nret;
-
-        while (true) {
-            // 读到一个元素：值 / 对象 / 或者子数组
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
-                // 子对象
-                try {
-                    Map<String, Object> childObject = new LinkedHashMap<>();
-                    nret = toMapItems(jsonCharArray, childObject);
-                    if (nret != 0) return nret;
-
-                    list.add(childObject);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return OKJSON_ERROR_EXCEPTION;
-                }
-            } else if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
-                // 子数组（递归）
-                try {
-                    List<Object> childList = new LinkedList<>();
-                    nret = stringToArrayMap(jsonCharArray, childList);
-                    if (nret != 0) return nret;
-                    list.add(childList);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return OKJSON_ERROR_EXCEPTION;
-                }
-            }else if (isTokenValueType(tokenType)) {
-                // 原始值（数字/布尔/字符串）
-                ;
-            } else {
-                int beginPos = endOffset - 16; // ? 看不懂
-                if (beginPos < 0) beginPos = 0;
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "unexpect \"" + found + "\"";
-                return OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE;
-            }
-
-            valueTokenType = tokenType;
-            valueBeginOffset = beginOffset;
-            valueEndOffset = endOffset;
-
-            // token ',' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_COMMA ||
-                    tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                // 只有当本元素是“值类型”时，才在这里补充 list.add(...)
-                // （对象/子数组已经在上面提前 add 过了）
-                if (list != null && isTokenValueType(valueTokenType)) {
-                    String value = new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1);
-
-                    errorCode = addArrayMap(value, valueTokenType, list);
-
-                    if (errorCode != 0) return errorCode;
-                }
-
-                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) break;
-            } else {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "unexpect \"" + found + "\"";
-                return OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE;
-            }
-        }
-
-        return 0;
-    }
-
-    static boolean isTokenValueType(TokenType valueTokenType) {
-        return valueTokenType == TokenType.TOKEN_TYPE_STRING ||
-                valueTokenType == TokenType.TOKEN_TYPE_INTEGER ||
-                valueTokenType == TokenType.TOKEN_TYPE_DECIMAL ||
-                valueTokenType == TokenType.TOKEN_TYPE_BOOL ||
-                valueTokenType == TokenType.TOKEN_TYPE_NULL
-                ;
+    private static OkJsonParser getOkJsonParserApplied(Options opt) {
+        OkJsonParser p = getOkJsonParser();
+        applyOptions(p, opt);
+        return p;
     }
 
-    private int setMapItem(String value, TokenType valueTokenType, Map<String, Object> object, String field) {
-
-        StringBuilder fieldStringBuilder;
-
-        fieldStringBuilder = fieldStringBuilderCache.get();
-
-        if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
-            try {
-                object.put(field, fieldStringBuilder.length() > 0 ? fieldStringBuilder.toString() : value);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return OKJSON_ERROR_EXCEPTION;
-            }
-        } else if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
-            try {
-                // json 应该不会有很大的整数，用Long也足够了。
-                BigInteger v = new BigInteger(value);
-                object.put(field, v);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return OKJSON_ERROR_EXCEPTION;
-            }
-        } else if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
-            try {
-                BigDecimal v = new BigDecimal(value);
-                object.put(field, v);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return OKJSON_ERROR_EXCEPTION;
-            }
-        } else if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
-            try {
-                Boolean v = Boolean.valueOf(value);
-                object.put(field, v);
-            } catch (Exception e) {
-                Log.error(e.getMessage(), e);
-                return OKJSON_ERROR_EXCEPTION;
-            }
-        } else if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
-            // 不是每个Map都支持null, 这里简单忽略
-        }
-
-
-        return 0;
+    @SuppressWarnings({"rawtypes","unchecked"})
+    private static <T> T fillToSubclassMap(Class<T> clazz, Map<String,Object> src) throws Exception {
+        Map m = (Map) newInstance(clazz);
+        m.putAll(src);
+        return (T) m;
     }
-
-    int toMapItems(char[] jsonCharArray, Map<String, Object> map) {
-
-        TokenType fieldNameTokenType;
-        int fieldNameBeginOffset;
-        int fieldNameEndOffset;
-        String fieldName;
-
-        TokenType valueTokenType;
-        int valueBeginOffset;
-        int valueEndOffset;
-
-        int nret;
-
-        while (true) {
-            // token "name"
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            fieldNameTokenType = tokenType;
-            fieldNameBeginOffset = beginOffset;
-            fieldNameEndOffset = endOffset;
-            fieldName = new String(jsonCharArray, fieldNameBeginOffset, fieldNameEndOffset - fieldNameBeginOffset + 1);
-
-
-            if (tokenType != TokenType.TOKEN_TYPE_STRING) {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect a name but \"" + found + "\"";
-                return OKJSON_ERROR_NAME_INVALID;
-            }
-
-            // token ':' or ',' or '}' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_COLON) {
-                ;
-            } else if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
-                String value = new String(jsonCharArray, fieldNameBeginOffset,
-                        fieldNameEndOffset - fieldNameBeginOffset + 1);
-                nret = setMapItem(value, fieldNameTokenType, map, fieldName);
-                if (nret != 0) return nret;
-
-                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) break;
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                break;
-            } else {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect ':' but \"" + found + "\"";
-                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
-            }
-
-            // token '{' or '[' or "value"
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            valueTokenType = tokenType;
-            valueBeginOffset = beginOffset;
-            valueEndOffset = endOffset;
-
-            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
-                try {
-                    // sub map
-                    Map<String, Object> childObject = new LinkedHashMap<>();
-                    ;
-                    nret = toMapItems(jsonCharArray, (Map<String, Object>) childObject);
-                    if (nret != 0) return nret;
-                    map.put(fieldName, childObject);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return OKJSON_ERROR_EXCEPTION;
-                }
-            } else if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
-                try {
-                    //  sub List
-                    List<Object> childObject = new LinkedList<>();
-                    nret = stringToArrayMap(jsonCharArray, childObject);
-                    if (nret != 0) return nret;
-                    map.put(fieldName, childObject);
-                } catch (Exception e) {
-                    Log.error(e.getMessage(), e);
-                    return OKJSON_ERROR_EXCEPTION;
-                }
-            } else {
-                String value = new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1);
-                nret = setMapItem(value, valueTokenType, map, fieldName);
-                if (nret != 0) return nret;
-            }
-
-            // token ',' or '}' or ']'
-            nret = tokenJsonWord(jsonCharArray);
-            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
-            if (nret != 0) return nret;
-
-            if (tokenType == TokenType.TOKEN_TYPE_COMMA) {
-                ;
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
-                break;
-            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
-                break;
-            } else {
-                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
-                errorDesc = "expect ',' or '}' or ']' but \"" + found + "\"";
-                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
-            }
-        }
-
-        return 0;
+    @SuppressWarnings({"rawtypes","unchecked"})
+    private static <T> T fillToSubclassList(Class<T> clazz, List<Object> src) throws Exception {
+        List l = (List) newInstance(clazz);
+        l.addAll(src);
+        return (T) l;
     }
-
-    public <T> T fileToObject(String filePath, T object) {
-        String jsonString = null;
-
+    /**
+     * 解析 jsonString，Map/List 及其子类得到 Map/List，其它类型按字段绑定. 结果和错误码与 Reader/InputStream/ByteBuffer
+     * 的 toJson 相同，通过 {@link #getErrorCode()} 取得：
+     * <ul>
+     * <li>对象中没有对应字段的名字：默认跳过它的值；{@link #OPTIONS_STRICT_POLICY} 时返回
+     * {@link #OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT}；</li>
+     * <li>跳过的值是空对象或空数组时按语法错误返回 {@link #OKJSON_ERROR_NAME_INVALID} 或 {@link #OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE}；</li>
+     * <li>元素为对象的 List 字段不支持绑定，返回 {@link #OKJSON_ERROR_EXCEPTION}。</li>
+     * </ul>
+     */
+    public static <T> T toJson(String jsonString, Class<T> clazz, int options) {
+        Options opt = Options.fromMask(options);
         try {
-            jsonString = new String(Files.readAllBytes(Paths.get(filePath)));
-        } catch (IOException e) {
+            if (clazz == Map.class || Map.class.isAssignableFrom(clazz)) {
+                OkJsonParser p = getOkJsonParserApplied(opt);
+                Map<String, Object> m = p.toMap(jsonString);
+                errorCode.set(p.getErrorCode());
+                errorDesc.set(p.getErrorDesc());
+                return (m == null || Map.class.equals(clazz)) ? (T) m : fillToSubclassMap(clazz, m);
+            }
+            if (clazz == List.class || List.class.isAssignableFrom(clazz)) {
+                OkJsonParser p = getOkJsonParserApplied(opt);
+                List<Object> src = p.toList(jsonString);
+                errorCode.set(p.getErrorCode());
+                errorDesc.set(p.getErrorDesc());
+                return (src == null || List.class.equals(clazz)) ? (T) src : fillToSubclassList(clazz, src);
+            }
+            OkJsonParser p = getOkJsonParserApplied(opt);
+            T obj = newInstance(clazz);
+            obj = p.toJson(jsonString, obj);
+            errorCode.set(p.getErrorCode());
+            errorDesc.set(p.getErrorDesc());
+            return obj;
+        }  catch (Exception e) {
+            Log.error(e.getMessage(), e);
+            errorCode.set(OKJSON_ERROR_EXCEPTION);
+            errorDesc.set(e.getMessage());
             return null;
         }
-
-        return toJson(jsonString, object);
     }
 
-    public <T> T toJson(String jsonString, T object) {
-        char[] jsonCharArray;
+    public static <T> T toList(String jsonString, int options) {
+        final OkJsonParser okjsonParser = getOkJsonParserApplied(Options.fromMask(options));
 
-        jsonCharArray = jsonString.toCharArray();
-        jsonOffset = 0;
-        jsonLength = jsonCharArray.length;
+        List<Object> list = okjsonParser.toList(jsonString);
+        errorCode.set(okjsonParser.getErrorCode());
+        errorDesc.set(okjsonParser.getErrorDesc());
+        return (T) list;
+    }
 
-        errorCode = tokenJsonWord(jsonCharArray);
-        if (errorCode != 0) {
-            return null;
-        }
+    public static Map<String, Object> toMap(String jsonString, int options) {
+        final OkJsonParser okjsonParser = getOkJsonParserApplied(Options.fromMask(options));
 
-        if (tokenType != TokenType.TOKEN_TYPE_LEFT_BRACE) {
-            errorCode = OKJSON_ERROR_FIND_FIRST_LEFT_BRACE;
-            return null;
-        }
+        Map<String, Object> object = okjsonParser.toMap(jsonString);
 
-        errorCode = stringToObjectProperties(jsonCharArray, object);
-        if (errorCode != 0)
-            return null;
+        errorCode.set(okjsonParser.getErrorCode());
+        errorDesc.set(okjsonParser.getErrorDesc());
 
         return object;
     }
 
-    public Map<String, Object> toMap(String jsonString) {
-        char[] jsonCharArray;
-
-        jsonCharArray = jsonString.toCharArray();
-        jsonOffset = 0;
-        jsonLength = jsonCharArray.length;
-
-        errorCode = tokenJsonWord(jsonCharArray);
-        if (errorCode != 0) {
-            return null;
-        }
-
-        if (tokenType != TokenType.TOKEN_TYPE_LEFT_BRACE) {
-            errorCode = OKJSON_ERROR_FIND_FIRST_LEFT_BRACE;
-            return null;
-        }
-
-        Map<String, Object> object = new LinkedHashMap<>();
-        errorCode = toMapItems(jsonCharArray, object);
-
-        if (errorCode != 0) return null;
-
-        return object;
+    /**
+     * 当前线程的解析器. 解析开始时会清除上次的错误和输入，不需要加锁.
+     *
+     * @return {@link OkJsonParser}
+     */
+    static OkJsonParser getOkJsonParser() {
+        return okjsonParserCache.get();
     }
 
-    public Map<String, Object> fileToMap(String filePath) {
-        String jsonString = null;
+    /**
+     * 当前线程的生成器，同 {@link #getOkJsonParser()}.
+     *
+     * @return {@link OkJsonGenerator}
+     */
+    static OkJsonGenerator getOkJsonGenerator() {
+        return okjsonGeneratorCache.get();
+    }
+    // ====== 封装统一应用 ======
+    static void applyOptions(OkJsonParser p, Options o) {
+        p.setDirectAccessPropertyEnable(o.direct);
+        p.setStrictPolicyEnable(o.strict);
+    }
+    static void applyOptions(OkJsonGenerator g, Options o) {
+        g.setDirectAccessPropertyEnable(o.direct);
+        g.setPrettyFormatEnable(o.pretty);
+        g.setNullEnable(o.nullable);
+    }
+    // 统一构造
+    static <T> T newInstance(Class<T> clazz) throws Exception {
+        return OkJsonBinding.newInstance(clazz);
+    }
+}
 
-        try {
-            jsonString = new String(Files.readAllBytes(Paths.get(filePath)));
-        } catch (IOException e) {
-            return null;
-        }
+// ====== 集中管理选项 ======
+final class Options {
+    final boolean direct;
+    final boolean pretty;
+    final boolean strict;
+    final boolean nullable;
 
-        return toMap(jsonString);
+    private Options(boolean direct, boolean pretty, boolean strict, boolean nullable) {
+        this.direct = direct; this.pretty = pretty; this.strict = strict; this.nullable = nullable;
     }
-    public List<Object> toList(String jsonString) {
-        char[] jsonCharArray = jsonString.toCharArray();
-        jsonOffset = 0;
-        jsonLength = jsonCharArray.length;
-
-        errorCode = tokenJsonWord(jsonCharArray);
-        if (errorCode != 0) return null;
+    private static final int       MASK_ALL = OKJSON.OPTIONS_DIRECT_ACCESS_PROPERTY_ENABLE
+            | OKJSON.OPTIONS_PRETTY_FORMAT_ENABLE | OKJSON.OPTIONS_STRICT_POLICY | OKJSON.OPTIONS_NULLABLE;
+    /** 选项只有 16 种组合，预先建好，每次调用不再分配. */
+    private static final Options[] BY_MASK  = new Options[MASK_ALL + 1];
 
-        if (tokenType != TokenType.TOKEN_TYPE_LEFT_BRACKET) {
-            errorDesc = "expect '['";
-            errorCode = OKJSON_ERROR_UNEXPECT; // 也可按需新增专门错误码
-            return null;
+    static {
+        for (int mask = 0; mask <= MASK_ALL; mask++) {
+            BY_MASK[mask] = new Options(
+                    (mask & OKJSON.OPTIONS_DIRECT_ACCESS_PROPERTY_ENABLE) != 0,
+                    (mask & OKJSON.OPTIONS_PRETTY_FORMAT_ENABLE) != 0,
+                    (mask & OKJSON.OPTIONS_STRICT_POLICY) != 0,
+                    (mask & OKJSON.OPTIONS_NULLABLE) != 0
+            );
         }
-
-        List<Object> list = new LinkedList<>();
-        errorCode = stringToArrayMap(jsonCharArray, list);
-        if (errorCode != 0) return null;
-
-        return list;
     }
 
-    public OkJsonParser() {
-        this.strictPolicyEnable = false;
-        this.directAccessPropertyEnable = false;
-        this.prettyFormatEnable = false;
-        this.errorCode = 0;
-        this.errorDesc = null;
+    static Options fromMask(int mask) {
+        return BY_MASK[mask & MASK_ALL];
     }
 }
 
 @Getter
 @Setter
 class OkJsonGenerator {
-    @Data
-    static class OkJsonClassField {
-        char[] fieldName;
-        ClassFieldType type;
-        Field field;
-        Method getter;
-        OkJsonDateTimeFormatter okjsonDateTimeFormatter;
-
-        @SuppressWarnings("unchecked")
-        <T> T getFieldValue(Object object)
-                throws Exception {
-            T value = null;
-            if (getter != null) {
-                value = (T) (getter.invoke(object));
-            } else {
-                value = (T) (field.get(object));
-            }
-            return value;
-        }
-    }
-
-    enum ClassFieldType {
-        STRING,
-        SCALAR,
-        LOCAL_DATE,
-        LOCAL_TIME,
-        LOCAL_DATE_TIME,
-        LIST,
-        ARRAY,
-        SUBCLASS,
-        MAP,
-        ENUM,
-    }
-
-    private static final ThreadLocal<LinkedHashMap<String, LinkedList<OkJsonClassField>>>
-            classMapFieldListCache = ThreadLocal.withInitial(LinkedHashMap::new);
     private static final ThreadLocal<OkJsonCharArrayBuilder>
             jsonByteArrayBuilderCache = ThreadLocal.withInitial(() -> new OkJsonCharArrayBuilder(1024));
     private static final ThreadLocal<OkJsonCharArrayBuilder>
             fieldByteArrayBuilderCache = ThreadLocal.withInitial(() -> new OkJsonCharArrayBuilder(1024));
-    private static final ThreadLocal<LinkedHashMap<Class<?>, Boolean>>
-            basicTypeClassMapBooleanCache = ThreadLocal.withInitial(OkJsonGenerator::createBasicTypes);
+    /** 写入流时使用的缓冲区大小（字符），写满即输出，不随文档变大. */
+    static final int STREAM_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<OkJsonCharArrayBuilder>
+            streamBuilderCache = ThreadLocal.withInitial(() -> new OkJsonCharArrayBuilder(STREAM_BUFFER_SIZE));
 
     static final char SEP_FIELD_CHAR = ',';
     static final char[] SEP_FIELD_CHAR_PRETTY = ",\n".toCharArray();
     static final String NULL_STRING = "null";
-
-    static LinkedHashMap<Class<?>, Boolean> createBasicTypes() {
-        LinkedHashMap<Class<?>, Boolean> basicTypeClassMapString = new LinkedHashMap<>();
-        basicTypeClassMapString.put(String.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Byte.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Short.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Integer.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Long.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Float.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Double.class, Boolean.TRUE);
-        basicTypeClassMapString.put(Boolean.class, Boolean.TRUE);
-        basicTypeClassMapString.put(LocalDate.class, Boolean.TRUE);
-        basicTypeClassMapString.put(LocalTime.class, Boolean.TRUE);
-        basicTypeClassMapString.put(LocalDateTime.class, Boolean.TRUE);
-        basicTypeClassMapString.put(BigInteger.class, Boolean.TRUE);
-        basicTypeClassMapString.put(BigDecimal.class, Boolean.TRUE);
-        return basicTypeClassMapString;
-    }
-
-    static void setClassType(Class<?> type, OkJsonClassField classField) {
-        if (type == null) return;
-
-        LinkedHashMap<Class<?>, Boolean> basicTypeClassMapBoolean = basicTypeClassMapBooleanCache.get();
-
-        if (type == String.class) classField.type = ClassFieldType.STRING;
-        else if (type.isArray()) classField.type = ClassFieldType.ARRAY;
-        else if (type == LocalDate.class) classField.type = ClassFieldType.LOCAL_DATE;
-        else if (type == LocalTime.class) classField.type = ClassFieldType.LOCAL_TIME;
-        else if (type == LocalDateTime.class) classField.type = ClassFieldType.LOCAL_DATE_TIME;
-        else if (List.class.isAssignableFrom(type)) classField.type = ClassFieldType.LIST;
-        else if (Map.class.isAssignableFrom(type)) classField.type = ClassFieldType.MAP;
-        else if (basicTypeClassMapBoolean.get(type) != null
-                || type.isPrimitive()
-                || (Number.class.isAssignableFrom(type)))
-            classField.type = ClassFieldType.SCALAR;
-        else if (Enum.class.isAssignableFrom(type)) classField.type = ClassFieldType.ENUM;
-        else classField.type = ClassFieldType.SUBCLASS;
-    }
-
-    static LinkedList<OkJsonClassField> ensureClassFieldListFilled(
-            Class<?> clazz) {
-        LinkedList<OkJsonClassField> classFieldList = classMapFieldListCache.get()
-                .computeIfAbsent(clazz.getName(), k -> new LinkedList<>());
-        if (classFieldList.isEmpty()) {
-            Field[] fields = clazz.getDeclaredFields();
-            for (Field f : fields) {
-                createOkJsonClassFieldWithBeanField(classFieldList, clazz, f);
-            }
-        }
-
-        return classFieldList;
-    }
-
-    static void createOkJsonClassFieldWithBeanField(
-            LinkedList<OkJsonClassField> classFieldList, Class<?> clazz, Field f) {
-        f.setAccessible(true);
-        OkJsonClassField classField = new OkJsonClassField();
-
-        if (f.isAnnotationPresent(OkJsonField.class)) {
-            classField.fieldName =
-                    f.getAnnotation(OkJsonField.class).value().toCharArray();
-        } else {
-            classField.fieldName = f.getName().toCharArray();
-        }
-
-        classField.field = f;
-        Class<?> type = f.getType();
-        setClassType(type, classField);
-
-        try {
-            String methodName;
-            if (type == Boolean.class || type.getName().equals("boolean")) {
-                methodName = "is" + capitalWord(f);
-                Method method = clazz.getMethod(methodName);
-                if (method != null) {
-                    classField.getter = method;
-                    classField.getter.setAccessible(true);
-                    if (method.isAnnotationPresent(OkJsonField.class)) {
-                        classField.fieldName =
-                                method.getAnnotation(OkJsonField.class).value().toCharArray();
-                    }
-                }
-            }
-
-            if (classField.getter == null) {
-                methodName = "get" + capitalWord(f);
-                Method method = clazz.getMethod(methodName);
-                if (method != null) {
-                    classField.getter = method;
-                    classField.getter.setAccessible(true);
-                    if (method.isAnnotationPresent(OkJsonField.class)) {
-                        classField.fieldName =
-                                method.getAnnotation(OkJsonField.class).value().toCharArray();
-                    }
-                }
-            }
-        } catch (NoSuchMethodException e) {
-            // ignored
-        }
-
-        if (f.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
-            classField.okjsonDateTimeFormatter =
-                    f.getAnnotation(OkJsonDateTimeFormatter.class);
-        } else {
-            classField.okjsonDateTimeFormatter = null;
-        }
-
-        if (Modifier.isPublic(f.getModifiers())) {
-            classFieldList.add(classField);
-        } else if (classField.getter != null
-                && Modifier.isPublic(classField.getter.getModifiers())) {
-            classFieldList.add(classField);
-        }
-    }
-
-    static String capitalWord(Field f) {
-        return f.getName().substring(0, 1).toUpperCase(Locale.getDefault()) +
-                f.getName().substring(1);
-    }
+    /** 数组和 List 元素的日期时间格式. */
+    static final DateTimeFormatter ELEMENT_LOCAL_TIME_FORMATTER      = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    static final DateTimeFormatter ELEMENT_LOCAL_DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
 
     private boolean strictPolicyEnable;
     private boolean directAccessPropertyEnable;
@@ -1953,9 +410,9 @@ class OkJsonGenerator {
 
     public void stringifyToFile(Object object, String filePath) {
 
-        try {
-            String jsonString = stringify(object);
-            Files.write(Paths.get(filePath), jsonString.getBytes(), StandardOpenOption.WRITE);
+        try (OutputStream out = Files.newOutputStream(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            stringify(object, out);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -1972,25 +429,84 @@ class OkJsonGenerator {
         if (object == null) return "null";
         if (object instanceof String) {
             return object.toString();
-        } else if (object instanceof List) {
-            return stringifyList((List) object);
-        } else if (object.getClass().isArray()) {
-            return stringifyArray(object);
-        } else if (object instanceof Map) {
-            return stringifyMap((Map<String, Object>) object);
         }
 
-
         OkJsonCharArrayBuilder jsonCharArrayBuilder;
         jsonCharArrayBuilder = jsonByteArrayBuilderCache.get();
         jsonCharArrayBuilder.setLength(0);
 
-        beginObject(jsonCharArrayBuilder);
-        stringifyObject(object, jsonCharArrayBuilder, 0);
-        endObject(jsonCharArrayBuilder, 0);
+        stringify(object, jsonCharArrayBuilder);
         return jsonCharArrayBuilder.toString();
+    }
+
+    /**
+     * 转换对象成JSON，边生成边写入 writer，只占用固定大小的缓冲区. writer 由调用方关闭.
+     *
+     * @param object 对象
+     * @param writer 输出
+     */
+    public void stringify(Object object, Writer writer) throws Exception {
+        OkJsonCharArrayBuilder jsonCharArrayBuilder = streamBuilderCache.get();
+        jsonCharArrayBuilder.attach(writer);
+        stringifyToStream(object, jsonCharArrayBuilder);
+    }
+
+    /**
+     * 转换对象成JSON，按 UTF-8 直接编码后写入 out. out 由调用方关闭.
+     *
+     * @param object 对象
+     * @param out    输出
+     */
+    public void stringify(Object object, OutputStream out) throws Exception {
+        OkJsonCharArrayBuilder jsonCharArrayBuilder = streamBuilderCache.get();
+        jsonCharArrayBuilder.attach(out);
+        stringifyToStream(object, jsonCharArrayBuilder);
+    }
+
+    /**
+     * 转换对象成JSON，按 UTF-8 直接编码后写入 channel（需为阻塞模式）. channel 由调用方关闭.
+     *
+     * @param object  对象
+     * @param channel 输出
+     */
+    public void stringify(Object object, WritableByteChannel channel) throws Exception {
+        OkJsonCharArrayBuilder jsonCharArrayBuilder = streamBuilderCache.get();
+        jsonCharArrayBuilder.attach(channel);
+        stringifyToStream(object, jsonCharArrayBuilder);
+    }
 
+    private void stringifyToStream(Object object, OkJsonCharArrayBuilder jsonCharArrayBuilder) throws Exception {
+        try {
+            stringify(object, jsonCharArrayBuilder);
+            jsonCharArrayBuilder.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            jsonCharArrayBuilder.detach();
+            // 写过超长字段时缓冲区会被撑大，不留在线程缓存里
+            if (jsonCharArrayBuilder.bufSize > STREAM_BUFFER_SIZE) {
+                streamBuilderCache.remove();
+            }
+        }
+    }
 
+    @SuppressWarnings("unchecked")
+    void stringify(Object object, OkJsonCharArrayBuilder jsonCharArrayBuilder) throws Exception {
+        if (object == null) {
+            jsonCharArrayBuilder.appendString(NULL_STRING);
+        } else if (object instanceof String) {
+            jsonCharArrayBuilder.appendString(object.toString());
+        } else if (object instanceof List) {
+            stringifyList((List) object, jsonCharArrayBuilder);
+        } else if (object.getClass().isArray()) {
+            stringifyArray(object, jsonCharArrayBuilder);
+        } else if (object instanceof Map) {
+            stringifyMap((Map<String, Object>) object, jsonCharArrayBuilder);
+        } else {
+            beginObject(jsonCharArrayBuilder);
+            stringifyObject(object, jsonCharArrayBuilder, 0);
+            endObject(jsonCharArrayBuilder, 0);
+        }
     }
 
     void stringifyObject(Object object, OkJsonCharArrayBuilder jsonCharArrayBuilder, int depth)
@@ -2001,8 +517,7 @@ class OkJsonGenerator {
             stringifyMap((Map<String, Object>) object, jsonCharArrayBuilder, depth + 1);
         } else {
             clazz = object.getClass();
-            LinkedList<OkJsonClassField> classFieldList;
-            classFieldList = ensureClassFieldListFilled(clazz);
+            OkJsonClassField[] classFieldList = OkJsonBinding.of(clazz).readFields;
             int fieldIndex = 0;
             for (OkJsonClassField classField : classFieldList) {
                 Object value = classField.getFieldValue(object);
@@ -2024,15 +539,10 @@ class OkJsonGenerator {
 
     }
 
-    String stringifyMap(Map<String, Object> object) throws Exception {
-        if (object == null) return "null";
-        OkJsonCharArrayBuilder jsonCharArrayBuilder = jsonByteArrayBuilderCache.get();
-        jsonCharArrayBuilder.setLength(0);
-
+    void stringifyMap(Map<String, Object> object, OkJsonCharArrayBuilder jsonCharArrayBuilder) throws Exception {
         beginObject(jsonCharArrayBuilder);
         stringifyMap(object, jsonCharArrayBuilder, 0);
         endObject(jsonCharArrayBuilder, 0);
-        return jsonCharArrayBuilder.toString();
     }
 
     void stringifyMap(Map<String, Object> m, OkJsonCharArrayBuilder jsonCharArrayBuilder, int depth)
@@ -2054,8 +564,7 @@ class OkJsonGenerator {
 
             OkJsonClassField classField = new OkJsonClassField();
             classField.fieldName = k.toCharArray();
-            Class<?> type = value.getClass();
-            setClassType(type, classField);
+            classField.type = OkJsonBinding.valueField(value.getClass()).type;
 
             fieldIndex++;
             new FieldWriter(jsonCharArrayBuilder, depth, classField, fieldIndex, value).write();
@@ -2066,21 +575,13 @@ class OkJsonGenerator {
     }
 
     @SuppressWarnings("rawtypes")
-    String stringifyList(List list) throws Exception {
-        if (list == null) return "null";
-
-        OkJsonCharArrayBuilder jsonCharArrayBuilder = jsonByteArrayBuilderCache.get();
-        jsonCharArrayBuilder.setLength(0);
+    void stringifyList(List list, OkJsonCharArrayBuilder jsonCharArrayBuilder) throws Exception {
         beginArray(jsonCharArrayBuilder);
 
         // handle Array
         int length = list.size();
         for (int i = 0; i < length; i++) {
             Object value = list.get(i);
-            OkJsonClassField classField = new OkJsonClassField();
-            classField.fieldName = null;
-            Class<?> type = value.getClass();
-            setClassType(type, classField);
 
             writeCommaWithDepth(jsonCharArrayBuilder,  1,  i);
 
@@ -2089,40 +590,24 @@ class OkJsonGenerator {
                 continue;
             }
 
-            new ElementWriter(value, classField, jsonCharArrayBuilder, 1).write();
+            new ElementWriter(value, OkJsonBinding.valueField(value.getClass()), jsonCharArrayBuilder, 1).write();
         }
         jsonCharArrayBuilder.appendEnter(prettyFormatEnable);
         jsonCharArrayBuilder.appendChar(']');
-        return jsonCharArrayBuilder.toString();
     }
 
-    String stringifyArray(Object object) throws Exception {
-        if (object == null) return "null";
+    void stringifyArray(Object object, OkJsonCharArrayBuilder jsonCharArrayBuilder) throws Exception {
         if (!object.getClass().isArray()) {
             throw new IllegalArgumentException("Object is not an array");
         }
 
-        if (classMapFieldListCache.get() == null) classMapFieldListCache.set(new LinkedHashMap<>());
-        OkJsonCharArrayBuilder jsonCharArrayBuilder;
-        if (jsonByteArrayBuilderCache.get() == null) {
-            jsonCharArrayBuilder = new OkJsonCharArrayBuilder(1024);
-            jsonByteArrayBuilderCache.set(jsonCharArrayBuilder);
-        } else {
-            jsonCharArrayBuilder = jsonByteArrayBuilderCache.get();
-        }
-        jsonCharArrayBuilder.setLength(0);
         if (fieldByteArrayBuilderCache.get() == null) fieldByteArrayBuilderCache.set(new OkJsonCharArrayBuilder(1024));
-        if (basicTypeClassMapBooleanCache.get() == null) basicTypeClassMapBooleanCache.set(createBasicTypes());
 
         beginArray(jsonCharArrayBuilder);
         // handle Array
         int length = Array.getLength(object);
         for (int i = 0; i < length; i++) {
             Object value = Array.get(object, i);
-            OkJsonClassField classField = new OkJsonClassField();
-            classField.fieldName = null;
-            Class<?> type = value.getClass();
-            setClassType(type, classField);
 
             writeCommaWithDepth(jsonCharArrayBuilder,  0,  i);
             if (value == null) {
@@ -2130,12 +615,11 @@ class OkJsonGenerator {
                 continue;
             }
 
-            new ElementWriter(value, classField, jsonCharArrayBuilder, 0).write();
+            new ElementWriter(value, OkJsonBinding.valueField(value.getClass()), jsonCharArrayBuilder, 0).write();
 
         }
         jsonCharArrayBuilder.appendEnter(prettyFormatEnable);
         jsonCharArrayBuilder.appendChar(']');
-        return jsonCharArrayBuilder.toString();
     }
 
     String unfoldEscape(String value) {
@@ -2265,9 +749,7 @@ class OkJsonGenerator {
                 jsonCharArrayBuilder.appendString("null");
                 continue;
             }
-            OkJsonClassField cf = new OkJsonClassField();
-            setClassType(object.getClass(), cf);
-            new ElementWriter(object, cf, jsonCharArrayBuilder, depth).write();
+            new ElementWriter(object, OkJsonBinding.valueField(object.getClass()), jsonCharArrayBuilder, depth).write();
         }
         jsonCharArrayBuilder.appendEnter(prettyFormatEnable);
         endArray(jsonCharArrayBuilder, depth);
@@ -2319,9 +801,7 @@ class OkJsonGenerator {
                 jsonCharArrayBuilder.appendString("null");
                 continue;
             }
-            OkJsonClassField cf = new OkJsonClassField();
-            setClassType(object.getClass(), cf);
-            new ElementWriter(object, cf, jsonCharArrayBuilder, depth).write();
+            new ElementWriter(object, OkJsonBinding.valueField(object.getClass()), jsonCharArrayBuilder, depth).write();
         }
 
         jsonCharArrayBuilder.appendEnter(prettyFormatEnable);
@@ -2406,37 +886,27 @@ class OkJsonGenerator {
 
         void writeLocalDateTime() {
             LocalDateTime localDateTime = (LocalDateTime) value;
-            String dateTimeFormatter;
-            if (classField.okjsonDateTimeFormatter != null) {
-                dateTimeFormatter = classField.okjsonDateTimeFormatter.format();
-            } else {
-                dateTimeFormatter = "yyyy-MM-dd'T'HH:mm:ss.SSS";
-            }
-            String localDateTimeString = DateTimeFormatter.ofPattern(dateTimeFormatter).format(localDateTime);
+            DateTimeFormatter dateTimeFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : ELEMENT_LOCAL_DATE_TIME_FORMATTER;
+            String localDateTimeString = dateTimeFormatter.format(localDateTime);
             if (prettyFormatEnable) jsonCharArrayBuilder.appendTabs(depth + 1);
             jsonCharArrayBuilder.appendJsonStringWithQuote(localDateTimeString);
         }
 
         void writeLocalTime() {
             LocalTime localTime = (LocalTime) value;
-            String timeFormatter;
-            if (classField.okjsonDateTimeFormatter != null) {
-                timeFormatter = classField.okjsonDateTimeFormatter.format();
-            } else {
-                timeFormatter = "HH:mm:ss.SSS";
-            }
-            String localTimeString = DateTimeFormatter.ofPattern(timeFormatter).format(localTime);
+            DateTimeFormatter timeFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : ELEMENT_LOCAL_TIME_FORMATTER;
+            String localTimeString = timeFormatter.format(localTime);
             if (prettyFormatEnable) jsonCharArrayBuilder.appendTabs(depth + 1);
             jsonCharArrayBuilder.appendJsonStringWithQuote(localTimeString);
         }
 
         void writeLocalDate() {
             LocalDate localDate = (LocalDate) value;
-            String dateFormatter = "yyyy-MM-dd";
-            if (classField.okjsonDateTimeFormatter != null) {
-                dateFormatter = classField.okjsonDateTimeFormatter.format();
-            }
-            String localDateString = DateTimeFormatter.ofPattern(dateFormatter).format(localDate);
+            DateTimeFormatter dateFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : OkJsonBinding.LOCAL_DATE_FORMATTER;
+            String localDateString = dateFormatter.format(localDate);
             jsonCharArrayBuilder.appendJsonStringWithQuote(localDateString);
         }
     }
@@ -2521,10 +991,9 @@ class OkJsonGenerator {
 
         void writeLocalDateTimeField() {
             LocalDateTime localDateTime = (LocalDateTime) value;
-            String defaultDateTimeFormatter = "yyyy-MM-dd HH:mm:ss";
-            if (classField.okjsonDateTimeFormatter != null)
-                defaultDateTimeFormatter = classField.okjsonDateTimeFormatter.format();
-            String localDateTimeString = DateTimeFormatter.ofPattern(defaultDateTimeFormatter).format(localDateTime);
+            DateTimeFormatter dateTimeFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : OkJsonBinding.LOCAL_DATE_TIME_FORMATTER;
+            String localDateTimeString = dateTimeFormatter.format(localDateTime);
             if (prettyFormatEnable) {
                 jsonCharArrayBuilder.appendTabs(depth + 1);
                 jsonCharArrayBuilder.appendPairWithQuotePretty(classField.fieldName, localDateTimeString);
@@ -2535,10 +1004,9 @@ class OkJsonGenerator {
 
         void writeLocalTimeField() {
             LocalTime localTime = (LocalTime) value;
-            String defaultDateTimeFormatter = "HH:mm:ss";
-            if (classField.okjsonDateTimeFormatter != null)
-                defaultDateTimeFormatter = classField.okjsonDateTimeFormatter.format();
-            String localTimeString = DateTimeFormatter.ofPattern(defaultDateTimeFormatter).format(localTime);
+            DateTimeFormatter dateTimeFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : OkJsonBinding.LOCAL_TIME_FORMATTER;
+            String localTimeString = dateTimeFormatter.format(localTime);
             if (prettyFormatEnable) {
                 jsonCharArrayBuilder.appendTabs(depth + 1);
                 jsonCharArrayBuilder.appendPairWithQuotePretty(classField.fieldName, localTimeString);
@@ -2549,10 +1017,9 @@ class OkJsonGenerator {
 
         void writeLocalDateField() {
             LocalDate localDate = (LocalDate) value;
-            String defaultDateTimeFormatter = "yyyy-MM-dd";
-            if (classField.okjsonDateTimeFormatter != null)
-                defaultDateTimeFormatter = classField.okjsonDateTimeFormatter.format();
-            String localDateString = DateTimeFormatter.ofPattern(defaultDateTimeFormatter).format(localDate);
+            DateTimeFormatter dateTimeFormatter = classField.dateTimeFormatter != null
+                    ? classField.dateTimeFormatter : OkJsonBinding.LOCAL_DATE_FORMATTER;
+            String localDateString = dateTimeFormatter.format(localDate);
             if (prettyFormatEnable) {
                 jsonCharArrayBuilder.appendTabs(depth + 1);
                 jsonCharArrayBuilder.appendPairWithQuotePretty(classField.fieldName, localDateString);
@@ -2618,6 +1085,11 @@ class OkJsonCharArrayBuilder {
 
     final private static String TABS = "\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t";
 
+    private Writer              writer;
+    private OutputStream        outputStream;
+    private WritableByteChannel channel;
+    private byte[]              byteBuf;
+
     public OkJsonCharArrayBuilder() {
         this(16);
     }
@@ -2628,10 +1100,25 @@ class OkJsonCharArrayBuilder {
         this.bufLength = 0;
     }
 
-    private void resize(int newSize) {
+    /**
+     * 空间不足时调用. 连接了输出时先把已有内容写出，只有单次追加的内容比整个缓冲区还长才扩大；
+     * 否则按原来的方式扩大缓冲区.
+     *
+     * @param newSize 追加后需要的长度
+     * @return 写出后追加完成时的长度
+     */
+    private int resize(int newSize) {
         char[] newBuf;
         int newBufSize;
 
+        if (hasOutput()) {
+            int appendLength = newSize - bufLength;
+            flush(false);
+            newSize = bufLength + appendLength;
+            if (newSize <= bufSize)
+                return newSize;
+        }
+
         if (bufSize < 10240240) {
             newBufSize = bufSize * 2;
         } else {
@@ -2643,12 +1130,129 @@ class OkJsonCharArrayBuilder {
         System.arraycopy(buf, 0, newBuf, 0, bufLength);
         buf = newBuf;
         bufSize = newBufSize;
+        return newSize;
+    }
+
+    // ====== 输出：连接后缓冲区写满即写出，生成过程只占用固定大小的内存 ======
+
+    void attach(Writer writer) {
+        detach();
+        this.writer = writer;
+    }
+
+    void attach(OutputStream out) {
+        detach();
+        this.outputStream = out;
+    }
+
+    void attach(WritableByteChannel channel) {
+        detach();
+        this.channel = channel;
+    }
+
+    void detach() {
+        writer = null;
+        outputStream = null;
+        channel = null;
+        bufLength = 0;
+    }
+
+    private boolean hasOutput() {
+        return writer != null || outputStream != null || channel != null;
+    }
+
+    /**
+     * 把缓冲区中的内容全部写出.
+     */
+    void flush() {
+        flush(true);
+        try {
+            if (writer != null) {
+                writer.flush();
+            } else if (outputStream != null) {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param complete 为 false 时末尾落单的高代理项留到下次和低代理项一起编码
+     */
+    private void flush(boolean complete) {
+        try {
+            if (writer != null) {
+                writer.write(buf, 0, bufLength);
+                bufLength = 0;
+                return;
+            }
+
+            int end = bufLength;
+            if (!complete && end > 0 && Character.isHighSurrogate(buf[end - 1])) {
+                end--;
+            }
+            int byteLength = encodeUtf8(end);
+            if (outputStream != null) {
+                outputStream.write(byteBuf, 0, byteLength);
+            } else if (channel != null) {
+                ByteBuffer bb = ByteBuffer.wrap(byteBuf, 0, byteLength);
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+            if (end < bufLength) {
+                buf[0] = buf[end];
+            }
+            bufLength -= end;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 把 buf[0, end) 按 UTF-8 编码到 byteBuf，单独的代理项与 String.getBytes 一样编码为 '?'.
+     *
+     * @return 字节数
+     */
+    private int encodeUtf8(int end) {
+        // 一个 char 最多 3 个字节，代理对 2 个 char 共 4 个字节
+        if (byteBuf == null || byteBuf.length < end * 3) {
+            byteBuf = new byte[Math.max(end, bufSize) * 3];
+        }
+
+        byte[] out = byteBuf;
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            char c = buf[i];
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xC0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(buf[i + 1])) {
+                    int cp = Character.toCodePoint(c, buf[++i]);
+                    out[n++] = (byte) (0xF0 | (cp >> 18));
+                    out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    out[n++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    out[n++] = '?';
+                }
+            } else {
+                out[n++] = (byte) (0xE0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
     }
 
     public OkJsonCharArrayBuilder appendChar(char c) {
         int newBufLength = bufLength + 1;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         buf[bufLength] = c;
         bufLength++;
@@ -2659,7 +1263,7 @@ class OkJsonCharArrayBuilder {
     public OkJsonCharArrayBuilder appendCharArray(char[] charArray) {
         int newBufLength = bufLength + charArray.length;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         System.arraycopy(charArray, 0, buf, bufLength, charArray.length);
         bufLength = newBufLength;
@@ -2670,7 +1274,7 @@ class OkJsonCharArrayBuilder {
     public OkJsonCharArrayBuilder appendCharArrayWith3(char[] charArray) {
         int newBufLength = bufLength + 3;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         buf[bufLength] = charArray[0];
         bufLength++;
@@ -2685,7 +1289,7 @@ class OkJsonCharArrayBuilder {
     public OkJsonCharArrayBuilder appendCharArrayWith4(char[] charArray) {
         int newBufLength = bufLength + 4;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         buf[bufLength] = charArray[0];
         bufLength++;
@@ -2703,7 +1307,7 @@ class OkJsonCharArrayBuilder {
         int strLength = str.length();
         int newBufLength = bufLength + strLength;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         str.getChars(0, strLength, buf, bufLength);
         bufLength = newBufLength;
@@ -2715,7 +1319,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + len;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         System.arraycopy(charArray, offset, buf, bufLength, len);
         bufLength = newBufLength;
@@ -2727,7 +1331,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + tabCount;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         if (tabCount <= TABS.length()) {
             System.arraycopy(TABS.toCharArray(), 0, buf, bufLength, tabCount);
@@ -2745,7 +1349,7 @@ class OkJsonCharArrayBuilder {
     public OkJsonCharArrayBuilder appendPair(char[] name, char c) {
         int newBufLength = bufLength + name.length + 4;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2764,7 +1368,7 @@ class OkJsonCharArrayBuilder {
     public OkJsonCharArrayBuilder appendPairPretty(char[] name, char c) {
         int newBufLength = bufLength + name.length + 7;
 
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2790,7 +1394,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + str.length + 3;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2810,7 +1414,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + str.length + 5;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2835,7 +1439,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + strLength + 3;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2856,7 +1460,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + strLength + 5;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2882,7 +1486,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + strLength + 5;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2907,7 +1511,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + name.length + strLength + 7;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2937,7 +1541,7 @@ class OkJsonCharArrayBuilder {
         int newBufLength = bufLength + strLength + 2;
 
         if (newBufLength > bufSize)
-            resize(newBufLength);
+            newBufLength = resize(newBufLength);
 
         buf[bufLength] = '"';
         bufLength++;
@@ -2951,7 +1555,7 @@ class OkJsonCharArrayBuilder {
 
     public OkJsonCharArrayBuilder appendFieldName(char[] name) {
         int newBufLength = bufLength + name.length + 3;
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
         buf[bufLength++] = '"';
         System.arraycopy(name, 0, buf, bufLength, name.length);
         bufLength += name.length;
@@ -2962,7 +1566,7 @@ class OkJsonCharArrayBuilder {
 
     public OkJsonCharArrayBuilder appendFieldNamePretty(char[] name) {
         int newBufLength = bufLength + name.length + 5;
-        if (newBufLength > bufSize) resize(newBufLength);
+        if (newBufLength > bufSize) newBufLength = resize(newBufLength);
         buf[bufLength++] = '"';
         System.arraycopy(name, 0, buf, bufLength, name.length);
         bufLength += name.length;
@@ -2996,6 +1600,72 @@ class OkJsonCharArrayBuilder {
     }
 }
 
+/**
+ * 按 UTF-8 从 ByteBuffer（例如 FileChannel.map 得到的内存映射）中边读边解码，
+ * 每次只解码调用方给出的字符数，不会一次解出整个文档.
+ * len 大于 0 时至少返回一个字符或 -1：只剩 1 个字符的空间放不下代理对时，先解码到 2 个字符的备用缓冲区，
+ * 多出的字符留到下次返回。
+ */
+class OkJsonByteBufferReader extends Reader {
+    private final ByteBuffer in;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /** 已解码还未返回的字符，最多 1 个. */
+    private final CharBuffer spare = (CharBuffer) CharBuffer.allocate(2).flip();
+    private boolean flushed;
+
+    OkJsonByteBufferReader(ByteBuffer buffer) {
+        this.in = buffer.duplicate();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (spare.hasRemaining()) {
+            cbuf[off++] = spare.get();
+            len--;
+            n++;
+        }
+        if (len == 0 || flushed) {
+            return n > 0 ? n : -1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        decode(out);
+        n += out.position() - off;
+        if (n == 0 && !flushed) {
+            spare.clear();
+            decode(spare);
+            spare.flip();
+            if (spare.hasRemaining()) {
+                cbuf[off] = spare.get();
+                n = 1;
+            }
+        }
+        return (n == 0 && flushed) ? -1 : n;
+    }
+
+    private void decode(CharBuffer out) {
+        CoderResult result = decoder.decode(in, out, true);
+        if (result.isUnderflow()) {
+            // 输入已全部解码
+            if (decoder.flush(out).isUnderflow()) {
+                flushed = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flushed = true;
+        spare.limit(0);
+    }
+}
+
 //    import java.lang.reflect.Array;
 //
 //if (obj != null && obj.getClass().isArray()) {
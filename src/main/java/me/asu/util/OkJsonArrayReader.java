@@ -0,0 +1,90 @@
+/*
+ * okjson - A small efficient flexible JSON parser/generator for Java
+ * author	: calvin
+ * email	: calvinwilliams@163.com
+ *
+ * See the file LICENSE in base directory.
+ */
+
+package me.asu.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 逐个读取顶层 JSON 数组的元素. 输入按固定大小的缓冲区边读边解析，
+ * 同一时刻只有当前元素在内存中，适合很大的导出文件。
+ * <pre>
+ * try (OkJsonArrayReader&lt;User&gt; users = OKJSON.arrayReader(reader, User.class, 0)) {
+ *     while (users.hasNext()) {
+ *         User u = users.next();
+ *     }
+ * }
+ * </pre>
+ * 解析出错时 hasNext/next 抛出 RuntimeException，错误码和描述也可以从
+ * {@link #getErrorCode()}、{@link #getErrorDesc()} 取得。close 同时关闭 reader。
+ *
+ * @param <T> 元素类型；Object 表示与 {@link OKJSON#toList(String, int)} 相同的类型
+ */
+public class OkJsonArrayReader<T> implements Iterator<T>, Closeable {
+
+    private final OkJsonParser parser;
+    private final Reader       reader;
+    private final Class<T>     clazz;
+
+    private Object  next;
+    private boolean fetched;
+
+    OkJsonArrayReader(OkJsonParser parser, Reader reader, Class<T> clazz) {
+        this.parser = parser;
+        this.reader = reader;
+        this.clazz = clazz;
+        if (parser.openArray(reader) != 0) {
+            next = OkJsonParser.END_OF_ARRAY;
+            fetched = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            next = parser.nextArrayElement(clazz);
+            fetched = true;
+        }
+        if (next == OkJsonParser.END_OF_ARRAY && getErrorCode() != 0) {
+            throw Exceptions.makeThrow("okjson error %d: %s", getErrorCode(), getErrorDesc());
+        }
+        return next != OkJsonParser.END_OF_ARRAY;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        return (T) next;
+    }
+
+    public int getErrorCode() {
+        Integer code = parser.getErrorCode();
+        return code == null ? 0 : code;
+    }
+
+    public String getErrorDesc() {
+        return parser.getErrorDesc();
+    }
+
+    @Override
+    public void close() throws IOException {
+        next = OkJsonParser.END_OF_ARRAY;
+        fetched = true;
+        parser.setErrorCode(0);
+        parser.closeArray();
+        reader.close();
+    }
+}
@@ -0,0 +1,570 @@
+/*
+ * okjson - A small efficient flexible JSON parser/generator for Java
+ * author	: calvin
+ * email	: calvinwilliams@163.com
+ *
+ * See the file LICENSE in base directory.
+ */
+
+package me.asu.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * 类的 JSON 绑定计划. 每个类只在第一次用到时反射一次，得到：
+ * <ul>
+ * <li>生成用的属性列表：按字段声明顺序，带 JSON 名称、值类型和 getter 的 MethodHandle；</li>
+ * <li>解析用的属性表：字段名到 {@link Property}，带值的转换方式 {@link Codec}
+ * 和按属性类型特化的 setter MethodHandle，基本类型不装箱；</li>
+ * <li>无参构造函数的 MethodHandle。</li>
+ * </ul>
+ * 计划保存在 ClassValue 中，所有线程共用，不会阻止类被卸载。
+ *
+ * @version 1.0.0
+ */
+final class OkJsonBinding {
+
+    /**
+     * 解析时属性值的转换方式，按属性类型预先确定，代替每次逐个比较 Class.
+     * XXX_VALUE 为基本类型，NUMBER 为其他 Number 子类（BigInteger、BigDecimal 等）。
+     */
+    enum Codec {
+        STRING, BYTE, SHORT, INTEGER, LONG, FLOAT, DOUBLE, BOOLEAN,
+        BYTE_VALUE, SHORT_VALUE, INT_VALUE, LONG_VALUE, FLOAT_VALUE, DOUBLE_VALUE, BOOLEAN_VALUE,
+        LOCAL_DATE, LOCAL_TIME, LOCAL_DATE_TIME, ENUM, NUMBER, OTHER
+    }
+
+    /**
+     * 生成用的属性描述.
+     */
+    @Data
+    static class OkJsonClassField {
+        char[] fieldName;
+        ClassFieldType type;
+        Field field;
+        Method getter;
+        OkJsonDateTimeFormatter okjsonDateTimeFormatter;
+        /** 按 okjsonDateTimeFormatter 预先建好的格式，没有注解时为 null. */
+        DateTimeFormatter dateTimeFormatter;
+        /** 读取属性值，(Object)Object，来自 getter 或字段. */
+        MethodHandle reader;
+
+        @SuppressWarnings("unchecked")
+        <T> T getFieldValue(Object object)
+                throws Exception {
+            try {
+                return (T) (Object) reader.invokeExact(object);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    /**
+     * 生成时属性值的写出方式.
+     */
+    enum ClassFieldType {
+        STRING,
+        SCALAR,
+        LOCAL_DATE,
+        LOCAL_TIME,
+        LOCAL_DATE_TIME,
+        LIST,
+        ARRAY,
+        SUBCLASS,
+        MAP,
+        ENUM,
+    }
+
+    static final DateTimeFormatter LOCAL_DATE_FORMATTER      = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    static final DateTimeFormatter LOCAL_TIME_FORMATTER      = DateTimeFormatter.ofPattern("HH:mm:ss");
+    static final DateTimeFormatter LOCAL_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final MethodHandles.Lookup LOOKUP           = MethodHandles.lookup();
+    private static final MethodType           GETTER_TYPE      = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType           CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final Set<Class<?>> SCALAR_TYPES = new HashSet<Class<?>>();
+
+    static {
+        Collections.addAll(SCALAR_TYPES, String.class, Byte.class, Short.class, Integer.class, Long.class,
+                Float.class, Double.class, Boolean.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
+                BigInteger.class, BigDecimal.class);
+    }
+
+    private static final ClassValue<OkJsonBinding> BINDINGS = new ClassValue<OkJsonBinding>() {
+        @Override
+        protected OkJsonBinding computeValue(Class<?> type) {
+            return new OkJsonBinding(type);
+        }
+    };
+
+    private static final ClassValue<Codec> CODECS = new ClassValue<Codec>() {
+        @Override
+        protected Codec computeValue(Class<?> type) {
+            return codec(type);
+        }
+    };
+
+    /** 数组、List 元素及 Map 值用的属性描述，只有值类型，没有名称. */
+    private static final ClassValue<OkJsonClassField> VALUE_FIELDS = new ClassValue<OkJsonClassField>() {
+        @Override
+        protected OkJsonClassField computeValue(Class<?> type) {
+            OkJsonClassField classField = new OkJsonClassField();
+            classField.type = classFieldType(type);
+            return classField;
+        }
+    };
+
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Constructor<?> c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+                return LOOKUP.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+            } catch (Exception e) {
+                // 没有无参构造函数等，由 newInstance 报告具体的异常
+                return null;
+            }
+        }
+    };
+
+    /** 生成用，按字段声明顺序. */
+    final OkJsonClassField[] readFields;
+    /** 解析用，字段名到属性. 构造后不再修改. */
+    private final Map<String, Property> writeFields;
+
+    private OkJsonBinding(Class<?> clazz) {
+        List<OkJsonClassField> reads = new ArrayList<OkJsonClassField>();
+        Map<String, Property> writes = new HashMap<String, Property>();
+        for (Field f : clazz.getDeclaredFields()) {
+            try {
+                f.setAccessible(true);
+            } catch (RuntimeException e) {
+                // 无法访问的字段（例如 JDK 模块内部的字段）不参与绑定
+                continue;
+            }
+
+            OkJsonClassField classField = createReadField(clazz, f);
+            if (classField != null) {
+                reads.add(classField);
+            }
+            Property property = createWriteProperty(clazz, f);
+            if (property != null) {
+                writes.put(f.getName(), property);
+            }
+        }
+        this.readFields = reads.toArray(new OkJsonClassField[reads.size()]);
+        this.writeFields = writes;
+    }
+
+    static OkJsonBinding of(Class<?> clazz) {
+        return BINDINGS.get(clazz);
+    }
+
+    static Codec codecOf(Class<?> type) {
+        return CODECS.get(type);
+    }
+
+    static OkJsonClassField valueField(Class<?> type) {
+        return VALUE_FIELDS.get(type);
+    }
+
+    /**
+     * 解析时按字段名查找可写的属性.
+     *
+     * @return 没有对应的公开字段或公开 setter 时返回 null
+     */
+    Property property(String name) {
+        return writeFields.get(name);
+    }
+
+    /**
+     * 通过缓存的无参构造函数创建对象.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T newInstance(Class<T> clazz) throws Exception {
+        MethodHandle constructor = CONSTRUCTORS.get(clazz);
+        if (constructor == null) {
+            // 没有可用的无参构造函数，按反射的方式抛出具体的异常
+            Constructor<T> c = clazz.getDeclaredConstructor();
+            c.setAccessible(true);
+            return c.newInstance();
+        }
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    static ClassFieldType classFieldType(Class<?> type) {
+        if (type == String.class) return ClassFieldType.STRING;
+        if (type.isArray()) return ClassFieldType.ARRAY;
+        if (type == LocalDate.class) return ClassFieldType.LOCAL_DATE;
+        if (type == LocalTime.class) return ClassFieldType.LOCAL_TIME;
+        if (type == LocalDateTime.class) return ClassFieldType.LOCAL_DATE_TIME;
+        if (List.class.isAssignableFrom(type)) return ClassFieldType.LIST;
+        if (Map.class.isAssignableFrom(type)) return ClassFieldType.MAP;
+        if (SCALAR_TYPES.contains(type) || type.isPrimitive() || Number.class.isAssignableFrom(type)) {
+            return ClassFieldType.SCALAR;
+        }
+        if (Enum.class.isAssignableFrom(type)) return ClassFieldType.ENUM;
+        return ClassFieldType.SUBCLASS;
+    }
+
+    private static Codec codec(Class<?> type) {
+        if (type == String.class) return Codec.STRING;
+        if (type == Byte.class) return Codec.BYTE;
+        if (type == Short.class) return Codec.SHORT;
+        if (type == Integer.class) return Codec.INTEGER;
+        if (type == Long.class) return Codec.LONG;
+        if (type == Float.class) return Codec.FLOAT;
+        if (type == Double.class) return Codec.DOUBLE;
+        if (type == Boolean.class) return Codec.BOOLEAN;
+        if (type == byte.class) return Codec.BYTE_VALUE;
+        if (type == short.class) return Codec.SHORT_VALUE;
+        if (type == int.class) return Codec.INT_VALUE;
+        if (type == long.class) return Codec.LONG_VALUE;
+        if (type == float.class) return Codec.FLOAT_VALUE;
+        if (type == double.class) return Codec.DOUBLE_VALUE;
+        if (type == boolean.class) return Codec.BOOLEAN_VALUE;
+        if (type == LocalDate.class) return Codec.LOCAL_DATE;
+        if (type == LocalTime.class) return Codec.LOCAL_TIME;
+        if (type == LocalDateTime.class) return Codec.LOCAL_DATE_TIME;
+        if (Enum.class.isAssignableFrom(type)) return Codec.ENUM;
+        if (Number.class.isAssignableFrom(type)) return Codec.NUMBER;
+        return Codec.OTHER;
+    }
+
+    /**
+     * 解析日期时间用的格式：字段上有 {@link OkJsonDateTimeFormatter} 时用它，否则为 null 表示默认格式.
+     */
+    private static DateTimeFormatter parseFormatter(Field f) {
+        if (f.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
+            return DateTimeFormatter.ofPattern(f.getAnnotation(OkJsonDateTimeFormatter.class).format());
+        }
+        return null;
+    }
+
+    static String capitalWord(Field f) {
+        return f.getName().substring(0, 1).toUpperCase(Locale.getDefault()) +
+                f.getName().substring(1);
+    }
+
+    /**
+     * 生成用的属性：公开字段，或者有公开 getter（boolean 为 isXxx，其余为 getXxx）的字段.
+     * 名称取字段或 getter 上的 {@link OkJsonField}.
+     */
+    private static OkJsonClassField createReadField(Class<?> clazz, Field f) {
+        OkJsonClassField classField = new OkJsonClassField();
+
+        if (f.isAnnotationPresent(OkJsonField.class)) {
+            classField.fieldName = f.getAnnotation(OkJsonField.class).value().toCharArray();
+        } else {
+            classField.fieldName = f.getName().toCharArray();
+        }
+
+        classField.field = f;
+        Class<?> type = f.getType();
+        classField.type = classFieldType(type);
+
+        if (type == Boolean.class || type == boolean.class) {
+            classField.getter = findMethod(clazz, "is" + capitalWord(f));
+        }
+        if (classField.getter == null) {
+            classField.getter = findMethod(clazz, "get" + capitalWord(f));
+        }
+        if (classField.getter != null) {
+            classField.getter.setAccessible(true);
+            if (classField.getter.isAnnotationPresent(OkJsonField.class)) {
+                classField.fieldName = classField.getter.getAnnotation(OkJsonField.class).value().toCharArray();
+            }
+        }
+
+        if (!Modifier.isPublic(f.getModifiers())
+                && (classField.getter == null || !Modifier.isPublic(classField.getter.getModifiers()))) {
+            return null;
+        }
+
+        if (f.isAnnotationPresent(OkJsonDateTimeFormatter.class)) {
+            classField.okjsonDateTimeFormatter = f.getAnnotation(OkJsonDateTimeFormatter.class);
+            classField.dateTimeFormatter = DateTimeFormatter.ofPattern(classField.okjsonDateTimeFormatter.format());
+        }
+
+        try {
+            MethodHandle reader;
+            if (classField.getter != null) {
+                reader = LOOKUP.unreflect(classField.getter);
+            } else {
+                reader = LOOKUP.unreflectGetter(f);
+                if (Modifier.isStatic(f.getModifiers())) {
+                    reader = MethodHandles.dropArguments(reader, 0, Object.class);
+                }
+            }
+            classField.reader = reader.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        return classField;
+    }
+
+    /**
+     * 解析用的属性：有公开 setter 或者是公开字段.
+     */
+    private static Property createWriteProperty(Class<?> clazz, Field f) {
+        Method setter = null;
+        try {
+            setter = clazz.getMethod("set" + capitalWord(f), f.getType());
+            setter.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            setter = null;
+        } catch (SecurityException e) {
+            setter = null;
+        }
+
+        if (setter == null && !Modifier.isPublic(f.getModifiers())) {
+            return null;
+        }
+        return new Property(f, setter);
+    }
+
+    private static Method findMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * MethodHandle 调用抛出的 Throwable 原样抛出 Error，其余转成 Exception.
+     */
+    static Exception propagate(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof Exception) {
+            return (Exception) t;
+        }
+        return new UndeclaredThrowableException(t);
+    }
+
+    /**
+     * 解析时可写的一个属性. 有公开 setter 时总是通过 setter；否则只有允许直接访问字段时才写字段。
+     * setter 按属性类型特化：基本类型为 (Object, int)void 等，其余为 (Object, Object)void。
+     */
+    static final class Property {
+        final Field             field;
+        final Class<?>          type;
+        final Codec             codec;
+        /** List&lt;T&gt; 属性的 T，其余为 null. */
+        final Class<?>          elementType;
+        /** 字段上指定的日期时间格式，作用于属性本身或 List 的元素；为 null 时用默认格式. */
+        final DateTimeFormatter formatter;
+
+        private final MethodHandle setter;
+        private final MethodHandle fieldSetter;
+
+        Property(Field field, Method setter) {
+            this.field = field;
+            this.type = field.getType();
+            this.codec = codecOf(type);
+            this.elementType = elementType(field);
+            this.formatter = parseFormatter(field);
+
+            MethodType setterType = MethodType.methodType(void.class, Object.class,
+                    type.isPrimitive() ? type : Object.class);
+            MethodHandle s = null;
+            if (setter != null) {
+                try {
+                    s = LOOKUP.unreflect(setter).asType(setterType);
+                } catch (IllegalAccessException e) {
+                    s = null;
+                }
+            }
+            MethodHandle fs;
+            try {
+                fs = LOOKUP.unreflectSetter(field);
+                if (Modifier.isStatic(field.getModifiers())) {
+                    fs = MethodHandles.dropArguments(fs, 0, Object.class);
+                }
+                fs = fs.asType(setterType);
+            } catch (IllegalAccessException e) {
+                // static final 等不能写的字段
+                fs = null;
+            }
+            this.setter = s;
+            this.fieldSetter = fs;
+        }
+
+        private static Class<?> elementType(Field field) {
+            if (!List.class.isAssignableFrom(field.getType())) {
+                return null;
+            }
+            Type g = field.getGenericType();
+            if (!(g instanceof ParameterizedType)) {
+                return null;
+            }
+            Type arg = ((ParameterizedType) g).getActualTypeArguments()[0];
+            return (arg instanceof Class) ? (Class<?>) arg : null;
+        }
+
+        /**
+         * @return 不需要写时返回 null
+         */
+        private MethodHandle target(boolean direct) throws IllegalAccessException {
+            if (setter != null) {
+                return setter;
+            }
+            if (!direct) {
+                return null;
+            }
+            if (fieldSetter == null) {
+                throw new IllegalAccessException("can not set " + field);
+            }
+            return fieldSetter;
+        }
+
+        void set(Object object, Object value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException("can not set " + type.getName() + " field "
+                        + field.getName() + " to " + value);
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setByte(Object object, byte value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setShort(Object object, short value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setInt(Object object, int value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setLong(Object object, long value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setFloat(Object object, float value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setDouble(Object object, double value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void setBoolean(Object object, boolean value, boolean direct) throws Exception {
+            MethodHandle h = target(direct);
+            if (h == null) {
+                return;
+            }
+            try {
+                h.invokeExact(object, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        /**
+         * 写入子对象或子数组，总是直接写字段.
+         */
+        void setChild(Object object, Object child) throws Exception {
+            if (fieldSetter == null || type.isPrimitive()) {
+                field.set(object, child);
+                return;
+            }
+            try {
+                fieldSetter.invokeExact(object, child);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+}
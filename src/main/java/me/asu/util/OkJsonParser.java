@@ -0,0 +1,1424 @@
+/*
+ * okjson - A small efficient flexible JSON parser/generator for Java
+ * author	: calvin
+ * email	: calvinwilliams@163.com
+ *
+ * See the file LICENSE in base directory.
+ */
+
+package me.asu.util;
+
+import lombok.Getter;
+import lombok.Setter;
+import me.asu.log.Log;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+@Setter
+@Getter
+class OkJsonParser {
+    private boolean strictPolicyEnable;
+    private boolean directAccessPropertyEnable;
+    private boolean prettyFormatEnable;
+
+    private Integer errorCode;
+    private String errorDesc;
+
+    enum TokenType {
+        TOKEN_TYPE_LEFT_BRACE, // {
+        TOKEN_TYPE_RIGHT_BRACE, // }
+        TOKEN_TYPE_LEFT_BRACKET, // [
+        TOKEN_TYPE_RIGHT_BRACKET, // ]
+        TOKEN_TYPE_COLON, // :
+        TOKEN_TYPE_COMMA, // ,
+        TOKEN_TYPE_STRING, // "ABC"
+        TOKEN_TYPE_INTEGER, // 123
+        TOKEN_TYPE_DECIMAL, // 123.456
+        TOKEN_TYPE_BOOL, // true or false
+        TOKEN_TYPE_NULL // null
+    }
+
+    private static final ThreadLocal<StringBuilder> fieldStringBuilderCache =
+            ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    /** 流式输入每次读取的缓冲区大小（字符），只有单个记号超过它时才会扩大. */
+    static final int READ_BUFFER_SIZE = 8192;
+
+    private char[] jsonCharArray;
+    private int jsonOffset;
+    private int jsonLength;
+
+    /** 流式输入的来源，解析字符串时为 null. */
+    private Reader source;
+    /** 当前记号的起始位置，补充缓冲区时它之前的内容可以丢弃. */
+    private int markOffset;
+    private char[] readBuffer;
+    private IOException readException;
+
+    private TokenType tokenType;
+    private int beginOffset;
+    private int endOffset;
+    private boolean booleanValue;
+
+    public static final int OKJSON_ERROR_END_OF_BUFFER = 1;
+    public static final int OKJSON_ERROR_UNEXPECT = -4;
+    public static final int OKJSON_ERROR_EXCEPTION = -8;
+    public static final int OKJSON_ERROR_INVALID_BYTE = -11;
+    public static final int OKJSON_ERROR_FIND_FIRST_LEFT_BRACE = -21;
+    public static final int OKJSON_ERROR_NAME_INVALID = -22;
+    public static final int OKJSON_ERROR_EXPECT_COLON_AFTER_NAME = -23;
+    public static final int OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE = -24;
+    public static final int OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT = -26;
+    public static final int OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT = -28;
+    public static final int OKJSON_ERROR_NEW_OBJECT = -31;
+
+    // 统一构造
+    static <T> T newInstance(Class<T> clazz) throws Exception {
+        return OkJsonBinding.newInstance(clazz);
+    }
+
+    private int fail(int code, String msg) {
+        this.errorCode = code;
+        this.errorDesc = msg;
+        return code;
+    }
+
+    /**
+     * 缓冲区内还有未读字符，或者从 source 补充到了新数据.
+     */
+    private boolean more() {
+        return jsonOffset < jsonLength || fill();
+    }
+
+    /**
+     * 保证从 jsonOffset 起至少有 n 个字符可读.
+     */
+    private boolean ensure(int n) {
+        while (jsonLength - jsonOffset < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从 source 补充缓冲区. 当前记号之前的内容已经用完，把剩余部分移到缓冲区开头后再读；
+     * 单个记号占满整个缓冲区时把缓冲区加倍.
+     *
+     * @return 读到新数据返回 true；解析字符串、流已结束或读取出错时返回 false
+     */
+    private boolean fill() {
+        if (source == null) {
+            return false;
+        }
+        if (markOffset > 0) {
+            int keep = jsonLength - markOffset;
+            System.arraycopy(jsonCharArray, markOffset, jsonCharArray, 0, keep);
+            jsonOffset -= markOffset;
+            beginOffset -= markOffset;
+            endOffset -= markOffset;
+            jsonLength = keep;
+            markOffset = 0;
+        } else if (jsonLength == jsonCharArray.length) {
+            jsonCharArray = java.util.Arrays.copyOf(jsonCharArray, jsonCharArray.length << 1);
+        }
+
+        int n;
+        try {
+            // 0 不是结束，只有 -1 才是；不守约定返回 0 的 Reader 再读一次
+            do {
+                n = source.read(jsonCharArray, jsonLength, jsonCharArray.length - jsonLength);
+            } while (n == 0);
+        } catch (IOException e) {
+            readException = e;
+            source = null;
+            return false;
+        }
+        if (n < 0) {
+            source = null;
+            return false;
+        }
+        jsonLength += n;
+        return true;
+    }
+
+    private void begin(char[] chars) {
+        jsonCharArray = chars;
+        jsonOffset = 0;
+        jsonLength = chars.length;
+        markOffset = 0;
+        source = null;
+        readException = null;
+        errorCode = 0;
+        errorDesc = null;
+    }
+
+    private void begin(Reader reader) {
+        if (readBuffer == null) {
+            readBuffer = new char[READ_BUFFER_SIZE];
+        }
+        begin(readBuffer);
+        jsonLength = 0;
+        source = reader;
+    }
+
+    /**
+     * 解析结束后释放输入，避免缓存的解析器一直持有整个文档. 读取出错时覆盖错误码.
+     *
+     * @return 解析成功返回 true
+     */
+    private boolean end() {
+        jsonCharArray = null;
+        source = null;
+        if (readException != null) {
+            fail(OKJSON_ERROR_EXCEPTION, readException.getMessage());
+            readException = null;
+        }
+        return errorCode == 0;
+    }
+
+    private int tokenJsonString() {
+        StringBuilder fieldStringBuilder;
+        char ch;
+
+        fieldStringBuilder = fieldStringBuilderCache.get();
+        fieldStringBuilder.setLength(0);
+
+        jsonOffset++;
+        beginOffset = jsonOffset;
+        while (more()) {
+            ch = jsonCharArray[jsonOffset];
+            if (ch == '"') {
+                tokenType = TokenType.TOKEN_TYPE_STRING;
+                if (jsonOffset > beginOffset) {
+                    fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset);
+                }
+                endOffset = jsonOffset - 1;
+                jsonOffset++;
+                return 0;
+            } else if (ch == '\\') {
+                jsonOffset++;
+                if (!more()) {
+                    return OKJSON_ERROR_END_OF_BUFFER;
+                }
+                ch = jsonCharArray[jsonOffset];
+                if (ch == '"') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('"');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == '\\') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append("\\");
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == '/') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('/');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 'b') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('\b');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 'f') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('\f');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 'n') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('\n');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 'r') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('\r');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 't') {
+                    if (jsonOffset > beginOffset + 1)
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append('\t');
+                    beginOffset = jsonOffset + 1;
+                } else if (ch == 'u') {
+                    if (!ensure(5)) return OKJSON_ERROR_END_OF_BUFFER;
+                    char h1 = jsonCharArray[++jsonOffset];
+                    char h2 = jsonCharArray[++jsonOffset];
+                    char h3 = jsonCharArray[++jsonOffset];
+                    char h4 = jsonCharArray[++jsonOffset];
+                    if (!(isHex(h1) && isHex(h2) && isHex(h3) && isHex(h4))) {
+                        errorDesc = "Invalid unicode escape";
+                        return OKJSON_ERROR_INVALID_BYTE;
+                    }
+                    int codePoint = Integer.parseInt(
+                            new String(new char[]{h1, h2, h3, h4}), 16);
+                    if (fieldStringBuilder.length() == 0) {
+                        fieldStringBuilder.append(jsonCharArray, beginOffset, (jsonOffset - 4) - beginOffset - 1);
+                    }
+                    fieldStringBuilder.append((char) codePoint);
+                    beginOffset = jsonOffset + 1;
+                } else {
+                    fieldStringBuilder.append(jsonCharArray, beginOffset, jsonOffset - beginOffset - 1);
+                    fieldStringBuilder.append(ch);
+                }
+            }
+
+            jsonOffset++;
+        }
+
+        return OKJSON_ERROR_END_OF_BUFFER;
+    }
+    private boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private int tokenJsonNumber() {
+        char ch;
+        boolean decimalPointFlag;
+
+        beginOffset = jsonOffset;
+
+        ch = jsonCharArray[jsonOffset];
+        if (ch == '-') {
+            jsonOffset++;
+        }
+
+        decimalPointFlag = false;
+        while (more()) {
+            ch = jsonCharArray[jsonOffset];
+            if ('0' <= ch && ch <= '9') {
+                jsonOffset++;
+            } else if (ch == '.') {
+                decimalPointFlag = true;
+                jsonOffset++;
+            } else if (ch == 'e' || ch == 'E') {
+                jsonOffset++;
+                if (!more()) return fail(OKJSON_ERROR_END_OF_BUFFER,"");
+                ch = jsonCharArray[jsonOffset];
+                if (ch == '-' || ch == '+') {
+                    jsonOffset++;
+                } else if ('0' <= ch && ch <= '9') {
+                    jsonOffset++;
+                }
+            } else {
+                if (decimalPointFlag == true)
+                    tokenType = TokenType.TOKEN_TYPE_DECIMAL;
+                else
+                    tokenType = TokenType.TOKEN_TYPE_INTEGER;
+                endOffset = jsonOffset - 1;
+                return 0;
+            }
+        }
+
+        return fail(OKJSON_ERROR_END_OF_BUFFER, "");
+    }
+
+    private int tokenJsonWord() {
+        char ch;
+
+        while (more()) {
+            markOffset = jsonOffset;
+            ch = jsonCharArray[jsonOffset];
+            if (ch == ' ' || ch == '\b' || ch == '\t' || ch == '\f' || ch == '\r' || ch == '\n') {
+                jsonOffset++;
+            } else if (ch == '{') {
+                tokenType = TokenType.TOKEN_TYPE_LEFT_BRACE;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == '}') {
+                tokenType = TokenType.TOKEN_TYPE_RIGHT_BRACE;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == '[') {
+                tokenType = TokenType.TOKEN_TYPE_LEFT_BRACKET;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == ']') {
+                tokenType = TokenType.TOKEN_TYPE_RIGHT_BRACKET;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == '"') {
+                return tokenJsonString();
+            } else if (ch == ':') {
+                tokenType = TokenType.TOKEN_TYPE_COLON;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == ',') {
+                tokenType = TokenType.TOKEN_TYPE_COMMA;
+                beginOffset = jsonOffset;
+                endOffset = jsonOffset;
+                jsonOffset++;
+                return 0;
+            } else if (ch == '-' || ('0' <= ch && ch <= '9')) {
+                return tokenJsonNumber();
+            } else if (ch == 't') {
+                beginOffset = jsonOffset;
+                jsonOffset++;
+                if (!more()) {
+                    return OKJSON_ERROR_END_OF_BUFFER;
+                }
+                ch = jsonCharArray[jsonOffset];
+                if (ch == 'r') {
+                    jsonOffset++;
+                    if (!more()) {
+                        return OKJSON_ERROR_END_OF_BUFFER;
+                    }
+                    ch = jsonCharArray[jsonOffset];
+                    if (ch == 'u') {
+                        jsonOffset++;
+                        if (!more()) {
+                            return OKJSON_ERROR_END_OF_BUFFER;
+                        }
+                        ch = jsonCharArray[jsonOffset];
+                        if (ch == 'e') {
+                            tokenType = TokenType.TOKEN_TYPE_BOOL;
+                            booleanValue = true;
+                            endOffset = jsonOffset;
+                            jsonOffset++;
+                            return 0;
+                        }
+                    }
+                }
+            } else if (ch == 'f') {
+                beginOffset = jsonOffset;
+                jsonOffset++;
+                if (!more()) {
+                    return OKJSON_ERROR_END_OF_BUFFER;
+                }
+                ch = jsonCharArray[jsonOffset];
+                if (ch == 'a') {
+                    jsonOffset++;
+                    if (!more()) {
+                        return OKJSON_ERROR_END_OF_BUFFER;
+                    }
+                    ch = jsonCharArray[jsonOffset];
+                    if (ch == 'l') {
+                        jsonOffset++;
+                        if (!more()) {
+                            return OKJSON_ERROR_END_OF_BUFFER;
+                        }
+                        ch = jsonCharArray[jsonOffset];
+                        if (ch == 's') {
+                            jsonOffset++;
+                            if (!more()) {
+                                return OKJSON_ERROR_END_OF_BUFFER;
+                            }
+                            ch = jsonCharArray[jsonOffset];
+                            if (ch == 'e') {
+                                tokenType = TokenType.TOKEN_TYPE_BOOL;
+                                booleanValue = false;
+                                endOffset = jsonOffset;
+                                jsonOffset++;
+                                return 0;
+                            }
+                        }
+                    }
+                }
+            } else if (ch == 'n') {
+                beginOffset = jsonOffset;
+                jsonOffset++;
+                if (!more()) {
+                    return OKJSON_ERROR_END_OF_BUFFER;
+                }
+                ch = jsonCharArray[jsonOffset];
+                if (ch == 'u') {
+                    jsonOffset++;
+                    if (!more()) {
+                        return OKJSON_ERROR_END_OF_BUFFER;
+                    }
+                    ch = jsonCharArray[jsonOffset];
+                    if (ch == 'l') {
+                        jsonOffset++;
+                        if (!more()) {
+                            return OKJSON_ERROR_END_OF_BUFFER;
+                        }
+                        ch = jsonCharArray[jsonOffset];
+                        if (ch == 'l') {
+                            tokenType = TokenType.TOKEN_TYPE_NULL;
+                            booleanValue = true;
+                            endOffset = jsonOffset;
+                            jsonOffset++;
+                            return 0;
+                        }
+                    }
+                }
+            } else {
+                return fail(OKJSON_ERROR_INVALID_BYTE,"Invalid byte '" + ch + "'");
+            }
+        }
+
+        return fail(OKJSON_ERROR_END_OF_BUFFER, "");
+    }
+
+    Object convertTokenTo(TokenType t, String s, boolean boolValue, Class<?> target,
+                          DateTimeFormatter formatter) throws Exception {
+
+        if (t == TokenType.TOKEN_TYPE_NULL) return null;
+
+        OkJsonBinding.Codec codec = OkJsonBinding.codecOf(target);
+        switch (codec) {
+            case STRING: {
+                StringBuilder sb = fieldStringBuilderCache.get();
+                return (sb.length() > 0) ? sb.toString() : s;
+            }
+            case BOOLEAN:
+            case BOOLEAN_VALUE:
+                return (t == TokenType.TOKEN_TYPE_BOOL) ? Boolean.valueOf(boolValue) : null;
+            case LOCAL_DATE:
+                return LocalDate.parse(s, formatter != null ? formatter : OkJsonBinding.LOCAL_DATE_FORMATTER);
+            case LOCAL_TIME:
+                return LocalTime.parse(s, formatter != null ? formatter : OkJsonBinding.LOCAL_TIME_FORMATTER);
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(s,
+                        formatter != null ? formatter : OkJsonBinding.LOCAL_DATE_TIME_FORMATTER);
+            case ENUM:
+            case OTHER:
+                if (!target.isPrimitive()) {
+                    return null; // 其余类型这里不处理
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (t != TokenType.TOKEN_TYPE_INTEGER && t != TokenType.TOKEN_TYPE_DECIMAL) {
+            return null;
+        }
+        switch (codec) {
+            case BYTE:
+            case BYTE_VALUE:
+                return Byte.valueOf(s);
+            case SHORT:
+            case SHORT_VALUE:
+                return Short.valueOf(s);
+            case INTEGER:
+            case INT_VALUE:
+                return Integer.valueOf(s);
+            case LONG:
+            case LONG_VALUE:
+                return Long.valueOf(s);
+            case FLOAT:
+            case FLOAT_VALUE:
+                return Float.valueOf(s);
+            case DOUBLE:
+            case DOUBLE_VALUE:
+                return Double.valueOf(s);
+            default:
+                // 兜底：尽量不丢失精度
+                if (t == TokenType.TOKEN_TYPE_INTEGER) return new BigInteger(s);
+                return new BigDecimal(s);
+        }
+    }
+
+    int addArrayObject(TokenType vt, String value, Object object, OkJsonBinding.Property property) {
+
+        try {
+            if (!List.class.isAssignableFrom(property.type)) {
+                return strictPolicyEnable ? fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT,"") : 0;
+            }
+
+            // List<T> 的 T
+            Class<?> elemType = property.elementType;
+            if (elemType == null) return 0;
+
+            Object converted = convertTokenTo(vt, value, booleanValue, elemType, property.formatter);
+            if (converted == null && vt != TokenType.TOKEN_TYPE_NULL) {
+                return strictPolicyEnable ? fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT,"") : 0;
+            }
+            ((List<Object>) object).add(converted);
+            return 0;
+
+        } catch (Exception e) {
+            Log.error(e.getMessage(), e);
+            return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
+        }
+
+    }
+
+    int stringToArrayObject(Object object, OkJsonBinding.Property property) {
+
+        TokenType valueTokenType;
+        String value;
+
+        int nret;
+
+        while (true) {
+            // token "value" or '{'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
+                break;
+            }
+            if (nret != 0) {
+                return nret;
+            }
+
+            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
+                try {
+                    if (property != null) {
+                        if (property.type == ArrayList.class || property.type == LinkedList.class) {
+                            if (property.elementType == null) {
+                                return fail(OKJSON_ERROR_EXCEPTION,
+                                        "unknown element type of " + property.field.getName());
+                            }
+                            Object childObject = newInstance(property.elementType);
+                            nret = stringToObjectProperties(childObject);
+                            if (nret != 0)
+                                return nret;
+
+                            ((List<Object>) object).add(childObject);
+                        }
+                    } else {
+                        nret = stringToObjectProperties(null);
+                        if (nret != 0)
+                            return nret;
+                    }
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
+                }
+            } else if (isTokenValueType(tokenType)) {
+                ;
+            } else {
+                int beginPos = endOffset - 16;
+                if (beginPos < 0)
+                    beginPos = 0;
+                return fail(OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE,
+                        "unexpect \"" + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
+            }
+
+            // 读下一个记号前取出值，流式输入时缓冲区可能被补充而移动
+            valueTokenType = tokenType;
+            value = new String(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+
+            // token ',' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
+                break;
+            }
+            if (nret != 0) {
+                return nret;
+            }
+
+            if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                if (object != null && property != null) {
+                    errorCode = addArrayObject(valueTokenType, value, object, property);
+                    if (errorCode != 0)
+                        return errorCode;
+                }
+
+                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET)
+                    break;
+            } else {
+                return fail(OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE,
+                        "unexpect \"" + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
+            }
+        }
+
+        return 0;
+    }
+
+    private int setObjectProperty(TokenType valueTokenType, int valueBeginOffset,
+                                  int valueEndOffset, Object object, OkJsonBinding.Property property) {
+
+        boolean direct = directAccessPropertyEnable;
+        try {
+            switch (property.codec) {
+                case STRING:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                        property.set(object, stringValue(valueBeginOffset, valueEndOffset), direct);
+                    }
+                    return 0;
+                case BYTE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.set(object, Byte.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case SHORT:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.set(object, Short.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case INTEGER:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.set(object, Integer.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case LONG:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.set(object, Long.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case FLOAT:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+                        property.set(object, Float.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case DOUBLE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+                        property.set(object, Double.valueOf(text(valueBeginOffset, valueEndOffset)), direct);
+                    }
+                    return 0;
+                case BOOLEAN:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
+                        property.set(object, Boolean.valueOf(booleanValue), direct);
+                    }
+                    return 0;
+                case LOCAL_DATE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                        property.set(object, LocalDate.parse(stringValue(valueBeginOffset, valueEndOffset),
+                                property.formatter != null ? property.formatter
+                                        : OkJsonBinding.LOCAL_DATE_FORMATTER), direct);
+                    }
+                    return 0;
+                case LOCAL_TIME:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                        property.set(object, LocalTime.parse(stringValue(valueBeginOffset, valueEndOffset),
+                                property.formatter != null ? property.formatter
+                                        : OkJsonBinding.LOCAL_TIME_FORMATTER), direct);
+                    }
+                    return 0;
+                case LOCAL_DATE_TIME:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                        property.set(object, LocalDateTime.parse(stringValue(valueBeginOffset, valueEndOffset),
+                                property.formatter != null ? property.formatter
+                                        : OkJsonBinding.LOCAL_DATE_TIME_FORMATTER), direct);
+                    }
+                    return 0;
+                case BYTE_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.setByte(object, (byte) Integer.parseInt(text(valueBeginOffset, valueEndOffset)),
+                                direct);
+                        return 0;
+                    }
+                    break;
+                case SHORT_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.setShort(object, (short) Integer.parseInt(text(valueBeginOffset, valueEndOffset)),
+                                direct);
+                        return 0;
+                    }
+                    break;
+                case INT_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.setInt(object, Integer.parseInt(text(valueBeginOffset, valueEndOffset)), direct);
+                        return 0;
+                    }
+                    break;
+                case LONG_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                        property.setLong(object, Long.parseLong(text(valueBeginOffset, valueEndOffset)), direct);
+                        return 0;
+                    }
+                    break;
+                case FLOAT_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+                        property.setFloat(object, Float.parseFloat(text(valueBeginOffset, valueEndOffset)), direct);
+                        return 0;
+                    }
+                    break;
+                case DOUBLE_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+                        property.setDouble(object, Double.parseDouble(text(valueBeginOffset, valueEndOffset)),
+                                direct);
+                        return 0;
+                    }
+                    break;
+                case BOOLEAN_VALUE:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
+                        property.setBoolean(object, booleanValue, direct);
+                        return 0;
+                    }
+                    break;
+                case ENUM:
+                    if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                        property.set(object, enumValue(property.type, fieldStringBuilderCache.get().toString()),
+                                direct);
+                        return 0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            // 基本类型、枚举及其他类型的值与记号不匹配
+            if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
+                property.set(object, null, direct);
+            } else if (strictPolicyEnable) {
+                return fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT, "");
+            }
+        } catch (Exception e) {
+            Log.error(e.getMessage(), e);
+            return fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
+        }
+
+        return 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class<Enum>) type, name);
+    }
+
+    private String text(int valueBeginOffset, int valueEndOffset) {
+        return new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1);
+    }
+
+    /**
+     * 字符串记号的内容：有转义时已拼在 fieldStringBuilder 中.
+     */
+    private String stringValue(int valueBeginOffset, int valueEndOffset) {
+        StringBuilder fieldStringBuilder = fieldStringBuilderCache.get();
+        if (fieldStringBuilder.length() > 0) {
+            return fieldStringBuilder.toString();
+        }
+        return text(valueBeginOffset, valueEndOffset);
+    }
+
+    private int stringToObjectProperties(Object object) {
+
+        OkJsonBinding binding;
+        OkJsonBinding.Property property;
+        TokenType fieldNameTokenType;
+        int fieldNameBeginOffset;
+        int fieldNameEndOffset;
+        String fieldName;
+        TokenType valueTokenType;
+        int valueBeginOffset;
+        int valueEndOffset;
+
+        int nret;
+
+        binding = (object != null) ? OkJsonBinding.of(object.getClass()) : null;
+
+        while (true) {
+            // token "name"
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) {
+                break;
+            }
+            if (nret != 0) {
+                return nret;
+            }
+
+            fieldNameTokenType = tokenType;
+            fieldNameBeginOffset = beginOffset;
+            fieldNameEndOffset = endOffset;
+            fieldName = new String(jsonCharArray, fieldNameBeginOffset, fieldNameEndOffset - fieldNameBeginOffset + 1);
+
+            if (binding != null) {
+                property = binding.property(fieldName);
+                if (property == null) {
+                    if (strictPolicyEnable == true)
+                        return OKJSON_ERROR_NAME_NOT_FOUND_IN_OBJECT;
+                }
+            } else {
+                property = null;
+            }
+
+            if (tokenType != TokenType.TOKEN_TYPE_STRING) {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect a name but \"" + found + "\"";
+                return OKJSON_ERROR_NAME_INVALID;
+            }
+
+            // token ':' or ',' or '}' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_COLON) {
+                ;
+            } else if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
+                if (property != null && (property.type == ArrayList.class || property.type == LinkedList.class)) {
+                    nret = addArrayObject(fieldNameTokenType, fieldName, object, property);
+
+                    if (nret != 0) return nret;
+
+                    if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) break;
+                }
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                break;
+            } else {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect ':' but \"" + found + "\"";
+                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
+            }
+
+            // token '{' or '[' or "value"
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            valueTokenType = tokenType;
+            valueBeginOffset = beginOffset;
+            valueEndOffset = endOffset;
+
+            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE || tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+                try {
+                    Object childObject;
+
+                    if (property != null) {
+                        childObject = newInstance(property.type);
+                        if (childObject == null)
+                            return OKJSON_ERROR_UNEXPECT;
+                    } else {
+                        childObject = null;
+                    }
+
+                    if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
+                        nret = stringToObjectProperties(childObject);
+                    } else {
+                        nret = stringToArrayObject(childObject, property);
+                    }
+                    if (nret != 0)
+                        return nret;
+
+                    if (property != null) {
+                        property.setChild(object, childObject);
+                    }
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return OKJSON_ERROR_EXCEPTION;
+                }
+            } else {
+                if (object != null && property != null) {
+                    nret = setObjectProperty(valueTokenType, valueBeginOffset, valueEndOffset, object,
+                            property);
+                    if (nret != 0)
+                        return nret;
+                }
+            }
+
+            // token ',' or '}' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_COMMA) {
+                ;
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
+                break;
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                break;
+            } else {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect ',' or '}' or ']' but \"" + found + "\"";
+                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
+            }
+        }
+
+        return 0;
+    }
+
+    private int addArrayMap(String value, TokenType valueTokenType, List<Object> list) {
+        try {
+            if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+                StringBuilder sb = fieldStringBuilderCache.get();
+                list.add((sb != null && sb.length() > 0) ? sb.toString() : value);
+                sb.setLength(0); // 清空，避免后续误用旧内容
+            } else if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
+                list.add(null);
+            } else if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+                BigInteger v = new BigInteger(value);
+                list.add(v);
+            } else if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+                BigDecimal v = new BigDecimal(value);
+                list.add(v);
+            } else if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
+                list.add(booleanValue);
+            }
+        } catch (Exception e) {
+            Log.error(e.getMessage(), e);
+            return OKJSON_ERROR_EXCEPTION;
+        }
+
+        return 0;
+    }
+
+    private int stringToArrayMap(List<Object> list) {
+
+        TokenType valueTokenType;
+        String value;
+
+        int nret;
+
+        while (true) {
+            // 读到一个元素：值 / 对象 / 或者子数组
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
+                // 子对象
+                try {
+                    Map<String, Object> childObject = new LinkedHashMap<>();
+                    nret = toMapItems(childObject);
+                    if (nret != 0) return nret;
+
+                    list.add(childObject);
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return OKJSON_ERROR_EXCEPTION;
+                }
+            } else if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+                // 子数组（递归）
+                try {
+                    List<Object> childList = new LinkedList<>();
+                    nret = stringToArrayMap(childList);
+                    if (nret != 0) return nret;
+                    list.add(childList);
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return OKJSON_ERROR_EXCEPTION;
+                }
+            }else if (isTokenValueType(tokenType)) {
+                // 原始值（数字/布尔/字符串）
+                ;
+            } else {
+                int beginPos = endOffset - 16; // ? 看不懂
+                if (beginPos < 0) beginPos = 0;
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "unexpect \"" + found + "\"";
+                return OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE;
+            }
+
+            // 读下一个记号前取出值，流式输入时缓冲区可能被补充而移动
+            valueTokenType = tokenType;
+            value = isTokenValueType(valueTokenType)
+                    ? new String(jsonCharArray, beginOffset, endOffset - beginOffset + 1) : null;
+
+            // token ',' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_COMMA ||
+                    tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                // 只有当本元素是“值类型”时，才在这里补充 list.add(...)
+                // （对象/子数组已经在上面提前 add 过了）
+                if (list != null && isTokenValueType(valueTokenType)) {
+                    errorCode = addArrayMap(value, valueTokenType, list);
+
+                    if (errorCode != 0) return errorCode;
+                }
+
+                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) break;
+            } else {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "unexpect \"" + found + "\"";
+                return OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE;
+            }
+        }
+
+        return 0;
+    }
+
+    static boolean isTokenValueType(TokenType valueTokenType) {
+        return valueTokenType == TokenType.TOKEN_TYPE_STRING ||
+                valueTokenType == TokenType.TOKEN_TYPE_INTEGER ||
+                valueTokenType == TokenType.TOKEN_TYPE_DECIMAL ||
+                valueTokenType == TokenType.TOKEN_TYPE_BOOL ||
+                valueTokenType == TokenType.TOKEN_TYPE_NULL
+                ;
+    }
+
+    private int setMapItem(String value, TokenType valueTokenType, Map<String, Object> object, String field) {
+
+        StringBuilder fieldStringBuilder;
+
+        fieldStringBuilder = fieldStringBuilderCache.get();
+
+        if (valueTokenType == TokenType.TOKEN_TYPE_STRING) {
+            try {
+                object.put(field, fieldStringBuilder.length() > 0 ? fieldStringBuilder.toString() : value);
+            } catch (Exception e) {
+                Log.error(e.getMessage(), e);
+                return OKJSON_ERROR_EXCEPTION;
+            }
+        } else if (valueTokenType == TokenType.TOKEN_TYPE_INTEGER) {
+            try {
+                // json 应该不会有很大的整数，用Long也足够了。
+                BigInteger v = new BigInteger(value);
+                object.put(field, v);
+            } catch (Exception e) {
+                Log.error(e.getMessage(), e);
+                return OKJSON_ERROR_EXCEPTION;
+            }
+        } else if (valueTokenType == TokenType.TOKEN_TYPE_DECIMAL) {
+            try {
+                BigDecimal v = new BigDecimal(value);
+                object.put(field, v);
+            } catch (Exception e) {
+                Log.error(e.getMessage(), e);
+                return OKJSON_ERROR_EXCEPTION;
+            }
+        } else if (valueTokenType == TokenType.TOKEN_TYPE_BOOL) {
+            try {
+                Boolean v = Boolean.valueOf(value);
+                object.put(field, v);
+            } catch (Exception e) {
+                Log.error(e.getMessage(), e);
+                return OKJSON_ERROR_EXCEPTION;
+            }
+        } else if (valueTokenType == TokenType.TOKEN_TYPE_NULL) {
+            // 不是每个Map都支持null, 这里简单忽略
+        }
+
+
+        return 0;
+    }
+
+    int toMapItems(Map<String, Object> map) {
+
+        TokenType fieldNameTokenType;
+        int fieldNameBeginOffset;
+        int fieldNameEndOffset;
+        String fieldName;
+
+        TokenType valueTokenType;
+        int valueBeginOffset;
+        int valueEndOffset;
+
+        int nret;
+
+        while (true) {
+            // token "name"
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            fieldNameTokenType = tokenType;
+            fieldNameBeginOffset = beginOffset;
+            fieldNameEndOffset = endOffset;
+            fieldName = new String(jsonCharArray, fieldNameBeginOffset, fieldNameEndOffset - fieldNameBeginOffset + 1);
+
+
+            if (tokenType != TokenType.TOKEN_TYPE_STRING) {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect a name but \"" + found + "\"";
+                return OKJSON_ERROR_NAME_INVALID;
+            }
+
+            // token ':' or ',' or '}' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_COLON) {
+                ;
+            } else if (tokenType == TokenType.TOKEN_TYPE_COMMA || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
+                nret = setMapItem(fieldName, fieldNameTokenType, map, fieldName);
+                if (nret != 0) return nret;
+
+                if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) break;
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                break;
+            } else {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect ':' but \"" + found + "\"";
+                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
+            }
+
+            // token '{' or '[' or "value"
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            valueTokenType = tokenType;
+            valueBeginOffset = beginOffset;
+            valueEndOffset = endOffset;
+
+            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
+                try {
+                    // sub map
+                    Map<String, Object> childObject = new LinkedHashMap<>();
+                    ;
+                    nret = toMapItems((Map<String, Object>) childObject);
+                    if (nret != 0) return nret;
+                    map.put(fieldName, childObject);
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return OKJSON_ERROR_EXCEPTION;
+                }
+            } else if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+                try {
+                    //  sub List
+                    List<Object> childObject = new LinkedList<>();
+                    nret = stringToArrayMap(childObject);
+                    if (nret != 0) return nret;
+                    map.put(fieldName, childObject);
+                } catch (Exception e) {
+                    Log.error(e.getMessage(), e);
+                    return OKJSON_ERROR_EXCEPTION;
+                }
+            } else {
+                String value = new String(jsonCharArray, valueBeginOffset, valueEndOffset - valueBeginOffset + 1);
+                nret = setMapItem(value, valueTokenType, map, fieldName);
+                if (nret != 0) return nret;
+            }
+
+            // token ',' or '}' or ']'
+            nret = tokenJsonWord();
+            if (nret == OKJSON_ERROR_END_OF_BUFFER) break;
+            if (nret != 0) return nret;
+
+            if (tokenType == TokenType.TOKEN_TYPE_COMMA) {
+                ;
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACE) {
+                break;
+            } else if (tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                break;
+            } else {
+                String found = String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                errorDesc = "expect ',' or '}' or ']' but \"" + found + "\"";
+                return OKJSON_ERROR_EXPECT_COLON_AFTER_NAME;
+            }
+        }
+
+        return 0;
+    }
+
+    public <T> T fileToObject(String filePath, T object) {
+        try (Reader reader = newFileReader(filePath)) {
+            return toJson(reader, object);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public <T> T toJson(String jsonString, T object) {
+        begin(jsonString.toCharArray());
+        return parseObject(object);
+    }
+
+    /**
+     * 从 reader 中边读边解析，缓冲区大小固定为 {@link #READ_BUFFER_SIZE}，与文档大小无关.
+     * reader 由调用方关闭.
+     */
+    public <T> T toJson(Reader reader, T object) {
+        begin(reader);
+        return parseObject(object);
+    }
+
+    private <T> T parseObject(T object) {
+        errorCode = tokenJsonWord();
+        if (errorCode == 0 && tokenType != TokenType.TOKEN_TYPE_LEFT_BRACE) {
+            errorCode = OKJSON_ERROR_FIND_FIRST_LEFT_BRACE;
+        }
+        if (errorCode == 0) {
+            errorCode = stringToObjectProperties(object);
+        }
+
+        return end() ? object : null;
+    }
+
+    public Map<String, Object> toMap(String jsonString) {
+        begin(jsonString.toCharArray());
+        return parseMap();
+    }
+
+    public Map<String, Object> toMap(Reader reader) {
+        begin(reader);
+        return parseMap();
+    }
+
+    private Map<String, Object> parseMap() {
+        Map<String, Object> object = null;
+
+        errorCode = tokenJsonWord();
+        if (errorCode == 0 && tokenType != TokenType.TOKEN_TYPE_LEFT_BRACE) {
+            errorCode = OKJSON_ERROR_FIND_FIRST_LEFT_BRACE;
+        }
+        if (errorCode == 0) {
+            object = new LinkedHashMap<>();
+            errorCode = toMapItems(object);
+        }
+
+        return end() ? object : null;
+    }
+
+    public Map<String, Object> fileToMap(String filePath) {
+        try (Reader reader = newFileReader(filePath)) {
+            return toMap(reader);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public List<Object> toList(String jsonString) {
+        begin(jsonString.toCharArray());
+        return parseList();
+    }
+
+    public List<Object> toList(Reader reader) {
+        begin(reader);
+        return parseList();
+    }
+
+    private List<Object> parseList() {
+        List<Object> list = null;
+
+        errorCode = tokenJsonWord();
+        if (errorCode == 0 && tokenType != TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+            errorDesc = "expect '['";
+            errorCode = OKJSON_ERROR_UNEXPECT; // 也可按需新增专门错误码
+        }
+        if (errorCode == 0) {
+            list = new LinkedList<>();
+            errorCode = stringToArrayMap(list);
+        }
+
+        return end() ? list : null;
+    }
+
+    // ====== 拉取模式：逐个读取顶层数组的元素，内存占用与数组长度无关 ======
+
+    /** {@link #nextArrayElement(Class)} 读到数组结束或出错时的返回值. */
+    static final Object END_OF_ARRAY = new Object();
+
+    private boolean arrayFirstElement;
+
+    /**
+     * 开始逐个读取 reader 中的顶层数组，读到 '[' 为止.
+     *
+     * @return 成功返回 0，否则为错误码
+     */
+    int openArray(Reader reader) {
+        begin(reader);
+        arrayFirstElement = true;
+        errorCode = tokenJsonWord();
+        if (errorCode == 0 && tokenType != TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+            fail(OKJSON_ERROR_UNEXPECT, "expect '['");
+        }
+        if (errorCode != 0) {
+            end();
+        }
+        return errorCode;
+    }
+
+    /**
+     * 读取下一个元素. 对象绑定到 clazz（clazz 为 Object 或 Map 时得到 LinkedHashMap），
+     * 子数组得到 List，其余按 clazz 转换；clazz 为 Object 时值的类型与 toList 相同.
+     *
+     * @return 元素；数组结束或出错时返回 {@link #END_OF_ARRAY}，出错时 errorCode 不为 0
+     */
+    Object nextArrayElement(Class<?> clazz) {
+        if (source == null && jsonCharArray == null) {
+            return END_OF_ARRAY;
+        }
+
+        errorCode = tokenJsonWord();
+        if (errorCode == 0 && !arrayFirstElement) {
+            if (tokenType == TokenType.TOKEN_TYPE_COMMA) {
+                errorCode = tokenJsonWord();
+            } else if (tokenType != TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+                fail(OKJSON_ERROR_UNEXPECT, "expect ',' or ']' but \""
+                        + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
+            }
+        }
+        arrayFirstElement = false;
+        if (errorCode == OKJSON_ERROR_END_OF_BUFFER) {
+            fail(OKJSON_ERROR_END_OF_BUFFER, "expect ']' but end of input");
+        }
+        if (errorCode != 0 || tokenType == TokenType.TOKEN_TYPE_RIGHT_BRACKET) {
+            end();
+            return END_OF_ARRAY;
+        }
+
+        Object element = null;
+        try {
+            if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACE) {
+                if (clazz == Object.class || clazz == Map.class) {
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    errorCode = toMapItems(map);
+                    element = map;
+                } else if (Map.class.isAssignableFrom(clazz)) {
+                    Map<String, Object> map = (Map<String, Object>) newInstance(clazz);
+                    errorCode = toMapItems(map);
+                    element = map;
+                } else {
+                    element = newInstance(clazz);
+                    errorCode = stringToObjectProperties(element);
+                }
+            } else if (tokenType == TokenType.TOKEN_TYPE_LEFT_BRACKET) {
+                List<Object> list = (clazz == Object.class || clazz.isInterface())
+                        ? new LinkedList<>() : (List<Object>) newInstance(clazz);
+                errorCode = stringToArrayMap(list);
+                element = list;
+            } else if (isTokenValueType(tokenType)) {
+                String value = new String(jsonCharArray, beginOffset, endOffset - beginOffset + 1);
+                if (clazz == Object.class) {
+                    List<Object> one = new ArrayList<>(1);
+                    errorCode = addArrayMap(value, tokenType, one);
+                    element = one.isEmpty() ? null : one.get(0);
+                } else {
+                    element = convertTokenTo(tokenType, value, booleanValue, clazz, null);
+                    if (element == null && tokenType != TokenType.TOKEN_TYPE_NULL && strictPolicyEnable) {
+                        fail(OKJSON_ERROR_PORPERTY_TYPE_NOT_MATCH_IN_OBJECT, "can not convert \"" + value
+                                + "\" to " + clazz.getName());
+                    }
+                }
+            } else {
+                fail(OKJSON_ERROR_UNEXPECT_TOKEN_AFTER_LEFT_BRACE, "unexpect \""
+                        + String.copyValueOf(jsonCharArray, beginOffset, endOffset - beginOffset + 1) + "\"");
+            }
+        } catch (Exception e) {
+            Log.error(e.getMessage(), e);
+            fail(OKJSON_ERROR_EXCEPTION, e.getMessage());
+        }
+
+        if (errorCode != 0) {
+            end();
+            return END_OF_ARRAY;
+        }
+        return element;
+    }
+
+    /**
+     * 提前结束拉取，释放输入.
+     */
+    void closeArray() {
+        end();
+    }
+
+    /**
+     * 按 UTF-8 边读边解码的文件输入，不把整个文件读进内存.
+     */
+    static Reader newFileReader(String filePath) throws IOException {
+        return new InputStreamReader(Files.newInputStream(Paths.get(filePath)), StandardCharsets.UTF_8);
+    }
+
+    public OkJsonParser() {
+        this.strictPolicyEnable = false;
+        this.directAccessPropertyEnable = false;
+        this.prettyFormatEnable = false;
+        this.errorCode = 0;
+        this.errorDesc = null;
+    }
+}
@@ -0,0 +1,29 @@
+package me.asu.net.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThreads. Java 21 的实现，打包到 META-INF/versions/21，返回虚拟线程.
+ * 公开方法必须与 src/main/java 中的实现保持一致。
+ *
+ * @version 1.0.0
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public static ThreadFactory newThreadFactory(String name) {
+        return Thread.ofVirtual().name(name + " #", 0).factory();
+    }
+
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(newThreadFactory(name));
+    }
+}